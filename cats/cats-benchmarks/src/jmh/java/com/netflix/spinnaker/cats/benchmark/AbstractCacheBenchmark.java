@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.benchmark;
+
+import static com.netflix.spinnaker.cats.benchmark.BenchmarkData.AGENT;
+import static com.netflix.spinnaker.cats.benchmark.BenchmarkData.TYPE;
+
+import com.netflix.spinnaker.cats.agent.DefaultCacheResult;
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.cats.cache.RelationshipCacheFilter;
+import com.netflix.spinnaker.cats.cache.WriteableCache;
+import com.netflix.spinnaker.cats.provider.DefaultProviderCache;
+import com.netflix.spinnaker.cats.provider.ProviderCache;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks shared by every cache backend. The cache is populated through the provider cache
+ * once per trial; write benchmarks then re-apply the same (unchanged) agent result, which is the
+ * common case for a caching agent cycle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public abstract class AbstractCacheBenchmark {
+
+  @Param({"10000", "100000", "1000000"})
+  public int keyCount;
+
+  protected WriteableCache cache;
+  protected ProviderCache providerCache;
+
+  private List<CacheData> agentItems;
+  private List<CacheData> storedItems;
+  private List<String> probeIds;
+
+  protected abstract WriteableCache createCache() throws Exception;
+
+  protected ProviderCache createProviderCache(WriteableCache cache) {
+    return new DefaultProviderCache(cache);
+  }
+
+  protected void destroyCache() throws Exception {}
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    cache = createCache();
+    providerCache = createProviderCache(cache);
+    agentItems = BenchmarkData.instances(keyCount, "");
+    storedItems = BenchmarkData.instances(keyCount, ":" + AGENT);
+    probeIds = BenchmarkData.probeIds(keyCount, 1000);
+
+    putCacheResult();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    destroyCache();
+  }
+
+  @Benchmark
+  public void mergeAll() {
+    cache.mergeAll(TYPE, storedItems);
+  }
+
+  @Benchmark
+  public void putCacheResult() {
+    providerCache.putCacheResult(
+        AGENT,
+        Collections.singleton(TYPE),
+        new DefaultCacheResult(Collections.singletonMap(TYPE, agentItems)));
+  }
+
+  @Benchmark
+  public Collection<CacheData> getAll() {
+    return providerCache.getAll(TYPE);
+  }
+
+  @Benchmark
+  public Collection<CacheData> getAllWithRelationshipFilter() {
+    return providerCache.getAll(TYPE, RelationshipCacheFilter.include("serverGroups"));
+  }
+
+  @Benchmark
+  public Collection<CacheData> getAllWithoutRelationships() {
+    return providerCache.getAll(TYPE, RelationshipCacheFilter.none());
+  }
+
+  @Benchmark
+  public Collection<String> filterIdentifiers() {
+    return providerCache.filterIdentifiers(TYPE, "*i-000012*");
+  }
+
+  @Benchmark
+  public Collection<String> existingIdentifiers() {
+    return providerCache.existingIdentifiers(TYPE, probeIds);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.benchmark;
+
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.cats.cache.DefaultCacheData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Generates deterministic, instance-shaped cache data for benchmarks. */
+final class BenchmarkData {
+  static final String TYPE = "instances";
+  static final String AGENT = "BenchmarkCachingAgent";
+
+  private static final int INSTANCES_PER_SERVER_GROUP = 20;
+
+  private BenchmarkData() {}
+
+  static String instanceKey(int i) {
+    return String.format("aws:instances:test:us-east-1:i-%08d", i);
+  }
+
+  /**
+   * @param relationshipSuffix appended to each relationship type, e.g. {@code ":" + AGENT} to
+   *     produce items as DefaultProviderCache would hand them to a WriteableCache
+   */
+  static List<CacheData> instances(int count, String relationshipSuffix) {
+    List<CacheData> items = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String id = instanceKey(i);
+      int serverGroup = i / INSTANCES_PER_SERVER_GROUP;
+
+      Map<String, Object> attributes = new HashMap<>();
+      attributes.put("instanceId", String.format("i-%08d", i));
+      attributes.put("launchTime", 1600000000000L + i);
+      attributes.put("privateIpAddress", "10.0." + (i / 256 % 256) + "." + (i % 256));
+      attributes.put("state", Collections.singletonMap("name", "running"));
+
+      Map<String, Collection<String>> relationships = new HashMap<>();
+      relationships.put(
+          "serverGroups" + relationshipSuffix,
+          Collections.singletonList(
+              String.format(
+                  "aws:serverGroups:app-test:test:us-east-1:app-test-v%03d", serverGroup)));
+      relationships.put(
+          "loadBalancers" + relationshipSuffix,
+          Collections.singletonList("aws:loadBalancers:test:us-east-1:app-test-frontend"));
+
+      items.add(new DefaultCacheData(id, attributes, relationships));
+    }
+    return items;
+  }
+
+  /** @return {@code count} identifiers, half of which exist among {@code keyCount} instances */
+  static List<String> probeIds(int keyCount, int count) {
+    List<String> ids = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      ids.add(instanceKey(i % 2 == 0 ? (int) ((long) i * keyCount / count) : keyCount + i));
+    }
+    return ids;
+  }
+}
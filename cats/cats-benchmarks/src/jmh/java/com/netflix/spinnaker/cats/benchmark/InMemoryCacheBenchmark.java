@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.benchmark;
+
+import com.netflix.spinnaker.cats.cache.WriteableCache;
+import com.netflix.spinnaker.cats.mem.InMemoryCache;
+import com.netflix.spinnaker.cats.mem.SnapshotInMemoryCache;
+import org.openjdk.jmh.annotations.Param;
+
+public class InMemoryCacheBenchmark extends AbstractCacheBenchmark {
+
+  @Param({"default", "snapshot"})
+  public String implementation;
+
+  @Override
+  protected WriteableCache createCache() {
+    if ("snapshot".equals(implementation)) {
+      return new SnapshotInMemoryCache();
+    }
+    return new InMemoryCache();
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.spinnaker.cats.cache.WriteableCache;
+import com.netflix.spinnaker.cats.redis.cache.RedisCache;
+import com.netflix.spinnaker.cats.redis.cache.RedisCacheOptions;
+import com.netflix.spinnaker.kork.jedis.EmbeddedRedis;
+import com.netflix.spinnaker.kork.jedis.JedisClientDelegate;
+import org.openjdk.jmh.annotations.Param;
+import redis.clients.jedis.JedisPool;
+
+/** Runs against an embedded redis-server started for each trial. */
+public class RedisCacheBenchmark extends AbstractCacheBenchmark {
+
+  @Param({"50", "200"})
+  public int maxMergeBatchSize;
+
+  private EmbeddedRedis embeddedRedis;
+
+  @Override
+  protected WriteableCache createCache() {
+    embeddedRedis = EmbeddedRedis.embed();
+
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    return new RedisCache(
+        "benchmark",
+        new JedisClientDelegate((JedisPool) embeddedRedis.getPool()),
+        mapper,
+        RedisCacheOptions.builder().maxMergeBatch(maxMergeBatchSize).build(),
+        new RedisCache.CacheMetrics.NOOP());
+  }
+
+  @Override
+  protected void destroyCache() {
+    embeddedRedis.destroy();
+  }
+}
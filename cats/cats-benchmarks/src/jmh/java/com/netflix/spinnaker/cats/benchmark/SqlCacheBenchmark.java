@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.spinnaker.cats.cache.WriteableCache;
+import com.netflix.spinnaker.cats.provider.ProviderCache;
+import com.netflix.spinnaker.cats.provider.ProviderCacheConfiguration;
+import com.netflix.spinnaker.cats.sql.SqlProviderCache;
+import com.netflix.spinnaker.cats.sql.cache.NoopCacheMetrics;
+import com.netflix.spinnaker.cats.sql.cache.SqlCache;
+import com.netflix.spinnaker.config.SqlConstraintsInitializer;
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService;
+import com.netflix.spinnaker.kork.sql.config.RetryProperties;
+import com.netflix.spinnaker.kork.sql.config.SqlRetryProperties;
+import com.netflix.spinnaker.kork.sql.test.SqlTestUtil;
+import java.time.Clock;
+import org.jooq.SQLDialect;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Runs against a MySQL testcontainer (requires docker). H2 is not a usable stand-in as SqlCache
+ * creates its per-type tables with {@code CREATE TABLE ... LIKE}.
+ */
+public class SqlCacheBenchmark extends AbstractCacheBenchmark {
+
+  @Param({"500", "1000"})
+  public int readBatchSize;
+
+  @Param({"100", "500"})
+  public int writeBatchSize;
+
+  private SqlTestUtil.TestDatabase testDatabase;
+
+  @Override
+  protected WriteableCache createCache() {
+    testDatabase = SqlTestUtil.initTcMysqlDatabase();
+
+    return new SqlCache(
+        "benchmark",
+        testDatabase.context,
+        new ObjectMapper(),
+        null,
+        Clock.systemDefaultZone(),
+        new SqlRetryProperties(new RetryProperties(1, 10), new RetryProperties(1, 10)),
+        "benchmark",
+        new NoopCacheMetrics(),
+        new BatchSizeConfig(),
+        SqlConstraintsInitializer.INSTANCE.getDefaultSqlConstraints(SQLDialect.MYSQL),
+        new ProviderCacheConfiguration() {});
+  }
+
+  @Override
+  protected ProviderCache createProviderCache(WriteableCache cache) {
+    return new SqlProviderCache(cache);
+  }
+
+  @Override
+  protected void destroyCache() {
+    SqlTestUtil.cleanupDb(testDatabase.context);
+    testDatabase.close();
+  }
+
+  private class BatchSizeConfig extends DynamicConfigService.NoopDynamicConfig {
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getConfig(Class<T> configType, String configName, T defaultValue) {
+      switch (configName) {
+        case "sql.cache.read-batch-size":
+          return (T) Integer.valueOf(readBatchSize);
+        case "sql.cache.write-batch-size":
+          return (T) Integer.valueOf(writeBatchSize);
+        default:
+          return defaultValue;
+      }
+    }
+  }
+}
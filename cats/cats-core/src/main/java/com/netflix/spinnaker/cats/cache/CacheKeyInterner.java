@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.spinnaker.cats.cache;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Canonicalizes cache keys and relationship types so that a key referenced from many items (e.g.
+ * {@code aws:serverGroups:prod:us-east-1:app-v001}) is held by a single String instance.
+ *
+ * <p>Canonical instances are weakly referenced and are released once no cached item refers to
+ * them.
+ */
+public class CacheKeyInterner {
+  private static final CacheKeyInterner SHARED = new CacheKeyInterner();
+
+  private final Interner<String> interner = Interners.newWeakInterner();
+
+  /** @return the process-wide interner used by {@link CompactCacheData} by default */
+  public static CacheKeyInterner shared() {
+    return SHARED;
+  }
+
+  public String intern(String key) {
+    return key == null ? null : interner.intern(key);
+  }
+}
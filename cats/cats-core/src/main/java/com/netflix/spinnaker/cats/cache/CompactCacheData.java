@@ -0,0 +1,262 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.spinnaker.cats.cache;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable CacheData optimized for long-lived or very large result sets.
+ *
+ * <p>Relationship types and keys are canonicalized through a {@link CacheKeyInterner} and stored
+ * as sorted, de-duplicated arrays rather than a map of collections. The {@link
+ * #getRelationships()} map is a read-only view over those arrays, materialized on first use.
+ *
+ * <p>The attributes map is adopted (wrapped read-only) rather than copied. Relationship types with
+ * a {@code null} value are dropped.
+ */
+public final class CompactCacheData implements CacheData {
+  private static final String[] EMPTY = new String[0];
+
+  private final String id;
+  private final int ttlSeconds;
+  private final Map<String, Object> attributes;
+  private final String[] relationshipTypes;
+  private final String[][] relationshipKeys;
+
+  private volatile Map<String, Collection<String>> relationshipsView;
+
+  public static CompactCacheData from(CacheData source) {
+    return from(source, CacheKeyInterner.shared());
+  }
+
+  public static CompactCacheData from(CacheData source, CacheKeyInterner interner) {
+    if (source instanceof CompactCacheData) {
+      return (CompactCacheData) source;
+    }
+    return new CompactCacheData(
+        source.getId(),
+        source.getTtlSeconds(),
+        source.getAttributes(),
+        source.getRelationships(),
+        interner);
+  }
+
+  public CompactCacheData(
+      String id,
+      int ttlSeconds,
+      Map<String, Object> attributes,
+      Map<String, Collection<String>> relationships,
+      CacheKeyInterner interner) {
+    this.id = interner.intern(id);
+    this.attributes =
+        attributes == null ? Collections.emptyMap() : Collections.unmodifiableMap(attributes);
+    this.ttlSeconds = resolveTtl(ttlSeconds, this.attributes);
+
+    List<String> types = new ArrayList<>(relationships == null ? 0 : relationships.size());
+    if (relationships != null) {
+      for (Map.Entry<String, Collection<String>> entry : relationships.entrySet()) {
+        if (entry.getValue() != null) {
+          types.add(entry.getKey());
+        }
+      }
+    }
+    Collections.sort(types);
+
+    this.relationshipTypes = new String[types.size()];
+    this.relationshipKeys = new String[types.size()][];
+    for (int i = 0; i < relationshipTypes.length; i++) {
+      relationshipTypes[i] = interner.intern(types.get(i));
+      relationshipKeys[i] = compact(relationships.get(types.get(i)), interner);
+    }
+  }
+
+  private CompactCacheData(
+      String id,
+      int ttlSeconds,
+      Map<String, Object> attributes,
+      String[] relationshipTypes,
+      String[][] relationshipKeys) {
+    this.id = id;
+    this.ttlSeconds = ttlSeconds;
+    this.attributes = attributes;
+    this.relationshipTypes = relationshipTypes;
+    this.relationshipKeys = relationshipKeys;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getTtlSeconds() {
+    return ttlSeconds;
+  }
+
+  @Override
+  public Map<String, Object> getAttributes() {
+    return attributes;
+  }
+
+  @Override
+  public Map<String, Collection<String>> getRelationships() {
+    Map<String, Collection<String>> view = relationshipsView;
+    if (view == null) {
+      view = new RelationshipsView();
+      relationshipsView = view;
+    }
+    return view;
+  }
+
+  /**
+   * @param relationshipType the relationship type
+   * @return the sorted keys related through {@code relationshipType}, or an empty list
+   */
+  public List<String> getRelationships(String relationshipType) {
+    int idx = indexOf(relationshipType);
+    return idx < 0 ? Collections.emptyList() : keysAt(idx);
+  }
+
+  /**
+   * Returns a copy of this item restricted to the relationship types allowed by {@code
+   * cacheFilter}, sharing the underlying key arrays.
+   */
+  public CompactCacheData filter(CacheFilter cacheFilter) {
+    if (cacheFilter == null) {
+      return this;
+    }
+    Collection<String> allowed =
+        cacheFilter.filter(CacheFilter.Type.RELATIONSHIP, Arrays.asList(relationshipTypes));
+    List<Integer> indexes = new ArrayList<>(allowed.size());
+    for (String type : allowed) {
+      int idx = indexOf(type);
+      if (idx >= 0 && !indexes.contains(idx)) {
+        indexes.add(idx);
+      }
+    }
+    Collections.sort(indexes);
+
+    String[] types = new String[indexes.size()];
+    String[][] keys = new String[indexes.size()][];
+    for (int i = 0; i < types.length; i++) {
+      types[i] = relationshipTypes[indexes.get(i)];
+      keys[i] = relationshipKeys[indexes.get(i)];
+    }
+    return new CompactCacheData(id, ttlSeconds, attributes, types, keys);
+  }
+
+  private int indexOf(Object relationshipType) {
+    if (!(relationshipType instanceof String)) {
+      return -1;
+    }
+    return Arrays.binarySearch(relationshipTypes, relationshipType);
+  }
+
+  private List<String> keysAt(int idx) {
+    return Collections.unmodifiableList(Arrays.asList(relationshipKeys[idx]));
+  }
+
+  private static String[] compact(Collection<String> keys, CacheKeyInterner interner) {
+    if (keys.isEmpty()) {
+      return EMPTY;
+    }
+    String[] sorted = new String[keys.size()];
+    int size = 0;
+    for (String key : keys) {
+      if (key != null) {
+        sorted[size++] = key;
+      }
+    }
+    Arrays.sort(sorted, 0, size);
+
+    int unique = 0;
+    for (int i = 0; i < size; i++) {
+      if (unique == 0 || !sorted[i].equals(sorted[unique - 1])) {
+        sorted[unique++] = interner.intern(sorted[i]);
+      }
+    }
+    return unique == sorted.length ? sorted : Arrays.copyOf(sorted, unique);
+  }
+
+  private static int resolveTtl(int ttlSeconds, Map<String, Object> attributes) {
+    Object cacheExpiry = attributes.get("cacheExpiry");
+    if (ttlSeconds < 0 && cacheExpiry instanceof Number) {
+      return (int) ((((Number) cacheExpiry).longValue() - System.currentTimeMillis()) / 1000);
+    }
+    return ttlSeconds;
+  }
+
+  private class RelationshipsView extends AbstractMap<String, Collection<String>> {
+    @Override
+    public Collection<String> get(Object key) {
+      int idx = indexOf(key);
+      return idx < 0 ? null : keysAt(idx);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+      return relationshipTypes.length;
+    }
+
+    @Override
+    public Set<Entry<String, Collection<String>>> entrySet() {
+      return new AbstractSet<Entry<String, Collection<String>>>() {
+        @Override
+        public Iterator<Entry<String, Collection<String>>> iterator() {
+          return new Iterator<Entry<String, Collection<String>>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+              return next < relationshipTypes.length;
+            }
+
+            @Override
+            public Entry<String, Collection<String>> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              int idx = next++;
+              return new SimpleImmutableEntry<>(relationshipTypes[idx], keysAt(idx));
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return relationshipTypes.length;
+        }
+      };
+    }
+  }
+}
@@ -17,14 +17,42 @@
 package com.netflix.spinnaker.cats.cache;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
-/** A cache that provides a unified view of multiples, merging items from each cache together. */
+/**
+ * A cache that provides a unified view of multiples, merging items from each cache together.
+ *
+ * <p>When constructed with an executor, reads are issued to all delegates concurrently (the calling
+ * thread reads the first delegate itself) and each delegate must respond within the given timeout.
+ * Results are merged in delegate order as they become available, so merge semantics are the same
+ * as for sequential reads.
+ */
 public class CompositeCache implements Cache {
 
   private final Collection<? extends Cache> caches;
+  private final ExecutorService executor;
+  private final long delegateTimeoutNanos;
+  private final CompositeCacheMetrics metrics;
 
   public CompositeCache(Collection<? extends Cache> caches) {
+    this(caches, null, 0, CompositeCacheMetrics.NOOP);
+  }
+
+  public CompositeCache(
+      Collection<? extends Cache> caches,
+      ExecutorService executor,
+      long delegateTimeoutMillis,
+      CompositeCacheMetrics metrics) {
     this.caches = caches;
+    this.executor = executor;
+    this.delegateTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(delegateTimeoutMillis);
+    this.metrics = metrics;
   }
 
   @Override
@@ -40,12 +68,15 @@ public class CompositeCache implements Cache {
   @Override
   public CacheData get(String type, String id, CacheFilter cacheFilter) {
     Collection<CacheData> elements = new ArrayList<>(caches.size());
-    for (Cache cache : caches) {
-      CacheData element = cache.get(type, id, cacheFilter);
-      if (element != null) {
-        elements.add(element);
-      }
-    }
+    forEachDelegate(
+        "get",
+        type,
+        cache -> cache.get(type, id, cacheFilter),
+        element -> {
+          if (element != null) {
+            elements.add(element);
+          }
+        });
     if (elements.isEmpty()) {
       return null;
     }
@@ -59,16 +90,36 @@ public class CompositeCache implements Cache {
 
   @Override
   public Collection<CacheData> getAll(String type, CacheFilter cacheFilter) {
-    Map<String, CacheData> allItems = new HashMap<>();
-    for (Cache cache : caches) {
-      allItems = merge(allItems, cache.getAll(type, cacheFilter));
+    MergedResults results = new MergedResults(true);
+    forEachDelegate("getAll", type, cache -> cache.getAll(type, cacheFilter), results::add);
+    return results.values();
+  }
+
+  /**
+   * Delegates to the only cache if there is just one; otherwise items have to be merged across
+   * caches by identifier, which the default implementation does a page at a time.
+   */
+  @Override
+  public Iterator<Collection<CacheData>> getAllPages(
+      String type, CacheFilter cacheFilter, int pageSize) {
+    if (caches.size() == 1) {
+      return caches.iterator().next().getAllPages(type, cacheFilter, pageSize);
     }
-    return allItems.values();
+    return Cache.super.getAllPages(type, cacheFilter, pageSize);
   }
 
   @Override
   public Collection<String> existingIdentifiers(String type, Collection<String> ids) {
     HashSet<String> identifiers = new HashSet<>(ids.size());
+    if (executor != null) {
+      forEachDelegate(
+          "existingIdentifiers",
+          type,
+          cache -> cache.existingIdentifiers(type, ids),
+          identifiers::addAll);
+      return identifiers;
+    }
+
     HashSet<String> remainingIds = new HashSet<>(ids);
     for (Cache cache : caches) {
       Collection<String> existing = cache.existingIdentifiers(type, remainingIds);
@@ -87,18 +138,19 @@ public class CompositeCache implements Cache {
   @Override
   public Collection<String> getIdentifiers(String type) {
     HashSet<String> identifiers = new HashSet<>();
-    for (Cache cache : caches) {
-      identifiers.addAll(cache.getIdentifiers(type));
-    }
+    forEachDelegate(
+        "getIdentifiers", type, cache -> cache.getIdentifiers(type), identifiers::addAll);
     return identifiers;
   }
 
   @Override
   public Collection<String> filterIdentifiers(String type, String glob) {
     HashSet<String> identifiers = new HashSet<>();
-    for (Cache cache : caches) {
-      identifiers.addAll(cache.filterIdentifiers(type, glob));
-    }
+    forEachDelegate(
+        "filterIdentifiers",
+        type,
+        cache -> cache.filterIdentifiers(type, glob),
+        identifiers::addAll);
     return identifiers;
   }
 
@@ -110,11 +162,11 @@ public class CompositeCache implements Cache {
   @Override
   public Collection<CacheData> getAll(
       String type, Collection<String> identifiers, CacheFilter cacheFilter) {
-    Map<String, CacheData> allItems = new HashMap<>();
-    for (Cache cache : caches) {
-      allItems = merge(allItems, cache.getAll(type, identifiers, cacheFilter));
-    }
-    return allItems.values();
+    // a single delegate's results may only be returned as-is when they cannot contain duplicates
+    MergedResults results = new MergedResults(identifiers instanceof Set);
+    forEachDelegate(
+        "getAll", type, cache -> cache.getAll(type, identifiers, cacheFilter), results::add);
+    return results.values();
   }
 
   @Override
@@ -125,9 +177,11 @@ public class CompositeCache implements Cache {
   @Override
   public Map<String, Collection<CacheData>> getAllByApplication(String type, String application) {
     Map<String, Collection<CacheData>> allItems = new HashMap<>();
-    for (Cache cache : caches) {
-      allItems.putAll(cache.getAllByApplication(type, application));
-    }
+    forEachDelegate(
+        "getAllByApplication",
+        type,
+        cache -> cache.getAllByApplication(type, application),
+        allItems::putAll);
     return allItems;
   }
 
@@ -135,9 +189,11 @@ public class CompositeCache implements Cache {
   public Map<String, Collection<CacheData>> getAllByApplication(
       String type, String application, CacheFilter filter) {
     Map<String, Collection<CacheData>> allItems = new HashMap<>();
-    for (Cache cache : caches) {
-      allItems.putAll(cache.getAllByApplication(type, application, filter));
-    }
+    forEachDelegate(
+        "getAllByApplication",
+        type,
+        cache -> cache.getAllByApplication(type, application, filter),
+        allItems::putAll);
     return allItems;
   }
 
@@ -145,12 +201,132 @@ public class CompositeCache implements Cache {
   public Map<String, Collection<CacheData>> getAllByApplication(
       Collection<String> types, String application, Map<String, CacheFilter> cacheFilters) {
     Map<String, Collection<CacheData>> allItems = new HashMap<>();
-    for (Cache cache : caches) {
-      allItems.putAll(cache.getAllByApplication(types, application, cacheFilters));
-    }
+    forEachDelegate(
+        "getAllByApplication",
+        String.join(",", types),
+        cache -> cache.getAllByApplication(types, application, cacheFilters),
+        allItems::putAll);
     return allItems;
   }
 
+  /**
+   * Reads from every delegate, handing each result to {@code consumer} on the calling thread in
+   * delegate order.
+   */
+  private <T> void forEachDelegate(
+      String operation, String type, Function<Cache, T> read, Consumer<T> consumer) {
+    if (executor == null || caches.size() < 2) {
+      for (Cache cache : caches) {
+        consumer.accept(read(operation, type, cache, read));
+      }
+      return;
+    }
+
+    Iterator<? extends Cache> iterator = caches.iterator();
+    Cache first = iterator.next();
+    List<Future<T>> futures = new ArrayList<>(caches.size() - 1);
+    long deadline = System.nanoTime() + delegateTimeoutNanos;
+    try {
+      while (iterator.hasNext()) {
+        Cache cache = iterator.next();
+        futures.add(executor.submit(() -> read(operation, type, cache, read)));
+      }
+
+      consumer.accept(read(operation, type, first, read));
+      for (Future<T> future : futures) {
+        consumer.accept(await(operation, type, future, deadline));
+      }
+    } finally {
+      for (Future<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private <T> T read(String operation, String type, Cache cache, Function<Cache, T> read) {
+    long start = System.nanoTime();
+    boolean success = false;
+    try {
+      T result = read.apply(cache);
+      success = true;
+      return result;
+    } finally {
+      metrics.delegateRead(operation, type, System.nanoTime() - start, success);
+    }
+  }
+
+  private <T> T await(String operation, String type, Future<T> future, long deadline) {
+    try {
+      return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      metrics.delegateTimeout(operation, type);
+      throw new CompositeCacheReadException(
+          String.format(
+              "Timed out reading from delegate cache (operation: %s, type: %s)", operation, type),
+          e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new CompositeCacheReadException(
+          String.format(
+              "Failed reading from delegate cache (operation: %s, type: %s)", operation, type),
+          e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompositeCacheReadException(
+          String.format(
+              "Interrupted reading from delegate cache (operation: %s, type: %s)",
+              operation, type),
+          e);
+    }
+  }
+
+  public static class CompositeCacheReadException extends RuntimeException {
+    public CompositeCacheReadException(String message, Throwable cause) {
+      super(message, cause);
+    }
+  }
+
+  /**
+   * Accumulates the results of each delegate. Items are only copied into a merged map once a second
+   * delegate returns results; types are usually held by a single provider.
+   */
+  private class MergedResults {
+    private final boolean distinct;
+    private Collection<CacheData> single;
+    private Map<String, CacheData> merged;
+
+    MergedResults(boolean distinct) {
+      this.distinct = distinct;
+    }
+
+    void add(Collection<CacheData> results) {
+      if (results == null || results.isEmpty()) {
+        return;
+      }
+      if (merged == null && single == null && distinct) {
+        single = results;
+        return;
+      }
+      if (merged == null) {
+        merged = new HashMap<>();
+        if (single != null) {
+          merge(merged, single);
+          single = null;
+        }
+      }
+      merge(merged, results);
+    }
+
+    Collection<CacheData> values() {
+      if (merged != null) {
+        return merged.values();
+      }
+      return single != null ? single : new ArrayList<>();
+    }
+  }
+
   Map<String, CacheData> merge(
       Map<String, CacheData> existingItems, Collection<CacheData> results) {
     final Map<String, CacheData> allItems =
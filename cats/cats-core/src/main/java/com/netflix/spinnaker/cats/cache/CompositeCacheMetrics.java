@@ -0,0 +1,31 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.cache;
+
+/** Observes the reads {@link CompositeCache} makes against its delegate caches. */
+public interface CompositeCacheMetrics {
+  CompositeCacheMetrics NOOP = new CompositeCacheMetrics() {};
+
+  /**
+   * @param operation the {@link Cache} method being called, e.g. {@code getAll}
+   * @param success whether the delegate returned without throwing
+   */
+  default void delegateRead(String operation, String type, long durationNanos, boolean success) {}
+
+  /** A delegate did not return within the configured timeout. */
+  default void delegateTimeout(String operation, String type) {}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.cluster;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A consistent hash ring mapping keys (e.g. account names) onto nodes (e.g. caching pods).
+ *
+ * <p>Each node is placed on the ring at {@code virtualNodes} points and a key is owned by the node
+ * at the first point at or after the key's hash. Adding or removing one of N nodes therefore only
+ * moves roughly 1/N of the keys, and the virtual nodes keep the share of each node even.
+ *
+ * <p>Placement only depends on the node ids, so every node building a ring from the same members
+ * agrees on the owner of every key.
+ */
+public class ConsistentHashRing {
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final TreeMap<Long, String> ring = new TreeMap<>();
+  private final int nodeCount;
+
+  public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+    if (virtualNodes < 1) {
+      throw new IllegalArgumentException("virtualNodes must be positive, got " + virtualNodes);
+    }
+
+    TreeSet<String> members = new TreeSet<>(nodes);
+    for (String node : members) {
+      for (int i = 0; i < virtualNodes; i++) {
+        // on the (unlikely) collision of two points the lowest node id wins, on every node
+        ring.putIfAbsent(hash(node + "#" + i), node);
+      }
+    }
+    this.nodeCount = members.size();
+  }
+
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  /** @return the node owning {@code key}, or null when the ring has no nodes */
+  public String getOwner(String key) {
+    if (ring.isEmpty()) {
+      return null;
+    }
+    Map.Entry<Long, String> owner = ring.ceilingEntry(hash(key));
+    return owner == null ? ring.firstEntry().getValue() : owner.getValue();
+  }
+
+  private static long hash(String value) {
+    return HASH.hashString(value, StandardCharsets.UTF_8).asLong();
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Encodes and decodes the serialized bodies of cached items.
+ *
+ * <p>Bodies are JSON unless another codec is chosen. A body written with any other codec is
+ * prefixed with {@code $<codec>:} and base64 encoded, so that it can be stored wherever JSON text
+ * is and so that each body records the codec it was written with. Bodies written with different
+ * codecs can therefore be read side by side, e.g. while a type is migrated from one codec to
+ * another. JSON bodies are objects or arrays and are written untagged, so bodies written before
+ * codecs were introduced are read as JSON.
+ *
+ * <p>The available codecs are {@code json}, {@code smile} (Jackson's binary JSON format), and
+ * either of those followed by {@code -lz4} to compress the encoded body with LZ4. Values are
+ * serialized by the given {@link ObjectMapper} whatever the codec, so they are converted in the
+ * same way for every codec.
+ */
+public class CacheBodyCodecs {
+  public static final String JSON = "json";
+
+  private static final char TAG = '$';
+  private static final char TAG_END = ':';
+  private static final String LZ4_SUFFIX = "-lz4";
+
+  private final ObjectMapper mapper;
+  private final Map<String, Codec> codecs;
+  private final LZ4Compressor compressor;
+  private final LZ4FastDecompressor decompressor;
+
+  public CacheBodyCodecs(ObjectMapper mapper) {
+    this.mapper = mapper;
+
+    LZ4Factory lz4 = LZ4Factory.fastestInstance();
+    this.compressor = lz4.fastCompressor();
+    this.decompressor = lz4.fastDecompressor();
+
+    Map<String, JsonFactory> formats = new LinkedHashMap<>();
+    formats.put(JSON, mapper.getFactory());
+    formats.put("smile", new SmileFactory());
+
+    Map<String, Codec> codecs = new LinkedHashMap<>();
+    formats.forEach(
+        (name, factory) -> {
+          codecs.put(name, new Codec(name, factory, false));
+          codecs.put(name + LZ4_SUFFIX, new Codec(name + LZ4_SUFFIX, factory, true));
+        });
+    this.codecs = Collections.unmodifiableMap(codecs);
+  }
+
+  public Set<String> getCodecs() {
+    return codecs.keySet();
+  }
+
+  public boolean isSupported(String codec) {
+    return codecs.containsKey(codec);
+  }
+
+  /**
+   * @param codec the name of the codec to encode {@code value} with
+   * @return {@code value} encoded with {@code codec}
+   */
+  public String encode(String codec, Object value) throws IOException {
+    Codec c = codecs.get(codec);
+    if (c == null) {
+      throw new IllegalArgumentException("Unknown cache body codec: " + codec);
+    }
+    if (JSON.equals(c.name)) {
+      return mapper.writeValueAsString(value);
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (JsonGenerator generator = c.factory.createGenerator(out)) {
+      mapper.writeValue(generator, value);
+    }
+    byte[] bytes = c.compressed ? compress(out.toByteArray()) : out.toByteArray();
+    return TAG + c.name + TAG_END + Base64.getEncoder().encodeToString(bytes);
+  }
+
+  /** Decodes {@code body}, whichever codec it was encoded with. */
+  public <T> T decode(String body, Class<T> type) throws IOException {
+    return decode(body, mapper.constructType(type));
+  }
+
+  /** Decodes {@code body}, whichever codec it was encoded with. */
+  public <T> T decode(String body, TypeReference<T> type) throws IOException {
+    return decode(body, mapper.getTypeFactory().constructType(type));
+  }
+
+  private <T> T decode(String body, JavaType type) throws IOException {
+    if (body.isEmpty() || body.charAt(0) != TAG) {
+      return mapper.readValue(body, type);
+    }
+
+    int tagEnd = body.indexOf(TAG_END);
+    Codec c = tagEnd == -1 ? null : codecs.get(body.substring(1, tagEnd));
+    if (c == null) {
+      throw new IOException(
+          "Unknown cache body codec: " + body.substring(0, Math.min(body.length(), 32)));
+    }
+
+    byte[] bytes = Base64.getDecoder().decode(body.substring(tagEnd + 1));
+    if (c.compressed) {
+      bytes = decompress(bytes);
+    }
+    try (JsonParser parser = c.factory.createParser(bytes)) {
+      return mapper.readValue(parser, type);
+    }
+  }
+
+  /** LZ4 blocks don't record their decompressed length, so it precedes the block. */
+  private byte[] compress(byte[] bytes) {
+    int maxLength = compressor.maxCompressedLength(bytes.length);
+    byte[] compressed = new byte[Integer.BYTES + maxLength];
+    ByteBuffer.wrap(compressed).putInt(bytes.length);
+    int length =
+        compressor.compress(bytes, 0, bytes.length, compressed, Integer.BYTES, maxLength);
+    return Arrays.copyOf(compressed, Integer.BYTES + length);
+  }
+
+  private byte[] decompress(byte[] compressed) {
+    int length = ByteBuffer.wrap(compressed).getInt();
+    return decompressor.decompress(compressed, Integer.BYTES, length);
+  }
+
+  private static class Codec {
+    private final String name;
+    private final JsonFactory factory;
+    private final boolean compressed;
+
+    Codec(String name, JsonFactory factory, boolean compressed) {
+      this.name = name;
+      this.factory = factory;
+      this.compressed = compressed;
+    }
+  }
+}
@@ -18,6 +18,7 @@ package com.netflix.spinnaker.cats.mem;
 
 import com.netflix.spinnaker.cats.cache.CacheData;
 import com.netflix.spinnaker.cats.cache.CacheFilter;
+import com.netflix.spinnaker.cats.cache.CachePages;
 import com.netflix.spinnaker.cats.cache.DefaultCacheData;
 import com.netflix.spinnaker.cats.cache.WriteableCache;
 import java.util.ArrayList;
@@ -26,6 +27,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
@@ -96,6 +98,14 @@ public class InMemoryCache implements WriteableCache {
     return values;
   }
 
+  /** Pages through the live identifiers of the type rather than a copy of them. */
+  @Override
+  public Iterator<Collection<CacheData>> getAllPages(
+      String type, CacheFilter cacheFilter, int pageSize) {
+    return CachePages.byIdentifier(
+        getTypeMap(type).keySet().iterator(), pageSize, ids -> getAll(type, ids, cacheFilter));
+  }
+
   @Override
   public Collection<CacheData> getAll(String type, Collection<String> identifiers) {
     return getAll(type, identifiers, null);
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.mem;
+
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.cats.cache.CacheFilter;
+import com.netflix.spinnaker.cats.cache.CacheKeyInterner;
+import com.netflix.spinnaker.cats.cache.CompactCacheData;
+import com.netflix.spinnaker.cats.cache.WriteableCache;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * A WriteableCache that stores each type as an immutable, striped generation of items.
+ *
+ * <p>Writers build a new generation (copying only the stripes they touch) and publish it with a
+ * single volatile write, so readers never observe a partially applied {@code mergeAll} and are
+ * served lock-free without re-wrapping stored items. Writes to the same type are serialized.
+ *
+ * <p>Items are stored (and returned) as immutable {@link CompactCacheData}.
+ */
+public class SnapshotInMemoryCache implements WriteableCache {
+  public static final int DEFAULT_STRIPES = 64;
+
+  private final int stripeCount;
+  private final Generation emptyGeneration;
+  private final ConcurrentMap<String, TypeGeneration> typeMap = new ConcurrentHashMap<>();
+  private final CacheKeyInterner interner = CacheKeyInterner.shared();
+
+  public SnapshotInMemoryCache() {
+    this(DEFAULT_STRIPES);
+  }
+
+  public SnapshotInMemoryCache(int stripeCount) {
+    if (stripeCount < 1) {
+      throw new IllegalArgumentException("stripeCount must be positive, got " + stripeCount);
+    }
+    this.stripeCount = stripeCount;
+    this.emptyGeneration = Generation.empty(stripeCount);
+  }
+
+  @Override
+  public void merge(String type, CacheData cacheData) {
+    mergeAll(type, Collections.singletonList(cacheData));
+  }
+
+  @Override
+  public void mergeAll(String type, Collection<CacheData> items) {
+    if (items.isEmpty()) {
+      return;
+    }
+
+    TypeGeneration typeGeneration = getTypeGeneration(type);
+    synchronized (typeGeneration) {
+      Generation current = typeGeneration.current;
+      Map<String, CacheData>[] stripes = current.stripes.clone();
+      boolean[] copied = new boolean[stripeCount];
+      for (CacheData item : items) {
+        int stripe = stripeFor(item.getId());
+        if (!copied[stripe]) {
+          stripes[stripe] = new HashMap<>(stripes[stripe]);
+          copied[stripe] = true;
+        }
+        Map<String, CacheData> target = stripes[stripe];
+        target.put(item.getId(), merge(target.get(item.getId()), item));
+      }
+      typeGeneration.current = publish(stripes, copied);
+    }
+  }
+
+  @Override
+  public void evict(String type, String id) {
+    evictAll(type, Collections.singletonList(id));
+  }
+
+  @Override
+  public void evictAll(String type, Collection<String> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+
+    TypeGeneration typeGeneration = getTypeGeneration(type);
+    synchronized (typeGeneration) {
+      Generation current = typeGeneration.current;
+      Map<String, CacheData>[] stripes = current.stripes.clone();
+      boolean[] copied = new boolean[stripeCount];
+      boolean changed = false;
+      for (String id : ids) {
+        int stripe = stripeFor(id);
+        if (!stripes[stripe].containsKey(id)) {
+          continue;
+        }
+        if (!copied[stripe]) {
+          stripes[stripe] = new HashMap<>(stripes[stripe]);
+          copied[stripe] = true;
+        }
+        stripes[stripe].remove(id);
+        changed = true;
+      }
+      if (changed) {
+        typeGeneration.current = publish(stripes, copied);
+      }
+    }
+  }
+
+  @Override
+  public CacheData get(String type, String id) {
+    return get(type, id, null);
+  }
+
+  @Override
+  public CacheData get(String type, String id, CacheFilter cacheFilter) {
+    return filter(getGeneration(type).get(stripeFor(id), id), cacheFilter);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type) {
+    return getAll(type, (CacheFilter) null);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type, CacheFilter cacheFilter) {
+    Generation generation = getGeneration(type);
+    Collection<CacheData> values = new ArrayList<>(generation.size);
+    for (Map<String, CacheData> stripe : generation.stripes) {
+      for (CacheData data : stripe.values()) {
+        CacheData toReturn = filter(data, cacheFilter);
+        if (toReturn != null) {
+          values.add(toReturn);
+        }
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type, Collection<String> identifiers) {
+    return getAll(type, identifiers, null);
+  }
+
+  @Override
+  public Collection<CacheData> getAll(
+      String type, Collection<String> identifiers, CacheFilter cacheFilter) {
+    Generation generation = getGeneration(type);
+    Collection<CacheData> values = new ArrayList<>(identifiers.size());
+    for (String id : identifiers) {
+      CacheData toReturn = filter(generation.get(stripeFor(id), id), cacheFilter);
+      if (toReturn != null) {
+        values.add(toReturn);
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public Collection<CacheData> getAll(String type, String... identifiers) {
+    return getAll(type, Arrays.asList(identifiers));
+  }
+
+  @Override
+  public Collection<String> existingIdentifiers(String type, Collection<String> ids) {
+    Generation generation = getGeneration(type);
+    Set<String> existing = new HashSet<>();
+    for (String id : ids) {
+      if (generation.get(stripeFor(id), id) != null) {
+        existing.add(id);
+      }
+    }
+    return existing;
+  }
+
+  @Override
+  public Collection<String> getIdentifiers(String type) {
+    Generation generation = getGeneration(type);
+    Set<String> identifiers = new HashSet<>(generation.size);
+    for (Map<String, CacheData> stripe : generation.stripes) {
+      identifiers.addAll(stripe.keySet());
+    }
+    return identifiers;
+  }
+
+  @Override
+  public Collection<String> filterIdentifiers(String type, String glob) {
+    final Pattern pattern = new InMemoryCache.Glob(glob).toPattern();
+    final Set<String> matches = new HashSet<>();
+    for (Map<String, CacheData> stripe : getGeneration(type).stripes) {
+      for (String key : stripe.keySet()) {
+        if (pattern.matcher(key).matches()) {
+          matches.add(key);
+        }
+      }
+    }
+    return matches;
+  }
+
+  private int stripeFor(String id) {
+    return Math.floorMod(id.hashCode(), stripeCount);
+  }
+
+  private Generation getGeneration(String type) {
+    TypeGeneration typeGeneration = typeMap.get(type);
+    if (typeGeneration == null) {
+      return emptyGeneration;
+    }
+    return typeGeneration.current;
+  }
+
+  private TypeGeneration getTypeGeneration(String type) {
+    return typeMap.computeIfAbsent(type, t -> new TypeGeneration(emptyGeneration));
+  }
+
+  private static Generation publish(Map<String, CacheData>[] stripes, boolean[] copied) {
+    for (int i = 0; i < stripes.length; i++) {
+      if (copied[i]) {
+        stripes[i] = Collections.unmodifiableMap(stripes[i]);
+      }
+    }
+    return new Generation(stripes);
+  }
+
+  private static CacheData filter(CacheData data, CacheFilter cacheFilter) {
+    if (data == null || data.getAttributes().isEmpty()) {
+      return null;
+    }
+    return ((CompactCacheData) data).filter(cacheFilter);
+  }
+
+  /**
+   * Applies the same semantics as {@link InMemoryCache}: attributes are replaced by the non-null
+   * attributes of the update, relationships are merged by relationship type and null relationship
+   * values remove that relationship type.
+   */
+  private CacheData merge(CacheData existing, CacheData update) {
+    Map<String, Object> attributes = new HashMap<>(update.getAttributes().size());
+    for (Map.Entry<String, Object> entry : update.getAttributes().entrySet()) {
+      if (entry.getValue() != null) {
+        attributes.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    Map<String, Collection<String>> relationships =
+        existing == null ? new HashMap<>() : new HashMap<>(existing.getRelationships());
+    for (Map.Entry<String, Collection<String>> entry : update.getRelationships().entrySet()) {
+      if (entry.getValue() == null) {
+        relationships.remove(entry.getKey());
+      } else {
+        relationships.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    return new CompactCacheData(update.getId(), -1, attributes, relationships, interner);
+  }
+
+  /** Holder for the currently published generation of a type; also the per-type write lock. */
+  private static class TypeGeneration {
+    private volatile Generation current;
+
+    TypeGeneration(Generation current) {
+      this.current = current;
+    }
+  }
+
+  private static class Generation {
+    private final Map<String, CacheData>[] stripes;
+    private final int size;
+
+    Generation(Map<String, CacheData>[] stripes) {
+      this.stripes = stripes;
+      int size = 0;
+      for (Map<String, CacheData> stripe : stripes) {
+        size += stripe.size();
+      }
+      this.size = size;
+    }
+
+    CacheData get(int stripe, String id) {
+      return stripes[stripe].get(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Generation empty(int stripeCount) {
+      Map<String, CacheData>[] stripes = new Map[stripeCount];
+      Arrays.fill(stripes, Collections.emptyMap());
+      return new Generation(stripes);
+    }
+  }
+}
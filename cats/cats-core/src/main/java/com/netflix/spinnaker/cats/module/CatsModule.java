@@ -22,6 +22,7 @@ import com.netflix.spinnaker.cats.agent.DefaultAgentScheduler;
 import com.netflix.spinnaker.cats.agent.ExecutionInstrumentation;
 import com.netflix.spinnaker.cats.agent.NoopExecutionInstrumentation;
 import com.netflix.spinnaker.cats.cache.Cache;
+import com.netflix.spinnaker.cats.cache.CompositeCache;
 import com.netflix.spinnaker.cats.cache.NamedCacheFactory;
 import com.netflix.spinnaker.cats.mem.InMemoryNamedCacheFactory;
 import com.netflix.spinnaker.cats.provider.Provider;
@@ -30,6 +31,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * A CatsModule should provide the component configuration for caching a collection of Providers,
@@ -52,6 +54,7 @@ public interface CatsModule {
     private AgentScheduler scheduler;
     private ProviderRegistry providerRegistry;
     private Collection<ExecutionInstrumentation> instrumentations = new LinkedList<>();
+    private Function<Collection<? extends Cache>, Cache> viewFactory = CompositeCache::new;
 
     public Builder scheduler(AgentScheduler agentScheduler) {
       if (this.scheduler != null) {
@@ -91,6 +94,14 @@ public interface CatsModule {
       return this;
     }
 
+    /**
+     * Creates the view over all provider caches; a sequential {@link CompositeCache} by default.
+     */
+    public Builder viewFactory(Function<Collection<? extends Cache>, Cache> viewFactory) {
+      this.viewFactory = viewFactory;
+      return this;
+    }
+
     public CatsModule build(Provider... providers) {
       return build(Arrays.asList(providers));
     }
@@ -111,7 +122,7 @@ public interface CatsModule {
         cacheFactory = new InMemoryNamedCacheFactory();
       }
       return new DefaultCatsModule(
-          providerRegistry, providers, cacheFactory, scheduler, instrumentation);
+          providerRegistry, providers, cacheFactory, scheduler, instrumentation, viewFactory);
     }
   }
 }
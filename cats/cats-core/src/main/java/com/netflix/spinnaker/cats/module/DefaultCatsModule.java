@@ -26,6 +26,7 @@ import com.netflix.spinnaker.cats.provider.DefaultProviderRegistry;
 import com.netflix.spinnaker.cats.provider.Provider;
 import com.netflix.spinnaker.cats.provider.ProviderRegistry;
 import java.util.Collection;
+import java.util.function.Function;
 
 public class DefaultCatsModule implements CatsModule {
   private final NamedCacheFactory namedCacheFactory;
@@ -40,6 +41,22 @@ public class DefaultCatsModule implements CatsModule {
       NamedCacheFactory namedCacheFactory,
       AgentScheduler agentScheduler,
       ExecutionInstrumentation executionInstrumentation) {
+    this(
+        registry,
+        providers,
+        namedCacheFactory,
+        agentScheduler,
+        executionInstrumentation,
+        CompositeCache::new);
+  }
+
+  public DefaultCatsModule(
+      ProviderRegistry registry,
+      Collection<Provider> providers,
+      NamedCacheFactory namedCacheFactory,
+      AgentScheduler agentScheduler,
+      ExecutionInstrumentation executionInstrumentation,
+      Function<Collection<? extends Cache>, Cache> viewFactory) {
     if (registry == null) {
       this.providerRegistry = new DefaultProviderRegistry(providers, namedCacheFactory);
     } else {
@@ -54,7 +71,7 @@ public class DefaultCatsModule implements CatsModule {
       ((CatsModuleAware) agentScheduler).setCatsModule(this);
     }
 
-    view = new CompositeCache(providerRegistry.getProviderCaches());
+    view = viewFactory.apply(providerRegistry.getProviderCaches());
     this.executionInstrumentation = executionInstrumentation;
     new AgentController(providerRegistry, agentScheduler, executionInstrumentation);
   }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.provider;
+
+import com.netflix.spinnaker.cats.cache.CacheData;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes a 64-bit fingerprint of the content of a {@link CacheData}.
+ *
+ * <p>Map entries and relationship values are combined independently of iteration order; lists
+ * are combined in order. Values other than maps, collections, strings, numbers and booleans
+ * contribute their {@code hashCode}.
+ */
+final class CacheDataFingerprint {
+  private static final long SEED = 0x9E3779B97F4A7C15L;
+
+  private CacheDataFingerprint() {}
+
+  static long of(CacheData data) {
+    long hash = mix(data.getTtlSeconds());
+    hash = combine(hash, hashValue(data.getAttributes()));
+    long relationships = 0;
+    for (Map.Entry<String, Collection<String>> entry : data.getRelationships().entrySet()) {
+      long values = 0;
+      if (entry.getValue() != null) {
+        for (String value : entry.getValue()) {
+          values += hashString(value);
+        }
+      }
+      relationships += mix(combine(hashString(entry.getKey()), values));
+    }
+    return combine(hash, relationships);
+  }
+
+  /** @return a fingerprint of a set of identifiers */
+  static long ofIdentifiers(Collection<String> ids, int ttlSeconds) {
+    long hash = mix(ttlSeconds);
+    for (String id : ids) {
+      hash += hashString(id);
+    }
+    return mix(hash);
+  }
+
+  private static long hashValue(Object value) {
+    if (value == null) {
+      return SEED;
+    }
+    if (value instanceof String) {
+      return hashString((String) value);
+    }
+    if (value instanceof Map) {
+      long hash = 1;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        hash += mix(combine(hashValue(entry.getKey()), hashValue(entry.getValue())));
+      }
+      return mix(hash);
+    }
+    if (value instanceof List) {
+      long hash = 2;
+      for (Object element : (List<?>) value) {
+        hash = combine(hash, hashValue(element));
+      }
+      return hash;
+    }
+    if (value instanceof Collection) {
+      long hash = 3;
+      for (Object element : (Collection<?>) value) {
+        hash += hashValue(element);
+      }
+      return mix(hash);
+    }
+    if (value instanceof Double || value instanceof Float) {
+      return mix(Double.doubleToLongBits(((Number) value).doubleValue()));
+    }
+    if (value instanceof Number) {
+      return mix(((Number) value).longValue());
+    }
+    return mix(value.getClass().hashCode() * 31L + value.hashCode());
+  }
+
+  /** FNV-1a over the characters of {@code value}, finalized with {@link #mix}. */
+  private static long hashString(String value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  private static long combine(long hash, long value) {
+    return mix(hash * 31 + value);
+  }
+
+  /** The finalizer of MurmurHash3's 64-bit variant. */
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.provider;
+
+import com.netflix.spinnaker.cats.cache.CacheData;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks a fingerprint of every item an agent last wrote for each type, so that {@link
+ * DefaultProviderCache} only forwards created or changed items to its backing store.
+ *
+ * <p>Fingerprints are only trusted for writes made through this detector: items evicted or
+ * written outside of an agent's cache cycle must be passed to {@link #invalidate}, and only
+ * types an agent is authoritative for should be detected. Writes made by other nodes to a shared
+ * backing store cannot be observed, so fingerprints expire after {@code fullWriteInterval}, at
+ * which point every item of the agent is sent again. An item rewritten or evicted by another
+ * node may therefore stay stale for up to that interval. Items with a TTL are always sent.
+ */
+public class CacheResultChangeDetector {
+
+  /** Observes how many items were skipped. */
+  public interface Metrics {
+    Metrics NOOP = new Metrics() {};
+
+    default void detected(String agent, String type, int items, int changed, boolean fullWrite) {}
+  }
+
+  private final Clock clock;
+  private final long fullWriteIntervalMillis;
+  private final Metrics metrics;
+
+  /** type -> agent -> fingerprints of the items last written by the agent */
+  private final ConcurrentMap<String, ConcurrentMap<String, Fingerprints>> committed =
+      new ConcurrentHashMap<>();
+
+  /** type -> fingerprints of deltas that have been detected but not yet committed */
+  private final ConcurrentMap<String, Set<Fingerprints>> inFlight = new ConcurrentHashMap<>();
+
+  public CacheResultChangeDetector(
+      Clock clock, long fullWriteInterval, TimeUnit unit, Metrics metrics) {
+    this.clock = clock;
+    this.fullWriteIntervalMillis = unit.toMillis(fullWriteInterval);
+    this.metrics = metrics;
+  }
+
+  /** @return the items of {@code type} written by {@code agent} that need to be stored */
+  public Delta detect(String agent, String type, Collection<CacheData> items) {
+    long now = clock.millis();
+    Map<String, Fingerprints> byAgent = committed.get(type);
+    Fingerprints previous = byAgent == null ? null : byAgent.get(agent);
+    boolean fullWrite = previous == null || now - previous.since >= fullWriteIntervalMillis;
+
+    Fingerprints current = new Fingerprints(fullWrite ? now : previous.since, items.size());
+    inFlight.computeIfAbsent(type, t -> ConcurrentHashMap.newKeySet()).add(current);
+
+    List<CacheData> changed = new ArrayList<>();
+    for (CacheData item : items) {
+      if (item.getTtlSeconds() > 0) {
+        changed.add(item);
+        continue;
+      }
+      if (isChanged(current, previous, fullWrite, item.getId(), CacheDataFingerprint.of(item))) {
+        changed.add(item);
+      }
+    }
+
+    return new Delta(agent, type, items.size(), changed, current, previous, fullWrite);
+  }
+
+  /**
+   * Forgets the fingerprints of {@code ids} for every agent, e.g. after they were evicted or
+   * written outside of an agent's cache cycle.
+   */
+  public void invalidate(String type, Collection<String> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    // committed deltas are checked again as a delta may be committed while in-flight ones are
+    removeCommitted(type, ids);
+    Set<Fingerprints> pending = inFlight.get(type);
+    if (pending != null) {
+      for (Fingerprints fingerprints : pending) {
+        fingerprints.removeAll(ids);
+      }
+    }
+    removeCommitted(type, ids);
+  }
+
+  private void removeCommitted(String type, Collection<String> ids) {
+    Map<String, Fingerprints> byAgent = committed.get(type);
+    if (byAgent != null) {
+      for (Fingerprints fingerprints : byAgent.values()) {
+        fingerprints.removeAll(ids);
+      }
+    }
+  }
+
+  /**
+   * The fingerprint is tracked before the previous one is checked, so a concurrent {@link
+   * #invalidate} either causes the item to be stored or removes the new fingerprint.
+   */
+  private static boolean isChanged(
+      Fingerprints current,
+      Fingerprints previous,
+      boolean fullWrite,
+      String id,
+      long fingerprint) {
+    boolean duplicate = !current.put(id, fingerprint);
+    return duplicate || fullWrite || !previous.matches(id, fingerprint);
+  }
+
+  public class Delta {
+    private final String agent;
+    private final String type;
+    private final int itemCount;
+    private final List<CacheData> changed;
+    private final Fingerprints current;
+    private final Fingerprints previous;
+    private final boolean fullWrite;
+    private int changedCount;
+
+    private Delta(
+        String agent,
+        String type,
+        int itemCount,
+        List<CacheData> changed,
+        Fingerprints current,
+        Fingerprints previous,
+        boolean fullWrite) {
+      this.agent = agent;
+      this.type = type;
+      this.itemCount = itemCount;
+      this.changed = changed;
+      this.current = current;
+      this.previous = previous;
+      this.fullWrite = fullWrite;
+      this.changedCount = changed.size();
+    }
+
+    public List<CacheData> getChanged() {
+      return changed;
+    }
+
+    /**
+     * Tracks an additional, derived item of this delta.
+     *
+     * @return whether it needs to be stored
+     */
+    public boolean track(String id, long fingerprint) {
+      boolean changed = isChanged(current, previous, fullWrite, id, fingerprint);
+      if (changed) {
+        changedCount++;
+      }
+      return changed;
+    }
+
+    /** Records the fingerprints of this delta once its items have been stored. */
+    public void commit() {
+      committed.computeIfAbsent(type, t -> new ConcurrentHashMap<>()).put(agent, current);
+      abandon();
+      metrics.detected(agent, type, itemCount, changedCount, fullWrite);
+    }
+
+    /** Discards this delta, e.g. when storing its items failed. */
+    public void abandon() {
+      Set<Fingerprints> pending = inFlight.get(type);
+      if (pending != null) {
+        pending.remove(current);
+      }
+    }
+  }
+
+  private static class Fingerprints {
+    private final long since;
+    private final Map<String, Long> fingerprints;
+
+    Fingerprints(long since, int expectedSize) {
+      this.since = since;
+      this.fingerprints = new HashMap<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+    }
+
+    /** @return false if {@code id} was already tracked */
+    synchronized boolean put(String id, long fingerprint) {
+      return fingerprints.put(id, fingerprint) == null;
+    }
+
+    synchronized boolean matches(String id, long fingerprint) {
+      Long existing = fingerprints.get(id);
+      return existing != null && existing == fingerprint;
+    }
+
+    synchronized void removeAll(Collection<String> ids) {
+      fingerprints.keySet().removeAll(ids);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this);
+    }
+  }
+}
@@ -28,6 +28,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -49,9 +50,20 @@ public class DefaultProviderCache implements ProviderCache {
           });
 
   private final WriteableCache backingStore;
+  private final CacheResultChangeDetector changeDetector;
 
   public DefaultProviderCache(WriteableCache backingStore) {
+    this(backingStore, null);
+  }
+
+  /**
+   * @param changeDetector if non-null, only items that changed since an agent last wrote them are
+   *     forwarded to the backing store
+   */
+  public DefaultProviderCache(
+      WriteableCache backingStore, CacheResultChangeDetector changeDetector) {
     this.backingStore = backingStore;
+    this.changeDetector = changeDetector;
   }
 
   @Override
@@ -85,6 +97,24 @@ public class DefaultProviderCache implements ProviderCache {
     return buildResponse(all);
   }
 
+  @Override
+  public Iterator<Collection<CacheData>> getAllPages(
+      String type, CacheFilter cacheFilter, int pageSize) {
+    validateTypes(type);
+    Iterator<Collection<CacheData>> pages = backingStore.getAllPages(type, cacheFilter, pageSize);
+    return new Iterator<Collection<CacheData>>() {
+      @Override
+      public boolean hasNext() {
+        return pages.hasNext();
+      }
+
+      @Override
+      public Collection<CacheData> next() {
+        return buildResponse(pages.next());
+      }
+    };
+  }
+
   @Override
   public Collection<CacheData> getAll(String type, Collection<String> identifiers) {
     return getAll(type, identifiers, null);
@@ -145,7 +175,11 @@ public class DefaultProviderCache implements ProviderCache {
         previousSet = new HashSet<>();
       }
       if (cacheResult.getCacheResults().containsKey(type)) {
-        cacheDataType(type, sourceAgentType, cacheResult.getCacheResults().get(type));
+        cacheDataType(
+            type,
+            sourceAgentType,
+            authoritativeTypes.contains(type),
+            cacheResult.getCacheResults().get(type));
         for (CacheData data : cacheResult.getCacheResults().get(type)) {
           previousSet.remove(data.getId());
         }
@@ -171,13 +205,20 @@ public class DefaultProviderCache implements ProviderCache {
 
     allTypes.forEach(
         type -> {
-          cacheDataType(type, sourceAgentType, cacheResult.getCacheResults().get(type));
+          Collection<CacheData> items = cacheResult.getCacheResults().get(type);
+          storeCacheDataType(type, sourceAgentType, items, null);
+
+          // this also replaced the agent's _ALL_ relationship
+          Collection<String> written = ids(items);
+          written.add(ALL_ID);
+          invalidate(type, written);
         });
   }
 
   @Override
   public void putCacheData(String sourceAgentType, CacheData cacheData) {
     backingStore.merge(sourceAgentType, cacheData);
+    invalidate(sourceAgentType, Collections.singletonList(cacheData.getId()));
   }
 
   private void validateTypes(String... types) {
@@ -223,24 +264,75 @@ public class DefaultProviderCache implements ProviderCache {
     return relationship;
   }
 
-  private void cacheDataType(String type, String sourceAgentType, Collection<CacheData> items) {
+  /**
+   * Change detection is limited to authoritative types: informative items are shared with the
+   * agents that own them, which may rewrite or evict them at any time, so they are always stored.
+   */
+  private void cacheDataType(
+      String type, String sourceAgentType, boolean authoritative, Collection<CacheData> items) {
+    if (changeDetector == null || !authoritative) {
+      storeCacheDataType(type, sourceAgentType, items, null);
+      return;
+    }
+
+    CacheResultChangeDetector.Delta delta = changeDetector.detect(sourceAgentType, type, items);
+    try {
+      storeCacheDataType(type, sourceAgentType, items, delta);
+    } catch (RuntimeException e) {
+      delta.abandon();
+      throw e;
+    }
+    delta.commit();
+  }
+
+  /** @param delta if non-null, only its changed items (and a changed _ALL_ item) are stored */
+  private void storeCacheDataType(
+      String type,
+      String sourceAgentType,
+      Collection<CacheData> items,
+      CacheResultChangeDetector.Delta delta) {
     Collection<String> idSet = new HashSet<>();
 
     int ttlSeconds = -1;
-    Collection<CacheData> toStore = new ArrayList<>(items.size() + 1);
     for (CacheData item : items) {
       idSet.add(item.getId());
-      toStore.add(uniqueifyRelationships(item, sourceAgentType));
 
       if (item.getTtlSeconds() > ttlSeconds) {
         ttlSeconds = item.getTtlSeconds();
       }
     }
-    Map<String, Collection<String>> allRelationship = new HashMap<>();
-    allRelationship.put(sourceAgentType, idSet);
 
-    toStore.add(new DefaultCacheData(ALL_ID, ttlSeconds, ALL_ATTRIBUTE, allRelationship));
-    backingStore.mergeAll(type, toStore);
+    Collection<CacheData> changed = delta == null ? items : delta.getChanged();
+    Collection<CacheData> toStore = new ArrayList<>(changed.size() + 1);
+    for (CacheData item : changed) {
+      toStore.add(uniqueifyRelationships(item, sourceAgentType));
+    }
+
+    if (delta == null
+        || ttlSeconds > 0
+        || delta.track(ALL_ID, CacheDataFingerprint.ofIdentifiers(idSet, ttlSeconds))) {
+      Map<String, Collection<String>> allRelationship = new HashMap<>();
+      allRelationship.put(sourceAgentType, idSet);
+      toStore.add(new DefaultCacheData(ALL_ID, ttlSeconds, ALL_ATTRIBUTE, allRelationship));
+    }
+
+    if (!toStore.isEmpty()) {
+      backingStore.mergeAll(type, toStore);
+    }
+  }
+
+  private void invalidate(String type, Collection<String> ids) {
+    if (changeDetector != null) {
+      changeDetector.invalidate(type, ids);
+    }
+  }
+
+  private static Collection<String> ids(Collection<CacheData> items) {
+    Collection<String> ids = new ArrayList<>(items.size());
+    for (CacheData item : items) {
+      ids.add(item.getId());
+    }
+    return ids;
   }
 
   private CacheData uniqueifyRelationships(CacheData source, String sourceAgentType) {
@@ -273,5 +365,6 @@ public class DefaultProviderCache implements ProviderCache {
   @Override
   public void evictDeletedItems(String type, Collection<String> ids) {
     backingStore.evictAll(type, ids);
+    invalidate(type, ids);
   }
 }
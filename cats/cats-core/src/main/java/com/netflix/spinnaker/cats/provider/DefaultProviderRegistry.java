@@ -18,21 +18,36 @@ package com.netflix.spinnaker.cats.provider;
 
 import com.netflix.spinnaker.cats.cache.Cache;
 import com.netflix.spinnaker.cats.cache.NamedCacheFactory;
+import com.netflix.spinnaker.cats.cache.WriteableCache;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 public class DefaultProviderRegistry implements ProviderRegistry {
   private final ConcurrentMap<String, ProviderCache> providerCaches = new ConcurrentHashMap<>();
   private final Collection<Provider> providers;
 
   public DefaultProviderRegistry(Collection<Provider> providers, NamedCacheFactory cacheFactory) {
+    this(providers, cacheFactory, null);
+  }
+
+  /**
+   * @param changeDetectors if non-null, supplies a change detector for each provider cache; see
+   *     {@link DefaultProviderCache}
+   */
+  public DefaultProviderRegistry(
+      Collection<Provider> providers,
+      NamedCacheFactory cacheFactory,
+      Supplier<CacheResultChangeDetector> changeDetectors) {
     this.providers = Collections.unmodifiableCollection(providers);
     for (Provider provider : providers) {
       providerCaches.put(
           provider.getProviderName(),
-          new DefaultProviderCache(cacheFactory.getCache(provider.getProviderName())));
+          new DefaultProviderCache(
+              cacheFactory.getCache(provider.getProviderName()),
+              changeDetectors == null ? null : changeDetectors.get()));
     }
   }
 
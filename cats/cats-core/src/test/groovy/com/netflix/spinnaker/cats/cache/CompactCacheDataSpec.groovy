@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.cache
+
+import spock.lang.Specification
+
+class CompactCacheDataSpec extends Specification {
+  def interner = new CacheKeyInterner()
+
+  def "should expose sorted, de-duplicated relationships as a map view"() {
+    given:
+    def cacheData = new CompactCacheData("id", -1, [a: "b"], [
+      serverGroups: ["sg2", "sg1", "sg2"],
+      instances   : ["i1"],
+      removed     : null
+    ], interner)
+
+    expect:
+    cacheData.relationships.keySet() == ["instances", "serverGroups"] as Set
+    cacheData.relationships.serverGroups == ["sg1", "sg2"]
+    cacheData.relationships == [instances: ["i1"], serverGroups: ["sg1", "sg2"]]
+    cacheData.getRelationships("instances") == ["i1"]
+    cacheData.getRelationships("unknown") == []
+    !cacheData.relationships.containsKey("removed")
+  }
+
+  def "should share a single instance of repeated relationship keys"() {
+    given:
+    def key = "aws:instances:prod:us-east-1:i-123"
+    def first = new CompactCacheData("a", -1, [:], [instances: [new String(key)]], interner)
+    def second = new CompactCacheData("b", -1, [:], [instances: [new String(key)]], interner)
+
+    expect:
+    first.relationships.instances[0].is(second.relationships.instances[0])
+  }
+
+  def "should filter relationships without copying keys"() {
+    given:
+    def cacheData = new CompactCacheData("id", -1, [:], [serverGroups: ["sg1"], instances: ["i1"]], interner)
+
+    when:
+    def filtered = cacheData.filter(RelationshipCacheFilter.include("instances"))
+
+    then:
+    filtered.relationships == [instances: ["i1"]]
+    filtered.attributes.is(cacheData.attributes)
+    cacheData.filter(null).is(cacheData)
+  }
+
+  def "should be immutable"() {
+    given:
+    def cacheData = CompactCacheData.from(new DefaultCacheData("id", [a: "b"], [instances: ["i1"]]))
+
+    when:
+    cacheData.relationships.instances.add("i2")
+
+    then:
+    thrown(UnsupportedOperationException)
+
+    when:
+    cacheData.attributes.put("c", "d")
+
+    then:
+    thrown(UnsupportedOperationException)
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.cache
+
+import com.netflix.spinnaker.cats.mem.InMemoryCache
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+class ParallelCompositeCacheSpec extends CompositeCacheSpec {
+
+    def executor = Executors.newFixedThreadPool(2)
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    @Override
+    Cache getSubject() {
+        c1 = new InMemoryCache()
+        c2 = new InMemoryCache()
+        new CompositeCache(Arrays.asList(c1, c2), executor, 5000, CompositeCacheMetrics.NOOP)
+    }
+
+    def "attributes of later caches take precedence"() {
+        setup:
+        c1.merge('foo', createData('bar', [att: 'c1washere']))
+        c2.merge('foo', createData('bar', [att: 'c2washere']))
+
+        expect:
+        cache.get('foo', 'bar').attributes.att == 'c2washere'
+        cache.getAll('foo').find { it.id == 'bar' }.attributes.att == 'c2washere'
+    }
+
+    def "relationships are merged from both caches"() {
+        setup:
+        c1.merge('foo', createData('bar', [c1Att: 'c1'], [baz: ['baz:1']]))
+        c2.merge('foo', createData('bar', [c2Att: 'c2'], [baz: ['baz:2']]))
+
+        when:
+        def all = cache.getAll('foo', ['bar'] as Set)
+
+        then:
+        all.size() == 1
+        all.first().relationships.baz as Set == ['baz:1', 'baz:2'] as Set
+    }
+
+    def "fails reads from delegates that time out and records the timeout"() {
+        setup:
+        def release = new CountDownLatch(1)
+        def metrics = Mock(CompositeCacheMetrics)
+        def slow = Stub(Cache) {
+            getIdentifiers('foo') >> { release.await(); ['bar'] }
+        }
+        def composite = new CompositeCache([new InMemoryCache(), slow], executor, 50, metrics)
+
+        when:
+        composite.getIdentifiers('foo')
+
+        then:
+        thrown(CompositeCache.CompositeCacheReadException)
+        1 * metrics.delegateTimeout('getIdentifiers', 'foo')
+
+        cleanup:
+        release.countDown()
+    }
+}
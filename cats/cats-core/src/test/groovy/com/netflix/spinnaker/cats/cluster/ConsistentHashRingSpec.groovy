@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.netflix.spinnaker.cats.cluster
+
+import spock.lang.Specification
+
+class ConsistentHashRingSpec extends Specification {
+
+  def accounts = (1..1000).collect { "account-$it".toString() }
+
+  def 'every node agrees on the owner of a key'() {
+    given:
+    def ring = new ConsistentHashRing(['pod-b', 'pod-a', 'pod-c'], 64)
+    def reordered = new ConsistentHashRing(['pod-c', 'pod-a', 'pod-b'], 64)
+
+    expect:
+    accounts.every { ring.getOwner(it) == reordered.getOwner(it) }
+    ring.nodeCount == 3
+  }
+
+  def 'spreads keys evenly across nodes'() {
+    given:
+    def pods = (1..5).collect { "pod-$it".toString() }
+    def ring = new ConsistentHashRing(pods, 128)
+
+    when:
+    def counts = accounts.countBy { ring.getOwner(it) }
+
+    then:
+    counts.keySet() == pods as Set
+    counts.values().every { it > 120 && it < 280 }
+  }
+
+  def 'only moves the keys of a node that joins or leaves'() {
+    given:
+    def pods = (1..4).collect { "pod-$it".toString() }
+    def before = new ConsistentHashRing(pods, 128)
+    def scaledUp = new ConsistentHashRing(pods + 'pod-5', 128)
+    def scaledDown = new ConsistentHashRing(pods - 'pod-4', 128)
+
+    when:
+    def movedOnScaleUp = accounts.findAll { before.getOwner(it) != scaledUp.getOwner(it) }
+    def movedOnScaleDown = accounts.findAll { before.getOwner(it) != scaledDown.getOwner(it) }
+
+    then:
+    movedOnScaleUp.every { scaledUp.getOwner(it) == 'pod-5' }
+    movedOnScaleUp.size() < 300
+    movedOnScaleDown.every { before.getOwner(it) == 'pod-4' }
+    movedOnScaleDown.size() < 350
+  }
+
+  def 'has no owner without nodes'() {
+    expect:
+    new ConsistentHashRing([], 16).getOwner('account') == null
+  }
+}
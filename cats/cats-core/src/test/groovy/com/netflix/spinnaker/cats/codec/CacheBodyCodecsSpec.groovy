@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.codec
+
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.ObjectMapper
+import spock.lang.Specification
+import spock.lang.Subject
+import spock.lang.Unroll
+
+class CacheBodyCodecsSpec extends Specification {
+  static final TypeReference<Map<String, Object>> ATTRIBUTES = new TypeReference<Map<String, Object>>() {}
+
+  @Subject
+  CacheBodyCodecs codecs = new CacheBodyCodecs(new ObjectMapper())
+
+  def attributes = [
+    name    : 'app-main-v001',
+    capacity: [min: 1, max: 3, desired: 2],
+    zones   : ['us-east-1a', 'us-east-1b'],
+    enabled : true
+  ]
+
+  @Unroll
+  def "round trips bodies encoded with #codec"() {
+    when:
+    def body = codecs.encode(codec, attributes)
+
+    then:
+    body.startsWith(prefix)
+    codecs.decode(body, ATTRIBUTES) == attributes
+
+    where:
+    codec       || prefix
+    'json'      || '{'
+    'json-lz4'  || '$json-lz4:'
+    'smile'     || '$smile:'
+    'smile-lz4' || '$smile-lz4:'
+  }
+
+  def "reads bodies written before codecs were introduced"() {
+    expect:
+    codecs.decode(new ObjectMapper().writeValueAsString(attributes), ATTRIBUTES) == attributes
+  }
+
+  def "rejects unknown codecs"() {
+    when:
+    codecs.encode('xml', attributes)
+
+    then:
+    thrown(IllegalArgumentException)
+
+    when:
+    codecs.decode('$xml:PGE+PC9hPg==', ATTRIBUTES)
+
+    then:
+    thrown(IOException)
+  }
+}
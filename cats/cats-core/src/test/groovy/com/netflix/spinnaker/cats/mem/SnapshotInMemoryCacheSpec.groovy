@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.mem
+
+import com.netflix.spinnaker.cats.cache.CacheData
+import com.netflix.spinnaker.cats.cache.RelationshipCacheFilter
+import com.netflix.spinnaker.cats.cache.WriteableCacheSpec
+
+class SnapshotInMemoryCacheSpec extends WriteableCacheSpec {
+
+  @Override
+  SnapshotInMemoryCache getSubject() {
+    new SnapshotInMemoryCache(4)
+  }
+
+  def 'mergeAll with two items that have the same id uses the second item'() {
+    given:
+    CacheData itemOne = createData('bar', [att1: 'val1'])
+    CacheData itemTwo = createData('bar', [att2: 'val2'])
+
+    when:
+    cache.mergeAll('foo', [itemOne, itemTwo])
+
+    then:
+    cache.get('foo', 'bar').attributes == [att2: 'val2']
+  }
+
+  def 'previously read items are not modified by later writes'() {
+    given:
+    cache.merge('foo', createData('bar', [att1: 'val1'], [rel: ['a']]))
+    def snapshot = cache.get('foo', 'bar')
+    def all = cache.getAll('foo')
+
+    when:
+    cache.merge('foo', createData('bar', [att1: 'val2'], [rel: ['b']]))
+    cache.merge('foo', createData('baz'))
+
+    then:
+    snapshot.attributes == [att1: 'val1']
+    snapshot.relationships == [rel: ['a']]
+    all*.id == ['bar']
+    cache.get('foo', 'bar').attributes == [att1: 'val2']
+  }
+
+  def 'relationship filters do not affect stored items'() {
+    given:
+    cache.merge('foo', createData('bar', [id: 'bar'], [rel1: ['a'], rel2: ['b']]))
+
+    expect:
+    cache.get('foo', 'bar', RelationshipCacheFilter.include('rel1')).relationships.keySet() == ['rel1'] as Set
+    cache.get('foo', 'bar').relationships.keySet() == ['rel1', 'rel2'] as Set
+  }
+
+  def 'returned items are immutable'() {
+    given:
+    cache.merge('foo', createData('bar'))
+
+    when:
+    cache.get('foo', 'bar').attributes.put('a', 'b')
+
+    then:
+    thrown(UnsupportedOperationException)
+  }
+
+  def 'stripe count must be positive'() {
+    when:
+    new SnapshotInMemoryCache(0)
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+}
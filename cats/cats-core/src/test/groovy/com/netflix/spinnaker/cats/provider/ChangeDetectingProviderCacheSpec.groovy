@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.provider
+
+import com.netflix.spinnaker.cats.agent.DefaultCacheResult
+import com.netflix.spinnaker.cats.cache.Cache
+import com.netflix.spinnaker.cats.cache.CacheData
+import com.netflix.spinnaker.cats.cache.DefaultCacheData
+import com.netflix.spinnaker.cats.mem.InMemoryCache
+
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZoneOffset
+import java.util.concurrent.TimeUnit
+
+class ChangeDetectingProviderCacheSpec extends ProviderCacheSpec {
+
+    long now = 0
+    Clock clock = new Clock() {
+        @Override
+        ZoneId getZone() { ZoneOffset.UTC }
+
+        @Override
+        Clock withZone(ZoneId zone) { this }
+
+        @Override
+        Instant instant() { Instant.ofEpochMilli(now) }
+    }
+    CacheResultChangeDetector.Metrics metrics = Mock(CacheResultChangeDetector.Metrics)
+    List<Collection<String>> stored = []
+
+    @Override
+    Cache getSubject() {
+        backingStore = new InMemoryCache() {
+            @Override
+            void mergeAll(String type, Collection<CacheData> items) {
+                stored << items*.id
+                super.mergeAll(type, items)
+            }
+        }
+        new DefaultProviderCache(backingStore, new CacheResultChangeDetector(clock, 10, TimeUnit.MINUTES, metrics))
+    }
+
+    def "only changed items are forwarded to the backing store"() {
+        given:
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 1, c: 1))
+        stored.clear()
+
+        when:
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 2, c: 1))
+
+        then:
+        stored == [['b']]
+        1 * metrics.detected('agent', 'serverGroup', 3, 1, false)
+        defaultProviderCache.get('serverGroup', 'b').attributes.value == 2
+        defaultProviderCache.getIdentifiers('serverGroup') == ['a', 'b', 'c'] as Set
+    }
+
+    def "removed items are still evicted"() {
+        given:
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 1))
+        stored.clear()
+
+        when:
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1))
+
+        then:
+        stored == [['_ALL_']]
+        defaultProviderCache.getIdentifiers('serverGroup') == ['a'] as Set
+    }
+
+    def "items evicted by another agent are written again"() {
+        given:
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 1))
+        defaultProviderCache.evictDeletedItems('serverGroup', ['a'])
+        stored.clear()
+
+        when:
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 1))
+
+        then:
+        stored == [['a']]
+        defaultProviderCache.get('serverGroup', 'a') != null
+    }
+
+    def "all items are written again once the full write interval elapses"() {
+        given:
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 1))
+        stored.clear()
+        now += TimeUnit.MINUTES.toMillis(10)
+
+        when:
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 1))
+
+        then:
+        stored.size() == 1
+        stored[0] as Set == ['a', 'b', '_ALL_'] as Set
+        1 * metrics.detected('agent', 'serverGroup', 2, 3, true)
+    }
+
+    def "informative items are always forwarded to the backing store"() {
+        given:
+        defaultProviderCache.putCacheResult('agent', [], result(a: 1, b: 1))
+        stored.clear()
+
+        when:
+        defaultProviderCache.putCacheResult('agent', [], result(a: 1, b: 1))
+
+        then:
+        stored.size() == 1
+        stored[0] as Set == ['a', 'b', '_ALL_'] as Set
+        0 * metrics.detected(*_)
+    }
+
+    def "items evicted by another node are written again once the full write interval elapses"() {
+        given:
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 1))
+        backingStore.evictAll('serverGroup', ['a'])
+        stored.clear()
+
+        when: 'the fingerprint has not expired yet'
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 1))
+
+        then: 'the eviction is not observed'
+        stored.isEmpty()
+        defaultProviderCache.get('serverGroup', 'a') == null
+
+        when:
+        now += TimeUnit.MINUTES.toMillis(10)
+        defaultProviderCache.putCacheResult('agent', ['serverGroup'], result(a: 1, b: 1))
+
+        then:
+        stored.size() == 1
+        stored[0] as Set == ['a', 'b', '_ALL_'] as Set
+        defaultProviderCache.get('serverGroup', 'a').attributes.value == 1
+    }
+
+    private static DefaultCacheResult result(Map<String, Integer> values) {
+        new DefaultCacheResult(serverGroup: values.collect { id, value ->
+            new DefaultCacheData(id, [value: value], [:]) as CacheData
+        })
+    }
+}
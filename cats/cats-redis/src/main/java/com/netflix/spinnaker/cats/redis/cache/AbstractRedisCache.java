@@ -17,10 +17,14 @@ package com.netflix.spinnaker.cats.redis.cache;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Iterables;
 import com.netflix.spinnaker.cats.cache.CacheData;
 import com.netflix.spinnaker.cats.cache.CacheFilter;
+import com.netflix.spinnaker.cats.cache.CachePages;
 import com.netflix.spinnaker.cats.cache.WriteableCache;
+import com.netflix.spinnaker.cats.codec.CacheBodyCodecs;
 import com.netflix.spinnaker.kork.jedis.RedisClientDelegate;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -46,6 +50,7 @@ public abstract class AbstractRedisCache implements WriteableCache {
   protected final RedisClientDelegate redisClientDelegate;
   protected final ObjectMapper objectMapper;
   protected final RedisCacheOptions options;
+  protected final CacheBodyCodecs bodyCodecs;
 
   protected AbstractRedisCache(
       String prefix,
@@ -56,6 +61,7 @@ public abstract class AbstractRedisCache implements WriteableCache {
     this.redisClientDelegate = redisClientDelegate;
     this.objectMapper = objectMapper;
     this.options = options;
+    this.bodyCodecs = new CacheBodyCodecs(objectMapper);
   }
 
   protected abstract void mergeItems(String type, Collection<CacheData> items);
@@ -154,14 +160,7 @@ public abstract class AbstractRedisCache implements WriteableCache {
       return new ArrayList<>();
     }
     Collection<String> ids = new LinkedHashSet<>(identifiers);
-    final List<String> knownRels;
-    Set<String> allRelationships = scanMembers(allRelationshipsId(type));
-    if (cacheFilter == null) {
-      knownRels = new ArrayList<>(allRelationships);
-    } else {
-      knownRels =
-          new ArrayList<>(cacheFilter.filter(CacheFilter.Type.RELATIONSHIP, allRelationships));
-    }
+    final List<String> knownRels = getKnownRelationships(type, cacheFilter);
 
     Collection<CacheData> result = new ArrayList<>(ids.size());
 
@@ -172,6 +171,29 @@ public abstract class AbstractRedisCache implements WriteableCache {
     return result;
   }
 
+  /**
+   * Scans the members of the type as pages are requested, rather than reading them all up front.
+   * The relationships of the type are resolved once, when the first page is read. As with SSCAN,
+   * an item may be returned twice if the type's members are rehashed while they are scanned.
+   */
+  @Override
+  public Iterator<Collection<CacheData>> getAllPages(
+      String type, CacheFilter cacheFilter, int pageSize) {
+    Iterator<String> ids = new MemberScan(allOfTypeId(type), Math.max(pageSize, 1));
+    Supplier<List<String>> knownRels =
+        Suppliers.memoize(() -> getKnownRelationships(type, cacheFilter));
+    return CachePages.byIdentifier(
+        ids,
+        pageSize,
+        page -> {
+          Collection<CacheData> result = new ArrayList<>(page.size());
+          for (List<String> idPart : Iterables.partition(page, options.getMaxGetBatchSize())) {
+            result.addAll(getItems(type, idPart, knownRels.get()));
+          }
+          return result;
+        });
+  }
+
   @Override
   public Collection<String> getIdentifiers(String type) {
     return scanMembers(allOfTypeId(type));
@@ -204,6 +226,79 @@ public abstract class AbstractRedisCache implements WriteableCache {
         });
   }
 
+  private List<String> getKnownRelationships(String type, CacheFilter cacheFilter) {
+    Set<String> allRelationships = scanMembers(allRelationshipsId(type));
+    if (cacheFilter == null) {
+      return new ArrayList<>(allRelationships);
+    }
+    return new ArrayList<>(cacheFilter.filter(CacheFilter.Type.RELATIONSHIP, allRelationships));
+  }
+
+  /**
+   * Iterates over the members of a set, issuing an SSCAN whenever the members from the previous
+   * one have been consumed. Only one SSCAN batch is held at a time, so members are de-duplicated
+   * within a batch; a set rehashed during the scan may still have a member returned twice.
+   */
+  private class MemberScan implements Iterator<String> {
+    private final String setKey;
+    private final ScanParams scanParams;
+
+    private Iterator<String> batch = Collections.emptyIterator();
+    private String cursor = "0";
+    private boolean started;
+    private String next;
+
+    MemberScan(String setKey, int count) {
+      this.setKey = setKey;
+      this.scanParams = new ScanParams().count(Math.max(count, options.getScanSize()));
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null) {
+        if (batch.hasNext()) {
+          next = batch.next();
+        } else if (started && "0".equals(cursor)) {
+          return false;
+        } else {
+          ScanResult<String> scanResult =
+              redisClientDelegate.withCommandsClient(
+                  client -> {
+                    return client.sscan(setKey, cursor, scanParams);
+                  });
+          started = true;
+          cursor = scanResult.getCursor();
+          batch = new LinkedHashSet<>(scanResult.getResult()).iterator();
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String member = next;
+      next = null;
+      return member;
+    }
+  }
+
+  /** @return the codec attributes of {@code type} are written with */
+  protected String bodyCodec(String type) {
+    String codec = options.getBodyCodec(type);
+    if (!bodyCodecs.isSupported(codec)) {
+      log.warn(
+          "Unknown body codec '{}' for type {}, expected one of {}",
+          codec,
+          type,
+          bodyCodecs.getCodecs());
+      return CacheBodyCodecs.JSON;
+    }
+    return codec;
+  }
+
   protected boolean isHashingDisabled(String type) {
     if (!options.isHashingEnabled()) {
       return true;
@@ -112,9 +112,10 @@ public class RedisCache extends AbstractRedisCache {
     final Map<String, String> hashes = getHashes(type, items);
 
     final NavigableMap<String, String> updatedHashes = new TreeMap<>();
+    final String bodyCodec = bodyCodec(type);
 
     for (CacheData item : items) {
-      MergeOp op = buildMergeOp(type, item, hashes);
+      MergeOp op = buildMergeOp(type, bodyCodec, item, hashes);
       relationshipNames.addAll(op.relNames);
       keysToSet.addAll(op.keysToSet);
       idSet.add(item.getId());
@@ -299,7 +300,7 @@ public class RedisCache extends AbstractRedisCache {
     }
 
     try {
-      final Map<String, Object> attributes = objectMapper.readValue(keyResult.get(0), ATTRIBUTES);
+      final Map<String, Object> attributes = bodyCodecs.decode(keyResult.get(0), ATTRIBUTES);
       final Map<String, Collection<String>> relationships = new HashMap<>(keyResult.size() - 1);
       for (int relIdx = 1; relIdx < keyResult.size(); relIdx++) {
         String rel = keyResult.get(relIdx);
@@ -336,7 +337,8 @@ public class RedisCache extends AbstractRedisCache {
     }
   }
 
-  private MergeOp buildMergeOp(String type, CacheData cacheData, Map<String, String> hashes) {
+  private MergeOp buildMergeOp(
+      String type, String bodyCodec, CacheData cacheData, Map<String, String> hashes) {
     int skippedWrites = 0;
     final String serializedAttributes;
     boolean hasTtl = cacheData.getTtlSeconds() > 0;
@@ -344,9 +346,9 @@ public class RedisCache extends AbstractRedisCache {
       if (cacheData.getAttributes().isEmpty()) {
         serializedAttributes = null;
       } else {
-        serializedAttributes = objectMapper.writeValueAsString(cacheData.getAttributes());
+        serializedAttributes = bodyCodecs.encode(bodyCodec, cacheData.getAttributes());
       }
-    } catch (JsonProcessingException serializationException) {
+    } catch (IOException serializationException) {
       throw new RuntimeException("Attribute serialization failed", serializationException);
     }
 
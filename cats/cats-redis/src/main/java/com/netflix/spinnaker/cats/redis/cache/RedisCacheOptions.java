@@ -17,6 +17,9 @@
 package com.netflix.spinnaker.cats.redis.cache;
 
 import com.google.common.base.Preconditions;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 public class RedisCacheOptions {
   public static Builder builder() {
@@ -36,6 +39,8 @@ public class RedisCacheOptions {
   private final int maxGetBatchSize;
   private final boolean hashingEnabled;
   private final boolean treatRelationshipsAsSet;
+  private final String bodyCodec;
+  private final Map<String, String> typeBodyCodecs;
 
   private static int posInt(String name, int value) {
     Preconditions.checkArgument(value > 0, "%s must be a positive integer (%s)", name, value);
@@ -62,6 +67,45 @@ public class RedisCacheOptions {
       int maxGetBatchSize,
       boolean hashingEnabled,
       boolean treatRelationshipsAsSet) {
+    this(
+        maxMsetSize,
+        maxMgetSize,
+        maxHmgetSize,
+        maxHmsetSize,
+        maxSaddSize,
+        maxDelSize,
+        maxPipelineSize,
+        scanSize,
+        maxMergeBatchSize,
+        maxEvictBatchSize,
+        maxGetBatchSize,
+        hashingEnabled,
+        treatRelationshipsAsSet,
+        Builder.DEFAULT_BODY_CODEC,
+        Collections.emptyMap());
+  }
+
+  /**
+   * @param bodyCodec the codec attributes are written with, see {@link
+   *     com.netflix.spinnaker.cats.codec.CacheBodyCodecs}
+   * @param typeBodyCodecs codecs to use instead of {@code bodyCodec} for specific types
+   */
+  public RedisCacheOptions(
+      int maxMsetSize,
+      int maxMgetSize,
+      int maxHmgetSize,
+      int maxHmsetSize,
+      int maxSaddSize,
+      int maxDelSize,
+      int maxPipelineSize,
+      int scanSize,
+      int maxMergeBatchSize,
+      int maxEvictBatchSize,
+      int maxGetBatchSize,
+      boolean hashingEnabled,
+      boolean treatRelationshipsAsSet,
+      String bodyCodec,
+      Map<String, String> typeBodyCodecs) {
     this.maxMsetSize = posEven("maxMsetSize", maxMsetSize);
     this.maxMgetSize = posInt("maxMgetSize", maxMgetSize);
     this.maxHmgetSize = posInt("maxHmgetSize", maxHmgetSize);
@@ -75,6 +119,8 @@ public class RedisCacheOptions {
     this.maxGetBatchSize = posInt("maxGetBatchSize", maxGetBatchSize);
     this.hashingEnabled = hashingEnabled;
     this.treatRelationshipsAsSet = treatRelationshipsAsSet;
+    this.bodyCodec = Preconditions.checkNotNull(bodyCodec, "bodyCodec");
+    this.typeBodyCodecs = Collections.unmodifiableMap(new HashMap<>(typeBodyCodecs));
   }
 
   public int getMaxMsetSize() {
@@ -129,6 +175,11 @@ public class RedisCacheOptions {
     return treatRelationshipsAsSet;
   }
 
+  /** @return the codec attributes of {@code type} are written with */
+  public String getBodyCodec(String type) {
+    return typeBodyCodecs.getOrDefault(type, bodyCodec);
+  }
+
   public static class Builder {
     public static final int DEFAULT_MULTI_OP_SIZE = 200;
     public static final int DEFAULT_BATCH_SIZE = 200;
@@ -136,6 +187,7 @@ public class RedisCacheOptions {
     public static final int DEFAULT_MAX_PIPELINE_SIZE = 200;
     public static final boolean DEFAULT_HASHING_ENABLED = true;
     public static final boolean DEFAULT_TREAT_RELATIONSHIPS_AS_SET_DISABLED = false;
+    public static final String DEFAULT_BODY_CODEC = "json";
 
     int maxMsetSize;
     int maxMgetSize;
@@ -150,6 +202,8 @@ public class RedisCacheOptions {
     int maxGetBatchSize;
     boolean hashingEnabled;
     boolean treatRelationshipsAsSet;
+    String bodyCodec;
+    Map<String, String> typeBodyCodecs = new HashMap<>();
 
     public Builder() {
       batchSize(DEFAULT_BATCH_SIZE);
@@ -158,6 +212,7 @@ public class RedisCacheOptions {
       maxPipeline(DEFAULT_MAX_PIPELINE_SIZE);
       hashing(DEFAULT_HASHING_ENABLED);
       treatRelationshipsAsSet(DEFAULT_TREAT_RELATIONSHIPS_AS_SET_DISABLED);
+      bodyCodec(DEFAULT_BODY_CODEC);
     }
 
     public Builder maxMergeBatch(int maxMergeBatch) {
@@ -241,6 +296,16 @@ public class RedisCacheOptions {
       return this;
     }
 
+    public Builder bodyCodec(String bodyCodec) {
+      this.bodyCodec = bodyCodec;
+      return this;
+    }
+
+    public Builder bodyCodec(String type, String bodyCodec) {
+      this.typeBodyCodecs.put(type, bodyCodec);
+      return this;
+    }
+
     public RedisCacheOptions build() {
       return new RedisCacheOptions(
           maxMsetSize,
@@ -255,7 +320,9 @@ public class RedisCacheOptions {
           maxEvictBatchSize,
           maxGetBatchSize,
           hashingEnabled,
-          treatRelationshipsAsSet);
+          treatRelationshipsAsSet,
+          bodyCodec,
+          typeBodyCodecs);
     }
 
     public void setBatchSize(int batchSize) {
@@ -369,5 +436,21 @@ public class RedisCacheOptions {
     public void setTreatRelationshipsAsSet(boolean treatRelationshipsAsSet) {
       this.treatRelationshipsAsSet = treatRelationshipsAsSet;
     }
+
+    public String getBodyCodec() {
+      return bodyCodec;
+    }
+
+    public void setBodyCodec(String bodyCodec) {
+      this.bodyCodec = bodyCodec;
+    }
+
+    public Map<String, String> getTypeBodyCodecs() {
+      return typeBodyCodecs;
+    }
+
+    public void setTypeBodyCodecs(Map<String, String> typeBodyCodecs) {
+      this.typeBodyCodecs = new HashMap<>(typeBodyCodecs);
+    }
   }
 }
@@ -72,6 +72,25 @@ class RedisCacheSpec extends WriteableCacheSpec {
   }
 
 
+  def 'getAllPages scans members as pages are read'() {
+    setup:
+    def ids = (1..25).collect { "id-$it".toString() }
+    ids.each { populateOne('foo', it, createData(it, [id: it], [rel1: ["rel-$it".toString()]])) }
+
+    when:
+    def pages = cache.getAllPages('foo', null, 10)
+    def first = pages.next()
+    def evicted = (ids - first*.id).take(5)
+    ((WriteableCache) cache).evictAll('foo', evicted)
+    def rest = pages.toList()
+
+    then:
+    first.size() == 10
+    first.every { it.relationships.keySet() == ['rel1'] as Set }
+    rest.every { it.size() <= 10 }
+    (first + rest.flatten())*.id.sort() == (ids - evicted).sort()
+  }
+
   @Unroll
   def 'attribute datatype handling #description'() {
     setup:
@@ -77,6 +77,15 @@ class SqlProviderCache(private val backingStore: WriteableCache) : ProviderCache
     return backingStore.getAll(type, identifiers, cacheFilter)
   }
 
+  override fun getAllPages(
+    type: String,
+    cacheFilter: CacheFilter?,
+    pageSize: Int
+  ): Iterator<Collection<CacheData>> {
+    validateTypes(type)
+    return backingStore.getAllPages(type, cacheFilter, pageSize)
+  }
+
   override fun supportsGetAllByApplication(): Boolean {
     return true
   }
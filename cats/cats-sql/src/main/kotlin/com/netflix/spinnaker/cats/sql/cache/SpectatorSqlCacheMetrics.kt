@@ -76,6 +76,12 @@ class SpectatorSqlCacheMetrics(
     registry.counter(id("cats.sqlCache.get", "selectOperations", tags)).increment(selectOperations.toLong())
   }
 
+  override fun nearCache(prefix: String, type: String, hit: Boolean) {
+    registry.counter(
+      id("cats.sqlCache.nearCache", "requests", tags(prefix, type) + BasicTag("hit", hit.toString()))
+    ).increment()
+  }
+
   private fun id(metricGroup: String, metric: String, tags: Iterable<Tag>) =
     registry.createId("$metricGroup.$metric", tags)
 
@@ -1,11 +1,14 @@
 package com.netflix.spinnaker.cats.sql.cache
 
 import com.fasterxml.jackson.databind.ObjectMapper
+import com.google.common.hash.Hashing
 import com.netflix.spinnaker.cats.cache.CacheData
 import com.netflix.spinnaker.cats.cache.CacheFilter
+import com.netflix.spinnaker.cats.cache.CompactCacheData
 import com.netflix.spinnaker.cats.cache.DefaultJsonCacheData
 import com.netflix.spinnaker.cats.cache.RelationshipCacheFilter
 import com.netflix.spinnaker.cats.cache.WriteableCache
+import com.netflix.spinnaker.cats.codec.CacheBodyCodecs
 import com.netflix.spinnaker.cats.provider.ProviderCacheConfiguration
 import com.netflix.spinnaker.cats.sql.SqlUtil
 import com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.ON_DEMAND
@@ -17,6 +20,7 @@ import de.huxhorn.sulky.ulid.ULID
 import io.github.resilience4j.retry.Retry
 import io.github.resilience4j.retry.RetryConfig
 import io.vavr.control.Try
+import java.nio.charset.StandardCharsets
 import java.security.MessageDigest
 import java.sql.ResultSet
 import java.sql.SQLException
@@ -25,6 +29,7 @@ import java.time.Clock
 import java.time.Duration
 import java.util.Arrays
 import java.util.concurrent.ConcurrentSkipListSet
+import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicInteger
 import javax.annotation.PreDestroy
 import kotlin.contracts.ExperimentalContracts
@@ -49,10 +54,10 @@ import org.slf4j.LoggerFactory
 import org.springframework.jdbc.BadSqlGrammarException
 
 @ExperimentalContracts
-class SqlCache(
+class SqlCache @JvmOverloads constructor(
   private val name: String,
   private val jooq: DSLContext,
-  private val mapper: ObjectMapper,
+  mapper: ObjectMapper,
   private val coroutineContext: CoroutineContext?,
   private val clock: Clock,
   private val sqlRetryProperties: SqlRetryProperties,
@@ -60,7 +65,9 @@ class SqlCache(
   private val cacheMetrics: SqlCacheMetrics,
   private val dynamicConfigService: DynamicConfigService,
   private val sqlConstraints: SqlConstraints,
-  private val providerCacheConfiguration: ProviderCacheConfiguration
+  private val providerCacheConfiguration: ProviderCacheConfiguration,
+  private val changeFeed: SqlChangeFeed? = null,
+  private val nearCache: SqlNearCache? = null
 ) : WriteableCache {
 
   companion object {
@@ -79,6 +86,10 @@ class SqlCache(
 
   private var createdTables = ConcurrentSkipListSet<String>()
 
+  private val identifierIndex = SqlIdentifierIndex(clock) { type -> hasCaseInsensitiveIds(type) }
+
+  private val bodyCodecs = CacheBodyCodecs(mapper)
+
   init {
     log.info("Configured for $name")
   }
@@ -109,6 +120,11 @@ class SqlCache(
       log.error("error evicting records", e)
     }
 
+    identifierIndex.remove(type, ids)
+    if (deletedCount > 0) {
+      changeFeed?.recordChange(type)
+    }
+
     cacheMetrics.evict(
       prefix = name,
       type = type,
@@ -163,6 +179,13 @@ class SqlCache(
       storeInformative(type, items ?: mutableListOf(), cleanup)
     }
 
+    if (storeResult.itemsStored.get() > 0 ||
+      storeResult.relationshipsStored.get() > 0 ||
+      storeResult.deleteQueries.get() > 0
+    ) {
+      changeFeed?.recordChange(type)
+    }
+
     cacheMetrics.merge(
       prefix = name,
       type = type,
@@ -194,10 +217,12 @@ class SqlCache(
   override fun getAll(type: String, cacheFilter: CacheFilter?): MutableCollection<CacheData> {
     val relationshipPrefixes = getRelationshipFilterPrefixes(cacheFilter)
 
-    val result = if (relationshipPrefixes.isEmpty()) {
-      getDataWithoutRelationships(type)
-    } else {
-      getDataWithRelationships(type, relationshipPrefixes)
+    val result = nearCached(type, { "all:$relationshipPrefixes" }) {
+      if (relationshipPrefixes.isEmpty()) {
+        getDataWithoutRelationships(type)
+      } else {
+        getDataWithRelationships(type, relationshipPrefixes)
+      }
     }
 
     if (result.selectQueries > -1) {
@@ -245,10 +270,13 @@ class SqlCache(
 
     val relationshipPrefixes = getRelationshipFilterPrefixes(cacheFilter)
 
-    val result = if (relationshipPrefixes.isEmpty()) {
-      getDataWithoutRelationships(type, ids)
-    } else {
-      getDataWithRelationships(type, ids, relationshipPrefixes)
+    val query = { "ids:$relationshipPrefixes:${ids.size}:${idsHash(ids)}" }
+    val result = nearCached(type, query, ids, relationshipPrefixes) {
+      if (relationshipPrefixes.isEmpty()) {
+        getDataWithoutRelationships(type, ids)
+      } else {
+        getDataWithRelationships(type, ids, relationshipPrefixes)
+      }
     }
 
     if (result.selectQueries > -1) {
@@ -266,6 +294,58 @@ class SqlCache(
     return mergeDataAndRelationships(result.data, result.relPointers, relationshipPrefixes)
   }
 
+  /**
+   * Retrieves all the items for the specified type a page at a time, walking the type's ids in order so that each
+   * page is a bounded range of the primary key. Pages are not served from, or added to, the near cache.
+   *
+   * @param type the type for which to retrieve items
+   * @param cacheFilter the cacheFilter to govern which relationships to fetch
+   * @param pageSize the maximum number of items in a page
+   * @return the items for the type, in pages of at most pageSize items
+   */
+  override fun getAllPages(
+    type: String,
+    cacheFilter: CacheFilter?,
+    pageSize: Int
+  ): Iterator<Collection<CacheData>> {
+    require(pageSize > 0) { "pageSize must be positive, was $pageSize" }
+    val relationshipPrefixes = getRelationshipFilterPrefixes(cacheFilter)
+
+    return iterator {
+      var after: String? = null
+      do {
+        val ids = selectIdentifierPage(type, after, pageSize)
+        if (ids.isEmpty()) {
+          break
+        }
+        after = ids.last()
+
+        val result = if (relationshipPrefixes.isEmpty()) {
+          getDataWithoutRelationships(type, ids)
+        } else {
+          getDataWithRelationships(type, ids, relationshipPrefixes)
+        }
+
+        if (result.selectQueries > -1) {
+          cacheMetrics.get(
+            prefix = name,
+            type = type,
+            itemCount = result.data.size,
+            requestedSize = ids.size,
+            relationshipsRequested = result.relPointers.size,
+            selectOperations = result.selectQueries + 1,
+            async = result.withAsync
+          )
+        }
+
+        val page = mergeDataAndRelationships(result.data, result.relPointers, relationshipPrefixes)
+        if (page.isNotEmpty()) {
+          yield(page)
+        }
+      } while (ids.size == pageSize)
+    }
+  }
+
   /**
    * Retrieves the items for the specified type matching the provided identifiers
    *
@@ -290,10 +370,12 @@ class SqlCache(
   ): Map<String, MutableCollection<CacheData>> {
     val relationshipPrefixes = getRelationshipFilterPrefixes(cacheFilter)
 
-    val result = if (relationshipPrefixes.isEmpty()) {
-      getDataWithoutRelationshipsByApp(type, application)
-    } else {
-      getDataWithRelationshipsByApp(type, application, relationshipPrefixes)
+    val result = nearCached(type, { "application:$relationshipPrefixes:$application" }) {
+      if (relationshipPrefixes.isEmpty()) {
+        getDataWithoutRelationshipsByApp(type, application)
+      } else {
+        getDataWithRelationshipsByApp(type, application, relationshipPrefixes)
+      }
     }
 
     if (result.selectQueries > -1) {
@@ -436,6 +518,13 @@ class SqlCache(
       return mutableSetOf()
     }
 
+    if (dynamicConfigService.isEnabled("sql.cache.identifier-index", false)) {
+      val indexed = filterIndexedIdentifiers(type, glob)
+      if (indexed != null) {
+        return indexed
+      }
+    }
+
     val sql = if (glob.matches(useRegexp)) {
       val filter = glob.replace("?", ".", true).replace("*", ".*").replace(cleanRegexp, ".*")
       jooq
@@ -475,6 +564,103 @@ class SqlCache(
     return ids
   }
 
+  /**
+   * Answers [filterIdentifiers] from the in-memory [SqlIdentifierIndex], reloading a type's identifiers
+   * at most once per `sql.cache.identifier-index.refresh-interval-seconds`.
+   *
+   * @return the matching identifiers or null if the index could not be loaded
+   */
+  private fun filterIndexedIdentifiers(type: String, glob: String): MutableCollection<String>? {
+    val maxAgeMs = TimeUnit.SECONDS.toMillis(
+      dynamicConfigService.getConfig(Long::class.java, "sql.cache.identifier-index.refresh-interval-seconds", 60L)
+    )
+
+    var selects = 0
+    val ids = try {
+      identifierIndex.filter(type, glob, maxAgeMs) {
+        selects += 1
+        selectAllIdentifiers(type)
+      }
+    } catch (e: Exception) {
+      suppressedLog("Failed loading identifier index for type: $type reason: ${e.message}", e)
+      identifierIndex.invalidate(type)
+      return null
+    }
+
+    cacheMetrics.get(
+      prefix = name,
+      type = type,
+      itemCount = ids.size,
+      requestedSize = ids.size,
+      relationshipsRequested = 0,
+      selectOperations = selects
+    )
+
+    return ids
+  }
+
+  private fun selectAllIdentifiers(type: String): Collection<String> {
+    return try {
+      withRetry(RetryCategory.READ) {
+        jooq.select(field("id"))
+          .from(table(sqlNames.resourceTableName(type)))
+          .fetch(field("id"), String::class.java)
+      }
+    } catch (e: BadSqlGrammarException) {
+      // the table is created by the first write for this type
+      suppressedLog("Failed getting ids for type $type", e)
+      emptyList()
+    }
+  }
+
+  /**
+   * Resource tables are created with binary ids, but MySQL tables created before that compare ids
+   * with the schema's default, case-insensitive collation until they are altered.
+   */
+  private fun hasCaseInsensitiveIds(type: String): Boolean {
+    if (jooq.dialect() == SQLDialect.POSTGRES) {
+      return false
+    }
+
+    return try {
+      val collation = withRetry(RetryCategory.READ) {
+        jooq.select(field("collation_name"))
+          .from(table("information_schema.columns"))
+          .where(
+            field("table_schema").eq(field("database()")),
+            field("table_name").eq(sqlNames.resourceTableName(type)),
+            field("column_name").eq("id")
+          )
+          .fetchOne(field("collation_name"), String::class.java)
+      }
+      // a missing table is created from the template, which has binary ids
+      collation != null && collation.endsWith("_ci")
+    } catch (e: Exception) {
+      suppressedLog("Failed reading the id collation for type $type", e)
+      true
+    }
+  }
+
+  /**
+   * @return up to [limit] ids of [type] that sort after [after], in order
+   */
+  private fun selectIdentifierPage(type: String, after: String?, limit: Int): List<String> {
+    return try {
+      withRetry(RetryCategory.READ) {
+        jooq.select(field("id"))
+          .from(table(sqlNames.resourceTableName(type)))
+          .where(if (after == null) noCondition() else field("id", String::class.java).gt(after))
+          .orderBy(field("id"))
+          .limit(limit)
+          .fetch(field("id"), String::class.java)
+      }
+    } catch (e: BadSqlGrammarException) {
+      // the table is created by the first write for this type
+      suppressedLog("Failed getting ids for type $type", e)
+      emptyList()
+    }
+  }
+
   /**
    * Gets a single item from the cache by type and id
    *
@@ -544,6 +730,7 @@ class SqlCache(
     val bodies = mutableMapOf<String, String>() // id to body
     val hashes = mutableMapOf<String, String>() // id to sha256(body)
     val apps = mutableMapOf<String, String>()
+    val codec = bodyCodec(type)
 
     items.filter { it.id.length > sqlConstraints.maxIdLength }
       .forEach {
@@ -575,7 +762,7 @@ class SqlCache(
           it.relationships.putAll(normalized)
         }
 
-        val body: String? = mapper.writeValueAsString(it)
+        val body: String? = bodyCodecs.encode(codec, it)
         val bodyHash = getHash(body)
 
         if (body != null && bodyHash != null && !existingHashes.contains(bodyHash)) {
@@ -586,6 +773,7 @@ class SqlCache(
       }
 
     val now = clock.millis()
+    val failedIds = mutableSetOf<String>() // ids in chunks that could not be written
 
     toStore.chunked(dynamicConfigService.getConfig(Int::class.java, "sql.cache.write-batch-size", 100)) { chunk ->
       try {
@@ -627,6 +815,7 @@ class SqlCache(
         result.writeQueries.incrementAndGet()
       } catch (e: DataAccessException) {
         log.error("Error inserting ids: $chunk", e)
+        failedIds.addAll(chunk)
       } catch (e: SQLDialectNotSupportedException) {
         chunk.forEach {
           val exists = withRetry(RetryCategory.READ) {
@@ -676,6 +865,9 @@ class SqlCache(
       }
     }
 
+    // a failed write leaves new ids unstored, but ids that already had a row are still there
+    identifierIndex.add(type, currentIds.filter { !failedIds.contains(it) || existingIds.contains(it) })
+
     if (!cleanup) {
       return result
     }
@@ -907,6 +1099,151 @@ class SqlCache(
     }
   }
 
+  /**
+   * Serves [read] from the near cache, if configured, while the type hasn't changed since it was cached.
+   *
+   * Results read by [ids] are also served after the type changed, as long as the `body_hash` of every row of [ids] is
+   * still the same. Their relationships (if any [relationshipPrefixes] were requested) are read again, as they are
+   * stored apart from the rows.
+   *
+   * Items are copied into and out of the near cache, as [mergeDataAndRelationships] modifies the items it is given.
+   */
+  private fun nearCached(
+    type: String,
+    query: () -> String,
+    ids: Collection<String>? = null,
+    relationshipPrefixes: List<String> = emptyList(),
+    read: () -> DataWithRelationshipPointersResult
+  ): DataWithRelationshipPointersResult {
+    if (nearCache == null) {
+      return read()
+    }
+
+    val generation = nearCache.generation(type) ?: return read()
+    val key = query()
+    val cached = nearCache.get(type, key, generation)
+    if (cached != null) {
+      cacheMetrics.nearCache(prefix = name, type = type, hit = true)
+      return DataWithRelationshipPointersResult(copyOf(cached.data), cached.relPointers.toMutableSet(), 0)
+    }
+
+    // hashed before reading, so a row changed in between is read again next time
+    val bodyHashes = ids?.let { selectBodyHashes(type, it) }
+    if (ids != null && bodyHashes != null) {
+      val previous = nearCache.getHashed(type, key)
+      if (previous != null && previous.bodyHashes == bodyHashes) {
+        val revalidated = revalidate(type, key, generation, previous, ids, relationshipPrefixes)
+        if (revalidated != null) {
+          cacheMetrics.nearCache(prefix = name, type = type, hit = true)
+          return revalidated
+        }
+      }
+    }
+
+    cacheMetrics.nearCache(prefix = name, type = type, hit = false)
+    val result = read()
+    if (result.selectQueries > -1) {
+      nearCache.put(type, key, generation, copyOf(result.data), result.relPointers.toSet(), bodyHashes)
+    }
+    return result
+  }
+
+  /**
+   * Tags [previous] with [generation], reading its relationships again.
+   *
+   * @return the revalidated result, or null if its relationships could not be read
+   */
+  private fun revalidate(
+    type: String,
+    key: String,
+    generation: Long,
+    previous: SqlNearCache.Entry,
+    ids: Collection<String>,
+    relationshipPrefixes: List<String>
+  ): DataWithRelationshipPointersResult? {
+    val relPointers = mutableSetOf<RelPointer>()
+    var selectQueries = 1 // body hashes
+    if (relationshipPrefixes.isNotEmpty()) {
+      try {
+        ids.chunked(dynamicConfigService.getConfig(Int::class.java, "sql.cache.read-batch-size", 500)) { chunk ->
+          relPointers.addAll(selectRelPointers(type, relationshipPrefixes, chunk))
+          selectQueries += 1
+        }
+      } catch (e: Exception) {
+        suppressedLog("Failed selecting relationships for type $type", e)
+        return null
+      }
+    }
+
+    nearCache!!.put(type, key, generation, previous.data, relPointers.toSet(), previous.bodyHashes)
+    return DataWithRelationshipPointersResult(copyOf(previous.data), relPointers, selectQueries)
+  }
+
+  /**
+   * @return the body hashes of the rows of [ids], by id, or null if they could not be read
+   */
+  private fun selectBodyHashes(type: String, ids: Collection<String>): Map<String, Set<String>>? {
+    return try {
+      val hashes = mutableMapOf<String, MutableSet<String>>()
+      ids.chunked(dynamicConfigService.getConfig(Int::class.java, "sql.cache.read-batch-size", 500)) { chunk ->
+        withRetry(RetryCategory.READ) {
+          jooq.select(field("id"), field("body_hash"))
+            .from(table(sqlNames.resourceTableName(type)))
+            .where(field("id").`in`(*chunk.toTypedArray()))
+            .fetch()
+            .forEach {
+              hashes.getOrPut(it.get(0, String::class.java)) { mutableSetOf() }.add(it.get(1, String::class.java))
+            }
+        }
+      }
+      hashes
+    } catch (e: Exception) {
+      suppressedLog("Failed selecting body hashes for type $type", e)
+      null
+    }
+  }
+
+  private fun selectRelPointers(type: String, relationshipPrefixes: List<String>, ids: List<String>): List<RelPointer> {
+    return withRetry(RetryCategory.READ) {
+      jooq.select(field("id"), field("rel_id"), field("rel_type"))
+        .from(table(sqlNames.relTableName(type)))
+        .where(getRelWhere(relationshipPrefixes, field("id").`in`(*ids.toTypedArray())))
+        .fetch()
+        .map { RelPointer(it.get(0, String::class.java), it.get(1, String::class.java), it.get(2, String::class.java)) }
+    }
+  }
+
+  private fun copyOf(items: List<CacheData>): MutableList<CacheData> = items.mapTo(ArrayList(items.size)) { copyOf(it) }
+
+  private fun copyOf(item: CacheData): CacheData =
+    DefaultJsonCacheData(
+      item.id,
+      item.ttlSeconds,
+      item.attributes.mapValuesTo(HashMap<String, Any?>()) { deepCopy(it.value) },
+      item.relationships.mapValuesTo(HashMap<String, Collection<String>>()) { ArrayList(it.value) }
+    )
+
+  /**
+   * Copies the maps and collections that make up a deserialized attribute value, so callers can't modify what the near
+   * cache holds.
+   */
+  private fun deepCopy(value: Any?): Any? =
+    when (value) {
+      is Map<*, *> -> value.entries.associateTo(LinkedHashMap<Any?, Any?>()) { it.key to deepCopy(it.value) }
+      is Set<*> -> value.mapTo(LinkedHashSet<Any?>()) { deepCopy(it) }
+      is Collection<*> -> value.mapTo(ArrayList<Any?>(value.size)) { deepCopy(it) }
+      else -> value
+    }
+
+  /**
+   * A digest of [ids], so near cache keys stay small however many ids are read.
+   */
+  private fun idsHash(ids: Collection<String>): String {
+    val hasher = Hashing.sha256().newHasher()
+    ids.sorted().forEach { hasher.putString(it, StandardCharsets.UTF_8).putByte(0) }
+    return hasher.hash().toString()
+  }
+
   private fun getRelationshipFilterPrefixes(cacheFilter: CacheFilter?): List<String> {
     return if (cacheFilter == null) {
       listOf("ALL")
@@ -920,6 +1257,22 @@ class SqlCache(
     }
   }
 
+  /**
+   * @return the codec new bodies of [type] are written with, see [CacheBodyCodecs]
+   */
+  private fun bodyCodec(type: String): String {
+    val codec = dynamicConfigService.getConfig(
+      String::class.java,
+      "sql.cache.body-codec.types.$type",
+      dynamicConfigService.getConfig(String::class.java, "sql.cache.body-codec.default", CacheBodyCodecs.JSON)
+    )
+    if (!bodyCodecs.isSupported(codec)) {
+      log.warn("Unknown body codec '$codec' for type $type, expected one of ${bodyCodecs.codecs}")
+      return CacheBodyCodecs.JSON
+    }
+    return codec
+  }
+
   private fun getHash(body: String?): String? {
     if (body.isNullOrBlank()) {
       return null
@@ -997,7 +1350,7 @@ class SqlCache(
               .fetch()
               .getValues(0)
               .asSequence()
-              .map { mapper.readValue(it as String, DefaultJsonCacheData::class.java) }
+              .map { bodyCodecs.decode(it as String, DefaultJsonCacheData::class.java) }
               .toList()
           )
         }
@@ -1060,7 +1413,7 @@ class SqlCache(
             .fetch()
             .getValues(0)
             .asSequence()
-            .map { mapper.readValue(it as String, DefaultJsonCacheData::class.java) }
+            .map { bodyCodecs.decode(it as String, DefaultJsonCacheData::class.java) }
             .toList()
         )
       }
@@ -1274,7 +1627,7 @@ class SqlCache(
         .where(field("ID").`in`(*ids.toTypedArray()))
         .fetch()
         .getValues(0)
-        .map { mapper.readValue(it as String, DefaultJsonCacheData::class.java) }
+        .map { bodyCodecs.decode(it as String, DefaultJsonCacheData::class.java) }
         .toList()
     }
   }
@@ -1332,7 +1685,7 @@ class SqlCache(
     while (resultSet.next()) {
       if (!resultSet.getString(1).isNullOrBlank()) {
         try {
-          cacheData.add(mapper.readValue(resultSet.getString(1), DefaultJsonCacheData::class.java))
+          cacheData.add(bodyCodecs.decode(resultSet.getString(1), DefaultJsonCacheData::class.java))
         } catch (e: Exception) {
           log.error("Failed to deserialize cached value: type $type, body ${resultSet.getString(1)}", e)
         }
@@ -1435,6 +1788,11 @@ class SqlCache(
       }
     }
 
+    if (dynamicConfigService.isEnabled("sql.cache.compact-read-results", false)) {
+      // interns relationship keys that are repeated across (and within) the returned items
+      return data.values.mapTo(ArrayList(data.size)) { CompactCacheData.from(it) }
+    }
+
     return data.values
   }
 
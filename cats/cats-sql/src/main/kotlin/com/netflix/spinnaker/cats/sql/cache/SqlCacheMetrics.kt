@@ -46,6 +46,12 @@ interface SqlCacheMetrics {
     selectOperations: Int,
     async: Boolean = false
   ) {}
+
+  fun nearCache(
+    prefix: String,
+    type: String,
+    hit: Boolean
+  ) {}
 }
 
 class NoopCacheMetrics : SqlCacheMetrics
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cache
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.netflix.spinnaker.cats.sql.SqlUtil
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
+import com.netflix.spinnaker.kork.sql.config.SqlRetryProperties
+import io.github.resilience4j.retry.Retry
+import io.github.resilience4j.retry.RetryConfig
+import io.vavr.control.Try
+import java.time.Clock
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import org.jooq.DSLContext
+import org.jooq.SQLDialect
+import org.jooq.impl.DSL.field
+import org.jooq.impl.DSL.name
+import org.jooq.impl.DSL.table
+import org.slf4j.LoggerFactory
+
+/**
+ * A per-type generation counter, bumped in the `cats_type_changes` table whenever a type's resources or
+ * relationships are written (with `sql.cache.change-feed.enabled`) and polled by nodes serving reads from a
+ * [SqlNearCache].
+ *
+ * [generation] only reports a type's generation while it is known to be current: after a poll that started within
+ * the last `maxStalenessMs`, and once any change made through this node has been picked up by a later poll.
+ */
+class SqlChangeFeed(
+  private val jooq: DSLContext,
+  private val clock: Clock,
+  private val dynamicConfigService: DynamicConfigService,
+  private val sqlRetryProperties: SqlRetryProperties,
+  tableNamespace: String?,
+  private val maxStalenessMs: Long
+) {
+
+  companion object {
+    private val log = LoggerFactory.getLogger(SqlChangeFeed::class.java)
+  }
+
+  private val referenceTable = "cats_type_changes"
+  private val changesTable = if (tableNamespace.isNullOrBlank()) {
+    referenceTable
+  } else {
+    "${referenceTable}_$tableNamespace"
+  }
+
+  @Volatile
+  private var generations: Map<String, Long> = emptyMap()
+
+  @Volatile
+  private var polledAt = -1L
+
+  private val localChanges = ConcurrentHashMap<String, Long>()
+
+  init {
+    if (!tableNamespace.isNullOrBlank()) {
+      SqlUtil.createTableLike(jooq, changesTable, referenceTable)
+    }
+  }
+
+  /**
+   * Polls for changes every [pollIntervalMs] until [scheduler] is shut down.
+   */
+  fun start(
+    pollIntervalMs: Long,
+    scheduler: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+      ThreadFactoryBuilder().setNameFormat(SqlChangeFeed::class.java.simpleName + "-%d").setDaemon(true).build()
+    )
+  ) {
+    scheduler.scheduleWithFixedDelay(
+      {
+        try {
+          poll()
+        } catch (e: Exception) {
+          log.warn("Failed to poll $changesTable", e)
+        }
+      },
+      0,
+      pollIntervalMs,
+      TimeUnit.MILLISECONDS
+    )
+  }
+
+  fun poll() {
+    val startedAt = clock.millis()
+    val current = withRetry(
+      "sqlRead",
+      sqlRetryProperties.reads.maxRetries,
+      sqlRetryProperties.reads.backoffMs
+    ) {
+      jooq.select(field("type"), field("generation"))
+        .from(table(changesTable))
+        .fetch()
+        .associate { it.get(0, String::class.java) to (it.get(1) as Number).toLong() }
+    }
+    update(current, startedAt)
+  }
+
+  /**
+   * @return the current generation of [type], or null if it is not known to be current
+   */
+  fun generation(type: String): Long? {
+    if (polledAt < 0 || clock.millis() - polledAt > maxStalenessMs || localChanges.containsKey(type)) {
+      return null
+    }
+    return generations[type] ?: 0L
+  }
+
+  /**
+   * Records that [type] was written through this node.
+   */
+  fun recordChange(type: String) {
+    localChanges[type] = clock.millis()
+
+    if (!dynamicConfigService.isEnabled("sql.cache.change-feed", false)) {
+      return
+    }
+
+    try {
+      val now = clock.millis()
+      val insert = jooq.insertInto(table(changesTable), field("type"), field("generation"), field("last_updated"))
+
+      insert.apply {
+        values(type, 1L, now)
+        when (jooq.dialect()) {
+          SQLDialect.POSTGRES ->
+            onConflict(field("type"))
+              .doUpdate()
+              .set(field("generation"), field(name(changesTable, "generation")).plus(1))
+              .set(field("last_updated"), SqlUtil.excluded(field("last_updated")) as Any)
+          else ->
+            onDuplicateKeyUpdate()
+              .set(field("generation"), field("generation").plus(1))
+              .set(field("last_updated"), now as Any)
+        }
+      }
+
+      withRetry(
+        "sqlWrite",
+        sqlRetryProperties.transactions.maxRetries,
+        sqlRetryProperties.transactions.backoffMs
+      ) {
+        insert.execute()
+      }
+    } catch (e: Exception) {
+      log.error("Failed to record change of type $type", e)
+    } finally {
+      // a poll racing with the write above may not have seen the new generation
+      localChanges[type] = clock.millis()
+    }
+  }
+
+  private fun <T> withRetry(name: String, maxRetries: Int, backoffMs: Long, action: () -> T): T {
+    val retry = Retry.of(
+      name,
+      RetryConfig.custom<T>()
+        .maxAttempts(maxRetries)
+        .waitDuration(Duration.ofMillis(backoffMs))
+        .build()
+    )
+
+    return Try.ofSupplier(Retry.decorateSupplier(retry, action)).get()
+  }
+
+  internal fun update(current: Map<String, Long>, startedAt: Long) {
+    generations = current
+    polledAt = startedAt
+
+    // changes made before this poll started are reflected in its generations
+    localChanges.entries.removeIf { it.value < startedAt }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cache
+
+import com.netflix.spinnaker.cats.mem.InMemoryCache
+import java.time.Clock
+import java.util.NavigableSet
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ConcurrentSkipListSet
+import java.util.concurrent.locks.ReentrantLock
+import java.util.regex.Pattern
+
+/**
+ * An in-memory index of the identifiers stored for each type, used to answer
+ * [SqlCache.filterIdentifiers] without a `LIKE` / `REGEXP` scan of the resource table.
+ *
+ * A type is loaded on first use, kept current with writes and evictions made through this node,
+ * and reloaded once older than the requested max age to pick up writes made by other nodes.
+ *
+ * Globs with a literal prefix are answered from a range of the sorted identifiers; globs with a
+ * leading wildcard are matched against every identifier of the type, in memory.
+ *
+ * Identifiers are compared the way the type's table compares them, as reported by
+ * [caseInsensitive] when the type is first indexed, so that ids differing only by case are kept
+ * apart exactly when the table keeps them apart.
+ */
+class SqlIdentifierIndex(
+  private val clock: Clock,
+  private val caseInsensitive: (type: String) -> Boolean
+) {
+
+  private val types = ConcurrentHashMap<String, TypeIndex>()
+
+  /**
+   * @return the identifiers of [type] matching [glob], loading or reloading the type via [loader]
+   * when it has not been loaded yet or is older than [maxAgeMs]
+   */
+  fun filter(
+    type: String,
+    glob: String,
+    maxAgeMs: Long,
+    loader: () -> Collection<String>
+  ): MutableCollection<String> {
+    val index = types.computeIfAbsent(type) { TypeIndex(caseInsensitive(type)) }
+    if (!index.isLoaded()) {
+      index.reload(loader, blocking = true)
+    } else if (clock.millis() - index.loadedAt > maxAgeMs) {
+      // readers that lose the race keep serving the previous generation
+      index.reload(loader, blocking = false)
+    }
+    return index.filter(glob)
+  }
+
+  fun add(type: String, ids: Collection<String>) {
+    types[type]?.apply(ids, added = true)
+  }
+
+  fun remove(type: String, ids: Collection<String>) {
+    types[type]?.apply(ids, added = false)
+  }
+
+  fun invalidate(type: String) {
+    types.remove(type)
+  }
+
+  private data class Change(val id: String, val added: Boolean)
+
+  private class TypeIndex(private val caseInsensitive: Boolean) {
+    @Volatile
+    var ids: NavigableSet<String> = newIdSet()
+
+    @Volatile
+    var loadedAt: Long = -1
+
+    @Volatile
+    private var pending: ConcurrentLinkedQueue<Change>? = null
+
+    private val lock = ReentrantLock()
+
+    fun isLoaded() = loadedAt >= 0
+
+    private fun newIdSet(): NavigableSet<String> =
+      if (caseInsensitive) {
+        ConcurrentSkipListSet(String.CASE_INSENSITIVE_ORDER)
+      } else {
+        ConcurrentSkipListSet()
+      }
+
+    fun reload(loader: () -> Collection<String>, blocking: Boolean) {
+      if (blocking) {
+        lock.lock()
+      } else if (!lock.tryLock()) {
+        return
+      }
+
+      try {
+        if (blocking && isLoaded()) {
+          // loaded by another reader while waiting for the lock
+          return
+        }
+
+        // changes made through this node while loading are replayed onto the new generation
+        val changes = ConcurrentLinkedQueue<Change>()
+        pending = changes
+
+        val fresh = newIdSet()
+        fresh.addAll(loader())
+
+        replay(changes, fresh)
+        ids = fresh
+        loadedAt = clock.millis()
+        pending = null
+        replay(changes, fresh)
+      } finally {
+        lock.unlock()
+      }
+    }
+
+    fun apply(changed: Collection<String>, added: Boolean) {
+      if (added) {
+        ids.addAll(changed)
+      } else {
+        ids.removeAll(changed)
+      }
+      pending?.let { queue -> changed.forEach { queue.add(Change(it, added)) } }
+    }
+
+    fun filter(glob: String): MutableCollection<String> {
+      val flags = if (caseInsensitive) Pattern.CASE_INSENSITIVE else 0
+      val pattern = Pattern.compile(InMemoryCache.Glob(glob).toPattern().pattern(), flags)
+
+      val prefix = literalPrefix(glob)
+      val current = ids
+      val candidates = if (prefix.isEmpty()) {
+        current
+      } else {
+        current.subSet(prefix, true, prefix + Char.MAX_VALUE, true)
+      }
+
+      return candidates.filterTo(mutableSetOf()) { pattern.matcher(it).matches() }
+    }
+
+    private fun replay(changes: ConcurrentLinkedQueue<Change>, target: NavigableSet<String>) {
+      while (true) {
+        val change = changes.poll() ?: return
+        if (change.added) target.add(change.id) else target.remove(change.id)
+      }
+    }
+  }
+
+  companion object {
+    private const val globTokens = "*?[]\\"
+
+    internal fun literalPrefix(glob: String): String {
+      val end = glob.indexOfFirst { globTokens.indexOf(it) >= 0 }
+      return if (end == -1) glob else glob.substring(0, end)
+    }
+  }
+}
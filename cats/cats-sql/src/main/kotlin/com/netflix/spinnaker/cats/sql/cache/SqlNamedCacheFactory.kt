@@ -12,7 +12,7 @@ import kotlin.contracts.ExperimentalContracts
 import kotlin.coroutines.CoroutineContext
 import org.jooq.DSLContext
 
-class SqlNamedCacheFactory(
+class SqlNamedCacheFactory @JvmOverloads constructor(
   private val jooq: DSLContext,
   private val mapper: ObjectMapper,
   private val dispatcher: CoroutineContext?,
@@ -21,7 +21,9 @@ class SqlNamedCacheFactory(
   private val prefix: String?,
   private val cacheMetrics: SqlCacheMetrics,
   private val dynamicConfigService: DynamicConfigService,
-  private val sqlConstraints: SqlConstraints
+  private val sqlConstraints: SqlConstraints,
+  private val changeFeed: SqlChangeFeed? = null,
+  private val nearCache: SqlNearCache? = null
 ) : NamedCacheFactory {
 
   @ExperimentalContracts
@@ -42,7 +44,9 @@ class SqlNamedCacheFactory(
       cacheMetrics,
       dynamicConfigService,
       sqlConstraints,
-      providerCacheConfiguration
+      providerCacheConfiguration,
+      changeFeed,
+      nearCache
     )
   }
 
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cache
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.Weigher
+import com.netflix.spinnaker.cats.cache.CacheData
+import com.netflix.spinnaker.cats.sql.cache.SqlCache.RelPointer
+import java.util.concurrent.TimeUnit
+
+/**
+ * A bounded, per-JVM cache of [SqlCache] read results, keyed by type and query.
+ *
+ * Results are tagged with the [SqlChangeFeed] generation of their type observed before they were read, and are only
+ * served while that is still the type's current generation. Results read by id may also record the `body_hash` of
+ * each of their rows, so that [SqlCache] can keep serving them across generations while none of their ids changed.
+ * Entries are weighed by the number of attributes and relationships they hold, and expire after [maxAgeMs] regardless
+ * of the change feed.
+ *
+ * Cached items must not be handed out as-is; [SqlCache] copies them on the way in and out.
+ */
+class SqlNearCache(
+  private val changeFeed: SqlChangeFeed,
+  maxWeight: Long,
+  maxAgeMs: Long
+) {
+
+  private val entries: Cache<Key, Entry> = CacheBuilder.newBuilder()
+    .maximumWeight(maxWeight)
+    .weigher(Weigher<Key, Entry> { key, entry -> entry.weight + key.query.length / 64 })
+    .expireAfterWrite(maxAgeMs, TimeUnit.MILLISECONDS)
+    .build()
+
+  /**
+   * @return the current generation of [type], or null if results of [type] can't be cached right now
+   */
+  fun generation(type: String): Long? = changeFeed.generation(type)
+
+  fun get(type: String, query: String, generation: Long): Entry? =
+    entries.getIfPresent(Key(type, query))?.takeIf { it.generation == generation }
+
+  /**
+   * @return the entry cached for [query] if it recorded body hashes, whatever its generation
+   */
+  fun getHashed(type: String, query: String): Entry? =
+    entries.getIfPresent(Key(type, query))?.takeIf { it.bodyHashes != null }
+
+  fun put(
+    type: String,
+    query: String,
+    generation: Long,
+    data: List<CacheData>,
+    relPointers: Set<RelPointer>,
+    bodyHashes: Map<String, Set<String>>? = null
+  ) {
+    entries.put(Key(type, query), Entry(generation, data, relPointers, bodyHashes))
+  }
+
+  fun size() = entries.size()
+
+  private data class Key(val type: String, val query: String)
+
+  /**
+   * @property bodyHashes the body hashes of the rows [data] was read from, by id, if they were recorded
+   */
+  class Entry(
+    val generation: Long,
+    val data: List<CacheData>,
+    val relPointers: Set<RelPointer>,
+    val bodyHashes: Map<String, Set<String>>? = null
+  ) {
+    internal val weight: Int = data.sumBy { item ->
+      1 + item.attributes.size + item.relationships.values.sumBy { it.size }
+    } + relPointers.size + (bodyHashes?.size ?: 0)
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cluster
+
+import java.time.Clock
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.math.max
+
+/**
+ * Tracks what each agent costs to run and orders runnable agents with a start-time fair queue
+ * weighted by that cost.
+ *
+ * An agent's cost is its smoothed execution time and result size, each relative to the mean over
+ * every tracked agent, so an average agent costs 1 and an agent that runs four times as long and
+ * caches four times as much costs 4. Agents that have not been measured yet cost 1.
+ *
+ * Each runnable agent is tagged with a virtual start time (the later of the current virtual time
+ * and the agent's previous finish time) and a finish time (start plus cost). Agents are offered in
+ * finish time order and the virtual time advances to the start time of each dispatched agent, so
+ * heavy agents are picked up less eagerly than light ones but are never starved.
+ */
+class AgentCostTracker(
+  private val clock: Clock,
+  private val smoothing: Double = DEFAULT_SMOOTHING
+) {
+
+  private val costs = ConcurrentHashMap<String, AgentCost>()
+  private val updated = ConcurrentHashMap.newKeySet<String>()
+  private val finishTimes = ConcurrentHashMap<String, Double>()
+
+  // guarded by this
+  private val pending = HashMap<String, Tag>()
+  private var virtualTime = 0.0
+
+  fun record(agentType: String, durationMs: Long, resultSize: Int?) {
+    val now = clock.millis()
+    costs.compute(agentType) { _, existing ->
+      if (existing == null) {
+        AgentCost(durationMs.toDouble(), (resultSize ?: 0).toDouble(), now)
+      } else {
+        AgentCost(
+          smooth(existing.durationMs, durationMs.toDouble()),
+          resultSize?.let { smooth(existing.resultSize, it.toDouble()) } ?: existing.resultSize,
+          now
+        )
+      }
+    }
+    updated.add(agentType)
+  }
+
+  fun getCost(agentType: String): AgentCost? = costs[agentType]
+
+  /**
+   * @return the cost of each of [agentTypes] relative to an average agent
+   */
+  fun relativeCosts(agentTypes: Collection<String>): Map<String, Double> {
+    val means = means()
+    return agentTypes.associateWith { relativeCost(costs[it], means) }
+  }
+
+  /**
+   * @return [candidates] in the order they should be run
+   */
+  @Synchronized
+  fun order(candidates: Collection<String>): List<String> {
+    val means = means()
+    pending.keys.retainAll(candidates.toSet())
+    candidates.forEach { agentType ->
+      pending.computeIfAbsent(agentType) {
+        val start = max(virtualTime, finishTimes[agentType] ?: 0.0)
+        Tag(start, start + relativeCost(costs[agentType], means))
+      }
+    }
+
+    // ties are broken randomly so that nodes with the same view don't contend for the same agents
+    return candidates.shuffled().sortedBy { pending.getValue(it).finish }
+  }
+
+  /**
+   * Records that [agentType], previously returned by [order], has been started on this node.
+   */
+  @Synchronized
+  fun dispatched(agentType: String) {
+    val tag = pending.remove(agentType) ?: return
+    finishTimes[agentType] = tag.finish
+    virtualTime = max(virtualTime, tag.start)
+  }
+
+  fun forget(agentType: String) {
+    costs.remove(agentType)
+    updated.remove(agentType)
+    finishTimes.remove(agentType)
+  }
+
+  /**
+   * @return the costs recorded on this node since the last call, to be shared with other nodes
+   */
+  fun drainUpdates(): Map<String, AgentCost> {
+    val updates = mutableMapOf<String, AgentCost>()
+    updated.toList().forEach { agentType ->
+      updated.remove(agentType)
+      costs[agentType]?.let { updates[agentType] = it }
+    }
+    return updates
+  }
+
+  /**
+   * Adopts costs shared by other nodes where they are more recent than those known locally.
+   */
+  fun merge(shared: Map<String, AgentCost>) {
+    shared.forEach { (agentType, cost) ->
+      costs.merge(agentType, cost) { local, remote ->
+        if (remote.updatedAt > local.updatedAt) remote else local
+      }
+    }
+  }
+
+  private fun smooth(previous: Double, sample: Double) =
+    previous + smoothing * (sample - previous)
+
+  private fun means(): Means {
+    var duration = 0.0
+    var resultSize = 0.0
+    val values = costs.values.toList()
+    values.forEach {
+      duration += it.durationMs
+      resultSize += it.resultSize
+    }
+    return if (values.isEmpty()) {
+      Means(0.0, 0.0)
+    } else {
+      Means(duration / values.size, resultSize / values.size)
+    }
+  }
+
+  private fun relativeCost(cost: AgentCost?, means: Means): Double {
+    if (cost == null || means.durationMs <= 0.0) {
+      return 1.0
+    }
+
+    val duration = cost.durationMs / means.durationMs
+    val relative = if (means.resultSize > 0.0) {
+      (duration + cost.resultSize / means.resultSize) / 2
+    } else {
+      duration
+    }
+    return max(MIN_COST, relative)
+  }
+
+  data class AgentCost(
+    val durationMs: Double,
+    val resultSize: Double,
+    val updatedAt: Long
+  )
+
+  private data class Means(val durationMs: Double, val resultSize: Double)
+
+  private data class Tag(val start: Double, val finish: Double)
+
+  companion object {
+    const val DEFAULT_SMOOTHING = 0.3
+
+    /**
+     * Keeps agents that do next to nothing from being offered repeatedly at the same virtual time.
+     */
+    private const val MIN_COST = 0.05
+  }
+}
@@ -19,6 +19,7 @@ package com.netflix.spinnaker.cats.sql.cluster
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder
 import com.netflix.spinnaker.cats.agent.Agent
+import com.netflix.spinnaker.cats.cluster.ConsistentHashRing
 import com.netflix.spinnaker.cats.cluster.NodeIdentity
 import com.netflix.spinnaker.cats.cluster.ShardingFilter
 import com.netflix.spinnaker.cats.sql.SqlUtil
@@ -32,11 +33,23 @@ import org.jooq.impl.DSL.table
 import org.slf4j.LoggerFactory
 import org.springframework.dao.DataIntegrityViolationException
 import java.sql.SQLException
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executors
 import java.util.concurrent.ScheduledExecutorService
 import java.util.concurrent.TimeUnit
 import kotlin.math.abs
 
+/**
+ * Shards caching agents across the live caching pods by account.
+ *
+ * By default an account is assigned to the pod at index `hash(account) % podCount`, which remaps nearly every account
+ * whenever a pod joins or leaves. With `cache-sharding.strategy: consistent-hash`, accounts are instead assigned with a
+ * [ConsistentHashRing] of the live pods (`cache-sharding.virtual-nodes` points per pod), so a membership change only
+ * moves the accounts of the pods that joined or left.
+ *
+ * With consistent hashing, `cache-sharding.account-weights.<account>` optionally splits a large account into that many
+ * shards (by agent type), each placed on the ring independently.
+ */
 class SqlCachingPodsObserver (
   private val jooq: DSLContext,
   private val nodeIdentity: NodeIdentity,
@@ -49,6 +62,9 @@ class SqlCachingPodsObserver (
   private val log = LoggerFactory.getLogger(javaClass)
   private var podCount: Int = 0
   private var podIndex: Int = -1
+  @Volatile
+  private var placement: Placement? = null
+  private val accountWeights = ConcurrentHashMap<String, Int>()
   private var ttlSeconds = dynamicConfigService.getConfig(Long::class.java, "cache-sharding.replica-ttl-seconds", 60)
 
   companion object {
@@ -169,6 +185,7 @@ class SqlCachingPodsObserver (
   private fun preFilter(){
     var counter = 0
     var index = -1
+    val podIds = mutableListOf<String>()
     try {
       withPool(POOL_NAME) {
         val cachingPods = jooq.select()
@@ -178,6 +195,7 @@ class SqlCachingPodsObserver (
           .intoResultSet()
 
         while (cachingPods.next()) {
+          podIds.add(cachingPods.getString(POD_ID))
           if (cachingPods.getString(POD_ID).equals(nodeIdentity.nodeIdentity)) {
             index = counter;
           }
@@ -193,17 +211,63 @@ class SqlCachingPodsObserver (
     podCount = counter
     podIndex = index
     log.debug("Pod count : {} and current pod's index : {}", podCount, podIndex)
+
+    accountWeights.clear()
+    if (isConsistentHashing()) {
+      updatePlacement(podIds)
+    } else {
+      placement = null
+    }
+  }
+
+  private fun isConsistentHashing() =
+    dynamicConfigService.getConfig(String::class.java, "cache-sharding.strategy", "modulo") == "consistent-hash"
+
+  private fun updatePlacement(podIds: List<String>) {
+    val virtualNodes = dynamicConfigService.getConfig(Int::class.java, "cache-sharding.virtual-nodes", 128)
+    val current = placement
+    if (current != null && current.podIds == podIds && current.virtualNodes == virtualNodes) {
+      return
+    }
+
+    log.info("Caching pods changed from {} to {}, rebuilding consistent hash ring", current?.podIds, podIds)
+    placement = Placement(podIds, virtualNodes)
+  }
+
+  private fun getShardKey(agentType: String): String {
+    val accountName = getAccountName(agentType)
+    val weight = accountWeights.computeIfAbsent(accountName) {
+      dynamicConfigService.getConfig(Int::class.java, "cache-sharding.account-weights.$it", 1)
+    }
+    return if (weight > 1) {
+      "$accountName#${Math.floorMod(agentType.hashCode(), weight)}"
+    } else {
+      accountName
+    }
   }
 
   override fun filter(agent: Agent) : Boolean{
     if(agent.providerName.equals(CoreProvider.PROVIDER_NAME)){
       return true
     }
+    val currentPlacement = placement
+    if (currentPlacement != null) {
+      return currentPlacement.isOwner(getShardKey(agent.agentType), nodeIdentity.nodeIdentity)
+    }
     if (podCount == 1 || abs(getAccountName(agent.agentType).hashCode() % podCount) == podIndex) {
       return true
     }
     return false
   }
 
+  /**
+   * A ring of the live caching pods, along with which shards this pod was found to own on it.
+   */
+  private class Placement(val podIds: List<String>, val virtualNodes: Int) {
+    private val ring = ConsistentHashRing(podIds, virtualNodes)
+    private val owned = ConcurrentHashMap<String, Boolean>()
 
+    fun isOwner(shardKey: String, podId: String): Boolean =
+      ring.nodeCount == 1 || owned.computeIfAbsent(shardKey) { ring.getOwner(it) == podId }
+  }
 }
@@ -16,6 +16,8 @@
 package com.netflix.spinnaker.cats.sql.cluster
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.netflix.spectator.api.NoopRegistry
+import com.netflix.spectator.api.Registry
 import com.netflix.spinnaker.cats.agent.Agent
 import com.netflix.spinnaker.cats.agent.AgentExecution
 import com.netflix.spinnaker.cats.agent.AgentLock
@@ -23,23 +25,28 @@ import com.netflix.spinnaker.cats.agent.AgentScheduler
 import com.netflix.spinnaker.cats.agent.AgentSchedulerAware
 import com.netflix.spinnaker.cats.agent.ExecutionInstrumentation
 import com.netflix.spinnaker.cats.agent.ExecutionInstrumentation.elapsedTimeMs
+import com.netflix.spinnaker.cats.cache.CacheIntrospectionStore
 import com.netflix.spinnaker.cats.cluster.AgentIntervalProvider
 import com.netflix.spinnaker.cats.cluster.NodeIdentity
 import com.netflix.spinnaker.cats.cluster.NodeStatusProvider
 import com.netflix.spinnaker.cats.cluster.ShardingFilter
 import com.netflix.spinnaker.cats.module.CatsModuleAware
 import com.netflix.spinnaker.cats.sql.SqlUtil
+import com.netflix.spinnaker.cats.sql.cluster.AgentCostTracker.AgentCost
 import com.netflix.spinnaker.config.ConnectionPools
 import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
 import com.netflix.spinnaker.kork.sql.routing.withPool
-import java.sql.SQLException
+import java.time.Clock
 import java.util.regex.Pattern
 import java.util.regex.Pattern.CASE_INSENSITIVE
+import org.jooq.CaseWhenStep
 import org.jooq.DSLContext
+import org.jooq.SQLDialect
+import org.jooq.impl.DSL.choose
 import org.jooq.impl.DSL.field
 import org.jooq.impl.DSL.table
+import org.jooq.util.mysql.MySQLDSL
 import org.slf4j.LoggerFactory
-import org.springframework.dao.DataIntegrityViolationException
 import java.util.concurrent.*
 
 /**
@@ -48,6 +55,14 @@ import java.util.concurrent.*
  * recommended for real workloads. Instead, use the Redis scheduler (`redis.scheduler.enabled=true` and
  * `sql.scheduler.enabled=false`) or implement a scheduler based on ZooKeeper, etcd, consul, and so-on.
  *
+ * With `sql.agent.cost-aware-scheduling.enabled`, runnable agents are picked in [AgentCostTracker] order rather
+ * than at random, and each node only takes on agents while the total cost of its running agents stays within
+ * `sql.agent.max-concurrent-cost` (in units of an average agent, defaulting to `sql.agent.max-concurrent-agents`).
+ * Agent costs are shared between nodes through the `cats_agent_costs` table, so a node that has just started
+ * doesn't take on every heavy agent it finds unlocked.
+ *
+ * Locks are claimed, released and renewed in batches of up to `sql.agent.lock-batch-size` agents per statement.
+ * Completed agents are released by the next polling round, ahead of claiming new locks.
  */
 class SqlClusteredAgentScheduler(
   private val jooq: DSLContext,
@@ -65,7 +80,9 @@ class SqlClusteredAgentScheduler(
   lockPollingScheduler: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
     ThreadFactoryBuilder().setNameFormat(SqlClusteredAgentScheduler::class.java.simpleName + "-%d").build()
   ),
-  private val shardingFilter: ShardingFilter
+  private val shardingFilter: ShardingFilter,
+  private val costTracker: AgentCostTracker = AgentCostTracker(Clock.systemUTC()),
+  private val registry: Registry = NoopRegistry()
 ) : CatsModuleAware(), AgentScheduler<AgentLock>, Runnable {
 
   private val log = LoggerFactory.getLogger(javaClass)
@@ -73,6 +90,7 @@ class SqlClusteredAgentScheduler(
   private val agents: MutableMap<String, AgentExecutionAction> = ConcurrentHashMap()
   private val activeAgents: MutableMap<String, NextAttempt> = ConcurrentHashMap()
   private val activeAgentsFutures: MutableMap<String, Future<*>> = ConcurrentHashMap()
+  private val completedAgents: MutableMap<String, Long> = ConcurrentHashMap()
   private val enabledAgents: Pattern
 
   private val referenceTable = "cats_agent_locks"
@@ -82,10 +100,25 @@ class SqlClusteredAgentScheduler(
     "${referenceTable}_$tableNamespace"
   }
 
+  private val referenceCostTable = "cats_agent_costs"
+  private val costTable = if (tableNamespace.isNullOrBlank()) {
+    referenceCostTable
+  } else {
+    "${referenceCostTable}_$tableNamespace"
+  }
+
+  @Volatile
+  private var lastCostSync = 0L
+
+  private val lockClaimsId = registry.createId("cats.sqlAgentScheduler.lockClaims")
+  private val lockReleasesId = registry.createId("cats.sqlAgentScheduler.lockReleases")
+  private val lockStatementsId = registry.createId("cats.sqlAgentScheduler.lockStatements")
+
   init {
     if (!tableNamespace.isNullOrBlank()) {
       withPool(POOL_NAME) {
         SqlUtil.createTableLike(jooq, lockTable, referenceTable)
+        SqlUtil.createTableLike(jooq, costTable, referenceCostTable)
       }
     }
 
@@ -106,13 +139,23 @@ class SqlClusteredAgentScheduler(
   }
 
   override fun unschedule(agent: Agent) {
-    releaseLock(agent.agentType, 0) // Release the lock immediately
+    releaseLocks(mapOf(agent.agentType to 0L)) // Release the lock immediately
     agents.remove(agent.agentType)
+    costTracker.forget(agent.agentType)
   }
 
   override fun run() {
+    try {
+      releaseCompletedAgents()
+    } catch (t: Throwable) {
+      log.error("Failed releasing completed agents", t)
+    }
+
     if (nodeStatusProvider.isNodeEnabled) {
       try {
+        if (isCostAwareSchedulingEnabled()) {
+          syncAgentCosts()
+        }
         runAgents()
       } catch (t: Throwable) {
         log.error("Failed running cache agents", t)
@@ -132,21 +175,23 @@ class SqlClusteredAgentScheduler(
   }
 
   private fun tryAcquire(): Map<String, NextAttempt> {
-    return findCandidateAgentLocks()
-      .map {
-        val agentType = it.key
-        val agentExecution = it.value
-        val interval = intervalProvider.getInterval(agentExecution.agent)
-
-        val currentTime = System.currentTimeMillis()
-        if (tryAcquireSingle(agentType, currentTime, interval.timeout)) {
-          Pair(agentType, NextAttempt(currentTime, interval.interval, interval.errorInterval))
-        } else {
-          null
-        }
+    val candidates = findCandidateAgentLocks()
+    if (candidates.isEmpty()) {
+      return emptyMap()
+    }
+
+    val intervals = candidates.mapValues { intervalProvider.getInterval(it.value.agent) }
+    val currentTime = System.currentTimeMillis()
+    val claimed = claimLocks(intervals.mapValues { currentTime + it.value.timeout }, currentTime)
+
+    val acquired = mutableMapOf<String, NextAttempt>()
+    intervals.forEach { (agentType, interval) ->
+      if (claimed.contains(agentType)) {
+        costTracker.dispatched(agentType)
+        acquired[agentType] = NextAttempt(currentTime, interval.interval, interval.errorInterval)
       }
-      .filterNotNull()
-      .toMap()
+    }
+    return acquired
   }
 
   private fun findCandidateAgentLocks(): Map<String, AgentExecutionAction> {
@@ -187,33 +232,35 @@ class SqlClusteredAgentScheduler(
         .intoResultSet()
 
       val now = System.currentTimeMillis()
+      val expiredLocks = mutableListOf<String>()
       while (existingLocks.next()) {
-        val lockExpiry = existingLocks.getLong("lock_expiry")
-        if (now > lockExpiry) {
-          try {
-            jooq.deleteFrom(table(lockTable))
-              .where(
-                field("agent_name").eq(existingLocks.getString("agent_name"))
-                  .and(field("lock_expiry").eq(lockExpiry))
-              )
-              .execute()
-          } catch (e: SQLException) {
-            log.error(
-              "Failed deleting agent lock ${existingLocks.getString("agent_name")} with expiry " +
-                lockExpiry,
-              e
-            )
-
-            candidateAgentLocks.remove(existingLocks.getString("agent_name"))
-          }
+        if (now > existingLocks.getLong("lock_expiry")) {
+          expiredLocks.add(existingLocks.getString("agent_name"))
         } else {
           candidateAgentLocks.remove(existingLocks.getString("agent_name"))
         }
       }
+
+      if (expiredLocks.isNotEmpty()) {
+        // locks renewed since they were read no longer match
+        try {
+          jooq.deleteFrom(table(lockTable))
+            .where(field("lock_expiry").lt(now))
+            .execute()
+          registry.counter(lockStatementsId.withTag("operation", "deleteExpired")).increment()
+        } catch (e: Exception) {
+          log.error("Failed deleting ${expiredLocks.size} expired agent locks", e)
+          expiredLocks.forEach { candidateAgentLocks.remove(it) }
+        }
+      }
     }
 
     log.debug("Next agents to run: {}, max: {}", candidateAgentLocks.keys, availableAgents)
 
+    if (isCostAwareSchedulingEnabled()) {
+      return trimCandidatesByCost(candidateAgentLocks, availableAgents, maxConcurrentAgents, skip.map { it.key })
+    }
+
     val trimmedCandidates = mutableMapOf<String, AgentExecutionAction>()
     candidateAgentLocks.entries
       .shuffled()
@@ -231,6 +278,113 @@ class SqlClusteredAgentScheduler(
     return trimmedCandidates
   }
 
+  /**
+   * Takes candidates in [AgentCostTracker] order while the node has both agent slots and cost budget left. The first
+   * candidate that doesn't fit ends the round, leaving it at the head of the queue rather than letting lighter agents
+   * behind it take up the budget it is waiting for.
+   */
+  private fun trimCandidatesByCost(
+    candidates: Map<String, AgentExecutionAction>,
+    availableAgents: Int,
+    maxConcurrentAgents: Int,
+    runningAgents: Collection<String>
+  ): Map<String, AgentExecutionAction> {
+    val maxConcurrentCost = dynamicConfigService.getConfig(
+      Int::class.java,
+      "sql.agent.max-concurrent-cost",
+      maxConcurrentAgents
+    ).toDouble()
+
+    val ordered = costTracker.order(candidates.keys)
+    val costs = costTracker.relativeCosts(ordered + runningAgents)
+    var totalCost = runningAgents.sumByDouble { costs.getValue(it) }
+
+    val trimmedCandidates = mutableMapOf<String, AgentExecutionAction>()
+    for (agentType in ordered) {
+      val cost = costs.getValue(agentType)
+      val fits = totalCost + cost <= maxConcurrentCost || (totalCost == 0.0 && trimmedCandidates.isEmpty())
+      if (trimmedCandidates.size >= availableAgents || !fits) {
+        log.debug(
+          "Not acquiring more locks (next agent: {}, cost: {}, running cost: {}, maxConcurrentCost: {}, " +
+            "remaining candidates: {})",
+          agentType, cost, totalCost, maxConcurrentCost, ordered.size - trimmedCandidates.size
+        )
+        break
+      }
+      trimmedCandidates[agentType] = candidates.getValue(agentType)
+      totalCost += cost
+    }
+    return trimmedCandidates
+  }
+
+  /**
+   * Publishes the agent costs measured on this node and adopts those measured by others, at most once every
+   * `sql.agent.cost-sync-interval-ms`.
+   */
+  private fun syncAgentCosts() {
+    val now = System.currentTimeMillis()
+    if (now - lastCostSync < dynamicConfigService.getConfig(Long::class.java, "sql.agent.cost-sync-interval-ms", 60000)) {
+      return
+    }
+    lastCostSync = now
+
+    val retentionMs = dynamicConfigService.getConfig(Long::class.java, "sql.agent.cost-retention-ms", 604800000)
+    try {
+      withPool(POOL_NAME) {
+        costTracker.drainUpdates().entries.chunked(100).forEach { chunk ->
+          val insert = jooq.insertInto(
+            table(costTable),
+            field("agent_name"),
+            field("duration_ms"),
+            field("result_size"),
+            field("last_updated")
+          )
+
+          insert.apply {
+            chunk.forEach { (agentType, cost) ->
+              values(agentType, cost.durationMs.toLong(), cost.resultSize.toLong(), cost.updatedAt)
+              when (jooq.dialect()) {
+                SQLDialect.POSTGRES ->
+                  onConflict(field("agent_name"))
+                    .doUpdate()
+                    .set(field("duration_ms"), SqlUtil.excluded(field("duration_ms")) as Any)
+                    .set(field("result_size"), SqlUtil.excluded(field("result_size")) as Any)
+                    .set(field("last_updated"), SqlUtil.excluded(field("last_updated")) as Any)
+                else ->
+                  onDuplicateKeyUpdate()
+                    .set(field("duration_ms"), MySQLDSL.values(field("duration_ms")) as Any)
+                    .set(field("result_size"), MySQLDSL.values(field("result_size")) as Any)
+                    .set(field("last_updated"), MySQLDSL.values(field("last_updated")) as Any)
+              }
+            }
+          }
+          insert.execute()
+        }
+
+        jooq.deleteFrom(table(costTable))
+          .where(field("last_updated").lt(now - retentionMs))
+          .execute()
+
+        val shared = jooq.select(field("agent_name"), field("duration_ms"), field("result_size"), field("last_updated"))
+          .from(table(costTable))
+          .fetch()
+          .associate {
+            it.get(0, String::class.java) to AgentCost(
+              (it.get(1) as Number).toDouble(),
+              (it.get(2) as Number).toDouble(),
+              (it.get(3) as Number).toLong()
+            )
+          }
+        costTracker.merge(shared)
+      }
+    } catch (e: Exception) {
+      log.warn("Failed to synchronize agent costs", e)
+    }
+  }
+
+  private fun isCostAwareSchedulingEnabled() =
+    dynamicConfigService.isEnabled("sql.agent.cost-aware-scheduling", false)
+
   private fun cleanupZombieAgents() {
     val zombieAgentThreshold = dynamicConfigService.getConfig(Long::class.java, "sql.agent.zombie-threshold-ms", 3600000)
     activeAgents
@@ -250,63 +404,142 @@ class SqlClusteredAgentScheduler(
       }
   }
 
-  private fun tryAcquireSingle(agentType: String, now: Long, timeout: Long): Boolean {
-    try {
-      withPool(POOL_NAME) {
-        jooq.insertInto(table(lockTable))
-          .columns(
+  /**
+   * Inserts locks for all of [lockExpiries] in batches, skipping those already held.
+   *
+   * @return the agents whose locks were claimed by this node
+   */
+  private fun claimLocks(lockExpiries: Map<String, Long>, now: Long): Set<String> {
+    val claimed = mutableSetOf<String>()
+    withPool(POOL_NAME) {
+      lockExpiries.entries.chunked(lockBatchSize()).forEach { chunk ->
+        try {
+          val insert = jooq.insertInto(
+            table(lockTable),
             field("agent_name"),
             field("owner_id"),
             field("lock_acquired"),
             field("lock_expiry")
           )
-          .values(
-            agentType,
-            nodeIdentity.nodeIdentity,
-            now,
-            now + timeout
-          )
-          .execute()
+          chunk.forEach { (agentType, lockExpiry) ->
+            insert.values(agentType, nodeIdentity.nodeIdentity, now, lockExpiry)
+          }
+          val inserted = insert.onDuplicateKeyIgnore().execute()
+          registry.counter(lockStatementsId.withTag("operation", "claim")).increment()
+
+          val agentTypes = chunk.map { it.key }
+          if (inserted == chunk.size) {
+            claimed.addAll(agentTypes)
+          } else {
+            // some of the locks were grabbed by another clouddriver first; ours are the ones stamped with this claim
+            claimed.addAll(
+              jooq.select(field("agent_name"))
+                .from(table(lockTable))
+                .where(
+                  field("agent_name").`in`(agentTypes)
+                    .and(field("owner_id").eq(nodeIdentity.nodeIdentity))
+                    .and(field("lock_acquired").eq(now))
+                )
+                .fetch(0, String::class.java)
+                .filter { lockExpiries.containsKey(it) }
+            )
+            registry.counter(lockStatementsId.withTag("operation", "verifyClaim")).increment()
+          }
+        } catch (e: Exception) {
+          log.error("Unexpected sql exception while trying to acquire ${chunk.size} agent locks", e)
+        }
+      }
+    }
+
+    val contended = lockExpiries.size - claimed.size
+    registry.counter(lockClaimsId.withTag("result", "claimed")).increment(claimed.size.toLong())
+    registry.counter(lockClaimsId.withTag("result", "contended")).increment(contended.toLong())
+    if (contended > 0) {
+      log.debug("Claimed {} of {} agent locks", claimed.size, lockExpiries.size)
+    }
+    return claimed
+  }
+
+  private fun releaseCompletedAgents() {
+    if (completedAgents.isEmpty()) {
+      return
+    }
+
+    val completed = HashMap(completedAgents)
+    try {
+      releaseLocks(completed)
+    } finally {
+      completed.forEach { (agentType, nextExecutionTime) ->
+        completedAgents.remove(agentType, nextExecutionTime)
+        activeAgents.remove(agentType)
+        activeAgentsFutures.remove(agentType)
       }
-    } catch (e: DataIntegrityViolationException) {
-      // Integrity constraint exceptions are ok: It means another clouddriver grabbed the lock before us.
-      return false
-    } catch (e: SQLException) {
-      log.error("Unexpected sql exception while trying to acquire agent lock", e)
-      return false
     }
-    return true
   }
 
-  private fun releaseLock(agentType: String, nextExecutionTime: Long) {
-    val newTtl = nextExecutionTime - System.currentTimeMillis()
+  /**
+   * Releases this node's locks for [nextExecutionTimes]: locks due again within `sql.agent.release-threshold-ms`
+   * are deleted, the rest are renewed until their next execution time.
+   */
+  private fun releaseLocks(nextExecutionTimes: Map<String, Long>) {
+    val releaseThreshold = dynamicConfigService.getConfig(Long::class.java, "sql.agent.release-threshold-ms", 500)
+    val now = System.currentTimeMillis()
+    val (toDelete, toRenew) = nextExecutionTimes.entries.partition { it.value - now < releaseThreshold }
+    val batchSize = lockBatchSize()
 
     withPool(POOL_NAME) {
-      if (newTtl < dynamicConfigService.getConfig(Long::class.java, "sql.agent.release-threshold-ms", 500)) {
+      toDelete.map { it.key }.chunked(batchSize).forEach { chunk ->
         try {
-          jooq.delete(table(lockTable)).where(field("agent_name").eq(agentType)).execute()
-        } catch (e: SQLException) {
-          log.error("Failed to immediately release lock for agent: $agentType", e)
+          jooq.deleteFrom(table(lockTable))
+            .where(field("agent_name").`in`(chunk).and(field("owner_id").eq(nodeIdentity.nodeIdentity)))
+            .execute()
+          registry.counter(lockStatementsId.withTag("operation", "release")).increment()
+          registry.counter(lockReleasesId.withTag("type", "release")).increment(chunk.size.toLong())
+        } catch (e: Exception) {
+          log.error("Failed to immediately release locks for agents: $chunk", e)
         }
-      } else {
+      }
+
+      toRenew.chunked(batchSize).forEach { chunk ->
         try {
+          // a single update setting each lock's expiry with CASE agent_name WHEN ... THEN ... END
+          var lockExpiry: CaseWhenStep<Any, Any>? = null
+          for ((agentType, nextExecutionTime) in chunk) {
+            lockExpiry = lockExpiry?.`when`(agentType, nextExecutionTime)
+              ?: choose(field("agent_name")).`when`<Any>(agentType, nextExecutionTime)
+          }
+
           jooq.update(table(lockTable))
-            .set(field("lock_expiry"), System.currentTimeMillis() + newTtl)
-            .where(field("agent_name").eq(agentType))
+            .set(field("lock_expiry"), lockExpiry!!.otherwise(field("lock_expiry")))
+            .where(field("agent_name").`in`(chunk.map { it.key }).and(field("owner_id").eq(nodeIdentity.nodeIdentity)))
             .execute()
-        } catch (e: SQLException) {
-          log.error("Failed to update lock TTL for agent: $agentType", e)
+          registry.counter(lockStatementsId.withTag("operation", "renew")).increment()
+          registry.counter(lockReleasesId.withTag("type", "renew")).increment(chunk.size.toLong())
+        } catch (e: Exception) {
+          log.error("Failed to update lock TTL for agents: ${chunk.map { it.key }}", e)
         }
       }
     }
   }
 
-  private fun agentCompleted(agentType: String, nextExecutionTime: Long) {
+  private fun lockBatchSize() =
+    dynamicConfigService.getConfig(Int::class.java, "sql.agent.lock-batch-size", 100).coerceAtLeast(1)
+
+  private fun agentCompleted(agentType: String, status: Status, startTimeMs: Long, nextExecutionTime: Long) {
     try {
-      releaseLock(agentType, nextExecutionTime)
+      if (status == Status.SUCCESS) {
+        // caching agents record their result in the introspection store; other agents are costed by duration alone
+        val introspection = CacheIntrospectionStore.getStore().getAgentIntrospection(agentType)
+          ?.takeIf { (it.lastExecutionStartMs ?: 0) >= startTimeMs }
+        costTracker.record(
+          agentType,
+          System.currentTimeMillis() - startTimeMs,
+          introspection?.let { it.totalAdditions + it.totalEvictions }
+        )
+      }
     } finally {
-      activeAgents.remove(agentType)
-      activeAgentsFutures.remove(agentType)
+      // released in bulk by the next polling round, which keeps the agent active until then
+      completedAgents[agentType] = nextExecutionTime
     }
   }
 
@@ -342,15 +575,16 @@ private class AgentExecutionAction(
 private class AgentJob(
   private val lockReleaseTime: NextAttempt,
   private val action: AgentExecutionAction,
-  private val schedulerCallback: (agentType: String, nextExecutionTime: Long) -> Unit
+  private val schedulerCallback: (agentType: String, status: Status, startTimeMs: Long, nextExecutionTime: Long) -> Unit
 ) : Runnable {
 
   override fun run() {
+    val startTimeMs = System.currentTimeMillis()
     var status = Status.FAILURE
     try {
       status = action.execute()
     } finally {
-      schedulerCallback(action.agent.agentType, lockReleaseTime.getNextTime(status))
+      schedulerCallback(action.agent.agentType, status, startTimeMs, lockReleaseTime.getNextTime(status))
     }
   }
 }
@@ -15,6 +15,7 @@
  */
 package com.netflix.spinnaker.config
 
+import com.netflix.spectator.api.Registry
 import com.netflix.spinnaker.cats.agent.AgentScheduler
 import com.netflix.spinnaker.cats.cluster.AgentIntervalProvider
 import com.netflix.spinnaker.cats.cluster.DefaultNodeIdentity
@@ -46,7 +47,8 @@ class SqlAgentSchedulerConfiguration {
     dynamicConfigService: DynamicConfigService,
     @Value("\${sql.table-namespace:#{null}}") tableNamespace: String?,
     sqlAgentProperties: SqlAgentProperties,
-    shardingFilter: ShardingFilter
+    shardingFilter: ShardingFilter,
+    registry: Registry
   ): AgentScheduler<*> {
     return SqlClusteredAgentScheduler(
       jooq = jooq,
@@ -58,7 +60,8 @@ class SqlAgentSchedulerConfiguration {
       disabledAgentsConfig = sqlAgentProperties.disabledAgents,
       tableNamespace = tableNamespace,
       agentLockAcquisitionIntervalSeconds = sqlAgentProperties.agentLockAcquisitionIntervalSeconds,
-      shardingFilter = shardingFilter
+      shardingFilter = shardingFilter,
+      registry = registry
     )
   }
 }
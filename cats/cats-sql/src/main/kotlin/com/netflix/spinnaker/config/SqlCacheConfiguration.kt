@@ -13,13 +13,16 @@ import com.netflix.spinnaker.cats.provider.ProviderRegistry
 import com.netflix.spinnaker.cats.sql.SqlProviderRegistry
 import com.netflix.spinnaker.cats.sql.cache.SpectatorSqlCacheMetrics
 import com.netflix.spinnaker.cats.sql.cache.SqlCacheMetrics
+import com.netflix.spinnaker.cats.sql.cache.SqlChangeFeed
 import com.netflix.spinnaker.cats.sql.cache.SqlCleanupStaleOnDemandCachesAgent
 import com.netflix.spinnaker.cats.sql.cache.SqlNamedCacheFactory
 import com.netflix.spinnaker.cats.sql.cache.SqlNames
+import com.netflix.spinnaker.cats.sql.cache.SqlNearCache
 import com.netflix.spinnaker.cats.sql.cache.SqlTableMetricsAgent
 import com.netflix.spinnaker.cats.sql.cache.SqlUnknownAgentCleanupAgent
 import com.netflix.spinnaker.cats.cluster.NoopShardingFilter
 import com.netflix.spinnaker.cats.cluster.ShardingFilter
+import com.netflix.spinnaker.clouddriver.cache.CompositeCacheFactory
 import com.netflix.spinnaker.clouddriver.cache.CustomSchedulableAgentIntervalProvider
 import com.netflix.spinnaker.clouddriver.cache.DiscoveryStatusNodeStatusProvider
 import com.netflix.spinnaker.clouddriver.sql.SqlAgent
@@ -54,7 +57,11 @@ const val coroutineThreadPrefix = "catsSql"
 @Configuration
 @ConditionalOnProperty("sql.cache.enabled")
 @Import(DefaultSqlConfiguration::class)
-@EnableConfigurationProperties(SqlAgentProperties::class, SqlConstraintsProperties::class)
+@EnableConfigurationProperties(
+  SqlAgentProperties::class,
+  SqlConstraintsProperties::class,
+  SqlNearCacheProperties::class
+)
 @ComponentScan("com.netflix.spinnaker.cats.sql.controllers")
 class SqlCacheConfiguration {
 
@@ -72,13 +79,15 @@ class SqlCacheConfiguration {
     providers: List<Provider>,
     executionInstrumentation: List<ExecutionInstrumentation>,
     cacheFactory: NamedCacheFactory,
-    agentScheduler: AgentScheduler<*>
+    agentScheduler: AgentScheduler<*>,
+    compositeCacheFactory: CompositeCacheFactory
   ): CatsModule {
     return CatsModule.Builder()
       .providerRegistry(SqlProviderRegistry(providers, cacheFactory))
       .cacheFactory(cacheFactory)
       .scheduler(agentScheduler)
       .instrumentation(executionInstrumentation)
+      .viewFactory(compositeCacheFactory)
       .build(providers)
   }
 
@@ -95,6 +104,9 @@ class SqlCacheConfiguration {
    * sql.tableNamespace: Name spaces data tables, as well as the agent lock table if using the SqlAgentScheduler.
    * Table namespacing allows flipping to new/empty data tables within the same master if necessary to rebuild
    * the cache from scratch, such as after disabling caching agents for an account/region.
+   *
+   * sql.cache.nearCache.enabled: Serves repeated reads from memory while the change feed (written by nodes with
+   * sql.cache.changeFeed.enabled) reports their type unchanged. See [SqlNearCacheProperties].
    */
   @ObsoleteCoroutinesApi
   @Bean
@@ -106,6 +118,7 @@ class SqlCacheConfiguration {
     dynamicConfigService: DynamicConfigService,
     sqlConstraints: SqlConstraints,
     mapper: ObjectMapper,
+    nearCacheProperties: SqlNearCacheProperties,
     @Value("\${sql.cache.async-pool-size:0}") poolSize: Int,
     @Value("\${sql.table-namespace:#{null}}") tableNamespace: String?
   ): NamedCacheFactory {
@@ -130,6 +143,27 @@ class SqlCacheConfiguration {
       log.info("Configured coroutine context with newFixedThreadPoolContext of $poolSize threads")
     }
 
+    // writers need the change feed to record changes for near caches elsewhere, readers to poll it
+    val changeFeed = if (nearCacheProperties.enabled || dynamicConfigService.isEnabled("sql.cache.change-feed", false)) {
+      SqlChangeFeed(
+        jooq,
+        clock,
+        dynamicConfigService,
+        sqlProperties.retries,
+        tableNamespace,
+        nearCacheProperties.maxStalenessMs
+      )
+    } else {
+      null
+    }
+    val nearCache = if (changeFeed != null && nearCacheProperties.enabled) {
+      log.info("Configured near cache of max weight ${nearCacheProperties.maxWeight}")
+      changeFeed.start(nearCacheProperties.pollIntervalMs)
+      SqlNearCache(changeFeed, nearCacheProperties.maxWeight, Duration.ofSeconds(nearCacheProperties.maxAgeSeconds).toMillis())
+    } else {
+      null
+    }
+
     return SqlNamedCacheFactory(
       jooq,
       mapper,
@@ -139,7 +173,9 @@ class SqlCacheConfiguration {
       tableNamespace,
       cacheMetrics,
       dynamicConfigService,
-      sqlConstraints
+      sqlConstraints,
+      changeFeed,
+      nearCache
     )
   }
 
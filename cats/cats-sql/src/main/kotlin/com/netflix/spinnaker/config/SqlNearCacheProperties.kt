@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.config
+
+import org.springframework.boot.context.properties.ConfigurationProperties
+
+/**
+ * Serves repeated SqlCache reads from memory while the change feed reports their type unchanged.
+ *
+ * Nodes writing to the cache must enable `sql.cache.change-feed` for nodes with a near cache to see their writes
+ * before cached results reach [maxAgeSeconds]. It has to be enabled at startup, as the change feed is only set up on
+ * nodes that have either a near cache or `sql.cache.change-feed` enabled.
+ */
+@ConfigurationProperties("sql.cache.near-cache")
+class SqlNearCacheProperties {
+  var enabled: Boolean = false
+
+  /**
+   * Upper bound on the total number of items, attributes and relationships held
+   */
+  var maxWeight: Long = 5_000_000
+  var maxAgeSeconds: Long = 300
+  var pollIntervalMs: Long = 1000
+
+  /**
+   * Results aren't served from memory when the change feed couldn't be polled for this long
+   */
+  var maxStalenessMs: Long = 10_000
+}
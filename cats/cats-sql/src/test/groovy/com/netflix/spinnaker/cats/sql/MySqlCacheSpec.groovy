@@ -28,6 +28,7 @@ import com.netflix.spinnaker.kork.sql.config.RetryProperties
 import com.netflix.spinnaker.kork.sql.config.SqlRetryProperties
 import com.netflix.spinnaker.kork.sql.test.SqlTestUtil
 import org.jooq.SQLDialect
+import spock.lang.Unroll
 
 import java.time.Clock
 import java.time.Instant
@@ -36,13 +37,15 @@ import java.time.ZoneId
 class MySqlCacheSpec extends SqlCacheSpec {
   def providerCacheConfiguration = new StaticProviderCacheConfiguration(supportsFullEviction: false)
 
+  DynamicConfigService dynamicConfigService
+
   @Override
   Cache getSubject() {
     def mapper = new ObjectMapper()
     def clock = new Clock.FixedClock(Instant.EPOCH, ZoneId.of("UTC"))
     def sqlRetryProperties = new SqlRetryProperties(new RetryProperties(1, 10), new RetryProperties(1, 10))
 
-    def dynamicConfigService = Mock(DynamicConfigService) {
+    dynamicConfigService = Mock(DynamicConfigService) {
       getConfig(_ as Class, _ as String, _) >> 2
     }
 
@@ -95,4 +98,33 @@ class MySqlCacheSpec extends SqlCacheSpec {
     then:
     retrieved.isEmpty()
   }
+
+  @Unroll
+  def "keeps ids that differ only by case apart (identifier index: #identifierIndex)"() {
+    given:
+    dynamicConfigService.isEnabled("sql.cache.identifier-index", false) >> identifierIndex
+
+    when:
+    ((WriteableCache) cache).mergeAll("deployments", [
+      createData("kubernetes:deployment:default:App", [replicas: 1]),
+      createData("kubernetes:deployment:default:app", [replicas: 2])
+    ])
+
+    then:
+    ((SqlCache) cache).getAll("deployments").collectEntries { [it.id, it.attributes.replicas] } == [
+      "kubernetes:deployment:default:App": 1,
+      "kubernetes:deployment:default:app": 2
+    ]
+    cache.get("deployments", "kubernetes:deployment:default:app").attributes.replicas == 2
+    cache.filterIdentifiers("deployments", "kubernetes:deployment:default:*") as Set == [
+      "kubernetes:deployment:default:App",
+      "kubernetes:deployment:default:app"
+    ] as Set
+    cache.filterIdentifiers("deployments", "kubernetes:deployment:default:a*") as List == [
+      "kubernetes:deployment:default:app"
+    ]
+
+    where:
+    identifierIndex << [false, true]
+  }
 }
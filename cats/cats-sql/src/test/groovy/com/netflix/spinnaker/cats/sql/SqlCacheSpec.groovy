@@ -100,6 +100,23 @@ abstract class SqlCacheSpec extends WriteableCacheSpec {
     retrieved.findAll { it.id == "fnord-5" }.size() == 1
   }
 
+  def 'getAllPages reads a range of ids as each page is requested'() {
+    setup:
+    ['a', 'b', 'c', 'd', 'e'].each { populateOne('foo', it, createData(it, [id: it], [rel1: ["rel-$it".toString()]])) }
+
+    when:
+    def pages = cache.getAllPages('foo', null, 2)
+    def first = pages.next()
+    ((SqlCache) cache).evictAll('foo', ['c'])
+    ((SqlCache) cache).merge('foo', createData('f'))
+    def rest = pages.toList()
+
+    then:
+    first*.id.sort() == ['a', 'b']
+    first.every { it.relationships.keySet() == ['rel1'] as Set }
+    rest.collect { it*.id.sort() } == [['d', 'e'], ['f']]
+  }
+
   @Unroll
   def 'generates where clause based on cacheFilters'() {
     when:
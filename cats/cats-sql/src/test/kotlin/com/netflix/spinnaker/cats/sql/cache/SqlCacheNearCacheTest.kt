@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cache
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.spinnaker.cats.cache.CacheData
+import com.netflix.spinnaker.cats.cache.DefaultCacheData
+import com.netflix.spinnaker.config.SqlConstraintsInitializer
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
+import com.netflix.spinnaker.kork.sql.config.RetryProperties
+import com.netflix.spinnaker.kork.sql.config.SqlRetryProperties
+import com.netflix.spinnaker.kork.sql.test.SqlTestUtil
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.whenever
+import dev.minutest.junit.JUnit5Minutests
+import dev.minutest.rootContext
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneId
+import kotlin.contracts.ExperimentalContracts
+import org.jooq.SQLDialect
+import org.mockito.stubbing.Answer
+import strikt.api.expectThat
+import strikt.assertions.containsExactly
+import strikt.assertions.isEqualTo
+
+@ExperimentalContracts
+class SqlCacheNearCacheTest : JUnit5Minutests {
+
+  fun tests() = rootContext<Fixture> {
+    fixture { Fixture() }
+
+    after {
+      SqlTestUtil.cleanupDb(jooq)
+      jooq.close()
+    }
+
+    before {
+      cache.mergeAll("instances", mutableListOf(item("i-1", 1), item("i-2", 1)))
+      poll(1L)
+      expectThat(value("i-1")).isEqualTo(1)
+      expectThat(value("i-1")).isEqualTo(1)
+      expectThat(hits).containsExactly(false, true)
+      hits.clear()
+    }
+
+    test("keeps serving an item read by id while only other items of its type change") {
+      cache.mergeAll("instances", mutableListOf(item("i-1", 1), item("i-2", 2)))
+      poll(2L)
+
+      expectThat(value("i-1")).isEqualTo(1)
+      expectThat(value("i-1")).isEqualTo(1)
+      expectThat(hits).containsExactly(true, true)
+    }
+
+    test("reads an item again once it changed") {
+      cache.mergeAll("instances", mutableListOf(item("i-1", 2), item("i-2", 1)))
+      poll(2L)
+
+      expectThat(value("i-1")).isEqualTo(2)
+      expectThat(value("i-1")).isEqualTo(2)
+      expectThat(hits).containsExactly(false, true)
+    }
+
+    test("reads items again once one of them was removed") {
+      cache.mergeAll("instances", mutableListOf(item("i-2", 1)))
+      poll(2L)
+
+      expectThat(cache.getAll("instances", mutableListOf("i-1")).size).isEqualTo(0)
+      expectThat(hits).containsExactly(false)
+    }
+  }
+
+  private class Fixture {
+    val jooq = SqlTestUtil.initTcMysqlDatabase().context
+
+    var now: Instant = Instant.ofEpochMilli(1_000_000)
+    val clock = object : Clock() {
+      override fun getZone(): ZoneId = ZoneId.of("UTC")
+      override fun withZone(zone: ZoneId?): Clock = this
+      override fun instant(): Instant = now
+    }
+
+    val dynamicConfigService: DynamicConfigService = mock()
+    val sqlRetryProperties = SqlRetryProperties(RetryProperties(1, 10), RetryProperties(1, 10))
+    val changeFeed = SqlChangeFeed(jooq, clock, dynamicConfigService, sqlRetryProperties, null, 60_000)
+
+    val hits = mutableListOf<Boolean>()
+    val cache = SqlCache(
+      "test",
+      jooq,
+      ObjectMapper(),
+      null,
+      clock,
+      sqlRetryProperties,
+      null,
+      object : SqlCacheMetrics {
+        override fun nearCache(prefix: String, type: String, hit: Boolean) {
+          hits.add(hit)
+        }
+      },
+      dynamicConfigService,
+      SqlConstraintsInitializer().getDefaultSqlConstraints(SQLDialect.MYSQL),
+      SqlNamedCacheFactory.DefaultProviderCacheConfiguration(),
+      changeFeed,
+      SqlNearCache(changeFeed, maxWeight = 1_000, maxAgeMs = 60_000)
+    )
+
+    init {
+      whenever(dynamicConfigService.getConfig(any<Class<Any>>(), any(), any())).thenAnswer(Answer {
+        it.getArgument<Any>(2)
+      })
+    }
+
+    /** Polls the change feed after the writes made so far. */
+    fun poll(instancesGeneration: Long) {
+      now = now.plusMillis(1)
+      changeFeed.update(mapOf("instances" to instancesGeneration), clock.millis())
+    }
+
+    fun value(id: String): Any? =
+      cache.getAll("instances", mutableListOf(id)).single().attributes["value"]
+
+    fun item(id: String, value: Int): CacheData =
+      DefaultCacheData(id, mutableMapOf<String, Any>("value" to value), mutableMapOf())
+  }
+}
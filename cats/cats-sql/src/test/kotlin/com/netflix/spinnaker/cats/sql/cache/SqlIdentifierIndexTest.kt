@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cache
+
+import dev.minutest.junit.JUnit5Minutests
+import dev.minutest.rootContext
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneId
+import strikt.api.expectThat
+import strikt.assertions.containsExactlyInAnyOrder
+import strikt.assertions.isEmpty
+import strikt.assertions.isEqualTo
+
+class SqlIdentifierIndexTest : JUnit5Minutests {
+
+  class Fixture {
+    var now = Instant.EPOCH
+    val clock = object : Clock() {
+      override fun getZone(): ZoneId = ZoneId.of("UTC")
+      override fun withZone(zone: ZoneId?): Clock = this
+      override fun instant(): Instant = now
+    }
+    val index = SqlIdentifierIndex(clock) { type -> type != "deployments" }
+    var loads = 0
+    var stored = mutableListOf(
+      "aws:instances:test:us-east-1:i-1234",
+      "aws:instances:test:us-west-2:i-5678",
+      "aws:instances:prod:us-east-1:i-9999"
+    )
+
+    fun filter(glob: String) = index.filter("instances", glob, 60_000) {
+      loads += 1
+      stored.toList()
+    }
+
+    fun filterDeployments(glob: String) = index.filter("deployments", glob, 60_000) {
+      listOf(
+        "kubernetes.v2:infrastructure:deployment:test:default:App",
+        "kubernetes.v2:infrastructure:deployment:test:default:app"
+      )
+    }
+  }
+
+  fun tests() = rootContext<Fixture> {
+    fixture { Fixture() }
+
+    test("answers prefix and leading wildcard globs from memory") {
+      expectThat(filter("aws:instances:test:*"))
+        .containsExactlyInAnyOrder("aws:instances:test:us-east-1:i-1234", "aws:instances:test:us-west-2:i-5678")
+      expectThat(filter("*us-east-1*"))
+        .containsExactlyInAnyOrder("aws:instances:test:us-east-1:i-1234", "aws:instances:prod:us-east-1:i-9999")
+      expectThat(filter("*I-12??"))
+        .containsExactlyInAnyOrder("aws:instances:test:us-east-1:i-1234")
+      expectThat(loads).isEqualTo(1)
+    }
+
+    test("applies local writes and evictions without reloading") {
+      filter("*")
+      index.add("instances", listOf("aws:instances:test:eu-west-1:i-0001"))
+      index.remove("instances", listOf("aws:instances:prod:us-east-1:i-9999"))
+
+      expectThat(filter("*i-0001"))
+        .containsExactlyInAnyOrder("aws:instances:test:eu-west-1:i-0001")
+      expectThat(filter("*i-9999")).isEmpty()
+      expectThat(loads).isEqualTo(1)
+    }
+
+    test("reloads once older than the max age") {
+      filter("*")
+      stored.add("aws:instances:prod:us-west-2:i-4321")
+      expectThat(filter("*i-4321")).isEmpty()
+
+      now = now.plusSeconds(61)
+      expectThat(filter("*i-4321"))
+        .containsExactlyInAnyOrder("aws:instances:prod:us-west-2:i-4321")
+      expectThat(loads).isEqualTo(2)
+    }
+
+    test("keeps ids that differ only by case apart for case-sensitive types") {
+      expectThat(filterDeployments("kubernetes.v2:infrastructure:deployment:test:default:*"))
+        .containsExactlyInAnyOrder(
+          "kubernetes.v2:infrastructure:deployment:test:default:App",
+          "kubernetes.v2:infrastructure:deployment:test:default:app"
+        )
+      expectThat(filterDeployments("*:app"))
+        .containsExactlyInAnyOrder("kubernetes.v2:infrastructure:deployment:test:default:app")
+    }
+
+    test("extracts literal prefixes") {
+      expectThat(SqlIdentifierIndex.literalPrefix("aws:instances:*")).isEqualTo("aws:instances:")
+      expectThat(SqlIdentifierIndex.literalPrefix("*abc")).isEqualTo("")
+      expectThat(SqlIdentifierIndex.literalPrefix("abc")).isEqualTo("abc")
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cache
+
+import com.netflix.spinnaker.cats.cache.DefaultCacheData
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
+import com.netflix.spinnaker.kork.sql.config.RetryProperties
+import com.netflix.spinnaker.kork.sql.config.SqlRetryProperties
+import com.nhaarman.mockito_kotlin.mock
+import dev.minutest.junit.JUnit5Minutests
+import dev.minutest.rootContext
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneId
+import org.jooq.DSLContext
+import strikt.api.expectThat
+import strikt.assertions.isEqualTo
+import strikt.assertions.isNotNull
+import strikt.assertions.isNull
+
+class SqlNearCacheTest : JUnit5Minutests {
+
+  class Fixture {
+    var now = Instant.ofEpochMilli(1_000_000)
+    val clock = object : Clock() {
+      override fun getZone(): ZoneId = ZoneId.of("UTC")
+      override fun withZone(zone: ZoneId?): Clock = this
+      override fun instant(): Instant = now
+    }
+    val dynamicConfigService: DynamicConfigService = mock()
+    val changeFeed = SqlChangeFeed(
+      mock<DSLContext>(),
+      clock,
+      dynamicConfigService,
+      SqlRetryProperties(RetryProperties(1, 10), RetryProperties(1, 10)),
+      null,
+      maxStalenessMs = 5_000
+    )
+    val nearCache = SqlNearCache(changeFeed, maxWeight = 1_000, maxAgeMs = 60_000)
+    val items = listOf(DefaultCacheData("aws:instances:test:us-east-1:i-1234", mapOf("name" to "i-1234"), emptyMap()))
+
+    fun poll(generations: Map<String, Long>) {
+      changeFeed.update(generations, clock.millis())
+      now = now.plusMillis(1)
+    }
+  }
+
+  fun tests() = rootContext<Fixture> {
+    fixture { Fixture() }
+
+    test("caches nothing until the change feed has been polled") {
+      expectThat(nearCache.generation("instances")).isNull()
+
+      poll(emptyMap())
+      expectThat(nearCache.generation("instances")).isEqualTo(0L)
+    }
+
+    test("serves results while their type is unchanged") {
+      poll(mapOf("instances" to 3L))
+      nearCache.put("instances", "all:[]", 3L, items, emptySet())
+
+      poll(mapOf("instances" to 3L, "clusters" to 7L))
+      expectThat(nearCache.get("instances", "all:[]", nearCache.generation("instances")!!))
+        .isNotNull()
+        .get { data }.isEqualTo(items)
+
+      poll(mapOf("instances" to 4L))
+      expectThat(nearCache.get("instances", "all:[]", nearCache.generation("instances")!!)).isNull()
+    }
+
+    test("keeps results with body hashes across generations") {
+      val bodyHashes = mapOf("aws:instances:test:us-east-1:i-1234" to setOf("abc"))
+      nearCache.put("instances", "ids:[]:1:x", 3L, items, emptySet(), bodyHashes)
+      nearCache.put("instances", "all:[]", 3L, items, emptySet())
+
+      expectThat(nearCache.get("instances", "ids:[]:1:x", 4L)).isNull()
+      expectThat(nearCache.getHashed("instances", "ids:[]:1:x"))
+        .isNotNull()
+        .get { this.bodyHashes }.isEqualTo(bodyHashes)
+      expectThat(nearCache.getHashed("instances", "all:[]")).isNull()
+    }
+
+    test("bypasses a type changed locally until a later poll") {
+      poll(mapOf("instances" to 3L))
+      changeFeed.recordChange("instances")
+      expectThat(nearCache.generation("instances")).isNull()
+      expectThat(nearCache.generation("clusters")).isEqualTo(0L)
+
+      now = now.plusMillis(1)
+      poll(mapOf("instances" to 4L))
+      expectThat(nearCache.generation("instances")).isEqualTo(4L)
+    }
+
+    test("bypasses every type once the change feed is stale") {
+      poll(mapOf("instances" to 3L))
+      now = now.plusSeconds(6)
+
+      expectThat(nearCache.generation("instances")).isNull()
+    }
+  }
+}
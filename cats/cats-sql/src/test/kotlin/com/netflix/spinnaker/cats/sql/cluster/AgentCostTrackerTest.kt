@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cluster
+
+import com.netflix.spinnaker.cats.sql.cluster.AgentCostTracker.AgentCost
+import dev.minutest.junit.JUnit5Minutests
+import dev.minutest.rootContext
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneId
+import strikt.api.expectThat
+import strikt.assertions.containsExactly
+import strikt.assertions.containsKeys
+import strikt.assertions.isEmpty
+import strikt.assertions.isEqualTo
+import strikt.assertions.isNotNull
+
+class AgentCostTrackerTest : JUnit5Minutests {
+
+  class Fixture {
+    var now = Instant.EPOCH
+    val clock = object : Clock() {
+      override fun getZone(): ZoneId = ZoneId.of("UTC")
+      override fun withZone(zone: ZoneId?): Clock = this
+      override fun instant(): Instant = now
+    }
+    val tracker = AgentCostTracker(clock, smoothing = 0.5)
+
+    /** Runs [rounds] rounds, dispatching the first agent offered in each */
+    fun dispatchOrder(candidates: List<String>, rounds: Int) =
+      (1..rounds).map {
+        tracker.order(candidates).first().also { tracker.dispatched(it) }
+      }
+  }
+
+  fun tests() = rootContext<Fixture> {
+    fixture { Fixture() }
+
+    test("costs agents relative to the mean") {
+      tracker.record("light", 1_000, 100)
+      tracker.record("heavy", 7_000, 700)
+
+      expectThat(tracker.relativeCosts(listOf("light", "heavy", "unknown")))
+        .isEqualTo(mapOf("light" to 0.25, "heavy" to 1.75, "unknown" to 1.0))
+    }
+
+    test("smooths repeated measurements") {
+      tracker.record("agent", 1_000, 100)
+      tracker.record("agent", 3_000, null)
+
+      expectThat(tracker.getCost("agent"))
+        .isNotNull()
+        .and {
+          get { durationMs }.isEqualTo(2_000.0)
+          get { resultSize }.isEqualTo(100.0)
+        }
+    }
+
+    test("offers light agents more often without starving heavy ones") {
+      tracker.record("light", 1_000, 100)
+      tracker.record("heavy", 3_000, 300)
+
+      val order = dispatchOrder(listOf("light", "heavy"), 12)
+
+      expectThat(order.count { it == "light" }).isEqualTo(9)
+      expectThat(order.count { it == "heavy" }).isEqualTo(3)
+    }
+
+    test("keeps an undispatched agent's place in the queue") {
+      tracker.record("a", 1_000, 100)
+      tracker.record("b", 1_000, 100)
+
+      val first = tracker.order(listOf("a", "b")).first()
+      val other = if (first == "a") "b" else "a"
+      tracker.dispatched(first)
+
+      expectThat(tracker.order(listOf("a", "b"))).containsExactly(other, first)
+    }
+
+    test("shares updates and adopts more recent costs from other nodes") {
+      tracker.record("local", 1_000, 100)
+      expectThat(tracker.drainUpdates()).containsKeys("local")
+      expectThat(tracker.drainUpdates()).isEmpty()
+
+      tracker.merge(
+        mapOf(
+          "local" to AgentCost(9_000.0, 900.0, -1),
+          "remote" to AgentCost(5_000.0, 500.0, 1)
+        )
+      )
+
+      expectThat(tracker.getCost("local")?.durationMs).isEqualTo(1_000.0)
+      expectThat(tracker.getCost("remote")?.durationMs).isEqualTo(5_000.0)
+    }
+  }
+}
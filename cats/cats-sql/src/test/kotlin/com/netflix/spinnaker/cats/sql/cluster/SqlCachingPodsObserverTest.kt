@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.cats.sql.cluster
+
+import com.netflix.spinnaker.cats.agent.Agent
+import com.netflix.spinnaker.cats.cluster.NodeIdentity
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
+import com.netflix.spinnaker.kork.sql.test.SqlTestUtil
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.eq
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.whenever
+import dev.minutest.junit.JUnit5Minutests
+import dev.minutest.rootContext
+import java.util.concurrent.ScheduledExecutorService
+import org.jooq.DSLContext
+import org.jooq.impl.DSL.field
+import org.jooq.impl.DSL.table
+import org.mockito.stubbing.Answer
+import strikt.api.expectThat
+import strikt.assertions.all
+import strikt.assertions.containsExactlyInAnyOrder
+import strikt.assertions.isEqualTo
+import strikt.assertions.isGreaterThan
+import strikt.assertions.isLessThan
+import strikt.assertions.isNotEmpty
+
+class SqlCachingPodsObserverTest : JUnit5Minutests {
+
+  fun tests() = rootContext<Fixture> {
+    fixture { Fixture() }
+
+    after {
+      SqlTestUtil.cleanupDb(jooq)
+      jooq.close()
+    }
+
+    test("every account is owned by exactly one pod, and keeps its owner while the pods don't change") {
+      val pods = listOf("pod-1", "pod-2", "pod-3").map { observer(it) }
+      refresh(pods)
+
+      val owners = owners(pods)
+      expectThat(owners.values.toSet()).containsExactlyInAnyOrder("pod-1", "pod-2", "pod-3")
+
+      refresh(pods)
+      expectThat(owners(pods)).isEqualTo(owners)
+    }
+
+    test("only the accounts of a pod that joins or leaves are moved") {
+      val pods = listOf("pod-1", "pod-2", "pod-3").map { observer(it) }
+      refresh(pods)
+      val before = owners(pods)
+
+      val scaledUp = pods + observer("pod-4")
+      refresh(scaledUp)
+      val afterJoin = owners(scaledUp)
+      val movedOnJoin = accounts.filter { before[it] != afterJoin[it] }
+
+      expectThat(movedOnJoin).isNotEmpty()
+      expectThat(movedOnJoin.map { afterJoin[it] }).all { isEqualTo("pod-4") }
+      expectThat(movedOnJoin.size).isLessThan(accounts.size / 2)
+
+      jooq.deleteFrom(table("caching_replicas")).where(field("pod_id").eq("pod-4")).execute()
+      refresh(pods)
+      val afterLeave = owners(pods)
+
+      expectThat(afterLeave).isEqualTo(before)
+      expectThat(accounts.filter { afterJoin[it] != afterLeave[it] })
+        .containsExactlyInAnyOrder(movedOnJoin)
+    }
+
+    test("a weighted account is split across pods") {
+      whenever(dynamicConfigService.getConfig(eq(Int::class.java), eq("cache-sharding.account-weights.account-1"),
+        any())).thenReturn(8)
+      val pods = listOf("pod-1", "pod-2", "pod-3").map { observer(it) }
+      refresh(pods)
+
+      val shardOwners = (1..50).map { agent("account-1/Agent$it") }.map { agent ->
+        pods.filter { it.filter(agent) }.map { it.podId }
+      }
+
+      expectThat(shardOwners).all { get { size }.isEqualTo(1) }
+      expectThat(shardOwners.flatten().toSet().size).isGreaterThan(1)
+    }
+  }
+
+  private inner class Fixture {
+    val jooq: DSLContext = SqlTestUtil.initTcMysqlDatabase().context
+    val dynamicConfigService: DynamicConfigService = mock()
+    val accounts = (1..200).map { "account-$it" }
+
+    init {
+      whenever(dynamicConfigService.getConfig(any<Class<Any>>(), any(), any())).thenAnswer(Answer {
+        it.getArgument<Any>(2)
+      })
+      whenever(dynamicConfigService.getConfig(eq(String::class.java), eq("cache-sharding.strategy"), any()))
+        .thenReturn("consistent-hash")
+    }
+
+    fun observer(podId: String): Pod {
+      val nodeIdentity: NodeIdentity = mock()
+      whenever(nodeIdentity.nodeIdentity).thenReturn(podId)
+      val scheduler: ScheduledExecutorService = mock()
+      return Pod(podId, SqlCachingPodsObserver(jooq, nodeIdentity, null, dynamicConfigService, scheduler))
+    }
+
+    /** Runs the heartbeat of every pod, after which each of them has seen all of the others. */
+    fun refresh(pods: List<Pod>) {
+      pods.forEach { it.observer.run() }
+    }
+
+    /** @return the pod owning each account, failing if an account has no or several owners */
+    fun owners(pods: List<Pod>): Map<String, String> =
+      accounts.associateWith { account ->
+        val agent = agent("$account/Agent")
+        pods.filter { it.filter(agent) }.map { it.podId }.single()
+      }
+
+    fun agent(agentType: String): Agent {
+      val agent: Agent = mock()
+      whenever(agent.agentType).thenReturn(agentType)
+      whenever(agent.providerName).thenReturn("aws")
+      return agent
+    }
+  }
+
+  private class Pod(val podId: String, val observer: SqlCachingPodsObserver) {
+    fun filter(agent: Agent) = observer.filter(agent)
+  }
+}
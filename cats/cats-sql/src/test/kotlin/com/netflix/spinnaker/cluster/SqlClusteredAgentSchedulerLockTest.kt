@@ -0,0 +1,238 @@
+/*
+ * Copyright 2022 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cluster
+
+import com.netflix.spinnaker.cats.agent.Agent
+import com.netflix.spinnaker.cats.agent.AgentExecution
+import com.netflix.spinnaker.cats.cluster.AgentIntervalProvider
+import com.netflix.spinnaker.cats.cluster.NodeIdentity
+import com.netflix.spinnaker.cats.cluster.NodeStatusProvider
+import com.netflix.spinnaker.cats.cluster.NoopShardingFilter
+import com.netflix.spinnaker.cats.sql.cluster.SqlClusteredAgentScheduler
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
+import com.netflix.spinnaker.kork.sql.test.SqlTestUtil
+import com.nhaarman.mockito_kotlin.any
+import com.nhaarman.mockito_kotlin.eq
+import com.nhaarman.mockito_kotlin.mock
+import com.nhaarman.mockito_kotlin.whenever
+import dev.minutest.junit.JUnit5Minutests
+import dev.minutest.rootContext
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.FutureTask
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.concurrent.thread
+import org.jooq.DSLContext
+import org.jooq.impl.DSL.field
+import org.jooq.impl.DSL.table
+import org.mockito.stubbing.Answer
+import strikt.api.expectThat
+import strikt.assertions.containsExactlyInAnyOrder
+import strikt.assertions.hasSize
+import strikt.assertions.isEmpty
+import strikt.assertions.isEqualTo
+import strikt.assertions.isTrue
+
+/**
+ * Runs [SqlClusteredAgentScheduler]s for two nodes against the same `cats_agent_locks` table.
+ */
+class SqlClusteredAgentSchedulerLockTest : JUnit5Minutests {
+
+  fun tests() = rootContext<Fixture> {
+    fixture { Fixture() }
+
+    after {
+      jooq.deleteFrom(table("cats_agent_locks")).execute()
+      SqlTestUtil.cleanupDb(jooq)
+      jooq.close()
+    }
+
+    test("exactly one node claims each agent when both claim the same batch") {
+      val agents = (1..10).map { "account/Agent[$it/10]" }
+      val node1 = Node("node1", maxConcurrentAgents = 5)
+      val node2 = Node("node2", maxConcurrentAgents = 100)
+      agents.forEach {
+        node1.schedule(it)
+        node2.schedule(it)
+      }
+
+      // node2 has found all agents unlocked, but node1 claims half of them before node2 inserts its locks
+      val node2Claiming = CountDownLatch(1)
+      val node1Done = CountDownLatch(1)
+      node2.beforeClaim = {
+        node2Claiming.countDown()
+        node1Done.await(30, TimeUnit.SECONDS)
+      }
+      val node2Run = thread { node2.scheduler.run() }
+      expectThat(node2Claiming.await(30, TimeUnit.SECONDS)).isTrue()
+      node1.scheduler.run()
+      node1Done.countDown()
+      node2Run.join(TimeUnit.SECONDS.toMillis(30))
+
+      expectThat(node1.executed).hasSize(5)
+      expectThat(node2.executed).hasSize(5)
+      expectThat(node1.executed.intersect(node2.executed)).isEmpty()
+      expectThat(node1.executed + node2.executed).containsExactlyInAnyOrder(agents)
+      expectThat(lockOwners()).isEqualTo(
+        node1.executed.associateWith { "node1" } + node2.executed.associateWith { "node2" }
+      )
+    }
+
+    test("renews only the locks the node still owns") {
+      val node1 = Node("node1", releaseThresholdMs = 0)
+      node1.schedule("account/Agent[1/2]")
+      node1.schedule("account/Agent[2/2]")
+      node1.scheduler.run()
+      expectThat(node1.executed).hasSize(2)
+
+      // node1's lock on the second agent expired and was taken over by node2
+      takeOver("account/Agent[2/2]", "node2", OTHER_LOCK_EXPIRY)
+      node1.scheduler.run()
+
+      val renewed = jooq.select(field("owner_id"), field("lock_acquired"), field("lock_expiry"))
+        .from(table("cats_agent_locks"))
+        .where(field("agent_name").eq("account/Agent[1/2]"))
+        .fetchOne()
+      expectThat(renewed.get(0, String::class.java)).isEqualTo("node1")
+      expectThat(renewed.get(2, Long::class.javaObjectType))
+        .isEqualTo(renewed.get(1, Long::class.javaObjectType) + INTERVAL.interval)
+      expectThat(lockExpiry("account/Agent[2/2]")).isEqualTo(OTHER_LOCK_EXPIRY)
+      expectThat(lockOwners()["account/Agent[2/2]"]).isEqualTo("node2")
+    }
+
+    test("never releases another node's lock") {
+      val node1 = Node("node1", releaseThresholdMs = Long.MAX_VALUE)
+      node1.schedule("account/Agent[1/2]")
+      node1.schedule("account/Agent[2/2]")
+      node1.scheduler.run()
+      expectThat(node1.executed).hasSize(2)
+
+      takeOver("account/Agent[2/2]", "node2", OTHER_LOCK_EXPIRY)
+      node1.executed.clear()
+      node1.scheduler.run()
+
+      // node1 released its own lock and claimed the agent again, but left node2's lock alone
+      expectThat(node1.executed).containsExactlyInAnyOrder("account/Agent[1/2]")
+      expectThat(lockOwners()).isEqualTo(
+        mapOf("account/Agent[1/2]" to "node1", "account/Agent[2/2]" to "node2")
+      )
+      expectThat(lockExpiry("account/Agent[2/2]")).isEqualTo(OTHER_LOCK_EXPIRY)
+    }
+  }
+
+  private inner class Fixture {
+    val jooq: DSLContext = SqlTestUtil.initTcMysqlDatabase().context
+
+    inner class Node(
+      nodeId: String,
+      maxConcurrentAgents: Int = 100,
+      releaseThresholdMs: Long = 500
+    ) {
+      val executed: MutableSet<String> = ConcurrentHashMap.newKeySet()
+      var beforeClaim: () -> Unit = {}
+
+      private val dynamicConfigService: DynamicConfigService = mock()
+      private val agentExecutionPool: ExecutorService = mock()
+      private val agentExecution = AgentExecution { executed.add(it.agentType) }
+
+      val scheduler: SqlClusteredAgentScheduler
+
+      init {
+        val nodeIdentity: NodeIdentity = mock()
+        val nodeStatusProvider: NodeStatusProvider = mock()
+        val intervalProvider: AgentIntervalProvider = mock()
+        whenever(nodeIdentity.nodeIdentity).thenReturn(nodeId)
+        whenever(nodeStatusProvider.isNodeEnabled).thenReturn(true)
+        whenever(intervalProvider.getInterval(any())).thenReturn(INTERVAL)
+
+        whenever(dynamicConfigService.getConfig(any<Class<Any>>(), any(), any())).thenAnswer(Answer {
+          it.getArgument<Any>(2)
+        })
+        whenever(dynamicConfigService.getConfig(eq(Int::class.java), eq("sql.agent.max-concurrent-agents"),
+          any())).thenReturn(maxConcurrentAgents)
+        whenever(dynamicConfigService.getConfig(eq(Long::class.java), eq("sql.agent.release-threshold-ms"),
+          any())).thenReturn(releaseThresholdMs)
+
+        // the lock batch size is first read once the node has picked the agents it claims
+        val claiming = AtomicBoolean(true)
+        whenever(dynamicConfigService.getConfig(eq(Int::class.java), eq("sql.agent.lock-batch-size"),
+          any())).thenAnswer(Answer {
+          if (claiming.getAndSet(false)) {
+            beforeClaim()
+          }
+          100
+        })
+
+        whenever(agentExecutionPool.submit(any())).thenAnswer(Answer {
+          val r: Runnable = it.getArgument(0)
+          r.run()
+          object : FutureTask<Runnable>({ r }) {}
+        })
+
+        val lockPollingScheduler: ScheduledExecutorService = mock()
+        scheduler = SqlClusteredAgentScheduler(
+          jooq,
+          nodeIdentity,
+          intervalProvider,
+          nodeStatusProvider,
+          dynamicConfigService,
+          ".*",
+          emptyList(),
+          1L,
+          null,
+          agentExecutionPool,
+          lockPollingScheduler,
+          NoopShardingFilter()
+        )
+      }
+
+      fun schedule(agentType: String) {
+        val agent: Agent = mock()
+        whenever(agent.agentType).thenReturn(agentType)
+        scheduler.schedule(agent, agentExecution, mock())
+      }
+    }
+
+    fun takeOver(agentType: String, ownerId: String, lockExpiry: Long) {
+      jooq.update(table("cats_agent_locks"))
+        .set(field("owner_id"), ownerId)
+        .set(field("lock_expiry"), lockExpiry)
+        .where(field("agent_name").eq(agentType))
+        .execute()
+    }
+
+    fun lockOwners(): Map<String, String> =
+      jooq.select(field("agent_name"), field("owner_id"))
+        .from(table("cats_agent_locks"))
+        .fetch()
+        .associate { it.get(0, String::class.java) to it.get(1, String::class.java) }
+
+    fun lockExpiry(agentType: String): Long =
+      jooq.select(field("lock_expiry"))
+        .from(table("cats_agent_locks"))
+        .where(field("agent_name").eq(agentType))
+        .fetchOne(0, Long::class.javaObjectType)
+  }
+
+  companion object {
+    private val INTERVAL = AgentIntervalProvider.Interval(60000L, 60000L, 5000L)
+    private val OTHER_LOCK_EXPIRY = System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)
+  }
+}
@@ -117,6 +117,8 @@ class SqlClusteredAgentSchedulerTest : JUnit5Minutests {
         any())).thenReturn("")
       whenever(dynamicConfigService.getConfig(eq(Long::class.java), eq("sql.agent.release-threshold-ms"),
         any())).thenReturn(50000L)
+      whenever(dynamicConfigService.getConfig(eq(Int::class.java), eq("sql.agent.lock-batch-size"),
+        any())).thenReturn(100)
 
       // empty agent locks in db
       val sss: SelectSelectStep<Record2<Any, Any>> = mock()
@@ -129,17 +131,24 @@ class SqlClusteredAgentSchedulerTest : JUnit5Minutests {
       whenever(result.intoResultSet()).thenReturn(resultSet)
       whenever(resultSet.next()).thenReturn(false)
 
-      val iss: InsertSetStep<Record> = mock()
-      val ivsColumns: InsertValuesStep4<Record, Any, Any, Any, Any> = mock()
-      val ivsValues: InsertValuesStep4<Record, Any, Any, Any, Any> = mock()
-      whenever(jooq.insertInto(any<Table<Record>>())).thenReturn(iss)
-      whenever(iss.columns(any<Field<Any>>(), any<Field<Any>>(), any<Field<Any>>(), any<Field<Any>>())).thenReturn(ivsColumns)
-      whenever(ivsColumns.values(any(), eq("node1"), any(), any())).thenReturn(ivsValues)
-      whenever(ivsValues.execute()).thenReturn(0)
+      // every lock claimed in a batch is inserted
+      var claims = 0
+      val ivs: InsertValuesStep4<Record, Any, Any, Any, Any> = mock()
+      val irs: InsertReturningStep<Record> = mock()
+      whenever(jooq.insertInto(any<Table<Record>>(), any<Field<Any>>(), any<Field<Any>>(), any<Field<Any>>(),
+        any<Field<Any>>())).thenReturn(ivs)
+      whenever(ivs.values(any(), eq("node1"), any(), any())).thenAnswer(Answer {
+        claims++
+        ivs
+      })
+      whenever(ivs.onDuplicateKeyIgnore()).thenReturn(irs)
+      whenever(irs.execute()).thenAnswer(Answer {
+        claims.also { claims = 0 }
+      })
 
       val dus: DeleteUsingStep<Record> = mock()
       val dcs: DeleteConditionStep<Record> = mock()
-      whenever(jooq.delete(any<Table<Record>>())).thenReturn(dus)
+      whenever(jooq.deleteFrom(any<Table<Record>>())).thenReturn(dus)
       whenever(dus.where(any<Condition>())).thenReturn(dcs)
 
       whenever(intervalProvider.getInterval(any())).thenReturn(interval)
@@ -131,6 +131,22 @@ abstract class CacheSpec extends Specification {
         results.find { it.id == 'baz' }
     }
 
+    def 'getAllPages behaviour'() {
+        setup:
+        ['a', 'b', 'c', 'd', 'e'].each { populateOne('foo', it, createData(it, [id: it], [rel1: ["rel-$it".toString()]])) }
+
+        when:
+        def pages = cache.getAllPages('foo', RelationshipCacheFilter.none(), 2).toList()
+
+        then:
+        pages.every { it.size() <= 2 }
+        pages.flatten()*.id.sort() == ['a', 'b', 'c', 'd', 'e']
+        pages.flatten().every { it.relationships.isEmpty() }
+
+        and:
+        !cache.getAllPages('bar', null, 2).hasNext()
+    }
+
     @Unroll
     def 'relationship filtering behaviour'() {
         setup:
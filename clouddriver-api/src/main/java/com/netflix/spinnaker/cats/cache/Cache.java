@@ -20,6 +20,7 @@ import com.netflix.spinnaker.kork.annotations.Beta;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 
 /** Cache provides view access to data keyed by type and identifier. */
@@ -98,6 +99,26 @@ public interface Cache {
 
   Collection<CacheData> getAll(String type, CacheFilter cacheFilter);
 
+  /**
+   * Retrieves all the items for the specified type a page at a time, for callers that only need to
+   * iterate over them.
+   *
+   * <p>Each page is read when the iterator is advanced to it, so a caller holds at most one page
+   * of items and reads no further ahead than it consumes. Items written or evicted while iterating
+   * may or may not be returned. The default implementation pages through {@link
+   * #getIdentifiers(String)}.
+   *
+   * @param type the type for which to retrieve items
+   * @param cacheFilter the cacheFilter to govern which relationships to fetch
+   * @param pageSize the maximum number of items in a page
+   * @return the items for the type, in pages of at most pageSize items
+   */
+  default Iterator<Collection<CacheData>> getAllPages(
+      String type, CacheFilter cacheFilter, int pageSize) {
+    return CachePages.byIdentifier(
+        getIdentifiers(type).iterator(), pageSize, ids -> getAll(type, ids, cacheFilter));
+  }
+
   /**
    * Retrieves the items for the specified type matching the provided identifiers
    *
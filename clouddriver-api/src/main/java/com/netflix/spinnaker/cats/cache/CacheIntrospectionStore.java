@@ -35,6 +35,11 @@ public class CacheIntrospectionStore {
     return agents.values();
   }
 
+  /** @return the introspection of the most recent execution of {@code agentType}, or null */
+  public AgentIntrospection getAgentIntrospection(String agentType) {
+    return agents.get(agentType);
+  }
+
   public void recordAgent(AgentIntrospection agentIntrospection) {
     agents.put(agentIntrospection.getId(), agentIntrospection);
   }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.cats.cache;
+
+import com.netflix.spinnaker.kork.annotations.Beta;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/** Builds the page iterators returned by {@link Cache#getAllPages}. */
+@Beta
+public final class CachePages {
+  private CachePages() {}
+
+  /**
+   * Pages through {@code identifiers}, loading the items of each page with {@code load} only once
+   * the caller asks for it. Pages for which {@code load} finds no items are skipped.
+   *
+   * @param identifiers the identifiers to page through, consumed lazily
+   * @param pageSize the maximum number of identifiers loaded at a time
+   * @param load loads the items for a page of identifiers
+   */
+  public static Iterator<Collection<CacheData>> byIdentifier(
+      Iterator<String> identifiers,
+      int pageSize,
+      Function<List<String>, Collection<CacheData>> load) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("pageSize must be positive, was " + pageSize);
+    }
+    return new IdentifierPages(identifiers, pageSize, load);
+  }
+
+  private static class IdentifierPages implements Iterator<Collection<CacheData>> {
+    private final Iterator<String> identifiers;
+    private final int pageSize;
+    private final Function<List<String>, Collection<CacheData>> load;
+
+    private Collection<CacheData> next;
+
+    IdentifierPages(
+        Iterator<String> identifiers,
+        int pageSize,
+        Function<List<String>, Collection<CacheData>> load) {
+      this.identifiers = identifiers;
+      this.pageSize = pageSize;
+      this.load = load;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && identifiers.hasNext()) {
+        List<String> page = new ArrayList<>(pageSize);
+        while (page.size() < pageSize && identifiers.hasNext()) {
+          page.add(identifiers.next());
+        }
+        Collection<CacheData> items = load.apply(page);
+        if (!items.isEmpty()) {
+          next = items;
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public Collection<CacheData> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Collection<CacheData> page = next;
+      next = null;
+      return page;
+    }
+  }
+}
@@ -93,6 +93,9 @@ class Keys implements KeyParser {
       case Namespace.IMAGES.ns:
         result << [account: parts[2], region: parts[3], imageId: parts[4]]
         break
+      case Namespace.IMAGE_IDS.ns:
+        result << [imageId: parts[2], account: parts[3], region: parts[4]]
+        break
       case Namespace.NAMED_IMAGES.ns:
         result << [account: parts[2], imageName: parts[3]]
         break
@@ -154,6 +157,10 @@ class Keys implements KeyParser {
     "${ID}:${Namespace.IMAGES}:${account}:${region}:${imageId}"
   }
 
+  static String getImageIdKey(String imageId, String account, String region) {
+    "${ID}:${Namespace.IMAGE_IDS}:${imageId}:${account}:${region}"
+  }
+
   static String getNamedImageKey(String account, String imageName) {
     "${ID}:${Namespace.NAMED_IMAGES}:${account}:${imageName}"
   }
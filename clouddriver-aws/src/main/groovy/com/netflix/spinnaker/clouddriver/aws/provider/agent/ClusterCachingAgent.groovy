@@ -36,6 +36,7 @@ import com.fasterxml.jackson.annotation.JsonProperty
 import com.fasterxml.jackson.core.type.TypeReference
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.SerializationFeature
+import com.google.common.util.concurrent.ThreadFactoryBuilder
 import com.netflix.frigga.Names
 import com.netflix.spectator.api.Registry
 import com.netflix.spinnaker.cats.agent.AccountAware
@@ -56,6 +57,14 @@ import com.netflix.spinnaker.clouddriver.cache.OnDemandType
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Future
+import java.util.concurrent.SynchronousQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
 import static com.netflix.spinnaker.cats.agent.AgentDataType.Authority.*
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.*
 import com.netflix.spinnaker.cats.agent.CacheResult
@@ -68,6 +77,10 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
 
   private static final TypeReference<Map<String, Object>> ATTRIBUTES = new TypeReference<Map<String, Object>>() {}
 
+  // AWS clients are rate limited per account and region, which is what one agent covers, so a few
+  // concurrent describes per agent are enough; more would only park threads on the rate limiter
+  static final int MAX_CONCURRENT_DESCRIBES = 4
+
   static final Set<AgentDataType> types = Collections.unmodifiableSet([
     AUTHORITATIVE.forType(SERVER_GROUPS.ns),
     // clusters exist globally and the caching agent only
@@ -95,6 +108,8 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
 
   final OnDemandMetricsSupport metricsSupport
 
+  private final ExecutorService describeExecutor
+
   ClusterCachingAgent(AmazonCloudProvider amazonCloudProvider,
                       AmazonClientProvider amazonClientProvider,
                       NetflixAmazonCredentials account,
@@ -112,6 +127,20 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     this.eddaTimeoutConfig = eddaTimeoutConfig
     this.metricsSupport = new OnDemandMetricsSupport(registry, this, "${amazonCloudProvider.id}:${OnDemandType.ServerGroup}")
     this.amazonCachingAgentFilter = amazonCachingAgentFilter
+
+    // threads time out between runs, so an idle agent holds none. Nothing is queued: once every
+    // thread is busy a describe runs on the thread submitting it, so a task waiting on a task it
+    // submitted (a pager on its next page) can never wait on one that isn't running.
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      MAX_CONCURRENT_DESCRIBES, MAX_CONCURRENT_DESCRIBES, 1, TimeUnit.MINUTES, new SynchronousQueue<Runnable>(),
+      new ThreadFactoryBuilder()
+        .setNameFormat("${ClusterCachingAgent.simpleName}-${account.name}-${region}-%d")
+        .setDaemon(true)
+        .build(),
+      new ThreadPoolExecutor.CallerRunsPolicy()
+    )
+    executor.allowCoreThreadTimeOut(true)
+    this.describeExecutor = executor
   }
 
   @Override
@@ -291,17 +320,15 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     Long start = account.eddaEnabled ? null : System.currentTimeMillis()
 
     List<AutoScalingGroup> asgs = []
-    while (true) {
-      def resp = clients.autoScaling.describeAutoScalingGroups(request)
+    forEachPage({ String token ->
+      def resp = clients.autoScaling.describeAutoScalingGroups(request.withNextToken(token))
+      // the last modified time is only visible to the thread that made the call
+      [response: resp, lastModified: account.eddaEnabled ? amazonClientProvider.lastModified : null]
+    }, { it.response.nextToken }) {
       if (account.eddaEnabled) {
-        start = amazonClientProvider.lastModified ?: 0
-      }
-      asgs.addAll(resp.autoScalingGroups)
-      if (resp.nextToken) {
-        request.withNextToken(resp.nextToken)
-      } else {
-        break
+        start = it.lastModified ?: 0
       }
+      asgs.addAll(it.response.autoScalingGroups)
     }
 
     if (!start) {
@@ -328,11 +355,19 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     new AutoScalingGroupsResults(start: start, asgs: asgs)
   }
 
-  private Map<String, List<Map>> loadScalingPolicies(AmazonClients clients) {
-    loadScalingPolicies(clients, null)
+  private Map<String, List<Map>> loadScalingPolicies(AmazonClients clients, String asgName) {
+    List<ScalingPolicy> scalingPolicies = describeScalingPolicies(clients, asgName)
+    def alarmNames = scalingPolicies.findResults { it.alarms.findResults { it.alarmName } }.flatten().unique()
+
+    Map<String, Map> alarms = [:]
+    if (alarmNames) {
+      alarms = loadAlarms(clients, alarmNames)
+    }
+
+    buildScalingPolicies(scalingPolicies, alarms)
   }
 
-  private Map<String, List<Map>> loadScalingPolicies(AmazonClients clients, String asgName) {
+  private List<ScalingPolicy> describeScalingPolicies(AmazonClients clients, String asgName) {
     log.debug("Describing scaling policies in ${agentType}")
 
     def request = new DescribePoliciesRequest()
@@ -340,25 +375,15 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
       request.withAutoScalingGroupName(asgName)
     }
     List<ScalingPolicy> scalingPolicies = []
-    while (true) {
-      def resp = clients.autoScaling.describePolicies(request)
-      scalingPolicies.addAll(resp.scalingPolicies)
-      if (resp.nextToken) {
-        request.withNextToken(resp.nextToken)
-      } else {
-        break
-      }
-    }
-    def alarmNames = []
-    if (asgName) {
-      alarmNames = scalingPolicies.findResults { it.alarms.findResults { it.alarmName } }.flatten().unique()
-    }
-
-    Map<String, Map> alarms = [:]
-    if (!asgName || alarmNames) {
-      alarms = loadAlarms(clients, alarmNames)
+    forEachPage({ String token ->
+      clients.autoScaling.describePolicies(request.withNextToken(token))
+    }, { it.nextToken }) {
+      scalingPolicies.addAll(it.scalingPolicies)
     }
+    scalingPolicies
+  }
 
+  private Map<String, List<Map>> buildScalingPolicies(List<ScalingPolicy> scalingPolicies, Map<String, Map> alarms) {
     scalingPolicies
       .findResults { buildScalingPolicy(it, alarms) }
       .groupBy { it.autoScalingGroupName }
@@ -375,19 +400,15 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     if (asgName) {
       request.withAutoScalingGroupName(asgName)
     }
-    List<ScheduledUpdateGroupAction> scheduledActions = []
-    while (true) {
-      def resp = clients.autoScaling.describeScheduledActions(request)
-      scheduledActions.addAll(resp.scheduledUpdateGroupActions)
-      if (resp.nextToken) {
-        request.withNextToken(resp.nextToken)
-      } else {
-        break
+    Map<String, List<Map>> scheduledActions = [:]
+    forEachPage({ String token ->
+      clients.autoScaling.describeScheduledActions(request.withNextToken(token))
+    }, { it.nextToken }) {
+      for (ScheduledUpdateGroupAction action : it.scheduledUpdateGroupActions) {
+        scheduledActions.computeIfAbsent(action.autoScalingGroupName) { [] }.add(toMap(action))
       }
     }
     scheduledActions
-      .findResults { toMap(it) }
-      .groupBy { it.autoScalingGroupName }
   }
 
   private Map<String, Object> toMap(obj) {
@@ -401,17 +422,15 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     if (alarmNames.size()) {
       request.withAlarmNames(alarmNames)
     }
-    List<MetricAlarm> alarms = []
-    while (true) {
-      def resp = clients.amazonCloudWatch.describeAlarms(request)
-      alarms.addAll(resp.metricAlarms)
-      if (resp.nextToken) {
-        request.withNextToken(resp.nextToken)
-      } else {
-        break
+    Map<String, Map> alarms = [:]
+    forEachPage({ String token ->
+      clients.amazonCloudWatch.describeAlarms(request.withNextToken(token))
+    }, { it.nextToken }) {
+      for (MetricAlarm alarm : it.metricAlarms) {
+        alarms[alarm.alarmArn] = toMap(alarm)
       }
     }
-    alarms.collectEntries { [(it.alarmArn): toMap(it)] }
+    alarms
   }
 
   @Override
@@ -420,9 +439,27 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
 
     def clients = new AmazonClients(amazonClientProvider, account, region, false)
 
+    // these describes are independent of each other, so only the auto scaling groups are described
+    // on the agent's own thread. Every alarm is needed, so they are described alongside the policies
+    // rather than after them.
+    Future<List<ScalingPolicy>> scalingPolicies = submit { describeScalingPolicies(clients, null) }
+    Future<Map<String, Map>> alarms = submit { loadAlarms(clients, []) }
+    Future<Map<String, List<Map>>> scheduledActions = submit { loadScheduledActions(clients) }
+    Future<Map<String, String>> subnetMap = submit { getSubnetToVpcIdMap(clients) }
+    try {
+      return loadData(providerCache, clients, scalingPolicies, alarms, scheduledActions, subnetMap)
+    } finally {
+      [scalingPolicies, alarms, scheduledActions, subnetMap]*.cancel(true)
+    }
+  }
+
+  private CacheResult loadData(ProviderCache providerCache,
+                               AmazonClients clients,
+                               Future<List<ScalingPolicy>> scalingPolicies,
+                               Future<Map<String, Map>> alarms,
+                               Future<Map<String, List<Map>>> scheduledActions,
+                               Future<Map<String, String>> subnetMap) {
     def autoScalingGroupsResult = loadAutoScalingGroups(clients)
-    def scalingPolicies = loadScalingPolicies(clients)
-    def scheduledActions = loadScheduledActions(clients)
 
     Long start = autoScalingGroupsResult.start
     List<AutoScalingGroup> asgs = autoScalingGroupsResult.asgs
@@ -436,11 +473,12 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
       .findAll { serverGroupKeys.contains(it) }
 
     def pendingOnDemandRequestsForServerGroups = providerCache.getAll(ON_DEMAND.ns, pendingOnDemandRequestKeys)
+    Map<String, AutoScalingGroup> asgsFromAws = loadProcessedOnDemandAutoScalingGroups(pendingOnDemandRequestsForServerGroups, asgs, start)
     pendingOnDemandRequestsForServerGroups.each {
       if (it.attributes.cacheTime < start && it.attributes.processedCount > 0) {
         if (account.eddaEnabled && !eddaTimeoutConfig.disabledRegions.contains(region)) {
           def asgFromEdda = asgs.find { asg -> it.id.endsWith(":${asg.autoScalingGroupName}") }
-          def asgFromAws = loadAutoScalingGroup(asgFromEdda.autoScalingGroupName, true)
+          def asgFromAws = asgsFromAws[asgFromEdda.autoScalingGroupName]
 
           if (areSimilarAutoScalingGroups(asgFromEdda, asgFromAws)) {
             log.info("Evicting previous onDemand value for ${asgFromEdda.autoScalingGroupName} (processedCount: ${it.attributes.processedCount} ... ${flattenAutoScalingGroup(asgFromEdda)} vs ${flattenAutoScalingGroup(asgFromAws)}")
@@ -457,7 +495,7 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
       }
     }
 
-    CacheResult result = buildCacheResult(asgs, scalingPolicies, scheduledActions, getSubnetToVpcIdMap(clients), usableOnDemandCacheDatas.collectEntries { [it.id, it] }, evictableOnDemandCacheDatas*.id)
+    CacheResult result = buildCacheResult(asgs, buildScalingPolicies(await(scalingPolicies), await(alarms)), await(scheduledActions), await(subnetMap), usableOnDemandCacheDatas.collectEntries { [it.id, it] }, evictableOnDemandCacheDatas*.id)
     recordDrift(start)
     def cacheResults = result.cacheResults
     log.debug("Caching ${cacheResults[APPLICATIONS.ns]?.size()} applications in ${agentType}")
@@ -480,6 +518,72 @@ class ClusterCachingAgent implements CachingAgent, OnDemandAgent, AccountAware,
     result
   }
 
+  /**
+   * Describes, straight from AWS, the auto scaling groups of processed on demand requests that have
+   * to be compared with what Edda returned, a few at a time.
+   */
+  private Map<String, AutoScalingGroup> loadProcessedOnDemandAutoScalingGroups(Collection<CacheData> onDemandCacheDatas,
+                                                                              List<AutoScalingGroup> asgs,
+                                                                              Long start) {
+    if (!account.eddaEnabled || eddaTimeoutConfig.disabledRegions.contains(region)) {
+      return [:]
+    }
+
+    List<String> asgNames = onDemandCacheDatas
+      .findAll { it.attributes.cacheTime < start && it.attributes.processedCount > 0 }
+      .findResults { onDemand -> asgs.find { onDemand.id.endsWith(":${it.autoScalingGroupName}") }?.autoScalingGroupName }
+
+    Map<String, Future<AutoScalingGroup>> describes = asgNames.collectEntries { String asgName ->
+      [(asgName): submit { loadAutoScalingGroup(asgName, true) }]
+    }
+    try {
+      return describes.collectEntries { asgName, describe -> [(asgName): await(describe)] }
+    } finally {
+      describes.values()*.cancel(true)
+    }
+  }
+
+  /**
+   * Pages through a describe call, fetching the next page on this agent's pool while the current one
+   * is consumed on the calling thread.
+   *
+   * @param describe performs the call for a page token (null for the first page)
+   * @param nextToken returns the token of the page following a response, if any
+   */
+  private <R> void forEachPage(Closure<R> describe, Closure<String> nextToken, Closure<?> consume) {
+    R response = describe(null)
+    while (true) {
+      String token = nextToken(response)
+      Future<R> next = token ? submit { describe(token) } : null
+      try {
+        consume(response)
+      } catch (Throwable t) {
+        next?.cancel(true)
+        throw t
+      }
+      if (next == null) {
+        return
+      }
+      response = await(next)
+    }
+  }
+
+  /**
+   * Runs a describe call on this agent's pool, or on the calling thread if every thread of the pool
+   * is busy.
+   */
+  private <T> Future<T> submit(Closure<T> task) {
+    describeExecutor.submit(task as Callable<T>)
+  }
+
+  private static <T> T await(Future<T> future) {
+    try {
+      return future.get()
+    } catch (ExecutionException e) {
+      throw e.cause
+    }
+  }
+
   @Override
   Collection<Map<String, Object>> pendingOnDemandRequests(ProviderCache providerCache) {
     def keys = providerCache.filterIdentifiers(ON_DEMAND.ns, Keys.getServerGroupKey("*", "*", account.name, region))
@@ -44,6 +44,7 @@ import org.slf4j.LoggerFactory
 
 import static com.netflix.spinnaker.cats.agent.AgentDataType.Authority.AUTHORITATIVE
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGES
+import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGE_IDS
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.NAMED_IMAGES
 
 import java.util.concurrent.TimeUnit
@@ -51,10 +52,12 @@ import java.util.concurrent.TimeUnit
 class ImageCachingAgent implements CachingAgent, AccountAware, DriftMetric, CustomScheduledAgent {
   final Logger log = LoggerFactory.getLogger(getClass())
   private static final TypeReference<Map<String, Object>> ATTRIBUTES = new TypeReference<Map<String, Object>>() {}
+  static final int PUBLIC_IMAGES_PAGE_SIZE = 1000
 
   final Set<AgentDataType> types = Collections.unmodifiableSet([
     AUTHORITATIVE.forType(IMAGES.ns),
-    AUTHORITATIVE.forType(NAMED_IMAGES.ns)
+    AUTHORITATIVE.forType(NAMED_IMAGES.ns),
+    AUTHORITATIVE.forType(IMAGE_IDS.ns)
   ] as Set)
 
   final AmazonClientProvider amazonClientProvider
@@ -121,59 +124,85 @@ class ImageCachingAgent implements CachingAgent, AccountAware, DriftMetric, Cust
   CacheResult loadData(ProviderCache providerCache) {
     if (includePublicImages && !dynamicConfigService.isEnabled("aws.defaults.public-images", true)) {
       log.info("short-circuiting with empty result set for public images in ${agentType}")
-      return new DefaultCacheResult((IMAGES.ns): [], (NAMED_IMAGES.ns): [])
+      return new DefaultCacheResult((IMAGES.ns): [], (NAMED_IMAGES.ns): [], (IMAGE_IDS.ns): [])
     }
     log.info("Describing items in ${agentType}")
     //we read public images directly from AWS instead of having edda cache them:
     def amazonEC2 = amazonClientProvider.getAmazonEC2(account, region, includePublicImages)
     def request = new DescribeImagesRequest()
     if (includePublicImages) {
-      request.withFilters(new Filter('is-public', ['true']))
+      // there are far too many public images to describe in a single response
+      request.withFilters(new Filter('is-public', ['true'])).withMaxResults(PUBLIC_IMAGES_PAGE_SIZE)
     } else {
       request.withFilters(new Filter('is-public', ['false']))
     }
 
-    List<Image> images = amazonEC2.describeImages(request).images
+    Collection<CacheData> imageCacheData = new ArrayList<>()
+    Collection<CacheData> imageIdCacheData = new ArrayList<>()
+    Map<String, CacheData> namedImageCacheDataMap = new HashMap<>()
     Long start = null
-    if (account.eddaEnabled) {
-      start = amazonClientProvider.lastModified ?: 0
-      // Edda does not respect filter parameters. Filter here manually instead.
-      if (includePublicImages) {
-        images = images.findAll { it.isPublic() }
-      } else {
-        images = images.findAll { !it.isPublic() }
+    while (true) {
+      def result = amazonEC2.describeImages(request)
+      if (account.eddaEnabled) {
+        start = amazonClientProvider.lastModified ?: 0
+      }
+
+      // each page is converted to cache data as it arrives rather than collecting every image first
+      for (Image image : result.images) {
+        // Edda does not respect filter parameters. Filter here manually instead.
+        if (account.eddaEnabled && (image.isPublic() as boolean) != includePublicImages) {
+          continue
+        }
+        addImage(image, imageCacheData, imageIdCacheData, namedImageCacheDataMap)
       }
-    }
 
-    Collection<CacheData> imageCacheData = new ArrayList<>(images.size())
-    Map<String, CacheData> namedImageCacheDataMap = new HashMap<>(images.size())
-
-    for (Image image : images) {
-      Map<String, Object> attributes = objectMapper.convertValue(image, ATTRIBUTES)
-      def imageId = Keys.getImageKey(image.imageId, account.name, region)
-      def namedImageId = Keys.getNamedImageKey(account.name, image.name)
-      imageCacheData.add(new DefaultCacheData(imageId, attributes, [(NAMED_IMAGES.ns): [namedImageId]]))
-
-      CacheData namedImageCacheData = namedImageCacheDataMap.get(namedImageId);
-      if (namedImageCacheData == null) {
-        namedImageCacheDataMap.put(namedImageId, new DefaultCacheData(namedImageId, [
-          name              : image.name,
-          virtualizationType: image.virtualizationType,
-          creationDate      : image.creationDate
-        ], [(IMAGES.ns): [imageId]]))
+      if (result.nextToken) {
+        request.withNextToken(result.nextToken)
       } else {
-        // There's already a named image with this name, so add the imageId to
-        // the IMAGES.ns relationship.  Note though that there is only one
-        // virtualizationType and one creationDate per named image....so maybe
-        // those attributes don't really belong with named images?
-        Map<String, Collection<String>> relationships = namedImageCacheData.getRelationships();
-        Collection<String> imageRelationships = relationships.get(IMAGES.ns);
-        imageRelationships.add(imageId);
+        break
       }
     }
 
     recordDrift(start)
     log.info("Caching ${imageCacheData.size()} items in ${agentType}")
-    new DefaultCacheResult((IMAGES.ns): imageCacheData, (NAMED_IMAGES.ns): namedImageCacheDataMap.values())
+    new DefaultCacheResult(
+      (IMAGES.ns): imageCacheData,
+      (NAMED_IMAGES.ns): namedImageCacheDataMap.values(),
+      (IMAGE_IDS.ns): imageIdCacheData
+    )
+  }
+
+  private void addImage(Image image,
+                        Collection<CacheData> imageCacheData,
+                        Collection<CacheData> imageIdCacheData,
+                        Map<String, CacheData> namedImageCacheDataMap) {
+    Map<String, Object> attributes = objectMapper.convertValue(image, ATTRIBUTES)
+    def imageId = Keys.getImageKey(image.imageId, account.name, region)
+    def namedImageId = Keys.getNamedImageKey(account.name, image.name)
+    imageCacheData.add(new DefaultCacheData(imageId, attributes, [(NAMED_IMAGES.ns): [namedImageId]]))
+    // a small entry whose existence can be checked by key for every account and region, and owned
+    // by this agent so it is evicted along with the image
+    imageIdCacheData.add(new DefaultCacheData(
+      Keys.getImageIdKey(image.imageId, account.name, region),
+      [imageId: image.imageId, account: account.name, region: region],
+      [:]
+    ))
+
+    CacheData namedImageCacheData = namedImageCacheDataMap.get(namedImageId);
+    if (namedImageCacheData == null) {
+      namedImageCacheDataMap.put(namedImageId, new DefaultCacheData(namedImageId, [
+        name              : image.name,
+        virtualizationType: image.virtualizationType,
+        creationDate      : image.creationDate
+      ], [(IMAGES.ns): [imageId]]))
+    } else {
+      // There's already a named image with this name, so add the imageId to
+      // the IMAGES.ns relationship.  Note though that there is only one
+      // virtualizationType and one creationDate per named image....so maybe
+      // those attributes don't really belong with named images?
+      Map<String, Collection<String>> relationships = namedImageCacheData.getRelationships();
+      Collection<String> imageRelationships = relationships.get(IMAGES.ns);
+      imageRelationships.add(imageId);
+    }
   }
 }
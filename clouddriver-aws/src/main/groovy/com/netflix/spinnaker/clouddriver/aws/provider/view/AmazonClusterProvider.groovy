@@ -40,6 +40,8 @@ import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.*
 @Component
 class AmazonClusterProvider implements ClusterProvider<AmazonCluster>, ServerGroupProvider {
 
+  private static final int CLUSTER_PAGE_SIZE = 500
+
   private final AmazonCloudProvider amazonCloudProvider
   private final Cache cacheView
   private final AwsProvider awsProvider
@@ -62,8 +64,11 @@ class AmazonClusterProvider implements ClusterProvider<AmazonCluster>, ServerGro
 
   @Override
   Map<String, Set<AmazonCluster>> getClusters() {
-    Collection<CacheData> clusterData = cacheView.getAll(CLUSTERS.ns)
-    Collection<AmazonCluster> clusters = translateClusters(clusterData, false)
+    // clusters are translated a page at a time so their server groups needn't all be held at once
+    Collection<AmazonCluster> clusters = []
+    cacheView.getAllPages(CLUSTERS.ns, null, CLUSTER_PAGE_SIZE).each { Collection<CacheData> clusterData ->
+      clusters.addAll(translateClusters(clusterData, false))
+    }
     mapResponse(clusters)
   }
 
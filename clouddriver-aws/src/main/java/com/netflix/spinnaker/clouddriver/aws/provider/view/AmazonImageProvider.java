@@ -17,6 +17,7 @@
 package com.netflix.spinnaker.clouddriver.aws.provider.view;
 
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGES;
+import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGE_IDS;
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.SERVER_GROUPS;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -26,9 +27,11 @@ import com.netflix.spinnaker.clouddriver.aws.AmazonCloudProvider;
 import com.netflix.spinnaker.clouddriver.aws.data.Keys;
 import com.netflix.spinnaker.clouddriver.aws.model.AmazonImage;
 import com.netflix.spinnaker.clouddriver.aws.model.AmazonServerGroup;
+import com.netflix.spinnaker.clouddriver.aws.security.NetflixAmazonCredentials;
 import com.netflix.spinnaker.clouddriver.model.Image;
 import com.netflix.spinnaker.clouddriver.model.ImageProvider;
 import com.netflix.spinnaker.config.AwsConfiguration;
+import com.netflix.spinnaker.credentials.CredentialsRepository;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -44,15 +47,18 @@ import org.springframework.stereotype.Component;
 public class AmazonImageProvider implements ImageProvider {
 
   private final Cache cacheView;
+  private final CredentialsRepository<NetflixAmazonCredentials> credentialsRepository;
   private final AwsConfiguration.AmazonServerGroupProvider amazonServerGroupProvider;
   private final ObjectMapper objectMapper;
 
   @Autowired
   AmazonImageProvider(
       Cache cacheView,
+      CredentialsRepository<NetflixAmazonCredentials> credentialsRepository,
       AwsConfiguration.AmazonServerGroupProvider amazonServerGroupProvider,
       @Qualifier("amazonObjectMapper") ObjectMapper objectMapper) {
     this.cacheView = cacheView;
+    this.credentialsRepository = credentialsRepository;
     this.amazonServerGroupProvider = amazonServerGroupProvider;
     this.objectMapper = objectMapper;
   }
@@ -68,8 +74,7 @@ public class AmazonImageProvider implements ImageProvider {
               + getCloudProvider());
     }
 
-    List<String> imageIdList =
-        new ArrayList<>(cacheView.filterIdentifiers(IMAGES.toString(), "*" + imageId));
+    List<String> imageIdList = getIndexedImageKeys(imageId);
 
     if (imageIdList.isEmpty()) {
       return Optional.empty();
@@ -77,6 +82,9 @@ public class AmazonImageProvider implements ImageProvider {
 
     List<CacheData> imageCacheList =
         new ArrayList<>(cacheView.getAll(IMAGES.toString(), imageIdList));
+    if (imageCacheList.isEmpty()) {
+      return Optional.empty();
+    }
 
     AmazonImage image =
         objectMapper.convertValue(imageCacheList.get(0).getAttributes(), AmazonImage.class);
@@ -102,6 +110,33 @@ public class AmazonImageProvider implements ImageProvider {
     return AmazonCloudProvider.ID;
   }
 
+  /**
+   * Returns the keys of every cached image with this id, across accounts and regions. The image id
+   * keys of every configured account and region are checked directly, so no backend has to match a
+   * pattern against the cached keys.
+   */
+  private List<String> getIndexedImageKeys(String imageId) {
+    List<String> imageIdKeys =
+        credentialsRepository.getAll().stream()
+            .flatMap(
+                credentials ->
+                    credentials.getRegions().stream()
+                        .map(
+                            region ->
+                                Keys.getImageIdKey(
+                                    imageId, credentials.getName(), region.getName())))
+            .collect(Collectors.toList());
+    if (imageIdKeys.isEmpty()) {
+      return imageIdKeys;
+    }
+
+    return cacheView.existingIdentifiers(IMAGE_IDS.toString(), imageIdKeys).stream()
+        .map(Keys::parse)
+        .filter(Objects::nonNull)
+        .map(key -> Keys.getImageKey(imageId, key.get("account"), key.get("region")))
+        .collect(Collectors.toList());
+  }
+
   private AmazonServerGroup getServerGroupData(String serverGroupCacheKey) {
     Map<String, String> parsedServerGroupKey = Keys.parse(serverGroupCacheKey);
     return amazonServerGroupProvider.getServerGroup(
@@ -67,6 +67,7 @@ import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.clouddriver.aws.security.sdkclient.*;
 import com.netflix.spinnaker.clouddriver.core.limits.ServiceLimitConfiguration;
 import com.netflix.spinnaker.clouddriver.core.limits.ServiceLimitConfigurationBuilder;
+import com.netflix.spinnaker.clouddriver.core.limits.SharedRateLimitStore;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -106,6 +107,7 @@ public class AmazonClientProvider {
     private boolean addSpinnakerUserToUserAgent = false;
     private ServiceLimitConfiguration serviceLimitConfiguration =
         new ServiceLimitConfigurationBuilder().build();
+    private SharedRateLimitStore sharedRateLimitStore;
     private Registry registry = new NoopRegistry();
 
     public Builder httpClient(HttpClient httpClient) {
@@ -173,6 +175,11 @@ public class AmazonClientProvider {
       return this;
     }
 
+    public Builder sharedRateLimitStore(SharedRateLimitStore sharedRateLimitStore) {
+      this.sharedRateLimitStore = sharedRateLimitStore;
+      return this;
+    }
+
     public Builder registry(Registry registry) {
       this.registry = registry;
       return this;
@@ -222,6 +229,7 @@ public class AmazonClientProvider {
           eddaTimeoutConfig,
           uzeGzip,
           serviceLimitConfiguration,
+          sharedRateLimitStore,
           registry);
     }
 
@@ -286,8 +294,34 @@ public class AmazonClientProvider {
       boolean useGzip,
       ServiceLimitConfiguration serviceLimitConfiguration,
       Registry registry) {
+    this(
+        httpClient,
+        objectMapper,
+        eddaTemplater,
+        retryPolicy,
+        requestHandlers,
+        proxy,
+        eddaTimeoutConfig,
+        useGzip,
+        serviceLimitConfiguration,
+        null,
+        registry);
+  }
+
+  public AmazonClientProvider(
+      HttpClient httpClient,
+      ObjectMapper objectMapper,
+      EddaTemplater eddaTemplater,
+      RetryPolicy retryPolicy,
+      List<RequestHandler2> requestHandlers,
+      AWSProxy proxy,
+      EddaTimeoutConfig eddaTimeoutConfig,
+      boolean useGzip,
+      ServiceLimitConfiguration serviceLimitConfiguration,
+      SharedRateLimitStore sharedRateLimitStore,
+      Registry registry) {
     RateLimiterSupplier rateLimiterSupplier =
-        new RateLimiterSupplier(serviceLimitConfiguration, registry);
+        new RateLimiterSupplier(serviceLimitConfiguration, registry, sharedRateLimitStore);
     this.awsSdkClientSupplier =
         new AwsSdkClientSupplier(
             rateLimiterSupplier, registry, retryPolicy, requestHandlers, proxy, useGzip);
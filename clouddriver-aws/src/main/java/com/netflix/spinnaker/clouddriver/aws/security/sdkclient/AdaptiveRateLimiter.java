@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.netflix.spectator.api.Clock;
+import com.netflix.spectator.api.Counter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A RateLimiter whose rate follows throttling feedback from AWS (additive increase, multiplicative
+ * decrease).
+ *
+ * <p>Each throttled attempt halves the rate, at most once per adjustment interval so that a burst
+ * of throttled requests counts as a single signal. Once requests succeed again the rate recovers by
+ * a fraction of the maximum rate per adjustment interval. The rate always stays within [minRate,
+ * maxRate]; a limiter with equal bounds behaves like a plain fixed rate limiter.
+ *
+ * <p>When given a {@link SharedRateLimiter}, each request also takes a permit from the budget it
+ * shares with other clouddriver instances.
+ */
+public class AdaptiveRateLimiter {
+  static final long ADJUSTMENT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+  static final double DECREASE_FACTOR = 0.5d;
+  static final double INCREASE_FRACTION = 0.05d;
+
+  private final RateLimiter rateLimiter;
+  private final double minRate;
+  private final double maxRate;
+  private final Clock clock;
+  private final Counter throttles;
+  private final SharedRateLimiter sharedRateLimiter;
+
+  private volatile double rate;
+  private long lastAdjustment;
+
+  public AdaptiveRateLimiter(double minRate, double maxRate, Clock clock, Counter throttles) {
+    this(minRate, maxRate, clock, throttles, null);
+  }
+
+  public AdaptiveRateLimiter(
+      double minRate,
+      double maxRate,
+      Clock clock,
+      Counter throttles,
+      SharedRateLimiter sharedRateLimiter) {
+    if (minRate <= 0 || minRate > maxRate) {
+      throw new IllegalArgumentException(
+          "Invalid rate limit bounds [" + minRate + ", " + maxRate + "]");
+    }
+    this.minRate = minRate;
+    this.maxRate = maxRate;
+    this.clock = requireNonNull(clock);
+    this.throttles = requireNonNull(throttles);
+    this.sharedRateLimiter = sharedRateLimiter;
+    this.rate = maxRate;
+    this.rateLimiter = RateLimiter.create(maxRate);
+    this.lastAdjustment = clock.monotonicTime() - ADJUSTMENT_INTERVAL_NANOS;
+  }
+
+  /** Blocks until a permit is available, returning the time spent waiting in seconds. */
+  public double acquire() {
+    double waited = rateLimiter.acquire();
+    if (sharedRateLimiter != null) {
+      waited += sharedRateLimiter.acquire();
+    }
+    return waited;
+  }
+
+  public double getRate() {
+    return rate;
+  }
+
+  /** Records a successful attempt, raising the rate if it was lowered by earlier throttling. */
+  public void onSuccess() {
+    if (rate >= maxRate) {
+      return;
+    }
+    synchronized (this) {
+      long now = clock.monotonicTime();
+      if (rate < maxRate && now - lastAdjustment >= ADJUSTMENT_INTERVAL_NANOS) {
+        setRate(Math.min(maxRate, rate + maxRate * INCREASE_FRACTION), now);
+      }
+    }
+  }
+
+  /** Records an attempt that AWS rejected as throttled, lowering the rate. */
+  public void onThrottle() {
+    throttles.increment();
+    synchronized (this) {
+      long now = clock.monotonicTime();
+      if (rate > minRate && now - lastAdjustment >= ADJUSTMENT_INTERVAL_NANOS) {
+        setRate(Math.max(minRate, rate * DECREASE_FACTOR), now);
+      }
+    }
+  }
+
+  private void setRate(double rate, long now) {
+    this.rate = rate;
+    this.lastAdjustment = now;
+    rateLimiter.setRate(rate);
+  }
+}
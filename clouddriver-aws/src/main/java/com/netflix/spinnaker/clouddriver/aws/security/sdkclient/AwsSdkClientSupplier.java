@@ -30,7 +30,6 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
-import com.google.common.util.concurrent.RateLimiter;
 import com.netflix.spectator.api.Counter;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.clouddriver.aws.security.AWSProxy;
@@ -90,7 +89,8 @@ public class AwsSdkClientSupplier {
 
   private RequestHandler2 getRateLimiterHandler(
       Class<?> sdkInterface, String account, String region) {
-    final RateLimiter limiter = rateLimiterSupplier.getRateLimiter(sdkInterface, account, region);
+    final AdaptiveRateLimiter limiter =
+        rateLimiterSupplier.getRateLimiter(sdkInterface, account, region);
     final Counter rateLimitCounter =
         registry.counter(
             "amazonClientProvider.rateLimitDelayMillis",
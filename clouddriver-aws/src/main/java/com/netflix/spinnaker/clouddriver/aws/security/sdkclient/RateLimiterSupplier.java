@@ -19,28 +19,48 @@ package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.RateLimiter;
+import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.clouddriver.aws.AmazonCloudProvider;
 import com.netflix.spinnaker.clouddriver.core.limits.ServiceLimitConfiguration;
+import com.netflix.spinnaker.clouddriver.core.limits.SharedRateLimitStore;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 
-/** Factory for shared RateLimiters by SDK client interface/account/region. */
+/**
+ * Factory for shared RateLimiters by SDK client interface/account/region.
+ *
+ * <p>Limiters run at the configured {@code rateLimit}. When {@code adaptiveRateLimit} is set to 1
+ * they back off on throttling responses down to {@code minRateLimit} (default 10% of the rate
+ * limit) and recover up to {@code maxRateLimit} (default the rate limit).
+ *
+ * <p>Given a {@link SharedRateLimitStore}, a {@code sharedRateLimit} additionally caps the rate of
+ * requests across all clouddriver instances for each interface/account/region.
+ */
 public class RateLimiterSupplier {
 
-  private final LoadingCache<RateLimitKey, RateLimiter> rateLimiters;
+  private final LoadingCache<RateLimitKey, AdaptiveRateLimiter> rateLimiters;
 
   public RateLimiterSupplier(
       ServiceLimitConfiguration serviceLimitConfiguration, Registry registry) {
+    this(serviceLimitConfiguration, registry, null);
+  }
+
+  public RateLimiterSupplier(
+      ServiceLimitConfiguration serviceLimitConfiguration,
+      Registry registry,
+      SharedRateLimitStore sharedRateLimitStore) {
     rateLimiters =
         CacheBuilder.newBuilder()
             .recordStats()
-            .build(new RateLimitCacheLoader(serviceLimitConfiguration));
+            .build(
+                new RateLimitCacheLoader(
+                    serviceLimitConfiguration, registry, sharedRateLimitStore));
     LoadingCacheMetrics.instrument("rateLimiterSupplier", registry, rateLimiters);
   }
 
-  public RateLimiter getRateLimiter(Class<?> implementation, String account, String region) {
+  public AdaptiveRateLimiter getRateLimiter(
+      Class<?> implementation, String account, String region) {
     try {
       return rateLimiters.get(new RateLimitKey(implementation, account, region));
     } catch (ExecutionException executionException) {
@@ -51,33 +71,96 @@ public class RateLimiterSupplier {
     }
   }
 
-  private static class RateLimitCacheLoader extends CacheLoader<RateLimitKey, RateLimiter> {
+  private static class RateLimitCacheLoader
+      extends CacheLoader<RateLimitKey, AdaptiveRateLimiter> {
     private static final double DEFAULT_LIMIT = 10.0d;
+    private static final double DEFAULT_MIN_LIMIT_FRACTION = 0.1d;
 
     private final ServiceLimitConfiguration serviceLimitConfiguration;
+    private final Registry registry;
+    private final SharedRateLimitStore sharedRateLimitStore;
     private final double defaultLimit;
 
-    public RateLimitCacheLoader(ServiceLimitConfiguration serviceLimitConfiguration) {
-      this(serviceLimitConfiguration, DEFAULT_LIMIT);
+    public RateLimitCacheLoader(
+        ServiceLimitConfiguration serviceLimitConfiguration,
+        Registry registry,
+        SharedRateLimitStore sharedRateLimitStore) {
+      this(serviceLimitConfiguration, registry, sharedRateLimitStore, DEFAULT_LIMIT);
     }
 
     public RateLimitCacheLoader(
-        ServiceLimitConfiguration serviceLimitConfiguration, double defaultLimit) {
+        ServiceLimitConfiguration serviceLimitConfiguration,
+        Registry registry,
+        SharedRateLimitStore sharedRateLimitStore,
+        double defaultLimit) {
       this.serviceLimitConfiguration = Objects.requireNonNull(serviceLimitConfiguration);
+      this.registry = Objects.requireNonNull(registry);
+      this.sharedRateLimitStore = sharedRateLimitStore;
       this.defaultLimit = defaultLimit;
     }
 
     @Override
-    public RateLimiter load(RateLimitKey key) throws Exception {
-      double rateLimit =
-          serviceLimitConfiguration.getLimit(
-              ServiceLimitConfiguration.API_RATE_LIMIT,
+    public AdaptiveRateLimiter load(RateLimitKey key) throws Exception {
+      double rateLimit = getLimit(key, ServiceLimitConfiguration.API_RATE_LIMIT, defaultLimit);
+      double minRateLimit = rateLimit;
+      double maxRateLimit = rateLimit;
+      if (getLimit(key, ServiceLimitConfiguration.API_RATE_LIMIT_ADAPTIVE, 0.0d) > 0) {
+        maxRateLimit = getLimit(key, ServiceLimitConfiguration.API_RATE_LIMIT_MAX, rateLimit);
+        minRateLimit =
+            Math.min(
+                maxRateLimit,
+                getLimit(
+                    key,
+                    ServiceLimitConfiguration.API_RATE_LIMIT_MIN,
+                    rateLimit * DEFAULT_MIN_LIMIT_FRACTION));
+      }
+
+      AdaptiveRateLimiter rateLimiter =
+          new AdaptiveRateLimiter(
+              minRateLimit,
+              maxRateLimit,
+              registry.clock(),
+              registry.counter(metricId("amazonClientProvider.throttles", key)),
+              getSharedRateLimiter(key));
+      registry.gauge(
+          metricId("amazonClientProvider.rateLimit", key),
+          rateLimiter,
+          AdaptiveRateLimiter::getRate);
+      return rateLimiter;
+    }
+
+    private SharedRateLimiter getSharedRateLimiter(RateLimitKey key) {
+      if (sharedRateLimitStore == null) {
+        return null;
+      }
+      double sharedRateLimit = getLimit(key, ServiceLimitConfiguration.API_SHARED_RATE_LIMIT, 0.0d);
+      if (sharedRateLimit <= 0) {
+        return null;
+      }
+      String budget =
+          String.join(
+              ":",
               key.implementationClass.getSimpleName(),
               key.account,
-              AmazonCloudProvider.ID,
-              defaultLimit);
+              key.region == null ? "UNSPECIFIED" : key.region);
+      return new SharedRateLimiter(sharedRateLimitStore, budget, sharedRateLimit, registry.clock());
+    }
+
+    private double getLimit(RateLimitKey key, String limit, double defaultValue) {
+      return serviceLimitConfiguration.getLimit(
+          limit,
+          key.implementationClass.getSimpleName(),
+          key.account,
+          AmazonCloudProvider.ID,
+          defaultValue);
+    }
 
-      return RateLimiter.create(rateLimit);
+    private Id metricId(String name, RateLimitKey key) {
+      return registry
+          .createId(name)
+          .withTag("clientType", key.implementationClass.getSimpleName())
+          .withTag("account", key.account)
+          .withTag("region", key.region == null ? "UNSPECIFIED" : key.region);
     }
   }
 
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.security.sdkclient;
+
+import static java.util.Objects.requireNonNull;
+
+import com.netflix.spectator.api.Clock;
+import com.netflix.spinnaker.clouddriver.core.limits.SharedRateLimitStore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Takes permits from a budget shared by every clouddriver instance.
+ *
+ * <p>Permits are leased from the {@link SharedRateLimitStore} in batches of roughly a tenth of a
+ * second worth of the budget so most requests are served without a round trip. Leased permits
+ * that are not used within a second are dropped. If the store fails, requests proceed limited only
+ * by the local rate limiter, without going back to the store for the next few seconds, so that an
+ * outage of the store doesn't add a failed round trip to every request.
+ */
+public class SharedRateLimiter {
+  private static final Logger log = LoggerFactory.getLogger(SharedRateLimiter.class);
+
+  static final long LEASE_DURATION_NANOS = TimeUnit.SECONDS.toNanos(1);
+  static final double LEASE_FRACTION = 0.1d;
+  static final long FAILURE_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final long MIN_BACKOFF_MILLIS = 10;
+
+  private final SharedRateLimitStore store;
+  private final String budget;
+  private final double permitsPerSecond;
+  private final int leaseSize;
+  private final Clock clock;
+
+  private int leased;
+  private long leaseExpiry;
+  private boolean storeFailed;
+  private long storeRetryTime;
+
+  public SharedRateLimiter(
+      SharedRateLimitStore store, String budget, double permitsPerSecond, Clock clock) {
+    if (permitsPerSecond <= 0) {
+      throw new IllegalArgumentException("Invalid shared rate limit " + permitsPerSecond);
+    }
+    this.store = requireNonNull(store);
+    this.budget = requireNonNull(budget);
+    this.permitsPerSecond = permitsPerSecond;
+    this.leaseSize = Math.max(1, (int) (permitsPerSecond * LEASE_FRACTION));
+    this.clock = requireNonNull(clock);
+  }
+
+  /** Blocks until a permit is available, returning the time spent waiting in seconds. */
+  public double acquire() {
+    long start = clock.monotonicTime();
+    long waitMillis;
+    while ((waitMillis = tryAcquire()) > 0) {
+      sleep(waitMillis);
+    }
+    return elapsedSeconds(start);
+  }
+
+  /**
+   * Takes a permit, leasing more from the store if needed. Waiting for the shared budget to refill
+   * is left to the caller so that other requests aren't held up behind it.
+   *
+   * @return 0 once a permit was taken, otherwise how long to wait in milliseconds before trying
+   *     again
+   */
+  private synchronized long tryAcquire() {
+    long now = clock.monotonicTime();
+    if (storeFailed && now < storeRetryTime) {
+      return 0;
+    }
+    if (leased > 0 && now < leaseExpiry) {
+      leased--;
+      return 0;
+    }
+    int granted;
+    try {
+      granted = store.acquire(budget, leaseSize, permitsPerSecond);
+    } catch (RuntimeException e) {
+      // logged once per backoff rather than for every request while the store is down
+      log.warn(
+          "Failed to acquire permits from shared rate limit budget {}, "
+              + "limiting requests locally for {}s: {}",
+          budget,
+          TimeUnit.NANOSECONDS.toSeconds(FAILURE_BACKOFF_NANOS),
+          e.toString());
+      storeFailed = true;
+      storeRetryTime = clock.monotonicTime() + FAILURE_BACKOFF_NANOS;
+      return 0;
+    }
+    if (storeFailed) {
+      log.info("Acquired permits from shared rate limit budget {} again", budget);
+      storeFailed = false;
+    }
+    if (granted <= 0) {
+      return Math.max(MIN_BACKOFF_MILLIS, (long) (leaseSize * 1000 / permitsPerSecond));
+    }
+    leased = granted - 1;
+    leaseExpiry = clock.monotonicTime() + LEASE_DURATION_NANOS;
+    return 0;
+  }
+
+  private double elapsedSeconds(long start) {
+    return (clock.monotonicTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted waiting for shared rate limit permits", e);
+    }
+  }
+}
@@ -19,17 +19,25 @@ package com.netflix.spinnaker.clouddriver.aws.provider.agent
 
 import com.amazonaws.services.autoscaling.AmazonAutoScaling
 import com.amazonaws.services.autoscaling.model.AutoScalingGroup
+import com.amazonaws.services.autoscaling.model.DescribeAutoScalingGroupsRequest
 import com.amazonaws.services.autoscaling.model.DescribeAutoScalingGroupsResult
+import com.amazonaws.services.autoscaling.model.DescribePoliciesResult
+import com.amazonaws.services.autoscaling.model.DescribeScheduledActionsResult
 import com.amazonaws.services.autoscaling.model.LaunchTemplate
 import com.amazonaws.services.autoscaling.model.LaunchTemplateSpecification
 import com.amazonaws.services.autoscaling.model.MixedInstancesPolicy
 import com.amazonaws.services.autoscaling.model.SuspendedProcess
 import com.amazonaws.services.autoscaling.model.TagDescription
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch
+import com.amazonaws.services.cloudwatch.model.DescribeAlarmsResult
 import com.amazonaws.services.ec2.AmazonEC2
+import com.amazonaws.services.ec2.model.DescribeSubnetsResult
 import com.netflix.awsobjectmapper.AmazonObjectMapperConfigurer
 import com.netflix.spectator.api.Spectator
+import com.netflix.spinnaker.cats.cache.DefaultCacheData
 import com.netflix.spinnaker.cats.provider.ProviderCache
 import com.netflix.spinnaker.clouddriver.aws.AmazonCloudProvider
+import com.netflix.spinnaker.clouddriver.aws.data.Keys
 import com.netflix.spinnaker.clouddriver.aws.security.AmazonClientProvider
 import com.netflix.spinnaker.clouddriver.aws.security.EddaTimeoutConfig
 import com.netflix.spinnaker.clouddriver.aws.security.NetflixAmazonCredentials
@@ -37,6 +45,13 @@ import spock.lang.Shared
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.ON_DEMAND
+import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.SERVER_GROUPS
+
 class ClusterCachingAgentSpec extends Specification {
   static String region = 'region'
   static String accountName = 'accountName'
@@ -216,6 +231,185 @@ class ClusterCachingAgentSpec extends Specification {
     [taggify(".*", "ciao")]       | [taggify("hello", ".*")]      | []
   }
 
+  void "should page through auto scaling groups"() {
+    given:
+    def agent = getAgent()
+    def autoScaling = Mock(AmazonAutoScaling)
+    def client = Stub(AmazonClientProvider) {
+      getAutoScaling(_, _, _) >> autoScaling
+    }
+
+    def clients = new ClusterCachingAgent.AmazonClients(client, agent.account, agent.region, false)
+    filter.includeTags = null
+    filter.excludeTags = null
+
+    when:
+    def result = agent.loadAutoScalingGroups(clients)
+
+    then:
+    1 * autoScaling.describeAutoScalingGroups({ it.nextToken == null }) >> new DescribeAutoScalingGroupsResult()
+      .withAutoScalingGroups(filterableASGs[0..1])
+      .withNextToken("page2")
+    1 * autoScaling.describeAutoScalingGroups({ it.nextToken == "page2" }) >> new DescribeAutoScalingGroupsResult()
+      .withAutoScalingGroups(filterableASGs[2..4])
+    result.asgs*.autoScalingGroupName == filterableASGs*.autoScalingGroupName
+  }
+
+  void "should fetch the next page of auto scaling groups on the agent's pool"() {
+    given:
+    def describedOn = []
+    def lastModified = new ThreadLocal<Long>()
+    def autoScaling = Stub(AmazonAutoScaling) {
+      describeAutoScalingGroups(_) >> { DescribeAutoScalingGroupsRequest request ->
+        describedOn << Thread.currentThread().name
+        // Edda reports the last modified time to the thread making the call only
+        lastModified.set(request.nextToken ? 2000L : 1000L)
+        new DescribeAutoScalingGroupsResult()
+          .withAutoScalingGroups(request.nextToken ? filterableASGs[2..4] : filterableASGs[0..1])
+          .withNextToken(request.nextToken ? null : "page2")
+      }
+    }
+    def agent = loadDataAgent(autoScaling, Stub(AmazonCloudWatch), true)
+    agent.amazonClientProvider.getLastModified() >> { lastModified.get() }
+
+    def clients = new ClusterCachingAgent.AmazonClients(agent.amazonClientProvider, agent.account, agent.region, false)
+
+    when:
+    def result = agent.loadAutoScalingGroups(clients)
+
+    then:
+    result.asgs*.autoScalingGroupName == filterableASGs*.autoScalingGroupName
+    describedOn.size() == 2
+    describedOn[0] == Thread.currentThread().name
+    describedOn[1].startsWith(ClusterCachingAgent.simpleName)
+    result.start == 2000L
+  }
+
+  void "should describe independent resources concurrently when loading data"() {
+    given:
+    def inFlight = new CountDownLatch(3)
+    def concurrently = { result ->
+      inFlight.countDown()
+      if (!inFlight.await(10, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("not described concurrently")
+      }
+      result
+    }
+    def autoScaling = Stub(AmazonAutoScaling) {
+      describeAutoScalingGroups(_) >> new DescribeAutoScalingGroupsResult()
+      describePolicies(_) >> { concurrently(new DescribePoliciesResult()) }
+      describeScheduledActions(_) >> { concurrently(new DescribeScheduledActionsResult()) }
+    }
+    def cloudWatch = Stub(AmazonCloudWatch) {
+      describeAlarms(_) >> { concurrently(new DescribeAlarmsResult()) }
+    }
+
+    when:
+    def result = loadDataAgent(autoScaling, cloudWatch).loadData(emptyProviderCache())
+
+    then:
+    inFlight.count == 0
+    result.cacheResults[SERVER_GROUPS.ns].isEmpty()
+  }
+
+  void "should rethrow a failed describe when loading data"() {
+    given:
+    def autoScaling = Stub(AmazonAutoScaling) {
+      describeAutoScalingGroups(_) >> new DescribeAutoScalingGroupsResult()
+      describePolicies(_) >> new DescribePoliciesResult()
+      describeScheduledActions(_) >> { throw new IllegalStateException("scheduled actions failed") }
+    }
+    def cloudWatch = Stub(AmazonCloudWatch) {
+      describeAlarms(_) >> new DescribeAlarmsResult()
+    }
+
+    when:
+    loadDataAgent(autoScaling, cloudWatch).loadData(emptyProviderCache())
+
+    then:
+    def e = thrown(IllegalStateException)
+    e.message == "scheduled actions failed"
+  }
+
+  @Unroll
+  void "should compare processed on demand data with auto scaling groups described straight from AWS"() {
+    given:
+    def onDemandKey = Keys.getServerGroupKey(defaultAsg.autoScalingGroupName, accountName, region)
+    def onDemand = new DefaultCacheData(onDemandKey, [cacheTime: 0, processedCount: 1, cacheResults: '{}'], [:])
+    def providerCache = Stub(ProviderCache) {
+      filterIdentifiers(ON_DEMAND.ns, _) >> [onDemandKey]
+      getAll(ON_DEMAND.ns, [onDemandKey]) >> [onDemand]
+    }
+    def edda = Stub(AmazonAutoScaling) {
+      describeAutoScalingGroups(_) >> new DescribeAutoScalingGroupsResult().withAutoScalingGroups(defaultAsg)
+      describePolicies(_) >> new DescribePoliciesResult()
+      describeScheduledActions(_) >> new DescribeScheduledActionsResult()
+    }
+    def aws = Mock(AmazonAutoScaling)
+    def cloudWatch = Stub(AmazonCloudWatch) {
+      describeAlarms(_) >> new DescribeAlarmsResult()
+    }
+    def agent = loadDataAgent(edda, cloudWatch, true)
+    agent.amazonClientProvider.getAutoScaling(_, region, true) >> aws
+    agent.amazonClientProvider.getLastModified() >> 1000L
+
+    when:
+    def result = agent.loadData(providerCache)
+
+    then:
+    1 * aws.describeAutoScalingGroups({ it.autoScalingGroupNames == [defaultAsg.autoScalingGroupName] }) >>
+      new DescribeAutoScalingGroupsResult().withAutoScalingGroups(defaultAsg.clone().withDesiredCapacity(awsDesiredCapacity))
+    result.evictions[ON_DEMAND.ns] == (evicted ? [onDemandKey] : [])
+    result.cacheResults[ON_DEMAND.ns]*.id == (evicted ? [] : [onDemandKey])
+
+    where:
+    awsDesiredCapacity || evicted
+    defaultDesired     || true
+    defaultDesired + 1 || false
+  }
+
+  void "should bound concurrent describes per agent"() {
+    when:
+    def executor = getAgent().describeExecutor
+
+    then:
+    executor.maximumPoolSize == ClusterCachingAgent.MAX_CONCURRENT_DESCRIBES
+    executor.allowsCoreThreadTimeOut()
+    executor.rejectedExecutionHandler instanceof ThreadPoolExecutor.CallerRunsPolicy
+  }
+
+  /**
+   * An agent whose clients return nothing unless stubbed otherwise, and that filters no auto scaling
+   * groups. Its client provider is a mock, so further interactions can be added to it.
+   */
+  private ClusterCachingAgent loadDataAgent(AmazonAutoScaling autoScaling,
+                                            AmazonCloudWatch cloudWatch,
+                                            boolean eddaEnabled = false) {
+    filter.includeTags = null
+    filter.excludeTags = null
+    def creds = Stub(NetflixAmazonCredentials) {
+      getName() >> accountName
+      it.getAccountId() >> accountId
+      getEddaEnabled() >> eddaEnabled
+    }
+    def amazonEC2 = Stub(AmazonEC2) {
+      describeSubnets(_) >> new DescribeSubnetsResult()
+    }
+    def client = Mock(AmazonClientProvider) {
+      getAutoScaling(creds, region, false) >> autoScaling
+      getAmazonEC2(creds, region, _) >> amazonEC2
+      getAmazonCloudWatch(creds, region, _) >> cloudWatch
+    }
+    new ClusterCachingAgent(Stub(AmazonCloudProvider), client, creds, region, AmazonObjectMapperConfigurer.createConfigured(), Spectator.globalRegistry(), EddaTimeoutConfig.DEFAULT, filter)
+  }
+
+  private ProviderCache emptyProviderCache() {
+    Stub(ProviderCache) {
+      filterIdentifiers(_, _) >> []
+      getAll(_, _) >> []
+    }
+  }
+
   private static final List<AutoScalingGroup> filterableASGs = [
     new AutoScalingGroup()
       .withAutoScalingGroupName("test-hello-tag-value")
@@ -23,6 +23,7 @@ import com.amazonaws.services.ec2.model.Filter
 import com.amazonaws.services.ec2.model.Image
 import com.netflix.awsobjectmapper.AmazonObjectMapperConfigurer
 import com.netflix.spectator.api.Spectator
+import com.netflix.spinnaker.cats.agent.AgentDataType
 import com.netflix.spinnaker.cats.provider.ProviderCache
 import com.netflix.spinnaker.clouddriver.aws.data.Keys
 import com.netflix.spinnaker.clouddriver.aws.security.AmazonClientProvider
@@ -32,6 +33,7 @@ import spock.lang.Shared
 import spock.lang.Specification
 
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGES
+import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGE_IDS
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.NAMED_IMAGES
 
 class ImageCachingAgentSpec extends Specification {
@@ -141,10 +143,27 @@ class ImageCachingAgentSpec extends Specification {
     !result.cacheResults[NAMED_IMAGES.ns].find { it.id == publicNamedImageKey }
   }
 
+  void "should index images by id"() {
+    given:
+    def agent = getAgent(false, false)
+
+    when:
+    def result = agent.loadData(providerCache)
+
+    then:
+    1 * ec2.describeImages(_) >> new DescribeImagesResult(images: [privateImage])
+
+    result.cacheResults[IMAGE_IDS.ns]*.id == [Keys.getImageIdKey(privateImage.imageId, accountName, region)]
+    result.cacheResults[IMAGE_IDS.ns][0].attributes == [imageId: privateImage.imageId, account: accountName, region: region]
+    agent.providedDataTypes.find { it.typeName == IMAGE_IDS.ns }.authority == AgentDataType.Authority.AUTHORITATIVE
+  }
+
   void "should include only public images"() {
     given:
     def agent = getAgent(true, false)
-    def request = new DescribeImagesRequest().withFilters(new Filter('is-public', ['true']))
+    def request = new DescribeImagesRequest()
+      .withFilters(new Filter('is-public', ['true']))
+      .withMaxResults(ImageCachingAgent.PUBLIC_IMAGES_PAGE_SIZE)
 
     when:
     def result = agent.loadData(providerCache)
@@ -180,7 +199,9 @@ class ImageCachingAgentSpec extends Specification {
   void "should manually filter public images from Edda"() {
     given:
     def agent = getAgent(true, true)
-    def request = new DescribeImagesRequest().withFilters(new Filter('is-public', ['true']))
+    def request = new DescribeImagesRequest()
+      .withFilters(new Filter('is-public', ['true']))
+      .withMaxResults(ImageCachingAgent.PUBLIC_IMAGES_PAGE_SIZE)
 
     when:
     def result = agent.loadData(providerCache)
@@ -195,4 +216,26 @@ class ImageCachingAgentSpec extends Specification {
     !result.cacheResults[NAMED_IMAGES.ns].find { it.id == privateNamedImageKey }
   }
 
+  void "should page through public images"() {
+    given:
+    def agent = getAgent(true, false)
+    def otherImage = new Image().withImageId('ami-33333333').withName('other').withPublic(true)
+    def requests = []
+
+    when:
+    def result = agent.loadData(providerCache)
+
+    then:
+    2 * ec2.describeImages(_ as DescribeImagesRequest) >> { DescribeImagesRequest request ->
+      requests << request.nextToken
+      request.nextToken == null
+        ? new DescribeImagesResult(images: [publicImage], nextToken: 'next')
+        : new DescribeImagesResult(images: [otherImage])
+    }
+    0 * _
+
+    requests == [null, 'next']
+    result.cacheResults[IMAGES.ns]*.id == [publicImageKey, Keys.getImageKey('ami-33333333', accountName, region)]
+    result.cacheResults[NAMED_IMAGES.ns]*.id.sort() == [Keys.getNamedImageKey(accountName, 'other'), publicNamedImageKey].sort()
+  }
 }
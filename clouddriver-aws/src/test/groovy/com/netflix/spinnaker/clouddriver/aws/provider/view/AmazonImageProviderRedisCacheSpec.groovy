@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.provider.view
+
+import com.amazonaws.services.ec2.AmazonEC2
+import com.amazonaws.services.ec2.model.DescribeImagesResult
+import com.amazonaws.services.ec2.model.Image
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.awsobjectmapper.AmazonObjectMapperConfigurer
+import com.netflix.spectator.api.Spectator
+import com.netflix.spinnaker.cats.provider.DefaultProviderCache
+import com.netflix.spinnaker.cats.provider.ProviderCache
+import com.netflix.spinnaker.cats.redis.cache.RedisCache
+import com.netflix.spinnaker.cats.redis.cache.RedisCacheOptions
+import com.netflix.spinnaker.clouddriver.aws.provider.agent.ImageCachingAgent
+import com.netflix.spinnaker.clouddriver.aws.security.AmazonClientProvider
+import com.netflix.spinnaker.clouddriver.aws.security.AmazonCredentials
+import com.netflix.spinnaker.clouddriver.aws.security.NetflixAmazonCredentials
+import com.netflix.spinnaker.config.AwsConfiguration
+import com.netflix.spinnaker.credentials.CredentialsRepository
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
+import com.netflix.spinnaker.kork.jedis.EmbeddedRedis
+import com.netflix.spinnaker.kork.jedis.JedisClientDelegate
+import redis.clients.jedis.Jedis
+import redis.clients.jedis.JedisPool
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.lang.Specification
+
+import static com.netflix.spinnaker.cats.agent.AgentDataType.Authority.AUTHORITATIVE
+import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGES
+import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGE_IDS
+
+class AmazonImageProviderRedisCacheSpec extends Specification {
+  static String accountName = 'test_account'
+
+  @Shared
+  @AutoCleanup("destroy")
+  EmbeddedRedis embeddedRedis = EmbeddedRedis.embed()
+
+  JedisPool pool = embeddedRedis.pool as JedisPool
+
+  ObjectMapper objectMapper = AmazonObjectMapperConfigurer.createConfigured()
+
+  ProviderCache providerCache
+
+  AmazonImageProvider provider
+
+  Map<String, List<Image>> imagesByRegion = [:]
+
+  def setup() {
+    withJedis { it.flushAll() }
+
+    providerCache = new DefaultProviderCache(new RedisCache(
+      'test', new JedisClientDelegate(pool), new ObjectMapper(), RedisCacheOptions.builder().build(), null
+    ))
+    def creds = Stub(NetflixAmazonCredentials) {
+      getName() >> accountName
+      getRegions() >> ['us-east-1', 'eu-west-1'].collect { new AmazonCredentials.AWSRegion(it, []) }
+    }
+    def credentialsRepository = Stub(CredentialsRepository) {
+      getAll() >> [creds].toSet()
+    }
+    provider = new AmazonImageProvider(
+      providerCache, credentialsRepository, Mock(AwsConfiguration.AmazonServerGroupProvider), objectMapper
+    )
+  }
+
+  def cleanup() {
+    withJedis { it.configSet('slowlog-log-slower-than', '10000') }
+  }
+
+  void "should find an image without scanning the cached image keys"() {
+    given:
+    imagesByRegion['us-east-1'] = [image('ami-123321'), image('ami-456654')]
+    imagesByRegion['eu-west-1'] = [image('ami-123321')]
+    cacheImages('us-east-1')
+    cacheImages('eu-west-1')
+
+    and: 'every command is logged from here on'
+    withJedis {
+      it.configSet('slowlog-max-len', '1000')
+      it.configSet('slowlog-log-slower-than', '0')
+      it.slowlogReset()
+    }
+
+    when:
+    def found = provider.getImageById('ami-123321')
+    def notFound = provider.getImageById('ami-789987')
+    List<List<String>> commands = withJedis { it.slowlogGet(1000) }*.args
+
+    then:
+    found.get().image.imageId == 'ami-123321'
+    !notFound.isPresent()
+
+    commands.any { it[0].equalsIgnoreCase('exists') }
+    !commands.any { it[0].equalsIgnoreCase('scan') || it[0].equalsIgnoreCase('keys') }
+    !commands.any {
+      it[0].equalsIgnoreCase('sscan') && it[1] in ["test:${IMAGES.ns}:members", "test:${IMAGE_IDS.ns}:members"]*.toString()
+    }
+  }
+
+  private <T> T withJedis(Closure<T> closure) {
+    Jedis jedis = pool.resource
+    try {
+      return closure(jedis)
+    } finally {
+      jedis.close()
+    }
+  }
+
+  private void cacheImages(String region) {
+    def agent = getAgent(region)
+    def authoritativeTypes = agent.providedDataTypes.findAll { it.authority == AUTHORITATIVE }*.typeName
+    providerCache.putCacheResult(agent.agentType, authoritativeTypes, agent.loadData(providerCache))
+  }
+
+  private ImageCachingAgent getAgent(String region) {
+    def creds = Stub(NetflixAmazonCredentials) {
+      getName() >> accountName
+      getAccountId() >> 'accountId'
+      getEddaEnabled() >> false
+    }
+    def ec2 = Stub(AmazonEC2) {
+      describeImages(_) >> { new DescribeImagesResult(images: imagesByRegion[region]) }
+    }
+    def acp = Stub(AmazonClientProvider) {
+      getAmazonEC2(creds, region, _) >> ec2
+    }
+    def dcs = Stub(DynamicConfigService) {
+      isEnabled(_ as String, true) >> true
+    }
+    new ImageCachingAgent(acp, creds, region, objectMapper, Spectator.globalRegistry(), false, dcs)
+  }
+
+  private static Image image(String imageId) {
+    new Image().withImageId(imageId).withName("name-${imageId}").withPublic(false)
+  }
+}
@@ -23,19 +23,30 @@ import com.netflix.spinnaker.cats.cache.CacheData
 import com.netflix.spinnaker.cats.cache.DefaultCacheData
 import com.netflix.spinnaker.config.AwsConfiguration
 import com.netflix.spinnaker.clouddriver.aws.model.AmazonImage
+import com.netflix.spinnaker.clouddriver.aws.security.AmazonCredentials
+import com.netflix.spinnaker.clouddriver.aws.security.NetflixAmazonCredentials
+import com.netflix.spinnaker.credentials.CredentialsRepository
 import spock.lang.Specification
 import spock.lang.Subject
 
 import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGES
+import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGE_IDS
 import com.netflix.spinnaker.clouddriver.aws.data.Keys
 
 class AmazonImageProviderSpec extends Specification {
   Cache cache = Mock(Cache)
   AwsConfiguration.AmazonServerGroupProvider amazonServerGroupProvider = Mock(AwsConfiguration.AmazonServerGroupProvider)
   ObjectMapper objectMapper = new ObjectMapper()
+  Set<NetflixAmazonCredentials> accounts = [
+      credentials('test_account', 'eu-west-1'),
+      credentials('other_account', 'us-east-1', 'eu-west-1')
+  ] as Set
+  CredentialsRepository<NetflixAmazonCredentials> credentialsRepository = Stub(CredentialsRepository) {
+    getAll() >> accounts
+  }
 
   @Subject
-  AmazonImageProvider provider = new AmazonImageProvider(cache, amazonServerGroupProvider, objectMapper)
+  AmazonImageProvider provider = new AmazonImageProvider(cache, credentialsRepository, amazonServerGroupProvider, objectMapper)
 
   void "should return one image"() {
     when:
@@ -51,8 +62,12 @@ class AmazonImageProviderSpec extends Specification {
     result == Optional.of(expectedImage)
 
     and:
-    1 * cache.filterIdentifiers(IMAGES.ns, _ as String) >> [
-        "aws:images:test_account:eu-west-1:ami-123321"
+    1 * cache.existingIdentifiers(IMAGE_IDS.ns, [
+        "aws:imageIds:ami-123321:test_account:eu-west-1",
+        "aws:imageIds:ami-123321:other_account:us-east-1",
+        "aws:imageIds:ami-123321:other_account:eu-west-1"
+    ]) >> [
+        "aws:imageIds:ami-123321:test_account:eu-west-1"
     ]
 
     1 * cache.getAll(IMAGES.ns, ["aws:images:test_account:eu-west-1:ami-123321"]) >>
@@ -64,6 +79,31 @@ class AmazonImageProviderSpec extends Specification {
             imageId: 'ami-123321'])]
   }
 
+  void "should look up images through the image id index"() {
+    given:
+    def imageKeys = [
+        Keys.getImageKey('ami-123321', 'test_account', 'eu-west-1'),
+        Keys.getImageKey('ami-123321', 'other_account', 'us-east-1')
+    ]
+
+    when:
+    def result = provider.getImageById("ami-123321")
+
+    then:
+    1 * cache.existingIdentifiers(IMAGE_IDS.ns, _) >> [
+        Keys.getImageIdKey('ami-123321', 'test_account', 'eu-west-1'),
+        Keys.getImageIdKey('ami-123321', 'other_account', 'us-east-1')
+    ]
+    1 * cache.getAll(IMAGES.ns, imageKeys) >> [
+        imageCacheData('ami-123321', [name: 'some_ami', account: 'test_account', region: 'eu-west-1', imageId: 'ami-123321']),
+        imageCacheData('ami-123321', [name: 'some_ami', account: 'other_account', region: 'us-east-1', imageId: 'ami-123321'])
+    ]
+    0 * cache.filterIdentifiers(_, _)
+
+    result.get().region == 'eu-west-1'
+    result.get().image.name == 'some_ami'
+  }
+
   void "should not find any image"() {
     when:
     def result = provider.getImageById("ami-123321")
@@ -72,7 +112,8 @@ class AmazonImageProviderSpec extends Specification {
     result == Optional.empty()
 
     and:
-    1 * cache.filterIdentifiers(IMAGES.ns, _ as String) >> []
+    1 * cache.existingIdentifiers(IMAGE_IDS.ns, _) >> []
+    0 * cache.filterIdentifiers(_, _)
   }
 
   void "should throw exception of invalid ami name"() {
@@ -83,6 +124,13 @@ class AmazonImageProviderSpec extends Specification {
     thrown(RuntimeException)
   }
 
+  private NetflixAmazonCredentials credentials(String name, String... regions) {
+    Stub(NetflixAmazonCredentials) {
+      getName() >> name
+      getRegions() >> regions.collect { new AmazonCredentials.AWSRegion(it, []) }
+    }
+  }
+
   static private CacheData imageCacheData(String imageId, Map attributes) {
     new DefaultCacheData(Keys.getImageKey(imageId, attributes.account, attributes.region), attributes, [:])
   }
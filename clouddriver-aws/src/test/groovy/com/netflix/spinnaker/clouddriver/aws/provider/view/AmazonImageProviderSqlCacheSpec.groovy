@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.provider.view
+
+import com.amazonaws.services.ec2.AmazonEC2
+import com.amazonaws.services.ec2.model.DescribeImagesResult
+import com.amazonaws.services.ec2.model.Image
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.awsobjectmapper.AmazonObjectMapperConfigurer
+import com.netflix.spectator.api.NoopRegistry
+import com.netflix.spectator.api.Spectator
+import com.netflix.spinnaker.cats.sql.SqlProviderCache
+import com.netflix.spinnaker.cats.sql.cache.SpectatorSqlCacheMetrics
+import com.netflix.spinnaker.cats.sql.cache.SqlCache
+import com.netflix.spinnaker.cats.sql.cache.SqlNamedCacheFactory
+import com.netflix.spinnaker.clouddriver.aws.data.Keys
+import com.netflix.spinnaker.clouddriver.aws.provider.agent.ImageCachingAgent
+import com.netflix.spinnaker.clouddriver.aws.security.AmazonClientProvider
+import com.netflix.spinnaker.clouddriver.aws.security.AmazonCredentials
+import com.netflix.spinnaker.clouddriver.aws.security.NetflixAmazonCredentials
+import com.netflix.spinnaker.config.AwsConfiguration
+import com.netflix.spinnaker.config.SqlConstraintsInitializer
+import com.netflix.spinnaker.credentials.CredentialsRepository
+import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
+import com.netflix.spinnaker.kork.sql.config.RetryProperties
+import com.netflix.spinnaker.kork.sql.config.SqlRetryProperties
+import com.netflix.spinnaker.kork.sql.test.SqlTestUtil
+import org.jooq.DSLContext
+import org.jooq.SQLDialect
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneId
+
+import static com.netflix.spinnaker.cats.agent.AgentDataType.Authority.AUTHORITATIVE
+import static com.netflix.spinnaker.clouddriver.core.provider.agent.Namespace.IMAGE_IDS
+
+class AmazonImageProviderSqlCacheSpec extends Specification {
+  static String accountName = 'test_account'
+
+  DSLContext context
+
+  @AutoCleanup("close")
+  def dataSource
+
+  SqlCache backingStore
+
+  SqlProviderCache providerCache
+
+  ObjectMapper objectMapper = AmazonObjectMapperConfigurer.createConfigured()
+
+  AmazonImageProvider provider
+
+  Map<String, List<Image>> imagesByRegion = [:]
+
+  def setup() {
+    def dynamicConfigService = Mock(DynamicConfigService) {
+      getConfig(_ as Class, _ as String, _) >> 10
+    }
+
+    SqlTestUtil.TestDatabase testDatabase = SqlTestUtil.initTcMysqlDatabase()
+    context = testDatabase.context
+    dataSource = testDatabase.dataSource
+
+    backingStore = new SqlCache(
+      "test",
+      context,
+      new ObjectMapper(),
+      null,
+      new Clock.FixedClock(Instant.EPOCH, ZoneId.of("UTC")),
+      new SqlRetryProperties(new RetryProperties(1, 10), new RetryProperties(1, 10)),
+      "test",
+      new SpectatorSqlCacheMetrics(new NoopRegistry()),
+      dynamicConfigService,
+      new SqlConstraintsInitializer().getDefaultSqlConstraints(SQLDialect.MYSQL),
+      new SqlNamedCacheFactory.DefaultProviderCacheConfiguration()
+    )
+    providerCache = new SqlProviderCache(backingStore)
+    def creds = Stub(NetflixAmazonCredentials) {
+      getName() >> accountName
+      getRegions() >> ['us-east-1', 'eu-west-1'].collect { new AmazonCredentials.AWSRegion(it, []) }
+    }
+    def credentialsRepository = Stub(CredentialsRepository) {
+      getAll() >> [creds].toSet()
+    }
+    provider = new AmazonImageProvider(
+      providerCache, credentialsRepository, Mock(AwsConfiguration.AmazonServerGroupProvider), objectMapper
+    )
+  }
+
+  def cleanup() {
+    SqlTestUtil.cleanupDb(context)
+  }
+
+  void "should find an image in every region it is cached in"() {
+    given:
+    imagesByRegion['us-east-1'] = [image('ami-123321'), image('ami-456654')]
+    imagesByRegion['eu-west-1'] = [image('ami-123321')]
+
+    when:
+    cacheImages('us-east-1')
+    cacheImages('eu-west-1')
+
+    then:
+    backingStore.getAll(IMAGE_IDS.ns)*.id.sort() == [
+      Keys.getImageIdKey('ami-123321', accountName, 'eu-west-1'),
+      Keys.getImageIdKey('ami-123321', accountName, 'us-east-1'),
+      Keys.getImageIdKey('ami-456654', accountName, 'us-east-1')
+    ]
+
+    provider.getImageById('ami-123321').get().image.imageId == 'ami-123321'
+    provider.getImageById('ami-456654').get().region == 'us-east-1'
+    !provider.getImageById('ami-789987').isPresent()
+  }
+
+  void "should stop finding an image once its agents no longer see it"() {
+    given:
+    imagesByRegion['us-east-1'] = [image('ami-123321')]
+    imagesByRegion['eu-west-1'] = [image('ami-123321')]
+    cacheImages('us-east-1')
+    cacheImages('eu-west-1')
+
+    when:
+    imagesByRegion['us-east-1'] = []
+    cacheImages('us-east-1')
+
+    then:
+    backingStore.getAll(IMAGE_IDS.ns)*.id == [Keys.getImageIdKey('ami-123321', accountName, 'eu-west-1')]
+    provider.getImageById('ami-123321').get().region == 'eu-west-1'
+
+    when:
+    imagesByRegion['eu-west-1'] = []
+    cacheImages('eu-west-1')
+
+    then:
+    backingStore.getAll(IMAGE_IDS.ns).isEmpty()
+    !provider.getImageById('ami-123321').isPresent()
+  }
+
+  private void cacheImages(String region) {
+    def agent = getAgent(region)
+    def authoritativeTypes = agent.providedDataTypes.findAll { it.authority == AUTHORITATIVE }*.typeName
+    providerCache.putCacheResult(agent.agentType, authoritativeTypes, agent.loadData(providerCache))
+  }
+
+  private ImageCachingAgent getAgent(String region) {
+    def creds = Stub(NetflixAmazonCredentials) {
+      getName() >> accountName
+      getAccountId() >> 'accountId'
+      getEddaEnabled() >> false
+    }
+    def ec2 = Stub(AmazonEC2) {
+      describeImages(_) >> { new DescribeImagesResult(images: imagesByRegion[region]) }
+    }
+    def acp = Stub(AmazonClientProvider) {
+      getAmazonEC2(creds, region, _) >> ec2
+    }
+    def dcs = Stub(DynamicConfigService) {
+      isEnabled(_ as String, true) >> true
+    }
+    new ImageCachingAgent(acp, creds, region, objectMapper, Spectator.globalRegistry(), false, dcs)
+  }
+
+  private static Image image(String imageId) {
+    new Image().withImageId(imageId).withName("name-${imageId}").withPublic(false)
+  }
+}
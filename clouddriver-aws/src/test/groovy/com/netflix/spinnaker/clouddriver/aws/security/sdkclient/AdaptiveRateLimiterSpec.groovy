@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.security.sdkclient
+
+import com.amazonaws.AmazonServiceException
+import com.amazonaws.handlers.HandlerAfterAttemptContext
+import com.amazonaws.services.ec2.AmazonEC2
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spectator.api.ManualClock
+import com.netflix.spinnaker.clouddriver.core.limits.ServiceLimitConfiguration
+import com.netflix.spinnaker.clouddriver.core.limits.ServiceLimits
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class AdaptiveRateLimiterSpec extends Specification {
+
+  ManualClock clock = new ManualClock()
+  DefaultRegistry registry = new DefaultRegistry(clock)
+
+  def "halves the rate once per interval on throttling and recovers additively"() {
+    given:
+    def limiter = new AdaptiveRateLimiter(1, 20, clock, registry.counter("throttles"))
+
+    when:
+    limiter.onThrottle()
+    limiter.onThrottle()
+
+    then:
+    limiter.rate == 10
+    registry.counter("throttles").count() == 2
+
+    when:
+    limiter.onSuccess()
+
+    then:
+    limiter.rate == 10
+
+    when:
+    advance()
+    limiter.onSuccess()
+
+    then:
+    limiter.rate == 11
+  }
+
+  def "keeps the rate within its bounds"() {
+    given:
+    def limiter = new AdaptiveRateLimiter(4, 10, clock, registry.counter("throttles"))
+
+    when:
+    3.times {
+      advance()
+      limiter.onThrottle()
+    }
+
+    then:
+    limiter.rate == 4
+
+    when:
+    100.times {
+      advance()
+      limiter.onSuccess()
+    }
+
+    then:
+    limiter.rate == 10
+  }
+
+  def "adjusts the rate only for throttled attempts"() {
+    given:
+    def limiter = new AdaptiveRateLimiter(1, 20, clock, registry.counter("throttles"))
+    def handler = new RateLimitingRequestHandler(registry.counter("delay"), limiter)
+
+    when:
+    handler.afterAttempt(attempt(exception("InternalError", 500)))
+
+    then:
+    limiter.rate == 20
+
+    when:
+    handler.afterAttempt(attempt(exception("Throttling", 400)))
+
+    then:
+    limiter.rate == 10
+  }
+
+  def "uses a fixed rate unless adaptive rate limiting is enabled"() {
+    given:
+    def supplier = new RateLimiterSupplier(
+      new ServiceLimitConfiguration(new ServiceLimits(limits), null, null, null), registry)
+    def limiter = supplier.getRateLimiter(AmazonEC2, "test", "us-east-1")
+
+    when:
+    limiter.onThrottle()
+
+    then:
+    limiter.rate == expectedRate
+    registry.counter(registry.createId("amazonClientProvider.throttles")
+      .withTags("clientType", "AmazonEC2", "account", "test", "region", "us-east-1"))
+      .count() == 1
+
+    where:
+    limits                                                     || expectedRate
+    [rateLimit: 20d]                                           || 20
+    [rateLimit: 20d, adaptiveRateLimit: 1d]                    || 10
+    [rateLimit: 20d, adaptiveRateLimit: 1d, minRateLimit: 15d] || 15
+  }
+
+  private void advance() {
+    clock.setMonotonicTime(clock.monotonicTime() + TimeUnit.SECONDS.toNanos(1))
+  }
+
+  private static HandlerAfterAttemptContext attempt(Exception exception) {
+    return HandlerAfterAttemptContext.builder().withException(exception).build()
+  }
+
+  private static AmazonServiceException exception(String errorCode, int statusCode) {
+    def exception = new AmazonServiceException("failed")
+    exception.errorCode = errorCode
+    exception.statusCode = statusCode
+    return exception
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.aws.security.sdkclient
+
+import com.amazonaws.services.ec2.AmazonEC2
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spectator.api.ManualClock
+import com.netflix.spinnaker.clouddriver.core.limits.ServiceLimitConfiguration
+import com.netflix.spinnaker.clouddriver.core.limits.ServiceLimits
+import com.netflix.spinnaker.clouddriver.core.limits.SharedRateLimitStore
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class SharedRateLimiterSpec extends Specification {
+
+  ManualClock clock = new ManualClock()
+  SharedRateLimitStore store = Mock(SharedRateLimitStore)
+
+  def "serves requests from leased permits"() {
+    given:
+    def limiter = new SharedRateLimiter(store, "budget", 100, clock)
+
+    when:
+    15.times { limiter.acquire() }
+
+    then:
+    2 * store.acquire("budget", 10, 100) >> 10
+  }
+
+  def "drops leased permits once the lease expires"() {
+    given:
+    def limiter = new SharedRateLimiter(store, "budget", 100, clock)
+
+    when:
+    limiter.acquire()
+    clock.setMonotonicTime(SharedRateLimiter.LEASE_DURATION_NANOS)
+    limiter.acquire()
+
+    then:
+    2 * store.acquire("budget", 10, 100) >> 10
+  }
+
+  def "waits for the shared budget to refill"() {
+    given:
+    def limiter = new SharedRateLimiter(store, "budget", 100, clock)
+
+    when:
+    limiter.acquire()
+
+    then:
+    2 * store.acquire("budget", 10, 100) >>> [0, 10]
+  }
+
+  def "doesn't hold up other requests while waiting for the shared budget to refill"() {
+    given:
+    def limiter = new SharedRateLimiter(store, "budget", 1, clock)
+    def calls = new AtomicInteger()
+    def waiting = new CountDownLatch(1)
+    store.acquire(_, _, _) >> {
+      if (calls.getAndIncrement() == 0) {
+        waiting.countDown()
+        return 0
+      }
+      return 1
+    }
+
+    when: 'a second request comes in while the first one waits a second for the budget to refill'
+    def first = Thread.start { limiter.acquire() }
+    waiting.await(10, TimeUnit.SECONDS)
+    limiter.acquire()
+
+    then:
+    first.alive
+
+    when:
+    first.join()
+
+    then:
+    calls.get() == 3
+  }
+
+  def "proceeds when the shared budget is unavailable"() {
+    given:
+    def limiter = new SharedRateLimiter(store, "budget", 100, clock)
+
+    when:
+    limiter.acquire()
+
+    then:
+    1 * store.acquire(_, _, _) >> { throw new IllegalStateException("unavailable") }
+    noExceptionThrown()
+  }
+
+  def "limits requests locally for a while after the shared budget fails"() {
+    given:
+    def limiter = new SharedRateLimiter(store, "budget", 100, clock)
+
+    when:
+    3.times { limiter.acquire() }
+
+    then:
+    1 * store.acquire(_, _, _) >> { throw new IllegalStateException("unavailable") }
+
+    when:
+    clock.setMonotonicTime(SharedRateLimiter.FAILURE_BACKOFF_NANOS)
+    limiter.acquire()
+
+    then:
+    1 * store.acquire("budget", 10, 100) >> 10
+  }
+
+  def "takes permits from a shared budget when one is configured"() {
+    given:
+    def supplier = new RateLimiterSupplier(
+      new ServiceLimitConfiguration(new ServiceLimits(limits), null, null, null),
+      new DefaultRegistry(clock),
+      store)
+
+    when:
+    supplier.getRateLimiter(AmazonEC2, "test", "us-east-1").acquire()
+
+    then:
+    calls * store.acquire("AmazonEC2:test:us-east-1", 1, 5) >> 1
+
+    where:
+    limits                || calls
+    [:]                   || 0
+    [sharedRateLimit: 5d] || 1
+  }
+}
@@ -26,7 +26,10 @@ import com.netflix.spinnaker.cats.agent.ExecutionInstrumentation
 import com.netflix.spinnaker.cats.cache.Cache
 import com.netflix.spinnaker.cats.cache.NamedCacheFactory
 import com.netflix.spinnaker.cats.mem.InMemoryNamedCacheFactory
+import com.netflix.spinnaker.cats.mem.SnapshotInMemoryCache
 import com.netflix.spinnaker.cats.module.CatsModule
+import com.netflix.spinnaker.cats.provider.CacheResultChangeDetector
+import com.netflix.spinnaker.cats.provider.DefaultProviderRegistry
 import com.netflix.spinnaker.cats.provider.Provider
 import com.netflix.spinnaker.cats.provider.ProviderRegistry
 import com.netflix.spinnaker.clouddriver.search.SearchProvider
@@ -38,17 +41,23 @@ import org.springframework.context.annotation.Bean
 import org.springframework.context.annotation.ComponentScan
 import org.springframework.context.annotation.Configuration
 
+import java.time.Clock
 import java.util.concurrent.TimeUnit
+import java.util.function.Supplier
 
 @Configuration
 @ComponentScan([
   'com.netflix.spinnaker.clouddriver.cache',
 ])
-@EnableConfigurationProperties(CatsInMemorySearchProperties)
+@EnableConfigurationProperties([CatsInMemorySearchProperties, CatsInMemoryCacheProperties, CatsCompositeCacheProperties, CatsProviderCacheProperties])
 class CacheConfig {
   @Bean
   @ConditionalOnMissingBean(NamedCacheFactory)
-  NamedCacheFactory namedCacheFactory() {
+  NamedCacheFactory namedCacheFactory(CatsInMemoryCacheProperties catsInMemoryCacheProperties) {
+    if (catsInMemoryCacheProperties.snapshotEnabled) {
+      int stripes = catsInMemoryCacheProperties.snapshotStripes
+      return new InMemoryNamedCacheFactory({ new SnapshotInMemoryCache(stripes) })
+    }
     new InMemoryNamedCacheFactory()
   }
 
@@ -73,8 +82,34 @@ class CacheConfig {
 
   @Bean
   @ConditionalOnMissingBean(CatsModule)
-  CatsModule catsModule(List<Provider> providers, List<ExecutionInstrumentation> executionInstrumentation, NamedCacheFactory cacheFactory, AgentScheduler agentScheduler) {
-    new CatsModule.Builder().cacheFactory(cacheFactory).scheduler(agentScheduler).instrumentation(executionInstrumentation).build(providers)
+  CatsModule catsModule(List<Provider> providers,
+                        List<ExecutionInstrumentation> executionInstrumentation,
+                        NamedCacheFactory cacheFactory,
+                        AgentScheduler agentScheduler,
+                        CompositeCacheFactory compositeCacheFactory,
+                        CatsProviderCacheProperties catsProviderCacheProperties,
+                        Registry registry) {
+    Supplier<CacheResultChangeDetector> changeDetectors = null
+    if (catsProviderCacheProperties.changeDetectionEnabled) {
+      def metrics = new SpectatorCacheResultChangeMetrics(registry)
+      long fullWriteIntervalSeconds = catsProviderCacheProperties.fullWriteIntervalSeconds
+      changeDetectors = {
+        new CacheResultChangeDetector(Clock.systemDefaultZone(), fullWriteIntervalSeconds, TimeUnit.SECONDS, metrics)
+      }
+    }
+
+    new CatsModule.Builder()
+      .providerRegistry(new DefaultProviderRegistry(providers, cacheFactory, changeDetectors))
+      .cacheFactory(cacheFactory)
+      .scheduler(agentScheduler)
+      .instrumentation(executionInstrumentation)
+      .viewFactory(compositeCacheFactory)
+      .build(providers)
+  }
+
+  @Bean
+  CompositeCacheFactory compositeCacheFactory(CatsCompositeCacheProperties catsCompositeCacheProperties, Registry registry) {
+    new CompositeCacheFactory(catsCompositeCacheProperties, new SpectatorCompositeCacheMetrics(registry))
   }
 
   @Bean
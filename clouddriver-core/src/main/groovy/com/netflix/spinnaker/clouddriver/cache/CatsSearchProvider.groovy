@@ -30,10 +30,16 @@ import org.springframework.security.core.Authentication
 import org.springframework.security.core.context.SecurityContextHolder
 
 import javax.annotation.PostConstruct
+import javax.annotation.PreDestroy
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
+import java.util.concurrent.Future
 import java.util.concurrent.ScheduledExecutorService
 import java.util.concurrent.TimeUnit
-import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Predicate
 
 import static com.netflix.spinnaker.clouddriver.cache.SearchableProvider.SearchableResource
 
@@ -50,16 +56,14 @@ class CatsSearchProvider implements SearchProvider, Runnable {
   private final Map<String, Template> urlMappings
   private final ProviderRegistry providerRegistry
 
-
-
-  private final AtomicReference<Map<String, Collection<String>>> cachedIdentifiersByType = new AtomicReference(
-    [:]
-  )
+  private final List<String> indexedTypes
+  private final CatsSearchIndex searchIndex = new CatsSearchIndex()
 
   private final FiatPermissionEvaluator permissionEvaluator
   private final List<KeyParser> keyParsers
 
   private final ScheduledExecutorService scheduledExecutorService
+  private final ExecutorService queryExecutorService
 
   CatsSearchProvider(CatsInMemorySearchProperties catsInMemorySearchProperties,
                      Cache cacheView,
@@ -77,6 +81,7 @@ class CatsSearchProvider implements SearchProvider, Runnable {
 
     defaultCaches = providers.defaultCaches.flatten()
     log.info("Enabled default caches: ${defaultCaches}")
+    indexedTypes = defaultCaches.intersect(catsInMemorySearchProperties.types ?: []).unique(false)
     searchResultHydrators = providers.inject([:]) { Map acc, SearchableProvider prov ->
       acc.putAll(prov.searchResultHydrators)
       return acc
@@ -87,12 +92,20 @@ class CatsSearchProvider implements SearchProvider, Runnable {
       return mappings
     }
 
+    queryExecutorService = Executors.newFixedThreadPool(
+      catsInMemorySearchProperties.queryParallelism,
+      new ThreadFactoryBuilder()
+        .setNameFormat(CatsSearchProvider.class.getSimpleName() + "-query-%d")
+        .setDaemon(true)
+        .build())
+
     if (catsInMemorySearchProperties.enabled) {
       scheduledExecutorService =
         Executors.newScheduledThreadPool(
           1,
           new ThreadFactoryBuilder()
             .setNameFormat(CatsSearchProvider.class.getSimpleName() + "-%d")
+            .setDaemon(true)
             .build());
     }
   }
@@ -112,33 +125,46 @@ class CatsSearchProvider implements SearchProvider, Runnable {
     }
   }
 
+  @PreDestroy
+  void shutdown() {
+    scheduledExecutorService?.shutdownNow()
+    queryExecutorService.shutdownNow()
+  }
+
   /**
-   * Periodically refresh cache identifiers that can then be searched over in-memory vs. in-redis.
+   * Periodically refresh the in-memory search index so that searches need not go to the backing cache.
    *
-   * This is beneficial for sets (like instances) that may have hundreds of thousands of keys.
+   * Only the types configured in caching.search.in-memory.types are indexed. Each type is refreshed incrementally;
+   * only identifiers added since the previous refresh are parsed.
    */
   @Override
   void run() {
-    try {
-      log.info("Refreshing Cached Identifiers (instances)")
-      def instanceIdentifiers = providers.findAll { provider ->
-        provider.supportsSearch('instances', Collections.emptyMap())
-      }.collect { provider ->
-        def cache = providerRegistry.getProviderCache(provider.getProviderName())
-        return cache.getIdentifiers("instances").findResults { key ->
-          // Even though we don't need the parsed Map, we should still allow the provider to reject invalid keys
-          if (provider.parseKey(key))
-            return key?.toLowerCase()
+    log.info("Refreshing search index (types: ${indexedTypes})")
+    for (String type : indexedTypes) {
+      try {
+        List<SearchableProvider> validProviders = providers.findAll { provider ->
+          provider.supportsSearch(type, Collections.emptyMap())
         }
-      }.flatten()
 
-      if (instanceIdentifiers) {
-        cachedIdentifiersByType.set(["instances": instanceIdentifiers])
-      }
+        Collection<String> identifiers
+        if (validProviders.size() == 1) {
+          identifiers = providerRegistry.getProviderCache(validProviders[0].getProviderName()).getIdentifiers(type)
+        } else {
+          identifiers = new HashSet<>()
+          validProviders.each { provider ->
+            identifiers.addAll(providerRegistry.getProviderCache(provider.getProviderName()).getIdentifiers(type))
+          }
+        }
 
-      log.info("Refreshed Cached Identifiers (found ${instanceIdentifiers.size()} instances)")
-    } catch (Exception e) {
-      log.error("Unable to refresh cached identifiers (instances)", e)
+        // Even though we don't need the parsed Map, we should still allow the providers to reject invalid keys
+        CatsSearchIndex.Refresh refresh = searchIndex.refresh(type, identifiers, { String key ->
+          validProviders.any { it.parseKey(key) }
+        } as Predicate<String>)
+
+        log.info("Refreshed search index (type: ${type}, size: ${refresh.size}, added: ${refresh.added}, removed: ${refresh.removed})")
+      } catch (Exception e) {
+        log.error("Unable to refresh search index (type: ${type})", e)
+      }
     }
   }
 
@@ -162,36 +188,83 @@ class CatsSearchProvider implements SearchProvider, Runnable {
     search(query, types, pageNumber, pageSize, Collections.emptyMap())
   }
 
+  /**
+   * Types are queried in parallel and each yields its candidates in ranked order. Filters and permission checks are
+   * then applied lazily while merging, stopping once the requested page is filled; when more candidates remain the
+   * total is estimated from the proportion of candidates accepted so far.
+   */
   @Override
   SearchResultSet search(String query, List<String> types, Integer pageNumber, Integer pageSize, Map<String, String> filters) {
     // ensure we're only searching for types supported by the backing providers
-    types = defaultCaches.intersect(types)
-
-    List<String> matches = findMatches(query, types, filters)
-    if (permissionEvaluator) {
-      Authentication auth = SecurityContextHolder.context.authentication
+    types = defaultCaches.intersect(types).unique()
 
-      matches = new ArrayList(matches).findResults { String key ->
-        Map<String, String> result = providers.findResult { it.parseKey(key) }
-        if (!result) {
-          log.warn("No supporting provider found for key (key: ${key})")
-          return key
-        }
+    String q = resolveQuery(query, types, filters)
+    if (q == null) {
+      return generateResultSet(query, [], 0, pageNumber, pageSize)
+    }
 
-        boolean canView = true
-        if (result.application) {
-          canView = permissionEvaluator.hasPermission(auth, result.application as String, 'APPLICATION', 'READ')
-        }
-        if (canView && result.account) {
-          canView = permissionEvaluator.hasPermission(auth, result.account as String, 'ACCOUNT', 'READ')
+    log.info("Querying ${types} for term: ${q}")
+    String normalizedWord = q.toLowerCase()
+    List<List<String>> candidates = findCandidates(normalizedWord, types, filters)
+    int candidateCount = candidates.sum(0) { it.size() } as int
+
+    AtomicInteger rejected = new AtomicInteger()
+    List<Iterator<String>> rankedByType = []
+    types.eachWithIndex { String type, int i ->
+      rankedByType << candidates[i].stream().filter({ String key ->
+        if (filtersMatch(type, key, filters)) {
+          return true
         }
-        return canView ? key : null
+        rejected.incrementAndGet()
+        return false
+      } as Predicate<String>).iterator()
+    }
+    Iterator<String> ranked = CatsSearchIndex.merge(rankedByType, normalizedWord)
+
+    Authentication auth = permissionEvaluator ? SecurityContextHolder.context.authentication : null
+    int wanted = pageSize * pageNumber
+    List<String> matches = []
+    int drawn = 0
+    while (matches.size() < wanted && ranked.hasNext()) {
+      String key = ranked.next()
+      drawn++
+      if (canView(auth, key)) {
+        matches << key
       }
     }
-    generateResultSet(query, matches, pageNumber, pageSize)
+
+    int totalMatches = matches.size()
+    if (ranked.hasNext()) {
+      int examined = drawn + rejected.get()
+      int remaining = Math.max(0, candidateCount - examined)
+      totalMatches += Math.round(remaining * (matches.size() / (double) examined)) as int
+    }
+
+    generateResultSet(query, matches, totalMatches, pageNumber, pageSize)
   }
 
-  private SearchResultSet generateResultSet(String query, List<String> matches, Integer pageNumber, Integer pageSize) {
+  private boolean canView(Authentication auth, String key) {
+    if (!permissionEvaluator) {
+      return true
+    }
+
+    Map<String, String> result = providers.findResult { it.parseKey(key) }
+    if (!result) {
+      log.warn("No supporting provider found for key (key: ${key})")
+      return true
+    }
+
+    boolean canView = true
+    if (result.application) {
+      canView = permissionEvaluator.hasPermission(auth, result.application as String, 'APPLICATION', 'READ')
+    }
+    if (canView && result.account) {
+      canView = permissionEvaluator.hasPermission(auth, result.account as String, 'ACCOUNT', 'READ')
+    }
+    return canView
+  }
+
+  private SearchResultSet generateResultSet(String query, List<String> matches, int totalMatches, Integer pageNumber, Integer pageSize) {
     List<String> resultPage = paginateResults(matches, pageSize, pageNumber)
     List<Map<String, String>> results = resultPage.findResults { String key ->
       Map<String, String> result = providers.findResult { it.parseKey(key) }
@@ -209,7 +282,7 @@ class CatsSearchProvider implements SearchProvider, Runnable {
     int filteredItems = resultPage.size() - results.size()
 
     SearchResultSet resultSet = new SearchResultSet(
-      totalMatches: matches.size() - filteredItems,
+      totalMatches: totalMatches - filteredItems,
       platform: getPlatform(),
       query: query,
       pageNumber: pageNumber,
@@ -230,8 +303,11 @@ class CatsSearchProvider implements SearchProvider, Runnable {
     resultSet
   }
 
-  private List<String> findMatches(String q, List<String> cachesToQuery, Map<String, String> filters) {
-
+  /**
+   * @return the query to search for, possibly a sensible default derived from filters, or null if there is nothing
+   * to search for
+   */
+  private String resolveQuery(String q, List<String> cachesToQuery, Map<String, String> filters) {
     if (!q && keyParsers && filters) {
       // no keyword search so find sensible default value to set for searching
       Set<String> filterKeys = filters.keySet()
@@ -252,71 +328,74 @@ class CatsSearchProvider implements SearchProvider, Runnable {
         )
       } else {
         log.info("no query string specified and no sensible default found (cachesToQuery: {})", cachesToQuery)
-        return []
+        return null
       }
     }
+    return q
+  }
 
-    log.info("Querying ${cachesToQuery} for term: ${q}")
-    String normalizedWord = q.toLowerCase()
-    List<String> matches = cachesToQuery.collect { String cache ->
-      Closure filtersMatch = { String key ->
-        try {
-          if (!filters) {
-            return true
-          }
+  /**
+   * @return the ranked candidates of each of {@code cachesToQuery}, queried in parallel
+   */
+  private List<List<String>> findCandidates(String normalizedWord, List<String> cachesToQuery, Map<String, String> filters) {
+    if (cachesToQuery.size() <= 1) {
+      return cachesToQuery.collect { String cache -> findCandidates(normalizedWord, cache, filters) }
+    }
 
-          KeyParser parser = keyParsers?.find { it.cloudProvider == filters.cloudProvider && it.canParseType(cache) }
-          if (parser) {
-            Map<String, String> parsed = parser.parseKey(key)
-            return filters.entrySet().every { filter ->
-              String[] vals = filter.value.split(',')
-              filter.key == 'cloudProvider' || parsed &&
-                ((parsed.containsKey(filter.key) && vals.contains(parsed[filter.key])) ||
-                  (parsed.containsKey(parser.getNameMapping(cache)) && vals.contains(parsed[parser.getNameMapping(cache)])))
-            }
-          } else {
-            log.debug("No parser found for $cache:$key")
-            return true
-          }
-        } catch (Exception e) {
-          log.warn("Failed on $cache:$key", e)
-        }
+    List<Future<List<String>>> futures = cachesToQuery.collect { String cache ->
+      queryExecutorService.submit({ findCandidates(normalizedWord, cache, filters) } as Callable<List<String>>)
+    }
+    return futures.collect { Future<List<String>> future ->
+      try {
+        return future.get()
+      } catch (ExecutionException e) {
+        throw e.cause
+      }
+    }
+  }
+
+  private List<String> findCandidates(String normalizedWord, String cache, Map<String, String> filters) {
+    if (searchIndex.isIndexed(cache)) {
+      // indexed types are searched in-memory and come back already ranked
+      return searchIndex.search(cache, normalizedWord)
+    }
+
+    List<SearchableProvider> validProviders = providers.findAll { it.supportsSearch(cache, filters) }
+    Set<String> identifiers = new HashSet<>()
+    for (SearchableProvider sp : validProviders) {
+      def providerCache = providerRegistry.getProviderCache(sp.getProviderName())
+      def searchGlob = sp.buildSearchTerm(cache, normalizedWord)
+      def filteredIds = providerCache.filterIdentifiers(cache, searchGlob)
+      filteredIds.removeAll(identifiers)
+      def existingIds = providerCache.existingIdentifiers(cache, filteredIds)
+      identifiers.addAll(existingIds)
+    }
+
+    return identifiers.sort(false, CatsSearchIndex.ranking(normalizedWord))
+  }
+
+  private boolean filtersMatch(String cache, String key, Map<String, String> filters) {
+    try {
+      if (!filters) {
+        return true
       }
 
-      def identifiers
-      def cached = cachedIdentifiersByType.get()
-      if (cached.containsKey(cache)) {
-        /**
-         * Attempt an exact match of the query against any attribute of an instance key (account, region, etc.).
-         *
-         * This is not 100% consistent with doing `*:${cache}:*${normalizedWord}*` in redis _but_ for instances it
-         * should be sufficient.
-         */
-        def identifiersForCache = cached.get(cache)
-        identifiers = identifiersForCache.findAll { it.contains(normalizedWord) }
-      } else {
-        List<SearchableProvider> validProviders = providers.findAll { it.supportsSearch(cache, filters) }
-        identifiers = new HashSet<>()
-        for (SearchableProvider sp : validProviders) {
-          def providerCache = providerRegistry.getProviderCache(sp.getProviderName())
-          def searchGlob = sp.buildSearchTerm(cache, normalizedWord)
-          def filteredIds = providerCache.filterIdentifiers(cache, searchGlob)
-          filteredIds.removeAll(identifiers)
-          def existingIds = providerCache.existingIdentifiers(cache, filteredIds)
-          identifiers.addAll(existingIds)
+      KeyParser parser = keyParsers?.find { it.cloudProvider == filters.cloudProvider && it.canParseType(cache) }
+      if (parser) {
+        Map<String, String> parsed = parser.parseKey(key)
+        return filters.entrySet().every { filter ->
+          String[] vals = filter.value.split(',')
+          filter.key == 'cloudProvider' || parsed &&
+            ((parsed.containsKey(filter.key) && vals.contains(parsed[filter.key])) ||
+              (parsed.containsKey(parser.getNameMapping(cache)) && vals.contains(parsed[parser.getNameMapping(cache)])))
         }
+      } else {
+        log.debug("No parser found for $cache:$key")
+        return true
       }
-
-      return identifiers
-        .findAll(filtersMatch)
-    }.flatten()
-
-    matches.sort { String a, String b ->
-      def aKey = a.toLowerCase().substring(a.indexOf(':'))
-      def bKey = b.toLowerCase().substring(b.indexOf(':'))
-      def indexA = aKey.indexOf(q)
-      def indexB = bKey.indexOf(q)
-      return indexA == indexB ? aKey <=> bKey : indexA - indexB
+    } catch (Exception e) {
+      log.warn("Failed on $cache:$key", e)
+      return false
     }
   }
 
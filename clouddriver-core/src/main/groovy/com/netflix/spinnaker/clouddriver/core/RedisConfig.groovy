@@ -17,6 +17,8 @@
 package com.netflix.spinnaker.clouddriver.core
 
 import com.netflix.spectator.api.Registry
+import com.netflix.spinnaker.clouddriver.core.limits.RedisSharedRateLimitStore
+import com.netflix.spinnaker.clouddriver.core.limits.SharedRateLimitStore
 import com.netflix.spinnaker.clouddriver.data.task.TaskRepository
 import com.netflix.spinnaker.clouddriver.data.task.jedis.RedisTaskRepository
 import com.netflix.spinnaker.kork.jedis.JedisClientDelegate
@@ -39,6 +41,8 @@ import redis.clients.jedis.Jedis
 import redis.clients.jedis.JedisPool
 import redis.clients.jedis.Protocol
 
+import java.time.Clock
+
 @Configuration
 @ConditionalOnProperty(value = 'redis.enabled', matchIfMissing = true)
 @EnableConfigurationProperties(RedisConfigurationProperties)
@@ -55,6 +59,12 @@ class RedisConfig {
     new RedisTaskRepository(redisClientDelegate, redisClientDelegatePrevious)
   }
 
+  @Bean
+  @ConditionalOnExpression('${redis.shared-rate-limits.enabled:false}')
+  SharedRateLimitStore sharedRateLimitStore(RedisClientDelegate redisClientDelegate) {
+    new RedisSharedRateLimitStore(redisClientDelegate, Clock.systemUTC())
+  }
+
   @Bean
   RedisClientDelegate redisClientDelegate(JedisPool jedisPool) {
     return new JedisClientDelegate(jedisPool);
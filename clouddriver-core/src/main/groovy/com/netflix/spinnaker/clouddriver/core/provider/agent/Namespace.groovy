@@ -24,6 +24,7 @@ import groovy.transform.CompileStatic
 enum Namespace {
   CERTIFICATES,
   IMAGES,
+  IMAGE_IDS,
   NAMED_IMAGES,
   SERVER_GROUPS(["application", "cluster", "account", "region", "serverGroup", "stack", "detail", "sequence"]),
   INSTANCES(["account", "region", "instanceId"]),
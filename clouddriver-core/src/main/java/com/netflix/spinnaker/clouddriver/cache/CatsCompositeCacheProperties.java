@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("caching.composite-cache")
+public class CatsCompositeCacheProperties {
+  /** When enabled, the cache view reads from all provider caches concurrently. */
+  private boolean parallelReadsEnabled = false;
+
+  /** Maximum number of concurrent delegate reads across all callers. */
+  private int parallelism = 8;
+
+  private long delegateTimeoutMillis = 30_000;
+
+  public boolean isParallelReadsEnabled() {
+    return parallelReadsEnabled;
+  }
+
+  public void setParallelReadsEnabled(boolean parallelReadsEnabled) {
+    this.parallelReadsEnabled = parallelReadsEnabled;
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+  }
+
+  public long getDelegateTimeoutMillis() {
+    return delegateTimeoutMillis;
+  }
+
+  public void setDelegateTimeoutMillis(long delegateTimeoutMillis) {
+    this.delegateTimeoutMillis = delegateTimeoutMillis;
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import com.netflix.spinnaker.cats.mem.SnapshotInMemoryCache;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("caching.in-memory")
+public class CatsInMemoryCacheProperties {
+  /**
+   * When enabled, in-memory caches publish each write as an immutable generation (see {@link
+   * SnapshotInMemoryCache}) instead of merging items in place.
+   */
+  private boolean snapshotEnabled = false;
+
+  private int snapshotStripes = SnapshotInMemoryCache.DEFAULT_STRIPES;
+
+  public boolean isSnapshotEnabled() {
+    return snapshotEnabled;
+  }
+
+  public void setSnapshotEnabled(boolean snapshotEnabled) {
+    this.snapshotEnabled = snapshotEnabled;
+  }
+
+  public int getSnapshotStripes() {
+    return snapshotStripes;
+  }
+
+  public void setSnapshotStripes(int snapshotStripes) {
+    this.snapshotStripes = snapshotStripes;
+  }
+}
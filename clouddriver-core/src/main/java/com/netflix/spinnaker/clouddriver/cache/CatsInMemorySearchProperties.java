@@ -16,6 +16,9 @@
 
 package com.netflix.spinnaker.clouddriver.cache;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties("caching.search.in-memory")
@@ -23,6 +26,12 @@ public class CatsInMemorySearchProperties {
   private boolean enabled = false;
   private int refreshIntervalSeconds = 30;
 
+  /** Types to index for in-memory search; any other type is searched in the backing cache. */
+  private List<String> types = new ArrayList<>(Collections.singletonList("instances"));
+
+  /** Maximum number of types queried concurrently across all searches. */
+  private int queryParallelism = 4;
+
   public boolean isEnabled() {
     return enabled;
   }
@@ -38,4 +47,20 @@ public class CatsInMemorySearchProperties {
   public void setRefreshIntervalSeconds(int refreshIntervalSeconds) {
     this.refreshIntervalSeconds = refreshIntervalSeconds;
   }
+
+  public List<String> getTypes() {
+    return types;
+  }
+
+  public void setTypes(List<String> types) {
+    this.types = types;
+  }
+
+  public int getQueryParallelism() {
+    return queryParallelism;
+  }
+
+  public void setQueryParallelism(int queryParallelism) {
+    this.queryParallelism = queryParallelism;
+  }
 }
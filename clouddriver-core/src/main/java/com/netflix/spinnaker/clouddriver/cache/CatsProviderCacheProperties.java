@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("caching.provider-cache")
+public class CatsProviderCacheProperties {
+  /**
+   * When enabled, provider caches only forward items that changed since an agent last wrote them
+   * to the backing store. Writes made by other clouddriver instances are not observed, so this is
+   * intended for backing stores with a single writer per agent.
+   */
+  private boolean changeDetectionEnabled = false;
+
+  /** How often every agent re-sends all of its items regardless of detected changes. */
+  private long fullWriteIntervalSeconds = 900;
+
+  public boolean isChangeDetectionEnabled() {
+    return changeDetectionEnabled;
+  }
+
+  public void setChangeDetectionEnabled(boolean changeDetectionEnabled) {
+    this.changeDetectionEnabled = changeDetectionEnabled;
+  }
+
+  public long getFullWriteIntervalSeconds() {
+    return fullWriteIntervalSeconds;
+  }
+
+  public void setFullWriteIntervalSeconds(long fullWriteIntervalSeconds) {
+    this.fullWriteIntervalSeconds = fullWriteIntervalSeconds;
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import com.google.common.collect.Iterators;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import lombok.Value;
+
+/**
+ * An in-memory substring index over cache identifiers, maintained per type.
+ *
+ * <p>Each type is held as an immutable snapshot of its identifiers sorted by their lowercased
+ * search key (the identifier from its first ':' onwards). Refreshing a type applies only the
+ * difference between the indexed and the current identifiers, and does nothing when they are the
+ * same. A type is only considered indexed once a refresh found identifiers for it.
+ *
+ * <p>Searches return matches already ranked by the position of the term within the search key and
+ * then by search key (see {@link #ranking}), which is the order {@link CatsSearchProvider}
+ * presents results in.
+ */
+public class CatsSearchIndex {
+  private static final TypeIndex EMPTY =
+      new TypeIndex(new String[0], new String[0], Collections.emptySet());
+
+  private final Map<String, TypeIndex> types = new ConcurrentHashMap<>();
+
+  public boolean isIndexed(String type) {
+    return types.getOrDefault(type, EMPTY).keys.length > 0;
+  }
+
+  public int size(String type) {
+    return types.getOrDefault(type, EMPTY).keys.length;
+  }
+
+  /** @return the indexed identifiers of {@code type} */
+  public Collection<String> getIdentifiers(String type) {
+    return Collections.unmodifiableList(Arrays.asList(types.getOrDefault(type, EMPTY).keys));
+  }
+
+  /**
+   * Brings the index for {@code type} in line with {@code identifiers}.
+   *
+   * @param accept evaluated only for identifiers not seen by a previous refresh
+   */
+  public Refresh refresh(String type, Collection<String> identifiers, Predicate<String> accept) {
+    TypeIndex existing = types.getOrDefault(type, EMPTY);
+    Set<String> current =
+        identifiers instanceof Set ? (Set<String>) identifiers : new HashSet<>(identifiers);
+    if (existing.isSnapshotOf(current)) {
+      return new Refresh(0, 0, existing.keys.length);
+    }
+
+    List<Entry> added = new ArrayList<>();
+    Set<String> rejected = new HashSet<>();
+    for (String key : current) {
+      if (existing.indexed.contains(key)) {
+        continue;
+      }
+      if (existing.rejected.contains(key) || !accept.test(key)) {
+        rejected.add(key);
+      } else {
+        added.add(new Entry(key, searchKey(key)));
+      }
+    }
+
+    // retained entries are already in order, so only the additions need sorting, and the existing
+    // arrays are merged with them without allocating an entry per retained identifier
+    added.sort(Entry.ORDER);
+    boolean[] retained = new boolean[existing.keys.length];
+    int removed = 0;
+    for (int i = 0; i < existing.keys.length; i++) {
+      retained[i] = current.contains(existing.keys[i]);
+      if (!retained[i]) {
+        removed++;
+      }
+    }
+    String[] keys = new String[existing.keys.length - removed + added.size()];
+    String[] searchKeys = new String[keys.length];
+    int r = 0;
+    int a = 0;
+    for (int i = 0; i < keys.length; i++) {
+      while (r < existing.keys.length && !retained[r]) {
+        r++;
+      }
+      if (a >= added.size()
+          || (r < existing.keys.length
+              && existing.searchKeys[r].compareTo(added.get(a).searchKey) <= 0)) {
+        keys[i] = existing.keys[r];
+        searchKeys[i] = existing.searchKeys[r++];
+      } else {
+        Entry next = added.get(a++);
+        keys[i] = next.key;
+        searchKeys[i] = next.searchKey;
+      }
+    }
+
+    types.put(type, new TypeIndex(keys, searchKeys, rejected));
+    return new Refresh(added.size(), removed, keys.length);
+  }
+
+  /**
+   * @param term a lowercased search term
+   * @return the identifiers of {@code type} containing {@code term}, in {@link #ranking} order
+   */
+  public List<String> search(String type, String term) {
+    return types.getOrDefault(type, EMPTY).search(term);
+  }
+
+  /**
+   * Orders identifiers by the position of {@code term} within their search key and then by search
+   * key.
+   *
+   * @param term a lowercased search term
+   */
+  public static Comparator<String> ranking(String term) {
+    return Comparator.<String>comparingInt(key -> position(searchKey(key), term))
+        .thenComparing(CatsSearchIndex::searchKey);
+  }
+
+  /**
+   * Lazily merges identifiers already in {@link #ranking} order, e.g. the results of searching
+   * several types.
+   */
+  public static Iterator<String> merge(
+      Collection<? extends Iterator<String>> ranked, String term) {
+    return Iterators.mergeSorted(ranked, ranking(term));
+  }
+
+  /** @return the position of {@code term} after the type in {@code searchKey}, or -1 */
+  private static int position(String searchKey, String term) {
+    // the term is matched after the type, as with SearchableProvider.buildSearchTerm
+    int typeEnd = searchKey.indexOf(':', 1);
+    return searchKey.indexOf(term, typeEnd == -1 ? 0 : typeEnd + 1);
+  }
+
+  static String searchKey(String key) {
+    return key.substring(Math.max(0, key.indexOf(':'))).toLowerCase(Locale.ROOT);
+  }
+
+  @Value
+  public static class Refresh {
+    int added;
+    int removed;
+    int size;
+  }
+
+  @Value
+  private static class Entry {
+    static final Comparator<Entry> ORDER = Comparator.comparing(Entry::getSearchKey);
+
+    String key;
+    String searchKey;
+  }
+
+  private static class TypeIndex {
+    private final String[] keys;
+    private final String[] searchKeys;
+    private final Set<String> indexed;
+    private final Set<String> rejected;
+
+    TypeIndex(String[] keys, String[] searchKeys, Set<String> rejected) {
+      this.keys = keys;
+      this.searchKeys = searchKeys;
+      this.indexed = new HashSet<>(Arrays.asList(keys));
+      this.rejected = rejected;
+    }
+
+    /** @return whether {@code identifiers} are exactly those this index was built from */
+    boolean isSnapshotOf(Set<String> identifiers) {
+      if (identifiers.size() != indexed.size() + rejected.size()) {
+        return false;
+      }
+      for (String key : identifiers) {
+        if (!indexed.contains(key) && !rejected.contains(key)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Matches are found in search key order and then bucketed by match position (a stable counting
+     * sort), yielding ranked results without comparing matches against each other.
+     */
+    List<String> search(String term) {
+      int[] matchIndexes = new int[16];
+      int[] positions = new int[16];
+      int count = 0;
+      int maxPosition = 0;
+
+      for (int i = 0; i < keys.length; i++) {
+        int position = position(searchKeys[i], term);
+        if (position == -1) {
+          continue;
+        }
+        if (count == matchIndexes.length) {
+          matchIndexes = Arrays.copyOf(matchIndexes, count * 2);
+          positions = Arrays.copyOf(positions, count * 2);
+        }
+        matchIndexes[count] = i;
+        positions[count] = position;
+        maxPosition = Math.max(maxPosition, position);
+        count++;
+      }
+
+      int[] offsets = new int[maxPosition + 2];
+      for (int i = 0; i < count; i++) {
+        offsets[positions[i] + 1]++;
+      }
+      for (int i = 1; i < offsets.length; i++) {
+        offsets[i] += offsets[i - 1];
+      }
+      String[] ranked = new String[count];
+      for (int i = 0; i < count; i++) {
+        ranked[offsets[positions[i]]++] = keys[matchIndexes[i]];
+      }
+      return Arrays.asList(ranked);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.spinnaker.cats.cache.Cache;
+import com.netflix.spinnaker.cats.cache.CompositeCache;
+import com.netflix.spinnaker.cats.cache.CompositeCacheMetrics;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Creates the {@link CompositeCache} view over all provider caches.
+ *
+ * <p>Owns the executor used for parallel reads, which is shut down when the factory is closed (by
+ * Spring, when the factory is a bean).
+ */
+public class CompositeCacheFactory
+    implements Function<Collection<? extends Cache>, Cache>, AutoCloseable {
+  private final CatsCompositeCacheProperties properties;
+  private final CompositeCacheMetrics metrics;
+  private final ExecutorService executor;
+
+  public CompositeCacheFactory(
+      CatsCompositeCacheProperties properties, CompositeCacheMetrics metrics) {
+    this.properties = properties;
+    this.metrics = metrics;
+    this.executor =
+        properties.isParallelReadsEnabled()
+            ? Executors.newFixedThreadPool(
+                properties.getParallelism(),
+                new ThreadFactoryBuilder()
+                    .setNameFormat(CompositeCache.class.getSimpleName() + "-%d")
+                    .setDaemon(true)
+                    .build())
+            : null;
+  }
+
+  @Override
+  public Cache apply(Collection<? extends Cache> caches) {
+    if (executor == null) {
+      return new CompositeCache(caches);
+    }
+    return new CompositeCache(caches, executor, properties.getDelegateTimeoutMillis(), metrics);
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spinnaker.cats.provider.CacheResultChangeDetector;
+
+public class SpectatorCacheResultChangeMetrics implements CacheResultChangeDetector.Metrics {
+  private final Registry registry;
+  private final Id itemsId;
+  private final Id changedId;
+
+  public SpectatorCacheResultChangeMetrics(Registry registry) {
+    this.registry = registry;
+    this.itemsId = registry.createId("cats.providerCache.changeDetection.items");
+    this.changedId = registry.createId("cats.providerCache.changeDetection.changed");
+  }
+
+  @Override
+  public void detected(String agent, String type, int items, int changed, boolean fullWrite) {
+    String full = Boolean.toString(fullWrite);
+    registry.counter(itemsId.withTag("type", type).withTag("fullWrite", full)).increment(items);
+    registry.counter(changedId.withTag("type", type).withTag("fullWrite", full)).increment(changed);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spinnaker.cats.cache.CompositeCacheMetrics;
+import java.util.concurrent.TimeUnit;
+
+public class SpectatorCompositeCacheMetrics implements CompositeCacheMetrics {
+  private final Registry registry;
+  private final Id readId;
+  private final Id timeoutId;
+
+  public SpectatorCompositeCacheMetrics(Registry registry) {
+    this.registry = registry;
+    this.readId = registry.createId("cats.compositeCache.delegateRead");
+    this.timeoutId = registry.createId("cats.compositeCache.delegateTimeouts");
+  }
+
+  @Override
+  public void delegateRead(String operation, String type, long durationNanos, boolean success) {
+    registry
+        .timer(
+            readId
+                .withTag("operation", operation)
+                .withTag("type", type)
+                .withTag("success", Boolean.toString(success)))
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void delegateTimeout(String operation, String type) {
+    registry
+        .counter(timeoutId.withTag("operation", operation).withTag("type", type))
+        .increment();
+  }
+}
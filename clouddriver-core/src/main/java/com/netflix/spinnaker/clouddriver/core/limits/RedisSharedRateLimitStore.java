@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.core.limits;
+
+import static java.util.Objects.requireNonNull;
+
+import com.netflix.spinnaker.kork.jedis.RedisClientDelegate;
+import java.time.Clock;
+import java.util.List;
+
+/** A {@link SharedRateLimitStore} keeping each budget in a Redis hash updated by a script. */
+public class RedisSharedRateLimitStore implements SharedRateLimitStore {
+  private static final String KEY_PREFIX = "sharedRateLimit:";
+  private static final long EXPIRY_MILLIS = 60_000;
+
+  private static final String ACQUIRE_PERMITS =
+      "local bucket = redis.call('hmget', KEYS[1], 'tokens', 'updated') "
+          + "local rate = tonumber(ARGV[1]) "
+          + "local capacity = math.max(rate, 1) "
+          + "local now = tonumber(ARGV[3]) "
+          + "local tokens = tonumber(bucket[1]) or capacity "
+          + "local updated = tonumber(bucket[2]) or now "
+          + "if now > updated then "
+          + "tokens = math.min(capacity, tokens + (now - updated) * rate / 1000) "
+          + "updated = now "
+          + "end "
+          + "local granted = math.min(tonumber(ARGV[2]), math.floor(tokens)) "
+          + "redis.call('hmset', KEYS[1], 'tokens', tostring(tokens - granted), "
+          + "'updated', tostring(updated)) "
+          + "redis.call('pexpire', KEYS[1], ARGV[4]) "
+          + "return granted";
+
+  private final RedisClientDelegate redisClientDelegate;
+  private final Clock clock;
+
+  public RedisSharedRateLimitStore(RedisClientDelegate redisClientDelegate, Clock clock) {
+    this.redisClientDelegate = requireNonNull(redisClientDelegate);
+    this.clock = requireNonNull(clock);
+  }
+
+  @Override
+  public int acquire(String budget, int permits, double permitsPerSecond) {
+    Object granted =
+        redisClientDelegate.withScriptingClient(
+            client ->
+                client.eval(
+                    ACQUIRE_PERMITS,
+                    List.of(KEY_PREFIX + budget),
+                    List.of(
+                        Double.toString(permitsPerSecond),
+                        Integer.toString(permits),
+                        Long.toString(clock.millis()),
+                        Long.toString(EXPIRY_MILLIS))));
+    return ((Long) granted).intValue();
+  }
+}
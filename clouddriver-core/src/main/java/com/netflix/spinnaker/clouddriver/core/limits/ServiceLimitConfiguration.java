@@ -25,6 +25,10 @@ public class ServiceLimitConfiguration {
   public static final String POLL_INTERVAL_MILLIS = "agentPollIntervalMs";
   public static final String POLL_TIMEOUT_MILLIS = "agentPollTimeoutMs";
   public static final String API_RATE_LIMIT = "rateLimit";
+  public static final String API_RATE_LIMIT_ADAPTIVE = "adaptiveRateLimit";
+  public static final String API_RATE_LIMIT_MIN = "minRateLimit";
+  public static final String API_RATE_LIMIT_MAX = "maxRateLimit";
+  public static final String API_SHARED_RATE_LIMIT = "sharedRateLimit";
 
   private final ServiceLimits defaults;
   private final Map<String, ServiceLimits> cloudProviderOverrides;
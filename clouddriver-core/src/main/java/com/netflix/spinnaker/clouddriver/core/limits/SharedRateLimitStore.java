@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.core.limits;
+
+/**
+ * Hands out permits from rate limit budgets that are shared by every clouddriver instance.
+ *
+ * <p>Each budget is a token bucket refilled at {@code permitsPerSecond} and holding at most one
+ * second worth of permits (and never less than one permit).
+ */
+public interface SharedRateLimitStore {
+
+  /**
+   * Takes up to {@code permits} permits from {@code budget} without waiting.
+   *
+   * @return the number of permits granted, zero if the budget is exhausted
+   */
+  int acquire(String budget, int permits, double permitsPerSecond);
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache
+
+import spock.lang.Specification
+import spock.lang.Subject
+
+import java.util.function.Predicate
+
+class CatsSearchIndexSpec extends Specification {
+
+  @Subject
+  def index = new CatsSearchIndex()
+
+  def acceptAll = { true } as Predicate<String>
+
+  def "should only evaluate identifiers added since the previous refresh"() {
+    given:
+    def accepted = []
+    def accept = { String key -> accepted << key; true } as Predicate<String>
+
+    when:
+    def first = index.refresh("instances", ["aws:instances:prod:I-1", "aws:instances:prod:I-2"], accept)
+
+    then:
+    first.added == 2
+    first.removed == 0
+    accepted == ["aws:instances:prod:I-1", "aws:instances:prod:I-2"] || accepted == ["aws:instances:prod:I-2", "aws:instances:prod:I-1"]
+
+    when:
+    accepted.clear()
+    def second = index.refresh("instances", ["aws:instances:prod:I-2", "aws:instances:prod:I-3"], accept)
+
+    then:
+    second.added == 1
+    second.removed == 1
+    second.size == 2
+    accepted == ["aws:instances:prod:I-3"]
+    index.getIdentifiers("instances") == ["aws:instances:prod:I-2", "aws:instances:prod:I-3"]
+  }
+
+  def "should keep search key order when additions and removals interleave"() {
+    given:
+    index.refresh("instances", ["aws:instances:prod:i-2", "aws:instances:prod:i-4", "aws:instances:prod:i-6"], acceptAll)
+
+    when:
+    def refresh = index.refresh("instances", [
+      "aws:instances:prod:i-1", "aws:instances:prod:i-2", "aws:instances:prod:i-5", "aws:instances:prod:i-6", "aws:instances:prod:i-7"
+    ], acceptAll)
+
+    then:
+    refresh.added == 3
+    refresh.removed == 1
+    index.getIdentifiers("instances") == [
+      "aws:instances:prod:i-1", "aws:instances:prod:i-2", "aws:instances:prod:i-5", "aws:instances:prod:i-6", "aws:instances:prod:i-7"
+    ]
+    index.search("instances", "i-5") == ["aws:instances:prod:i-5"]
+  }
+
+  def "should do nothing when identifiers are unchanged"() {
+    given:
+    def accepted = []
+    def accept = { String key -> accepted << key; !key.contains("invalid") } as Predicate<String>
+    index.refresh("instances", ["aws:instances:prod:I-1", "invalid"] as Set, accept)
+    accepted.clear()
+
+    when:
+    def refresh = index.refresh("instances", ["invalid", "aws:instances:prod:I-1"] as Set, accept)
+
+    then:
+    refresh.added == 0
+    refresh.removed == 0
+    refresh.size == 1
+    accepted.isEmpty()
+  }
+
+  def "should not consider a type without identifiers indexed"() {
+    when:
+    index.refresh("instances", [], acceptAll)
+
+    then:
+    !index.isIndexed("instances")
+    !index.isIndexed("clusters")
+
+    when:
+    index.refresh("instances", ["aws:instances:prod:I-1"], acceptAll)
+
+    then:
+    index.isIndexed("instances")
+
+    when:
+    index.refresh("instances", [], acceptAll)
+
+    then:
+    !index.isIndexed("instances")
+  }
+
+  def "should not index rejected identifiers"() {
+    when:
+    index.refresh("instances", ["aws:instances:prod:I-1", "invalid"], { it.startsWith("aws:") } as Predicate<String>)
+
+    then:
+    index.isIndexed("instances")
+    index.getIdentifiers("instances") == ["aws:instances:prod:I-1"]
+  }
+
+  def "should rank matches by position of the term and then by key"() {
+    given:
+    index.refresh("instances", ["aws:instances:prod:us-west-2:i-foo", "aws:instances:test:us-west-2:i-foo"], acceptAll)
+    index.refresh("clusters", ["aws:clusters:foo:prod:foo-main", "aws:clusters:bar:prod:bar-foo"], acceptAll)
+
+    expect:
+    index.search("instances", "foo") == ["aws:instances:prod:us-west-2:i-foo", "aws:instances:test:us-west-2:i-foo"]
+    CatsSearchIndex.merge([index.search("instances", "foo").iterator(), index.search("clusters", "foo").iterator()], "foo").toList() == [
+      "aws:clusters:foo:prod:foo-main",
+      "aws:clusters:bar:prod:bar-foo",
+      "aws:instances:prod:us-west-2:i-foo",
+      "aws:instances:test:us-west-2:i-foo"
+    ]
+  }
+
+  def "should match case-insensitively and return original identifiers"() {
+    given:
+    index.refresh("instances", ["aws:instances:prod:us-west-2:I-1234", "aws:instances:prod:us-west-2:I-5678"], acceptAll)
+
+    expect:
+    index.search("instances", "i-12") == ["aws:instances:prod:us-west-2:I-1234"]
+    index.search("instances", "instances") == []
+  }
+
+  def "should rank unindexed identifiers consistently with the index"() {
+    given:
+    def identifiers = ["aws:instances:test:i-foo", "aws:instances:prod:i-foo", "aws:instances:foo:i-1"]
+    index.refresh("instances", identifiers, acceptAll)
+
+    expect:
+    identifiers.sort(false, CatsSearchIndex.ranking("foo")) == index.search("instances", "foo")
+  }
+}
@@ -20,6 +20,7 @@ import com.netflix.spinnaker.cats.agent.AgentDataType
 import com.netflix.spinnaker.cats.agent.CachingAgent
 import com.netflix.spinnaker.cats.provider.ProviderCache
 import com.netflix.spinnaker.cats.provider.ProviderRegistry
+import com.netflix.spinnaker.fiat.shared.FiatPermissionEvaluator
 import spock.lang.Shared
 import spock.lang.Specification;
 
@@ -34,11 +35,13 @@ class CatsSearchProviderSpec extends Specification {
   def providers = [
     Stub(SearchableProvider) {
       supportsSearch('instances', _) >> true
+      getDefaultCaches() >> (["instances"] as Set)
       getAgents() >> [ instanceAgent ]
       parseKey(_) >> { String k -> return null }
     },
     Stub(SearchableProvider) {
       supportsSearch('instances', _) >> true
+      getDefaultCaches() >> (["instances"] as Set)
       getAgents() >> [ instanceAgent ]
       parseKey(_) >> { String k -> return ["originalKey": k] }
     }
@@ -70,9 +73,47 @@ class CatsSearchProviderSpec extends Specification {
     catsSearchProvider.run()
 
     then:
-    catsSearchProvider.cachedIdentifiersByType.get() == [
-      "instances": instanceIdentifiers.collect { it.toLowerCase() }
-    ]
+    catsSearchProvider.searchIndex.isIndexed("instances")
+    catsSearchProvider.searchIndex.getIdentifiers("instances") as Set == instanceIdentifiers as Set
+  }
+
+  def "should search indexed identifiers in-memory"() {
+    given:
+    cache.getIdentifiers("instances") >> { return instanceIdentifiers }
+
+    when:
+    catsSearchProvider.run()
+    def resultSet = catsSearchProvider.search("i-1234", 1, 10)
+
+    then:
+    0 * cache.filterIdentifiers(_, _)
+    resultSet.totalMatches == 1
+    resultSet.results*.originalKey == ["aws:instances:prod:us-west-2:I-1234"]
+  }
+
+  def "should stop permission checks once the requested page is filled"() {
+    given:
+    def permissionEvaluator = Mock(FiatPermissionEvaluator)
+    def accountProvider = Stub(SearchableProvider) {
+      supportsSearch('instances', _) >> true
+      getDefaultCaches() >> (["instances"] as Set)
+      parseKey(_) >> { String k -> return ["account": "prod", "originalKey": k] }
+    }
+    def identifiers = (0..<100).collect { String.format("aws:instances:prod:us-west-2:i-%03d", it) }
+    cache.getIdentifiers("instances") >> { return identifiers }
+
+    def searchProvider = new CatsSearchProvider(
+      catsInMemorySearchProperties, cache, [accountProvider], providerRegistry, Optional.of(permissionEvaluator), Optional.empty()
+    )
+
+    when:
+    searchProvider.run()
+    def resultSet = searchProvider.search("i-0", 1, 10)
+
+    then:
+    10 * permissionEvaluator.hasPermission(_, "prod", "ACCOUNT", "READ") >> true
+    resultSet.totalMatches == 100
+    resultSet.results*.originalKey == identifiers[0..9]
   }
 
   def "should handle unparseable instance identifiers"() {
@@ -83,7 +124,7 @@ class CatsSearchProviderSpec extends Specification {
     catsSearchProvider.run()
 
     then:
-    catsSearchProvider.cachedIdentifiersByType.get() == [:]
+    !catsSearchProvider.searchIndex.isIndexed("instances")
 
     when:
     providers.add(
@@ -93,6 +134,33 @@ class CatsSearchProviderSpec extends Specification {
     )
 
     then:
-    catsSearchProvider.cachedIdentifiersByType.get() == [:]
+    !catsSearchProvider.searchIndex.isIndexed("instances")
+  }
+
+  def "should only index configured types"() {
+    given:
+    catsInMemorySearchProperties.types = []
+    def searchProvider = new CatsSearchProvider(catsInMemorySearchProperties, cache, providers, providerRegistry)
+
+    when:
+    searchProvider.run()
+
+    then:
+    0 * cache.getIdentifiers(_)
+    !searchProvider.searchIndex.isIndexed("instances")
   }
+
+  def "should stop its executors on shutdown"() {
+    given:
+    catsInMemorySearchProperties.enabled = true
+    def searchProvider = new CatsSearchProvider(catsInMemorySearchProperties, cache, providers, providerRegistry)
+
+    when:
+    searchProvider.shutdown()
+
+    then:
+    searchProvider.scheduledExecutorService.isShutdown()
+    searchProvider.queryExecutorService.isShutdown()
+  }
+
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.cache
+
+import com.netflix.spinnaker.cats.cache.CompositeCacheMetrics
+import com.netflix.spinnaker.cats.mem.InMemoryCache
+import spock.lang.Specification
+
+class CompositeCacheFactorySpec extends Specification {
+
+  def "should shut down the parallel read executor when closed"() {
+    given:
+    def factory = new CompositeCacheFactory(
+      new CatsCompositeCacheProperties(parallelReadsEnabled: true, parallelism: 2), CompositeCacheMetrics.NOOP
+    )
+    def view = factory.apply([new InMemoryCache(), new InMemoryCache()])
+
+    expect:
+    view.getAll("instances").isEmpty()
+    !factory.executor.isShutdown()
+
+    when:
+    factory.close()
+
+    then:
+    factory.executor.isShutdown()
+  }
+
+  def "should close without an executor when parallel reads are disabled"() {
+    given:
+    def factory = new CompositeCacheFactory(new CatsCompositeCacheProperties(), CompositeCacheMetrics.NOOP)
+
+    when:
+    factory.close()
+
+    then:
+    noExceptionThrown()
+    factory.executor == null
+  }
+}
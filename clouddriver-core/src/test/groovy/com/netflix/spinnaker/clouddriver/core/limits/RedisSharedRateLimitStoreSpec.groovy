@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.clouddriver.core.limits
+
+import com.netflix.spinnaker.kork.jedis.EmbeddedRedis
+import com.netflix.spinnaker.kork.jedis.JedisClientDelegate
+import redis.clients.jedis.JedisPool
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+
+class RedisSharedRateLimitStoreSpec extends Specification {
+  @Shared
+  @AutoCleanup("destroy")
+  EmbeddedRedis embeddedRedis = EmbeddedRedis.embed()
+
+  Instant now = Instant.now()
+  Clock clock = Stub(Clock) {
+    millis() >> { now.toEpochMilli() }
+    getZone() >> ZoneOffset.UTC
+  }
+
+  def store = new RedisSharedRateLimitStore(new JedisClientDelegate(embeddedRedis.pool as JedisPool), clock)
+
+  def setup() {
+    embeddedRedis.pool.resource.withCloseable { it.flushDB() }
+  }
+
+  def "grants at most one second worth of permits"() {
+    expect:
+    store.acquire("budget", 6, 10) == 6
+    store.acquire("budget", 6, 10) == 4
+    store.acquire("budget", 6, 10) == 0
+  }
+
+  def "refills budgets at the configured rate"() {
+    given:
+    store.acquire("budget", 10, 10)
+
+    when:
+    now = now.plus(Duration.ofMillis(500))
+
+    then:
+    store.acquire("budget", 10, 10) == 5
+    store.acquire("other", 10, 10) == 10
+  }
+
+  def "always allows a single permit for slow budgets"() {
+    expect:
+    store.acquire("budget", 5, 0.5) == 1
+    store.acquire("budget", 5, 0.5) == 0
+  }
+}
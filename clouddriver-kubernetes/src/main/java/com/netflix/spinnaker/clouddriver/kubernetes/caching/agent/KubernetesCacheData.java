@@ -24,11 +24,9 @@ import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys.CacheKey;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys.InfrastructureCacheKey;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
 import java.util.*;
-import java.util.stream.Collectors;
-import lombok.Value;
 
 /**
- * A collection of CacheItem entries used when building up the items being cached by the Kubernetes
+ * A collection of cache items used when building up the items being cached by the Kubernetes
  * caching agent. This class supports adding items as well as adding relationships between items.
  *
  * <p>Once all cache items and relationships have been added, calling toCacheData() will return a
@@ -36,9 +34,24 @@ import lombok.Value;
  * operations supported on the class guarantee that the resulting Collection&lt;CacheData&gt; has
  * the following properties: (1) Each CacheData has a unique cache key, (2) all relationships
  * between CacheData items are bidirectional
+ *
+ * <p>As this holds every item an agent caches, along with all their relationships, it is stored
+ * compactly: each distinct cache key is assigned an integer id when first seen, and an item's
+ * attributes, relationships and serialized key are stored at that index. Relationships are held as
+ * arrays of ids, which are only sorted and deduplicated when they fill up and when the CacheData
+ * is built, and each key is serialized once however many items are related to it.
  */
 public class KubernetesCacheData {
-  private final Map<CacheKey, CacheItem> items = new HashMap<>();
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int INITIAL_RELATIONSHIPS = 4;
+
+  private final Map<CacheKey, Integer> ids = new HashMap<>();
+  private final List<CacheKey> keys = new ArrayList<>();
+  // the fields below are indexed by id, and are null until first needed
+  private final List<Map<String, Object>> attributes = new ArrayList<>();
+  private String[] serializedKeys = new String[INITIAL_CAPACITY];
+  private int[][] relationships = new int[INITIAL_CAPACITY][];
+  private int[] relationshipCounts = new int[INITIAL_CAPACITY];
 
   /**
    * Add an item to the cache with specified key and attributes. If there is already an item with
@@ -46,8 +59,7 @@ public class KubernetesCacheData {
    * attributes taking priority).
    */
   public void addItem(CacheKey key, Map<String, Object> attributes) {
-    CacheItem item = items.computeIfAbsent(key, CacheItem::new);
-    item.getAttributes().putAll(attributes);
+    itemAttributes(id(key)).putAll(attributes);
   }
 
   /**
@@ -55,8 +67,10 @@ public class KubernetesCacheData {
    * cache, an entry is created for that item with an empty map of attributes.
    */
   public void addRelationship(CacheKey a, CacheKey b) {
-    items.computeIfAbsent(a, CacheItem::new).getRelationships().add(b);
-    items.computeIfAbsent(b, CacheItem::new).getRelationships().add(a);
+    int idA = id(a);
+    int idB = id(b);
+    addRelationship(idA, idB);
+    addRelationship(idB, idA);
   }
 
   /**
@@ -65,16 +79,23 @@ public class KubernetesCacheData {
    * of attributes
    */
   public void addRelationships(CacheKey a, Set<CacheKey> b) {
-    items.computeIfAbsent(a, CacheItem::new).getRelationships().addAll(b);
-    b.forEach(k -> items.computeIfAbsent(k, CacheItem::new).getRelationships().add(a));
+    int idA = id(a);
+    for (CacheKey key : b) {
+      int idB = id(key);
+      addRelationship(idA, idB);
+      addRelationship(idB, idA);
+    }
   }
 
   /** Return a List of CacheData entries representing the current items in the cache. */
   public List<CacheData> toCacheData() {
-    return items.values().stream()
-        .filter(item -> !item.omitItem())
-        .map(CacheItem::toCacheData)
-        .collect(Collectors.toList());
+    List<CacheData> result = new ArrayList<>(keys.size());
+    for (int id = 0; id < keys.size(); id++) {
+      if (!omitItem(id)) {
+        result.add(toCacheData(id));
+      }
+    }
+    return result;
   }
 
   /**
@@ -82,67 +103,136 @@ public class KubernetesCacheData {
    * item's group.
    */
   public Map<String, Collection<CacheData>> toStratifiedCacheData() {
-    return items.values().stream()
-        .filter(item -> !item.omitItem())
-        .collect(
-            Collectors.groupingBy(
-                item -> item.key.getGroup(),
-                Collectors.mapping(
-                    CacheItem::toCacheData, Collectors.toCollection(ArrayList::new))));
+    Map<String, Collection<CacheData>> result = new HashMap<>();
+    for (int id = 0; id < keys.size(); id++) {
+      if (!omitItem(id)) {
+        result
+            .computeIfAbsent(keys.get(id).getGroup(), g -> new ArrayList<>())
+            .add(toCacheData(id));
+      }
+    }
+    return result;
+  }
+
+  private int id(CacheKey key) {
+    Integer existing = ids.get(key);
+    if (existing != null) {
+      return existing;
+    }
+
+    int id = keys.size();
+    ids.put(key, id);
+    keys.add(key);
+    attributes.add(null);
+    if (id == relationships.length) {
+      int capacity = id * 2;
+      serializedKeys = Arrays.copyOf(serializedKeys, capacity);
+      relationships = Arrays.copyOf(relationships, capacity);
+      relationshipCounts = Arrays.copyOf(relationshipCounts, capacity);
+    }
+    return id;
+  }
+
+  private Map<String, Object> itemAttributes(int id) {
+    Map<String, Object> result = attributes.get(id);
+    if (result == null) {
+      result = new HashMap<>();
+      attributes.set(id, result);
+    }
+    return result;
+  }
+
+  private String serializedKey(int id) {
+    String result = serializedKeys[id];
+    if (result == null) {
+      result = keys.get(id).toString();
+      serializedKeys[id] = result;
+    }
+    return result;
   }
 
   /**
-   * An item being cached by the Kubernetes provider. This corresponds to a CacheData entry, but
-   * stores the information in a format that is more efficient to manipulate as we build up the
-   * cache data.
-   *
-   * <p>In particular:the cache key is stored as a Keys.CacheKey object (rather than serialized) so
-   * we can access properties of the key without re-parsing it and the relationships are stored as a
-   * flat Set&lt;Keys.CacheKey&gt; instead of as a Map&lt;String, Collection&lt;String&gt;&gt; so
-   * that we can efficiently add relationships.
-   *
-   * <p>A CacheItem can be converted to its corresponding CacheData by calling toCacheData()
+   * Adds a one-way relationship. Duplicates are only removed when the item's array is full, and the
+   * array only grows if that leaves it more than half full, so it holds at most twice as many
+   * entries as the item has distinct relationships.
    */
-  @Value
-  private static class CacheItem {
-    private final CacheKey key;
-    private final Map<String, Object> attributes = new HashMap<>();
-    private final Set<CacheKey> relationships = new HashSet<>();
-
-    private Map<String, Collection<String>> groupedRelationships() {
-      Map<String, Collection<String>> groups = new HashMap<>();
-      for (KubernetesKind kind : KubernetesCacheDataConverter.getStickyKinds()) {
-        groups.put(kind.toString(), new HashSet<>());
+  private void addRelationship(int from, int to) {
+    int[] related = relationships[from];
+    int count = relationshipCounts[from];
+    if (related == null) {
+      related = new int[INITIAL_RELATIONSHIPS];
+      relationships[from] = related;
+    } else if (count == related.length) {
+      count = sortAndDeduplicate(related, count);
+      if (count > related.length / 2) {
+        related = Arrays.copyOf(related, related.length * 2);
+        relationships[from] = related;
       }
-      for (CacheKey key : relationships) {
-        groups.computeIfAbsent(key.getGroup(), k -> new HashSet<>()).add(key.toString());
+    }
+    related[count] = to;
+    relationshipCounts[from] = count + 1;
+  }
+
+  /** Sorts the first {@code count} ids, moves the distinct ones to the front and counts them. */
+  private static int sortAndDeduplicate(int[] ids, int count) {
+    if (count < 2) {
+      return count;
+    }
+    Arrays.sort(ids, 0, count);
+    int distinct = 1;
+    for (int i = 1; i < count; i++) {
+      if (ids[i] != ids[distinct - 1]) {
+        ids[distinct++] = ids[i];
       }
-      return groups;
     }
+    return distinct;
+  }
 
-    /**
-     * given that we now have large caching agents that are authoritative for huge chunks of the
-     * cache, it's possible that some resources (like events) still point to deleted resources.
-     * These won't have any attributes, but if we add a cache entry here, the deleted item will
-     * still be cached
-     */
-    public boolean omitItem() {
-      return key instanceof InfrastructureCacheKey && attributes.isEmpty();
+  private Map<String, Collection<String>> groupedRelationships(int id) {
+    Map<String, Collection<String>> groups = new HashMap<>();
+    for (KubernetesKind kind : KubernetesCacheDataConverter.getStickyKinds()) {
+      groups.put(kind.toString(), new HashSet<>());
+    }
+    int[] related = relationships[id];
+    if (related == null) {
+      return groups;
+    }
+    int count = sortAndDeduplicate(related, relationshipCounts[id]);
+    relationshipCounts[id] = count;
+    for (int i = 0; i < count; i++) {
+      groups
+          .computeIfAbsent(keys.get(related[i]).getGroup(), k -> new HashSet<>())
+          .add(serializedKey(related[i]));
     }
+    return groups;
+  }
 
-    /** Convert this CacheItem to its corresponding CacheData object */
-    public CacheData toCacheData() {
-      int ttlSeconds;
-      if (Keys.LogicalKind.isLogicalGroup(key.getGroup())) {
-        // If we are inverting a relationship to create a cache data for either a cluster or an
-        // application we
-        // need to insert attributes to ensure the cache data gets entered into the cache.
-        attributes.putIfAbsent("name", key.getName());
-        ttlSeconds = KubernetesCacheDataConverter.getLogicalTtlSeconds();
-      } else {
-        ttlSeconds = KubernetesCacheDataConverter.getInfrastructureTtlSeconds();
-      }
-      return new DefaultCacheData(key.toString(), ttlSeconds, attributes, groupedRelationships());
+  /**
+   * given that we now have large caching agents that are authoritative for huge chunks of the
+   * cache, it's possible that some resources (like events) still point to deleted resources. These
+   * won't have any attributes, but if we add a cache entry here, the deleted item will still be
+   * cached
+   */
+  private boolean omitItem(int id) {
+    Map<String, Object> itemAttributes = attributes.get(id);
+    return keys.get(id) instanceof InfrastructureCacheKey
+        && (itemAttributes == null || itemAttributes.isEmpty());
+  }
+
+  /** Convert the item with the given id to its corresponding CacheData object */
+  private CacheData toCacheData(int id) {
+    CacheKey key = keys.get(id);
+    int ttlSeconds;
+    if (Keys.LogicalKind.isLogicalGroup(key.getGroup())) {
+      // If we are inverting a relationship to create a cache data for either a cluster or an
+      // application we
+      // need to insert attributes to ensure the cache data gets entered into the cache.
+      itemAttributes(id).putIfAbsent("name", key.getName());
+      ttlSeconds = KubernetesCacheDataConverter.getLogicalTtlSeconds();
+    } else {
+      ttlSeconds = KubernetesCacheDataConverter.getInfrastructureTtlSeconds();
     }
+    return new DefaultCacheData(
+        serializedKey(id), ttlSeconds, attributes.get(id), groupedRelationships(id));
   }
 }
@@ -18,8 +18,11 @@
 package com.netflix.spinnaker.clouddriver.kubernetes.caching.agent;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.cats.agent.AccountAware;
@@ -41,16 +44,25 @@ import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.Kuberne
 import com.netflix.spinnaker.clouddriver.kubernetes.op.job.KubectlJobExecutor;
 import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesCredentials;
 import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesNamedAccountCredentials;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -72,6 +84,8 @@ public abstract class KubernetesCachingAgent
 
   @Getter protected final Long agentInterval;
 
+  @Nullable private final KubernetesResourceWatcher.Subscription resourceWatcher;
+
   protected KubernetesCachingAgent(
       KubernetesNamedAccountCredentials namedAccountCredentials,
       ObjectMapper objectMapper,
@@ -86,6 +100,8 @@ public abstract class KubernetesCachingAgent
     this.agentIndex = agentIndex;
     this.agentCount = agentCount;
     this.agentInterval = agentInterval;
+    this.resourceWatcher =
+        credentials.isCacheUsingWatch() ? KubernetesResourceWatcher.subscribe(credentials) : null;
   }
 
   protected Map<String, Object> defaultIntrospectionDetails() {
@@ -106,16 +122,51 @@ public abstract class KubernetesCachingAgent
   @Nonnull
   private ImmutableList<KubernetesManifest> loadNamespaceScopedResources(
       @Nonnull Iterable<KubernetesKind> kubernetesKinds) {
-    return getNamespaces()
-        // Not using parallelStream. In ForkJoin.commonPool, the number of threads == (CPU cores -
-        // 1). Since we're already running in the AgentExecutionAction thread pool and the number of
-        // threads to compute namespaces is already configurable at account level, this is not
-        // needed and most importantly, avoids contention in the common pool, increasing
-        // performance.
-        .stream()
-        .map(n -> loadResources(kubernetesKinds, Optional.of(n)))
-        .flatMap(Collection::stream)
-        .collect(ImmutableList.toImmutableList());
+    ImmutableList.Builder<KubernetesManifest> result = ImmutableList.builder();
+    forEachNamespace(kubernetesKinds, (namespace, manifests) -> result.addAll(manifests));
+    return result.build();
+  }
+
+  /**
+   * Lists {@code kubernetesKinds} in each of this agent's namespaces, passing each namespace's
+   * resources to {@code onNamespace} on the calling thread, in the order of {@link
+   * #getNamespaces()}.
+   *
+   * <p>By default the namespaces are listed one after the other on the calling thread. Accounts
+   * with more than one {@code cacheNamespaceListingThreads} list up to that many namespaces at a
+   * time, using a pool per account rather than the common fork-join pool, which is sized to the
+   * number of cores and shared with unrelated work. No more namespaces are listed ahead of the one
+   * being handed to {@code onNamespace} than there are threads, so only that many namespaces'
+   * resources are held at once.
+   */
+  private void forEachNamespace(
+      @Nonnull Iterable<KubernetesKind> kubernetesKinds,
+      BiConsumer<String, ImmutableList<KubernetesManifest>> onNamespace) {
+    ImmutableList<String> namespaces = getNamespaces();
+    int threads = credentials.getCacheNamespaceListingThreads();
+    if (threads <= 1 || namespaces.size() <= 1) {
+      for (String namespace : namespaces) {
+        onNamespace.accept(namespace, loadResources(kubernetesKinds, Optional.of(namespace)));
+      }
+      return;
+    }
+
+    ImmutableList<KubernetesKind> kinds = ImmutableList.copyOf(kubernetesKinds);
+    Deque<CompletableFuture<ImmutableList<KubernetesManifest>>> listings = new ArrayDeque<>();
+    int submitted = 0;
+    try {
+      for (String namespace : namespaces) {
+        while (submitted < namespaces.size() && listings.size() < threads) {
+          listings.add(credentials.listAsync(kinds, namespaces.get(submitted++)));
+        }
+        onNamespace.accept(namespace, listings.remove().join());
+      }
+    } catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    } finally {
+      listings.forEach(listing -> listing.cancel(false));
+    }
   }
 
   @Nonnull
@@ -135,42 +186,93 @@ public abstract class KubernetesCachingAgent
                 k -> credentials.getKindProperties(k).getResourceScope(), Function.identity()));
   }
 
+  @Nonnull
+  private ImmutableList<KubernetesManifest> listPrimaryResources(
+      ImmutableSetMultimap<ResourceScope, KubernetesKind> kindsByScope) {
+    return Stream.concat(
+            loadClusterScopedResources(
+                    kindsByScope.get(KubernetesKindProperties.ResourceScope.CLUSTER))
+                .stream(),
+            loadNamespaceScopedResources(
+                    kindsByScope.get(KubernetesKindProperties.ResourceScope.NAMESPACE))
+                .stream())
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  /**
+   * Returns the primary resources as kept up to date by the resource watcher. Each kind is watched
+   * across every namespace by a watcher shared by all of the account's agents, and filtered down
+   * to this agent's namespaces, while the full lists the watcher needs are made per namespace as
+   * usual.
+   */
+  @Nonnull
+  private ImmutableList<KubernetesManifest> watchPrimaryResources(
+      ImmutableSetMultimap<ResourceScope, KubernetesKind> kindsByScope) {
+    ImmutableSet<KubernetesKind> clusterScopedKinds =
+        handleClusterScopedResources()
+            ? kindsByScope.get(KubernetesKindProperties.ResourceScope.CLUSTER)
+            : ImmutableSet.of();
+    ImmutableSet<KubernetesKind> kinds =
+        ImmutableSet.<KubernetesKind>builder()
+            .addAll(clusterScopedKinds)
+            .addAll(kindsByScope.get(KubernetesKindProperties.ResourceScope.NAMESPACE))
+            .build();
+    ImmutableSet<String> namespaces = ImmutableSet.copyOf(getNamespaces());
+
+    return resourceWatcher.getResources(
+        kinds,
+        m -> clusterScopedKinds.contains(m.getKind()) || namespaces.contains(m.getNamespace()),
+        () -> listPrimaryResources(kindsByScope));
+  }
+
   protected Map<KubernetesKind, List<KubernetesManifest>> loadPrimaryResourceList() {
     ImmutableSetMultimap<ResourceScope, KubernetesKind> kindsByScope = primaryKindsByScope();
 
     Map<KubernetesKind, List<KubernetesManifest>> result =
-        Stream.concat(
-                loadClusterScopedResources(
-                    kindsByScope.get(KubernetesKindProperties.ResourceScope.CLUSTER))
-                    .stream(),
-                loadNamespaceScopedResources(
-                    kindsByScope.get(KubernetesKindProperties.ResourceScope.NAMESPACE))
-                    .stream())
-            .collect(Collectors.groupingBy(KubernetesManifest::getKind));
+        (resourceWatcher != null
+                ? watchPrimaryResources(kindsByScope)
+                : listPrimaryResources(kindsByScope))
+            .stream().collect(Collectors.groupingBy(KubernetesManifest::getKind));
+    applyCachingPolicies(result, maxEntriesByKind());
+    return result;
+  }
 
+  /** Returns the most entries of each kind the account's caching policies allow this agent. */
+  private Map<KubernetesKind, Integer> maxEntriesByKind() {
+    Map<KubernetesKind, Integer> result = new HashMap<>();
     for (KubernetesCachingPolicy policy : credentials.getCachingPolicies()) {
-      KubernetesKind policyKind = KubernetesKind.fromString(policy.getKubernetesKind());
-      if (!result.containsKey(policyKind)) {
-        continue;
-      }
+      result.merge(
+          KubernetesKind.fromString(policy.getKubernetesKind()),
+          policy.getMaxEntriesPerAgent(),
+          Math::min);
+    }
+    return result;
+  }
 
-      List<KubernetesManifest> entries = result.get(policyKind);
+  /**
+   * Prunes {@code resources} down to the entries the caching policies still allow, deducting the
+   * entries that are kept from {@code remainingEntries} so that the limits can be applied across
+   * several batches of resources.
+   */
+  private void applyCachingPolicies(
+      Map<KubernetesKind, List<KubernetesManifest>> resources,
+      Map<KubernetesKind, Integer> remainingEntries) {
+    for (Map.Entry<KubernetesKind, Integer> remaining : remainingEntries.entrySet()) {
+      KubernetesKind kind = remaining.getKey();
+      List<KubernetesManifest> entries = resources.get(kind);
       if (entries == null) {
         continue;
       }
 
-      if (entries.size() > policy.getMaxEntriesPerAgent()) {
+      int allowed = Math.max(remaining.getValue(), 0);
+      if (entries.size() > allowed) {
         log.warn(
-            "{}: Pruning {} entries from kind {}",
-            getAgentType(),
-            entries.size() - policy.getMaxEntriesPerAgent(),
-            policyKind);
-        entries = entries.subList(0, policy.getMaxEntriesPerAgent());
-        result.put(policyKind, entries);
+            "{}: Pruning {} entries from kind {}", getAgentType(), entries.size() - allowed, kind);
+        entries = entries.subList(0, allowed);
+        resources.put(kind, entries);
       }
+      remaining.setValue(allowed - entries.size());
     }
-
-    return result;
   }
 
   /**
@@ -195,7 +297,36 @@ public abstract class KubernetesCachingAgent
     long start = System.currentTimeMillis();
     Map<KubernetesKind, List<KubernetesManifest>> primaryResourceList = loadPrimaryResourceList();
     details.put("timeSpentInKubectlMs", System.currentTimeMillis() - start);
-    return buildCacheResult(primaryResourceList);
+    return buildCacheResultByNamespace(primaryResourceList);
+  }
+
+  /**
+   * Converts {@code resources} one namespace at a time, with the cluster-scoped resources as a
+   * batch of their own. Relationships are only ever drawn between resources in the same namespace,
+   * so the relationships of each batch are dropped before the next one is converted rather than
+   * being built for every namespace at once.
+   */
+  private CacheResult buildCacheResultByNamespace(
+      Map<KubernetesKind, List<KubernetesManifest>> resources) {
+    Map<String, Map<KubernetesKind, List<KubernetesManifest>>> byNamespace = new LinkedHashMap<>();
+    resources.forEach(
+        (kind, manifests) ->
+            manifests.forEach(
+                m ->
+                    byNamespace
+                        .computeIfAbsent(
+                            Strings.nullToEmpty(m.getNamespace()), n -> new LinkedHashMap<>())
+                        .computeIfAbsent(kind, k -> new ArrayList<>())
+                        .add(m)));
+
+    KubernetesCacheData kubernetesCacheData = new KubernetesCacheData();
+    Iterator<Map<KubernetesKind, List<KubernetesManifest>>> batches =
+        byNamespace.values().iterator();
+    while (batches.hasNext()) {
+      addToCacheData(kubernetesCacheData, batches.next());
+      batches.remove();
+    }
+    return toCacheResult(kubernetesCacheData);
   }
 
   protected CacheResult buildCacheResult(KubernetesManifest resource) {
@@ -211,6 +342,13 @@ public abstract class KubernetesCachingAgent
 
   protected CacheResult buildCacheResult(Map<KubernetesKind, List<KubernetesManifest>> resources) {
     KubernetesCacheData kubernetesCacheData = new KubernetesCacheData();
+    addToCacheData(kubernetesCacheData, resources);
+    return toCacheResult(kubernetesCacheData);
+  }
+
+  private void addToCacheData(
+      KubernetesCacheData kubernetesCacheData,
+      Map<KubernetesKind, List<KubernetesManifest>> resources) {
     Map<KubernetesManifest, List<KubernetesManifest>> relationships =
         loadSecondaryResourceRelationships(resources);
 
@@ -239,7 +377,9 @@ public abstract class KubernetesCachingAgent
                 log.warn("{}: Failure converting {}", getAgentType(), rs, e);
               }
             });
+  }
 
+  private CacheResult toCacheResult(KubernetesCacheData kubernetesCacheData) {
     Map<String, Collection<CacheData>> entries = kubernetesCacheData.toStratifiedCacheData();
     KubernetesCacheDataConverter.logStratifiedCacheData(getAgentType(), entries);
 
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.caching.agent;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesCoordinates;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesManifest;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesWatchEvent;
+import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesCredentials;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps in-memory copies of the resources an account's caching agents are responsible for up to
+ * date by watching them, informer-style.
+ *
+ * <p>A single watcher is shared by all of an account's caching agents (see {@link #subscribe}). It
+ * runs one long-running watch per kind across every namespace, parsing each reported change once
+ * and passing it to each agent's {@link Subscription}, which keeps the resources its agent accepts.
+ *
+ * <p>A subscription lists its resources in full when first used, when the kinds it is asked for
+ * change, and after a watch of one of its kinds ends for good. Watches are started before listing,
+ * and changes reported while the list is in progress are replayed on top of it, keeping the newer
+ * of the listed and watched version of each resource. Watches made through the API client start
+ * from the resource version current before the list, and are resumed from the last version they
+ * reported when they time out, so no change is missed and nothing needs to be listed again. Watches
+ * made through kubectl can't be resumed: they end after the same timeout, after which their kind is
+ * listed again, which also picks up changes made in the moment before such a watch was
+ * established.
+ *
+ * <p>Watches are only (re)started or resumed while the watcher is in use, so a watcher that is no
+ * longer used stops watching when its current watches end.
+ */
+class KubernetesResourceWatcher {
+  private static final Logger log = LoggerFactory.getLogger(KubernetesResourceWatcher.class);
+
+  private static final Executor DEFAULT_EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setNameFormat(KubernetesResourceWatcher.class.getSimpleName() + "-%d")
+              .setDaemon(true)
+              .build());
+
+  /**
+   * The watcher of each account, held for as long as an agent subscribes to it. Credentials are
+   * compared by identity, so credentials that are replaced get a watcher of their own.
+   */
+  private static final LoadingCache<KubernetesCredentials, KubernetesResourceWatcher> WATCHERS =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .weakValues()
+          .build(CacheLoader.from(KubernetesResourceWatcher::forCredentials));
+
+  /** Watches a kind across every namespace. */
+  interface Watch {
+    /**
+     * @return the version to start watching {@code kind} from, or null if watches can only report
+     *     changes made after they start
+     */
+    @Nullable
+    String currentVersion(KubernetesKind kind);
+
+    /** Passes each reported change to {@code onEvent}, until the watch ends. */
+    void run(
+        KubernetesKind kind,
+        @Nullable String resourceVersion,
+        Consumer<KubernetesWatchEvent> onEvent);
+  }
+
+  private final String name;
+  private final Watch watch;
+  private final Executor executor;
+
+  private final Object lock = new Object();
+  // the fields below, and the state of each subscription, are guarded by lock
+  private final Map<KubernetesKind, WatchState> watches = new HashMap<>();
+  private final Set<Subscription> subscriptions =
+      Collections.newSetFromMap(new WeakHashMap<>());
+
+  KubernetesResourceWatcher(String name, Watch watch) {
+    this(name, watch, DEFAULT_EXECUTOR);
+  }
+
+  KubernetesResourceWatcher(String name, Watch watch, Executor executor) {
+    this.name = name;
+    this.watch = watch;
+    this.executor = executor;
+  }
+
+  /** Subscribes to the watcher shared by the caching agents of {@code credentials}' account. */
+  static Subscription subscribe(KubernetesCredentials credentials) {
+    return WATCHERS.getUnchecked(credentials).subscribe();
+  }
+
+  private static KubernetesResourceWatcher forCredentials(KubernetesCredentials credentials) {
+    Duration timeout = Duration.ofSeconds(credentials.getCacheWatchResyncSeconds());
+    return new KubernetesResourceWatcher(
+        credentials.getAccountName(),
+        new Watch() {
+          @Override
+          public String currentVersion(KubernetesKind kind) {
+            return credentials.currentResourceVersion(kind);
+          }
+
+          @Override
+          public void run(
+              KubernetesKind kind,
+              @Nullable String resourceVersion,
+              Consumer<KubernetesWatchEvent> onEvent) {
+            credentials.watch(kind, null, resourceVersion, timeout, onEvent);
+          }
+        });
+  }
+
+  Subscription subscribe() {
+    Subscription subscription = new Subscription();
+    synchronized (lock) {
+      subscriptions.add(subscription);
+    }
+    return subscription;
+  }
+
+  private static final class WatchState {
+    private final CompletableFuture<Void> started = new CompletableFuture<>();
+    // the version to resume from, or null if the watch can't be resumed
+    @Nullable private String resourceVersion;
+    // whether resources of the kind have been asked for since the watch was last (re)started
+    private boolean used = true;
+  }
+
+  /**
+   * Claims the watches of {@code kinds} that aren't running for the caller to start, marking the
+   * others as in use.
+   */
+  private List<KubernetesKind> claimWatches(Set<KubernetesKind> kinds) {
+    List<KubernetesKind> toStart = new ArrayList<>();
+    for (KubernetesKind kind : kinds) {
+      WatchState state = watches.get(kind);
+      if (state == null) {
+        watches.put(kind, new WatchState());
+        toStart.add(kind);
+      } else {
+        state.used = true;
+      }
+    }
+    return toStart;
+  }
+
+  private void startWatch(KubernetesKind kind) {
+    WatchState state;
+    synchronized (lock) {
+      state = watches.get(kind);
+    }
+    try {
+      String resourceVersion = watch.currentVersion(kind);
+      synchronized (lock) {
+        state.resourceVersion = resourceVersion;
+      }
+      executor.execute(() -> runWatch(kind, state));
+      state.started.complete(null);
+    } catch (RuntimeException e) {
+      // reported to each subscription waiting for the watch to start
+      synchronized (lock) {
+        watches.remove(kind, state);
+      }
+      state.started.completeExceptionally(e);
+    }
+  }
+
+  /** Waits until the watches of {@code kinds} have started, failing if any of them couldn't. */
+  private void awaitWatches(Set<KubernetesKind> kinds) {
+    List<CompletableFuture<Void>> starting = new ArrayList<>();
+    synchronized (lock) {
+      kinds.stream()
+          .map(watches::get)
+          .filter(Objects::nonNull)
+          .forEach(state -> starting.add(state.started));
+    }
+    try {
+      starting.forEach(CompletableFuture::join);
+    } catch (CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  private void runWatch(KubernetesKind kind, WatchState state) {
+    boolean resume = true;
+    while (resume) {
+      String resourceVersion;
+      synchronized (lock) {
+        resourceVersion = state.resourceVersion;
+        state.used = false;
+      }
+
+      try {
+        watch.run(kind, resourceVersion, event -> onEvent(kind, state, event));
+        log.debug("{}: Watch on {} ended", name, kind);
+      } catch (RuntimeException e) {
+        // the next list reports the failure in full, if it persists
+        log.warn("{}: Watch on {} failed: {}", name, kind, e.getMessage());
+        synchronized (lock) {
+          state.resourceVersion = null;
+        }
+      }
+
+      synchronized (lock) {
+        resume = state.used && state.resourceVersion != null;
+        if (!resume) {
+          watches.remove(kind, state);
+          subscriptions.stream()
+              .filter(subscription -> subscription.kinds.contains(kind))
+              .forEach(subscription -> subscription.stale = true);
+        }
+      }
+    }
+  }
+
+  private void onEvent(KubernetesKind kind, WatchState state, KubernetesWatchEvent event) {
+    synchronized (lock) {
+      if (event.getType() == KubernetesWatchEvent.Type.ERROR) {
+        // most often the version the watch was resumed from is too old to watch from
+        log.debug("{}: Watch on {} reported an error: {}", name, kind, event.getObject());
+        state.resourceVersion = null;
+        return;
+      }
+      KubernetesManifest manifest = event.getObject();
+      if (state.resourceVersion != null
+          && manifest != null
+          && manifest.getResourceVersion() != null) {
+        state.resourceVersion = manifest.getResourceVersion();
+      }
+      subscriptions.forEach(subscription -> subscription.onEvent(kind, event));
+    }
+  }
+
+  /** The resources of a single caching agent, kept up to date by the shared watches. */
+  final class Subscription {
+    private final List<KubernetesWatchEvent> buffered = new ArrayList<>();
+    private Map<KubernetesCoordinates, KubernetesManifest> resources = new HashMap<>();
+    private Set<KubernetesKind> kinds = ImmutableSet.of();
+    private Predicate<KubernetesManifest> accept = m -> false;
+    private boolean listing = false;
+    private boolean stale = true;
+
+    private Subscription() {}
+
+    /**
+     * @param kinds the kinds to watch
+     * @param accept which resources of those kinds to keep
+     * @param list lists every resource of {@code kinds} this subscription accepts, used to
+     *     (re)populate it
+     * @return the current resources, as shallow copies that callers may modify
+     */
+    @Nonnull
+    ImmutableList<KubernetesManifest> getResources(
+        Set<KubernetesKind> kinds,
+        Predicate<KubernetesManifest> accept,
+        Supplier<? extends Collection<KubernetesManifest>> list) {
+      List<KubernetesKind> toStart;
+      synchronized (lock) {
+        this.accept = m -> kinds.contains(m.getKind()) && accept.test(m);
+        if (!kinds.equals(this.kinds)) {
+          this.kinds = ImmutableSet.copyOf(kinds);
+          stale = true;
+        }
+        toStart = claimWatches(this.kinds);
+        if (!stale && toStart.isEmpty()) {
+          return snapshot();
+        }
+
+        stale = false;
+        listing = true;
+        buffered.clear();
+      }
+
+      Collection<KubernetesManifest> listed;
+      try {
+        toStart.forEach(KubernetesResourceWatcher.this::startWatch);
+        awaitWatches(kinds);
+        listed = list.get();
+      } catch (RuntimeException e) {
+        synchronized (lock) {
+          listing = false;
+          buffered.clear();
+          stale = true;
+        }
+        throw e;
+      }
+
+      synchronized (lock) {
+        Map<KubernetesCoordinates, KubernetesManifest> current = new HashMap<>();
+        listed.stream()
+            .filter(this.accept)
+            .forEach(m -> current.put(KubernetesCoordinates.fromManifest(m), m));
+        log.debug(
+            "{}: Listed {} resources, replaying {} changes", name, current.size(), buffered.size());
+        buffered.forEach(event -> apply(current, event));
+        resources = current;
+        listing = false;
+        buffered.clear();
+        return snapshot();
+      }
+    }
+
+    private void onEvent(KubernetesKind kind, KubernetesWatchEvent event) {
+      if (!kinds.contains(kind)) {
+        return;
+      }
+      if (listing) {
+        buffered.add(event);
+      } else {
+        apply(resources, event);
+      }
+    }
+
+    private void apply(
+        Map<KubernetesCoordinates, KubernetesManifest> resources, KubernetesWatchEvent event) {
+      KubernetesManifest manifest = event.getObject();
+      if (event.getType() == null || manifest == null) {
+        return;
+      }
+
+      switch (event.getType()) {
+        case ADDED:
+        case MODIFIED:
+          if (accept.test(manifest)) {
+            resources.merge(
+                KubernetesCoordinates.fromManifest(manifest),
+                manifest,
+                KubernetesResourceWatcher::newer);
+          }
+          break;
+        case DELETED:
+          resources.computeIfPresent(
+              KubernetesCoordinates.fromManifest(manifest),
+              (coords, existing) -> newer(existing, manifest) == existing ? existing : null);
+          break;
+        default:
+          // bookmarks carry no changes, and errors end the watch
+      }
+    }
+
+    private ImmutableList<KubernetesManifest> snapshot() {
+      return resources.values().stream()
+          .filter(accept)
+          .map(KubernetesManifest::clone)
+          .collect(ImmutableList.toImmutableList());
+    }
+  }
+
+  /**
+   * Resource versions are opaque, but are increasing integers in practice. When they can't be
+   * compared, the incoming version is assumed to be the newer one as it was reported later.
+   */
+  private static KubernetesManifest newer(
+      KubernetesManifest existing, KubernetesManifest incoming) {
+    Long existingVersion = parseVersion(existing);
+    Long incomingVersion = parseVersion(incoming);
+    if (existingVersion != null && incomingVersion != null && existingVersion > incomingVersion) {
+      return existing;
+    }
+    return incoming;
+  }
+
+  private static Long parseVersion(KubernetesManifest manifest) {
+    String version = manifest.getResourceVersion();
+    return version == null ? null : Longs.tryParse(version);
+  }
+}
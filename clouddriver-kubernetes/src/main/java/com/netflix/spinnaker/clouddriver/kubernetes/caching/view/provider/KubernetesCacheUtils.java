@@ -41,7 +41,13 @@ import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.Kuberne
 import com.netflix.spinnaker.clouddriver.kubernetes.op.handler.KubernetesHandler;
 import com.netflix.spinnaker.kork.annotations.NonnullByDefault;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -71,6 +77,11 @@ class KubernetesCacheUtils {
     return cache.getAll(type);
   }
 
+  /** Reads all entries of {@code type} a page at a time; see {@link Cache#getAllPages}. */
+  Iterator<Collection<CacheData>> getAllPages(String type, int pageSize) {
+    return cache.getAllPages(type, null, pageSize);
+  }
+
   Collection<String> getAllKeysMatchingPattern(String type, String key) {
     return cache.filterIdentifiers(type, key);
   }
@@ -195,6 +206,99 @@ class KubernetesCacheUtils {
         Multimaps.transformValues(relKeys, relData::get), Objects::nonNull);
   }
 
+  /**
+   * Loads the items related to {@code roots}, following one level of relationships at a time: the
+   * first element of {@code plan} lists the Spinnaker kinds to follow from the roots, the second
+   * the kinds to follow from the items loaded for the first, and so on.
+   *
+   * <p>Each level is loaded with a single {@link Cache#getAll} per relationship type, however many
+   * items it is loaded for, and items are only read once across the whole traversal; an item
+   * reached from several items, or at several levels, is shared. This is in contrast to calling
+   * {@link #getRelationships(Collection, SpinnakerKind)} for each item, which reads the cache once
+   * per item and reads shared items repeatedly.
+   *
+   * @return the loaded items, whose relationships can be looked up with {@link
+   *     RelationshipGraph#getRelationships}
+   */
+  RelationshipGraph loadRelationshipGraph(
+      Collection<CacheData> roots, List<? extends Collection<SpinnakerKind>> plan) {
+    Map<String, CacheData> loaded = new HashMap<>();
+    roots.forEach(cd -> loaded.put(cd.getId(), cd));
+
+    Collection<CacheData> level = roots;
+    for (Collection<SpinnakerKind> kinds : plan) {
+      Map<String, CacheData> nextLevel = new LinkedHashMap<>();
+      Set<String> types = kinds.stream().flatMap(this::relationshipTypes).collect(toImmutableSet());
+      for (String type : types) {
+        Set<String> toLoad = new LinkedHashSet<>();
+        for (CacheData cacheData : level) {
+          getRelationshipKeys(cacheData, type)
+              .forEach(
+                  key -> {
+                    CacheData existing = loaded.get(key);
+                    if (existing != null) {
+                      nextLevel.put(key, existing);
+                    } else {
+                      toLoad.add(key);
+                    }
+                  });
+        }
+        if (!toLoad.isEmpty()) {
+          for (CacheData cacheData : cache.getAll(type, toLoad)) {
+            loaded.putIfAbsent(cacheData.getId(), cacheData);
+            nextLevel.putIfAbsent(cacheData.getId(), cacheData);
+          }
+        }
+      }
+      level = nextLevel.values();
+    }
+    return new RelationshipGraph(ImmutableMap.copyOf(loaded));
+  }
+
+  /**
+   * Items loaded by {@link #loadRelationshipGraph}. Relationships to items that were not loaded,
+   * because they weren't part of the plan or were deleted from the cache in the meantime, are
+   * omitted.
+   */
+  final class RelationshipGraph {
+    private final ImmutableMap<String, CacheData> items;
+
+    private RelationshipGraph(ImmutableMap<String, CacheData> items) {
+      this.items = items;
+    }
+
+    /** Gets the data for all relationships of a given Spinnaker kind for a CacheData item. */
+    ImmutableCollection<CacheData> getRelationships(
+        CacheData cacheData, SpinnakerKind spinnakerKind) {
+      return getRelationships(ImmutableList.of(cacheData), spinnakerKind).get(cacheData.getId());
+    }
+
+    /**
+     * Gets the data for all relationships of a given Spinnaker kind for a collection of CacheData
+     * items, keyed by the id of the item they are related to.
+     */
+    ImmutableMultimap<String, CacheData> getRelationships(
+        Collection<CacheData> cacheData, SpinnakerKind spinnakerKind) {
+      ImmutableListMultimap.Builder<String, CacheData> result = ImmutableListMultimap.builder();
+      relationshipTypes(spinnakerKind)
+          .forEach(
+              type -> {
+                Set<String> seen = new HashSet<>();
+                for (CacheData cd : cacheData) {
+                  if (!seen.add(cd.getId())) {
+                    continue;
+                  }
+                  getRelationshipKeys(cd, type)
+                      .distinct()
+                      .map(items::get)
+                      .filter(Objects::nonNull)
+                      .forEach(related -> result.put(cd.getId(), related));
+                }
+              });
+      return result.build();
+    }
+  }
+
   /** Returns a stream of all relationships of a given type for a given CacheData. */
   private Stream<String> getRelationshipKeys(CacheData cacheData, String type) {
     Collection<String> relationships = cacheData.getRelationships().get(type);
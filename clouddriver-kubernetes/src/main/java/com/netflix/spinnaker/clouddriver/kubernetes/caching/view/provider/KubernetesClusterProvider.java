@@ -32,6 +32,7 @@ import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.netflix.spinnaker.cats.cache.CacheData;
 import com.netflix.spinnaker.cats.cache.RelationshipCacheFilter;
 import com.netflix.spinnaker.clouddriver.kubernetes.KubernetesCloudProvider;
@@ -39,11 +40,14 @@ import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.model.KubernetesCluster;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.model.KubernetesLoadBalancer;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.model.KubernetesServerGroup;
+import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.provider.KubernetesCacheUtils.RelationshipGraph;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.provider.data.KubernetesServerGroupCacheData;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.SpinnakerKind;
 import com.netflix.spinnaker.clouddriver.kubernetes.op.handler.KubernetesHandler;
 import com.netflix.spinnaker.clouddriver.kubernetes.op.handler.ServerGroupHandler;
 import com.netflix.spinnaker.clouddriver.model.ClusterProvider;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -56,6 +60,16 @@ import org.springframework.stereotype.Component;
 
 @Component
 public class KubernetesClusterProvider implements ClusterProvider<KubernetesCluster> {
+  /**
+   * The number of clusters loaded at a time by {@link #getClusters()}, bounding how many server
+   * groups, instances and load balancers are held in memory at once.
+   */
+  private static final int CLUSTER_PAGE_SIZE = 500;
+
+  /** Loads clusters' server groups, then those server groups' instances and load balancers. */
+  private static final ImmutableList<ImmutableSet<SpinnakerKind>> CLUSTER_GRAPH =
+      ImmutableList.of(ImmutableSet.of(SERVER_GROUPS), ImmutableSet.of(INSTANCES, LOAD_BALANCERS));
+
   private final KubernetesCacheUtils cacheUtils;
 
   @Autowired
@@ -65,7 +79,11 @@ public class KubernetesClusterProvider implements ClusterProvider<KubernetesClus
 
   @Override
   public Map<String, Set<KubernetesCluster>> getClusters() {
-    return groupByAccountName(loadClusters(cacheUtils.getAllKeys(CLUSTERS.toString())));
+    Set<KubernetesCluster> clusters = new HashSet<>();
+    cacheUtils
+        .getAllPages(CLUSTERS.toString(), CLUSTER_PAGE_SIZE)
+        .forEachRemaining(page -> clusters.addAll(loadClusters(page)));
+    return groupByAccountName(clusters);
   }
 
   @Override
@@ -155,18 +173,18 @@ public class KubernetesClusterProvider implements ClusterProvider<KubernetesClus
   }
 
   private Set<KubernetesCluster> loadClusters(Collection<CacheData> clusterData) {
-    ImmutableMultimap<String, CacheData> clusterToServerGroups =
-        cacheUtils.getRelationships(clusterData, SERVER_GROUPS);
+    RelationshipGraph graph = cacheUtils.loadRelationshipGraph(clusterData, CLUSTER_GRAPH);
 
     return clusterData.stream()
         .map(
             clusterDatum -> {
               ImmutableCollection<CacheData> clusterServerGroups =
-                  clusterToServerGroups.get(clusterDatum.getId());
+                  graph.getRelationships(clusterDatum, SERVER_GROUPS);
               ImmutableMap<String, KubernetesServerGroup> serverGroups =
-                  loadServerGroups(clusterServerGroups);
+                  loadServerGroups(
+                      clusterServerGroups, graph.getRelationships(clusterServerGroups, INSTANCES));
               List<KubernetesLoadBalancer> loadBalancers =
-                  cacheUtils.getRelationships(clusterServerGroups, LOAD_BALANCERS).values().stream()
+                  graph.getRelationships(clusterServerGroups, LOAD_BALANCERS).values().stream()
                       .filter(cacheUtils.distinctById())
                       .map(
                           cd ->
@@ -188,8 +206,13 @@ public class KubernetesClusterProvider implements ClusterProvider<KubernetesClus
 
   private ImmutableMap<String, KubernetesServerGroup> loadServerGroups(
       ImmutableCollection<CacheData> serverGroupData) {
-    ImmutableMultimap<String, CacheData> serverGroupToInstances =
-        cacheUtils.getRelationships(serverGroupData, INSTANCES);
+    return loadServerGroups(
+        serverGroupData, cacheUtils.getRelationships(serverGroupData, INSTANCES));
+  }
+
+  private ImmutableMap<String, KubernetesServerGroup> loadServerGroups(
+      ImmutableCollection<CacheData> serverGroupData,
+      ImmutableMultimap<String, CacheData> serverGroupToInstances) {
     return serverGroupData.stream()
         .collect(
             toImmutableMap(
@@ -31,7 +31,9 @@ import com.netflix.spinnaker.clouddriver.kubernetes.KubernetesCloudProvider;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys.ApplicationCacheKey;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.model.KubernetesLoadBalancer;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.model.KubernetesServerGroup;
+import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.provider.KubernetesCacheUtils.RelationshipGraph;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.provider.data.KubernetesServerGroupCacheData;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.SpinnakerKind;
 import com.netflix.spinnaker.clouddriver.model.LoadBalancerProvider;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -46,6 +48,10 @@ import org.springframework.stereotype.Component;
 @Component
 public class KubernetesLoadBalancerProvider
     implements LoadBalancerProvider<KubernetesLoadBalancer> {
+  /** Loads load balancers' server groups, then those server groups' instances. */
+  private static final ImmutableList<ImmutableSet<SpinnakerKind>> LOAD_BALANCER_GRAPH =
+      ImmutableList.of(ImmutableSet.of(SERVER_GROUPS), ImmutableSet.of(INSTANCES));
+
   private final KubernetesCacheUtils cacheUtils;
 
   @Autowired
@@ -91,10 +97,12 @@ public class KubernetesLoadBalancerProvider
 
   private Set<KubernetesLoadBalancer> fromLoadBalancerCacheData(
       Collection<CacheData> loadBalancerData) {
+    RelationshipGraph graph =
+        cacheUtils.loadRelationshipGraph(loadBalancerData, LOAD_BALANCER_GRAPH);
     ImmutableMultimap<String, CacheData> loadBalancerToServerGroups =
-        cacheUtils.getRelationships(loadBalancerData, SERVER_GROUPS);
+        graph.getRelationships(loadBalancerData, SERVER_GROUPS);
     ImmutableMultimap<String, CacheData> serverGroupToInstances =
-        cacheUtils.getRelationships(loadBalancerToServerGroups.values(), INSTANCES);
+        graph.getRelationships(loadBalancerToServerGroups.values(), INSTANCES);
 
     return loadBalancerData.stream()
         .map(
@@ -68,6 +68,7 @@ public class KubernetesAccountProperties {
     private List<String> namespaces = new ArrayList<>();
     private List<String> omitNamespaces = new ArrayList<>();
     private int cacheThreads = DEFAULT_CACHE_THREADS;
+    private int cacheNamespaceListingThreads = 1;
     private List<String> requiredGroupMembership = new ArrayList<>();
     private Permissions.Builder permissions = new Permissions.Builder();
     private String namingStrategy = "kubernetesAnnotations";
@@ -81,6 +82,10 @@ public class KubernetesAccountProperties {
     private boolean onlySpinnakerManaged = false;
     private Long cacheIntervalSeconds;
     private boolean cacheAllApplicationRelationships = false;
+    private boolean cacheUsingWatch = false;
+    private long cacheWatchResyncSeconds = 300;
+    private boolean useApiClientForReads = false;
+    private int listPageSize = 500;
     private RawResourcesEndpointConfig rawResourcesEndpointConfig =
         new RawResourcesEndpointConfig();
 
@@ -98,6 +103,15 @@ public class KubernetesAccountProperties {
         throw new IllegalArgumentException(
             "At most one of 'kinds' and 'omitKinds' can be specified");
       }
+      if (cacheNamespaceListingThreads < 1) {
+        throw new IllegalArgumentException("'cacheNamespaceListingThreads' must be positive");
+      }
+      if (listPageSize < 1) {
+        throw new IllegalArgumentException("'listPageSize' must be positive");
+      }
+      if (cacheWatchResyncSeconds < 1) {
+        throw new IllegalArgumentException("'cacheWatchResyncSeconds' must be positive");
+      }
       rawResourcesEndpointConfig.validate();
     }
   }
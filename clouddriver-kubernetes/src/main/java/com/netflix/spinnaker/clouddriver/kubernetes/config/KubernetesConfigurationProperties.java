@@ -33,6 +33,14 @@ public class KubernetesConfigurationProperties {
   /** flag to toggle account health check. Defaults to true. */
   private boolean verifyAccountHealth = true;
 
+  /**
+   * upper bound on the number of namespaces listed concurrently by caching agents, across all
+   * accounts. Only applies to accounts that list more than one namespace at a time (see the
+   * account's cacheNamespaceListingThreads), and protects the API servers and this instance from
+   * running too many kubectl processes at once.
+   */
+  private int maxConcurrentNamespaceListings = 32;
+
   @Data
   public static class KubernetesJobExecutorProperties {
     private Retries retries = new Retries();
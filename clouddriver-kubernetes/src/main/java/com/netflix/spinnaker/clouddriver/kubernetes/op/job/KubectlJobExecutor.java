@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.netflix.spinnaker.clouddriver.jobs.JobExecutor;
 import com.netflix.spinnaker.clouddriver.jobs.JobRequest;
 import com.netflix.spinnaker.clouddriver.jobs.JobResult;
@@ -33,6 +34,7 @@ import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesPatchO
 import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesPodMetric;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesManifest;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesWatchEvent;
 import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesCredentials;
 import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesSelectorList;
 import io.github.resilience4j.retry.IntervalFunction;
@@ -46,6 +48,7 @@ import java.io.EOFException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -61,6 +64,7 @@ import org.springframework.stereotype.Component;
 public class KubectlJobExecutor {
   private static final Logger log = LoggerFactory.getLogger(KubectlJobExecutor.class);
   private static final String NOT_FOUND_STRING = "(NotFound)";
+  private static final String WATCH_CLOSED_ERROR = "watch closed before UntilWithoutRetry timeout";
   private final JobExecutor jobExecutor;
   private final String executable;
   private final String oAuthExecutable;
@@ -450,6 +454,10 @@ public class KubectlJobExecutor {
     if (selectors.isNotEmpty()) {
       command.add("-l=" + selectors.toString());
     }
+    if (credentials.getListPageSize() > 0) {
+      // kubectl requests the list a page at a time and prints the pages as a single list
+      command.add("--chunk-size=" + credentials.getListPageSize());
+    }
 
     JobResult<ImmutableList<KubernetesManifest>> status =
         executeKubectlJob(
@@ -469,6 +477,42 @@ public class KubectlJobExecutor {
     return status.getOutput();
   }
 
+  /**
+   * Watches resources of a single kind, passing each change to {@code onEvent} as kubectl reports
+   * it. Only changes made after the watch starts are reported. Blocks until the watch ends after
+   * {@code timeout}, or the API server ends it earlier; kubectl reports that as an error, but it is
+   * the normal end of a watch.
+   *
+   * @param namespace the namespace to watch, or null to watch every namespace
+   */
+  public void watch(
+      KubernetesCredentials credentials,
+      KubernetesKind kind,
+      @Nullable String namespace,
+      Duration timeout,
+      Consumer<KubernetesWatchEvent> onEvent) {
+    List<String> command = kubectlNamespacedGet(credentials, ImmutableList.of(kind), namespace);
+    if (Strings.isNullOrEmpty(namespace)) {
+      command.add("--all-namespaces");
+    }
+    command.add("--watch-only");
+    command.add("--output-watch-events");
+    // the request timeout of other commands would end the watch too early
+    command.removeIf(arg -> arg.startsWith("--request-timeout="));
+    command.add("--request-timeout=" + timeout.getSeconds() + "s");
+
+    // watches are long-lived and resumed by the caller, so they aren't retried
+    JobResult<Void> status =
+        jobExecutor.runJob(new JobRequest(command), parseWatchEvents(onEvent));
+
+    if (status.getResult() != JobResult.Result.SUCCESS
+        && !status.isKilled()
+        && !status.getError().contains(WATCH_CLOSED_ERROR)) {
+      throw new KubectlException(
+          "Failed to watch " + kind + " in " + namespace + ": " + status.getError());
+    }
+  }
+
   public KubernetesManifest deploy(KubernetesCredentials credentials, KubernetesManifest manifest) {
     List<String> command = kubectlAuthPrefix(credentials);
 
@@ -799,6 +843,21 @@ public class KubectlJobExecutor {
     };
   }
 
+  private ReaderConsumer<Void> parseWatchEvents(Consumer<KubernetesWatchEvent> onEvent) {
+    return (@WillClose BufferedReader r) -> {
+      try (JsonReader reader = new JsonReader(r)) {
+        // kubectl writes one JSON document per event, so the stream has many top-level values
+        reader.setLenient(true);
+        while (reader.peek() != JsonToken.END_DOCUMENT) {
+          onEvent.accept(gson.fromJson(reader, KubernetesWatchEvent.class));
+        }
+        return null;
+      } catch (IllegalStateException | JsonSyntaxException e) {
+        throw new KubectlException("Failed to parse kubectl output: " + e.getMessage(), e);
+      }
+    };
+  }
+
   private Optional<RetryRegistry> getRetryRegistry(
       KubernetesConfigurationProperties.KubernetesJobExecutorProperties.Retries retriesConfig) {
     if (retriesConfig.isEnabled()) {
@@ -0,0 +1,727 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.op.job;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesPodMetric;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesPodMetric.ContainerMetric;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesApiGroup;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesManifest;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesWatchEvent;
+import com.netflix.spinnaker.clouddriver.kubernetes.op.job.KubectlJobExecutor.KubectlException;
+import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesCredentials;
+import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesSelectorList;
+import io.kubernetes.client.custom.Quantity;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.Pair;
+import io.kubernetes.client.util.ClientBuilder;
+import io.kubernetes.client.util.KubeConfig;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads resources directly from an account's API server rather than through kubectl.
+ *
+ * <p>Each reader holds a single {@link ApiClient} at a time, whose connection pool keeps
+ * connections to the API server open (multiplexed over HTTP/2 where the server supports it) between
+ * requests. The client only resolves its credentials, such as the token of an exec plugin, an OIDC
+ * provider or a projected service account token, when it is created, so the reader creates it again
+ * when the API server rejects those credentials and at least every few minutes. Lists
+ * are requested a page at a time using the API server's {@code limit} and {@code continue}
+ * parameters, and each page is parsed into {@link KubernetesManifest}s as it is read from the
+ * response.
+ *
+ * <p>The API path of each kind is found through the API server's discovery endpoints, preferring
+ * the core group and then each group's preferred version, as kubectl does. Failures are reported
+ * as {@link KubectlException}s so that callers handle both read paths alike.
+ *
+ * <p>Unlike kubectl, the reader can watch resources from a given resource version, so a watch that
+ * ends can be resumed where it left off.
+ */
+public class KubernetesApiReader {
+  private static final Logger log = LoggerFactory.getLogger(KubernetesApiReader.class);
+  private static final String[] AUTH_NAMES = {"BearerToken"};
+  private static final String METRICS_PATH = "/apis/metrics.k8s.io/v1beta1";
+  private static final String SERVICE_ACCOUNT_NAMESPACE =
+      "/var/run/secrets/kubernetes.io/serviceaccount/namespace";
+  private static final long DISCOVERY_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+  private static final long DISCOVERY_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  private static final long CLIENT_EXPIRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+  private static final Duration WATCH_READ_TIMEOUT_MARGIN = Duration.ofMinutes(1);
+  private static final BigDecimal MILLICORES = BigDecimal.valueOf(1000);
+  private static final BigDecimal MEBIBYTE = BigDecimal.valueOf(1024 * 1024);
+
+  private final String accountName;
+  private final Supplier<ApiClient> clientFactory;
+  private final String defaultNamespace;
+  private final int pageSize;
+  private final Gson gson = new Gson();
+
+  private volatile CurrentClient client;
+  private volatile Discovery discovery;
+
+  public KubernetesApiReader(
+      String accountName, ApiClient client, String defaultNamespace, int pageSize) {
+    this(accountName, () -> client, defaultNamespace, pageSize);
+  }
+
+  /** @param clientFactory creates a client with the account's current credentials */
+  public KubernetesApiReader(
+      String accountName,
+      Supplier<ApiClient> clientFactory,
+      String defaultNamespace,
+      int pageSize) {
+    this.accountName = accountName;
+    this.clientFactory = clientFactory;
+    this.defaultNamespace = defaultNamespace;
+    this.pageSize = pageSize;
+  }
+
+  /** Creates a reader for the API server {@code credentials} would have kubectl talk to. */
+  public static KubernetesApiReader forCredentials(
+      KubernetesCredentials credentials, int pageSize) {
+    String defaultNamespace;
+    try {
+      if (credentials.isServiceAccount()) {
+        Path namespaceFile = Paths.get(SERVICE_ACCOUNT_NAMESPACE);
+        defaultNamespace =
+            Files.exists(namespaceFile)
+                ? new String(Files.readAllBytes(namespaceFile), StandardCharsets.UTF_8).trim()
+                : "default";
+      } else {
+        defaultNamespace =
+            Optional.ofNullable(loadKubeConfig(credentials).getNamespace()).orElse("default");
+      }
+    } catch (IOException e) {
+      throw clientCreationFailure(credentials, e);
+    }
+
+    return new KubernetesApiReader(
+        credentials.getAccountName(), () -> createClient(credentials), defaultNamespace, pageSize);
+  }
+
+  /**
+   * Creates a client with the current credentials of {@code credentials}, running any exec plugin
+   * the kubeconfig file configures and reading the service account token afresh.
+   */
+  private static ApiClient createClient(KubernetesCredentials credentials) {
+    ApiClient client;
+    try {
+      client =
+          credentials.isServiceAccount()
+              ? ClientBuilder.cluster().build()
+              : ClientBuilder.kubeconfig(loadKubeConfig(credentials)).build();
+    } catch (IOException e) {
+      throw clientCreationFailure(credentials, e);
+    }
+
+    if (credentials.getKubectlRequestTimeoutSeconds() != null) {
+      client.setReadTimeout(
+          (int) TimeUnit.SECONDS.toMillis(credentials.getKubectlRequestTimeoutSeconds()));
+    }
+    return client;
+  }
+
+  private static KubeConfig loadKubeConfig(KubernetesCredentials credentials) throws IOException {
+    File kubeconfigFile = kubeconfigFile(credentials.getKubeconfigFile());
+    KubeConfig kubeConfig;
+    try (Reader reader = Files.newBufferedReader(kubeconfigFile.toPath())) {
+      kubeConfig = KubeConfig.loadKubeConfig(reader);
+    }
+    kubeConfig.setFile(kubeconfigFile);
+    String context = credentials.getContext();
+    if (!Strings.isNullOrEmpty(context) && !kubeConfig.setContext(context)) {
+      throw new KubectlException(
+          "Context " + context + " not found in " + kubeconfigFile.getPath());
+    }
+    return kubeConfig;
+  }
+
+  private static KubectlException clientCreationFailure(
+      KubernetesCredentials credentials, IOException e) {
+    return new KubectlException(
+        "Failed to create an API client for account "
+            + credentials.getAccountName()
+            + ": "
+            + e.getMessage(),
+        e);
+  }
+
+  private static File kubeconfigFile(@Nullable String configured) {
+    if (!Strings.isNullOrEmpty(configured)) {
+      return new File(configured);
+    }
+    String fromEnvironment = System.getenv("KUBECONFIG");
+    if (!Strings.isNullOrEmpty(fromEnvironment)) {
+      return new File(StringUtils.substringBefore(fromEnvironment, File.pathSeparator));
+    }
+    return Paths.get(System.getProperty("user.home"), ".kube", "config").toFile();
+  }
+
+  @Nullable
+  public KubernetesManifest get(KubernetesKind kind, @Nullable String namespace, String name) {
+    ResourceType type = resourceType(kind);
+    return request(
+        type.path(namespace(type, namespace), name),
+        new ArrayList<>(),
+        reader -> type.complete(gson.fromJson(reader, KubernetesManifest.class)));
+  }
+
+  @Nonnull
+  public ImmutableList<KubernetesManifest> list(
+      List<KubernetesKind> kinds, @Nullable String namespace, KubernetesSelectorList selectors) {
+    ImmutableList.Builder<KubernetesManifest> result = ImmutableList.builder();
+    for (KubernetesKind kind : kinds) {
+      List<Pair> filters = new ArrayList<>();
+      if (selectors.isNotEmpty()) {
+        filters.add(new Pair("labelSelector", selectors.toString()));
+      }
+      list(kind, namespace, filters, result);
+    }
+    return result.build();
+  }
+
+  @Nonnull
+  public ImmutableList<KubernetesManifest> eventsFor(
+      KubernetesKind kind, @Nullable String namespace, String name) {
+    List<Pair> filters = new ArrayList<>();
+    filters.add(
+        new Pair(
+            "fieldSelector",
+            String.format(
+                "involvedObject.name=%s,involvedObject.kind=%s",
+                name, StringUtils.capitalize(kind.toString()))));
+
+    ImmutableList.Builder<KubernetesManifest> result = ImmutableList.builder();
+    list(KubernetesKind.EVENT, namespace, filters, result);
+    return result.build();
+  }
+
+  /**
+   * Returns the current resource version of {@code kind}, from which a watch reports every change
+   * made since this call.
+   */
+  @Nullable
+  public String currentResourceVersion(KubernetesKind kind) {
+    ResourceType type = resourceType(kind);
+    List<Pair> query = new ArrayList<>();
+    query.add(new Pair("limit", "1"));
+    return request(type.path(null, null), query, KubernetesApiReader::readListVersion);
+  }
+
+  /**
+   * Watches {@code kind}, passing each change to {@code onEvent} as the API server reports it,
+   * until the API server ends the watch after {@code timeout} or on an error. Bookmarks are
+   * requested so that the resource version to resume from stays current while nothing changes.
+   *
+   * @param namespace the namespace to watch, or null to watch every namespace
+   * @param resourceVersion the version to report changes from, as returned by {@link
+   *     #currentResourceVersion} or carried by the last change reported
+   */
+  public void watch(
+      KubernetesKind kind,
+      @Nullable String namespace,
+      String resourceVersion,
+      Duration timeout,
+      Consumer<KubernetesWatchEvent> onEvent) {
+    ResourceType type = resourceType(kind);
+    String path = type.path(type.namespaced ? Strings.emptyToNull(namespace) : null, null);
+    List<Pair> query = new ArrayList<>();
+    query.add(new Pair("watch", "true"));
+    query.add(new Pair("resourceVersion", resourceVersion));
+    query.add(new Pair("allowWatchBookmarks", "true"));
+    query.add(new Pair("timeoutSeconds", String.valueOf(timeout.getSeconds())));
+    request(
+        path,
+        query,
+        timeout.plus(WATCH_READ_TIMEOUT_MARGIN),
+        reader -> {
+          // the server writes one JSON document per event, so the stream has many top-level values
+          reader.setLenient(true);
+          while (reader.peek() != JsonToken.END_DOCUMENT) {
+            KubernetesWatchEvent event = gson.fromJson(reader, KubernetesWatchEvent.class);
+            if (event.getObject() != null && event.getType() != KubernetesWatchEvent.Type.ERROR) {
+              type.complete(event.getObject());
+            }
+            onEvent.accept(event);
+          }
+          return null;
+        });
+  }
+
+  /**
+   * Reads pod metrics from the metrics API, formatted as {@code kubectl top pod --containers}
+   * formats them.
+   */
+  @Nonnull
+  public ImmutableList<KubernetesPodMetric> topPod(@Nullable String namespace, String pod) {
+    String path =
+        METRICS_PATH
+            + "/namespaces/"
+            + Optional.ofNullable(Strings.emptyToNull(namespace)).orElse(defaultNamespace)
+            + "/pods"
+            + (pod.isEmpty() ? "" : "/" + pod);
+
+    List<PodMetrics> metrics;
+    try {
+      metrics =
+          Optional.ofNullable(
+                  request(
+                      path,
+                      new ArrayList<>(),
+                      reader -> {
+                        if (pod.isEmpty()) {
+                          PodMetricsList list = gson.fromJson(reader, PodMetricsList.class);
+                          return list.items == null ? ImmutableList.<PodMetrics>of() : list.items;
+                        }
+                        return ImmutableList.of(gson.fromJson(reader, PodMetrics.class));
+                      }))
+              .orElseGet(ImmutableList::of);
+    } catch (KubectlException e) {
+      if (e.getMessage().contains("503")) {
+        log.warn("Error fetching metrics for account {}: {}", accountName, e.getMessage());
+        return ImmutableList.of();
+      }
+      throw e;
+    }
+
+    return metrics.stream()
+        .map(
+            m ->
+                KubernetesPodMetric.builder()
+                    .podName(m.metadata.name)
+                    .namespace(m.metadata.namespace)
+                    .containerMetrics(
+                        m.containers.stream()
+                            .map(KubernetesApiReader::toContainerMetric)
+                            .collect(ImmutableList.toImmutableList()))
+                    .build())
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  /** kubectl reports CPU rounded up to millicores and memory rounded down to mebibytes. */
+  private static ContainerMetric toContainerMetric(ContainerMetrics container) {
+    Map<String, String> usage = Optional.ofNullable(container.usage).orElseGet(ImmutableMap::of);
+    ImmutableMap.Builder<String, String> metrics = ImmutableMap.builder();
+    if (usage.containsKey("cpu")) {
+      BigDecimal cpu = new Quantity(usage.get("cpu")).getNumber();
+      metrics.put("CPU(cores)", cpu.multiply(MILLICORES).setScale(0, RoundingMode.CEILING) + "m");
+    }
+    if (usage.containsKey("memory")) {
+      BigDecimal memory = new Quantity(usage.get("memory")).getNumber();
+      metrics.put("MEMORY(bytes)", memory.divide(MEBIBYTE, 0, RoundingMode.FLOOR) + "Mi");
+    }
+    return new ContainerMetric(container.name, metrics.build());
+  }
+
+  private void list(
+      KubernetesKind kind,
+      @Nullable String namespace,
+      List<Pair> filters,
+      ImmutableList.Builder<KubernetesManifest> result) {
+    ResourceType type = resourceType(kind);
+    String path = type.path(namespace(type, namespace), null);
+    String continueToken = null;
+    do {
+      List<Pair> query = new ArrayList<>(filters);
+      query.add(new Pair("limit", String.valueOf(pageSize)));
+      if (continueToken != null) {
+        query.add(new Pair("continue", continueToken));
+      }
+      // a missing namespace has no resources, as with kubectl
+      continueToken = request(path, query, reader -> readPage(type, reader, result));
+    } while (!Strings.isNullOrEmpty(continueToken));
+  }
+
+  /**
+   * Adds the items of a single page of a list to {@code result}.
+   *
+   * @return the token to request the next page with, if there is one
+   */
+  @Nullable
+  private String readPage(
+      ResourceType type, JsonReader reader, ImmutableList.Builder<KubernetesManifest> result)
+      throws IOException {
+    String continueToken = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("metadata")) {
+        reader.beginObject();
+        while (reader.hasNext()) {
+          if (reader.nextName().equals("continue") && reader.peek() == JsonToken.STRING) {
+            continueToken = reader.nextString();
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+      } else if (name.equals("items") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          result.add(type.complete(gson.fromJson(reader, KubernetesManifest.class)));
+        }
+        reader.endArray();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return continueToken;
+  }
+
+  @Nullable
+  private static String readListVersion(JsonReader reader) throws IOException {
+    String resourceVersion = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!reader.nextName().equals("metadata")) {
+        reader.skipValue();
+        continue;
+      }
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (reader.nextName().equals("resourceVersion") && reader.peek() == JsonToken.STRING) {
+          resourceVersion = reader.nextString();
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+    }
+    reader.endObject();
+    return resourceVersion;
+  }
+
+  @Nullable
+  private String namespace(ResourceType type, @Nullable String namespace) {
+    if (!type.namespaced) {
+      return null;
+    }
+    return Strings.isNullOrEmpty(namespace) ? defaultNamespace : namespace;
+  }
+
+  @FunctionalInterface
+  private interface BodyReader<T> {
+    T read(JsonReader reader) throws IOException;
+  }
+
+  /** @return the parsed response body, or null if the server reports the path as not found */
+  @Nullable
+  private <T> T request(String path, List<Pair> query, BodyReader<T> bodyReader) {
+    return request(path, query, null, bodyReader);
+  }
+
+  /**
+   * @param readTimeout how long to wait for the server to send more of the response, if it should
+   *     be longer than the client's usual read timeout
+   */
+  @Nullable
+  private <T> T request(
+      String path, List<Pair> query, @Nullable Duration readTimeout, BodyReader<T> bodyReader) {
+    try {
+      CurrentClient current = currentClient();
+      Response response = execute(current.client, path, query, readTimeout);
+      if (response.code() == 401) {
+        // the credentials the client was created with may have expired since
+        response.close();
+        response = execute(refreshClient(current).client, path, query, readTimeout);
+      }
+
+      try (Response r = response) {
+        ResponseBody body = r.body();
+        if (r.code() == 404) {
+          return null;
+        }
+        if (!r.isSuccessful() || body == null) {
+          throw new KubectlException(
+              String.format(
+                  "Failed to read %s from account %s: %d %s",
+                  path,
+                  accountName,
+                  r.code(),
+                  body == null ? "" : StringUtils.abbreviate(body.string(), 1000)));
+        }
+        try (JsonReader reader = new JsonReader(body.charStream())) {
+          return bodyReader.read(reader);
+        }
+      }
+    } catch (ApiException | IOException e) {
+      throw new KubectlException(
+          String.format("Failed to read %s from account %s: %s", path, accountName, e.getMessage()),
+          e);
+    } catch (IllegalStateException | JsonSyntaxException e) {
+      throw new KubectlException(
+          String.format(
+              "Failed to parse %s from account %s: %s", path, accountName, e.getMessage()),
+          e);
+    }
+  }
+
+  private Response execute(
+      ApiClient client, String path, List<Pair> query, @Nullable Duration readTimeout)
+      throws ApiException, IOException {
+    Map<String, String> headers = new HashMap<>();
+    headers.put("Accept", "application/json");
+    Request request =
+        client.buildRequest(
+            path,
+            "GET",
+            query,
+            new ArrayList<>(),
+            null,
+            headers,
+            new HashMap<>(),
+            new HashMap<>(),
+            AUTH_NAMES,
+            null);
+    OkHttpClient httpClient =
+        readTimeout == null
+            ? client.getHttpClient()
+            : client.getHttpClient().newBuilder().readTimeout(readTimeout).build();
+    Call call = httpClient.newCall(request);
+    return call.execute();
+  }
+
+  private CurrentClient currentClient() {
+    CurrentClient current = client;
+    if (current == null
+        || System.currentTimeMillis() - current.createdAt > CLIENT_EXPIRY_MILLIS) {
+      current = refreshClient(current);
+    }
+    return current;
+  }
+
+  /** Replaces {@code stale} with a new client, unless another request already has. */
+  private synchronized CurrentClient refreshClient(@Nullable CurrentClient stale) {
+    CurrentClient current = client;
+    if (current == stale) {
+      current = new CurrentClient(clientFactory.get(), System.currentTimeMillis());
+      client = current;
+    }
+    return current;
+  }
+
+  private ResourceType resourceType(KubernetesKind kind) {
+    long now = System.currentTimeMillis();
+    Discovery current = discovery;
+    if (current == null || now - current.discoveredAt > DISCOVERY_EXPIRY_MILLIS) {
+      current = discover(current);
+    }
+
+    ResourceType type = current.types.get(kind);
+    if (type == null && now - current.discoveredAt > DISCOVERY_RETRY_MILLIS) {
+      // the kind may have been added since the last discovery, e.g. by a new CRD
+      type = discover(current).types.get(kind);
+    }
+    if (type == null) {
+      throw new KubectlException(
+          "The server doesn't have a resource type " + kind + " in account " + accountName);
+    }
+    return type;
+  }
+
+  /** Replaces {@code stale} with a new discovery, unless another request already has. */
+  private synchronized Discovery discover(@Nullable Discovery stale) {
+    Discovery current = discovery;
+    if (current != stale) {
+      return current;
+    }
+
+    Map<KubernetesKind, ResourceType> types = new LinkedHashMap<>();
+    addResources(types, "/api/v1", "");
+
+    ApiGroupList groups =
+        request("/apis", new ArrayList<>(), r -> gson.fromJson(r, ApiGroupList.class));
+    if (groups != null && groups.groups != null) {
+      for (ApiGroup group : groups.groups) {
+        if (group.preferredVersion == null) {
+          continue;
+        }
+        try {
+          addResources(types, "/apis/" + group.preferredVersion.groupVersion, group.name);
+        } catch (KubectlException e) {
+          // kubectl also carries on when an aggregated API is unavailable
+          log.debug("Skipping API group {} in account {}", group.name, accountName, e);
+        }
+      }
+    }
+
+    Discovery result = new Discovery(ImmutableMap.copyOf(types), System.currentTimeMillis());
+    discovery = result;
+    return result;
+  }
+
+  private void addResources(Map<KubernetesKind, ResourceType> types, String path, String group) {
+    ApiResourceList resources =
+        request(path, new ArrayList<>(), r -> gson.fromJson(r, ApiResourceList.class));
+    if (resources == null || resources.resources == null) {
+      return;
+    }
+
+    for (ApiResource resource : resources.resources) {
+      if (resource.name.contains("/") || !resource.verbs.contains("list")) {
+        // subresources such as pods/log can't be listed
+        continue;
+      }
+      KubernetesKind kind =
+          KubernetesKind.from(
+              resource.kind,
+              group.isEmpty() ? KubernetesApiGroup.CORE : KubernetesApiGroup.fromString(group));
+      types.putIfAbsent(
+          kind,
+          new ResourceType(
+              path, resources.groupVersion, resource.name, resource.kind, resource.namespaced));
+    }
+  }
+
+  private static final class CurrentClient {
+    private final ApiClient client;
+    private final long createdAt;
+
+    private CurrentClient(ApiClient client, long createdAt) {
+      this.client = client;
+      this.createdAt = createdAt;
+    }
+  }
+
+  private static final class Discovery {
+    private final ImmutableMap<KubernetesKind, ResourceType> types;
+    private final long discoveredAt;
+
+    private Discovery(ImmutableMap<KubernetesKind, ResourceType> types, long discoveredAt) {
+      this.types = types;
+      this.discoveredAt = discoveredAt;
+    }
+  }
+
+  private static final class ResourceType {
+    private final String basePath;
+    private final String apiVersion;
+    private final String plural;
+    private final String kind;
+    private final boolean namespaced;
+
+    private ResourceType(
+        String basePath, String apiVersion, String plural, String kind, boolean namespaced) {
+      this.basePath = basePath;
+      this.apiVersion = apiVersion;
+      this.plural = plural;
+      this.kind = kind;
+      this.namespaced = namespaced;
+    }
+
+    private String path(@Nullable String namespace, @Nullable String name) {
+      StringBuilder path = new StringBuilder(basePath);
+      if (namespace != null) {
+        path.append("/namespaces/").append(namespace);
+      }
+      path.append('/').append(plural);
+      if (name != null) {
+        path.append('/').append(name);
+      }
+      return path.toString();
+    }
+
+    /** Items of a list don't repeat their kind and apiVersion, which kubectl fills in. */
+    private KubernetesManifest complete(KubernetesManifest manifest) {
+      manifest.putIfAbsent("kind", kind);
+      manifest.putIfAbsent("apiVersion", apiVersion);
+      return manifest;
+    }
+  }
+
+  private static final class ApiGroupList {
+    private List<ApiGroup> groups;
+  }
+
+  private static final class ApiGroup {
+    private String name;
+    private GroupVersion preferredVersion;
+  }
+
+  private static final class GroupVersion {
+    private String groupVersion;
+  }
+
+  private static final class ApiResourceList {
+    private String groupVersion;
+    private List<ApiResource> resources;
+  }
+
+  private static final class ApiResource {
+    private String name;
+    private String kind;
+    private boolean namespaced;
+    private List<String> verbs = ImmutableList.of();
+  }
+
+  private static final class PodMetricsList {
+    private List<PodMetrics> items;
+  }
+
+  private static final class PodMetrics {
+    private Metadata metadata;
+    private List<ContainerMetrics> containers = ImmutableList.of();
+  }
+
+  private static final class Metadata {
+    private String name;
+    private String namespace;
+  }
+
+  private static final class ContainerMetrics {
+    private String name;
+    private Map<String, String> usage;
+  }
+}
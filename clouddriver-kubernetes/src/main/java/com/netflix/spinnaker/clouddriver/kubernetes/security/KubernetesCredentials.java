@@ -31,12 +31,14 @@ import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.spectator.api.Clock;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.agent.KubernetesCacheDataConverter;
 import com.netflix.spinnaker.clouddriver.kubernetes.config.CustomKubernetesResource;
 import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesAccountProperties.ManagedAccount;
 import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesCachingPolicy;
+import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesConfigurationProperties;
 import com.netflix.spinnaker.clouddriver.kubernetes.config.LinkedDockerRegistryConfiguration;
 import com.netflix.spinnaker.clouddriver.kubernetes.config.RawResourcesEndpointConfig;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.AccountResourcePropertyRegistry;
@@ -51,19 +53,28 @@ import com.netflix.spinnaker.clouddriver.kubernetes.description.ResourceProperty
 import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKindProperties;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesManifest;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesWatchEvent;
 import com.netflix.spinnaker.clouddriver.kubernetes.names.KubernetesNamerRegistry;
 import com.netflix.spinnaker.clouddriver.kubernetes.op.handler.KubernetesCustomResourceHandler;
 import com.netflix.spinnaker.clouddriver.kubernetes.op.handler.KubernetesHandler;
 import com.netflix.spinnaker.clouddriver.kubernetes.op.job.KubectlJobExecutor;
 import com.netflix.spinnaker.clouddriver.kubernetes.op.job.KubectlJobExecutor.KubectlException;
 import com.netflix.spinnaker.clouddriver.kubernetes.op.job.KubectlJobExecutor.KubectlNotFoundException;
+import com.netflix.spinnaker.clouddriver.kubernetes.op.job.KubernetesApiReader;
 import com.netflix.spinnaker.kork.configserver.ConfigFileService;
 import com.netflix.spinnaker.moniker.Namer;
 import io.kubernetes.client.openapi.models.V1DeleteOptions;
 import io.kubernetes.client.openapi.models.V1beta1CustomResourceDefinition;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -87,6 +98,7 @@ public class KubernetesCredentials {
   private final Clock clock;
   private final KubectlJobExecutor jobExecutor;
   private final GlobalResourcePropertyRegistry globalResourcePropertyRegistry;
+  private final Semaphore namespaceListingPermits;
 
   @Include @Getter @Nonnull private final String accountName;
 
@@ -116,6 +128,16 @@ public class KubernetesCredentials {
 
   @Include @Getter private final boolean cacheAllApplicationRelationships;
 
+  @Include @Getter private final boolean cacheUsingWatch;
+
+  @Include @Getter private final long cacheWatchResyncSeconds;
+
+  @Include @Getter private final boolean useApiClientForReads;
+
+  @Include @Getter private final int listPageSize;
+
+  @Include @Getter private final int cacheNamespaceListingThreads;
+
   @Include @Getter private final RawResourcesEndpointConfig rawResourcesEndpointConfig;
 
   @Include private final boolean checkPermissionsOnStartup;
@@ -139,6 +161,10 @@ public class KubernetesCredentials {
   private final Memoizer<ImmutableList<String>> liveNamespaceSupplier =
       Memoizer.memoizeWithExpiration(
           this::namespaceSupplier, NAMESPACE_EXPIRY_SECONDS, TimeUnit.SECONDS);
+  private final Supplier<KubernetesApiReader> apiReader =
+      Suppliers.memoize(() -> KubernetesApiReader.forCredentials(this, getListPageSize()));
+  private final Supplier<ExecutorService> namespaceListingExecutor =
+      Suppliers.memoize(this::createNamespaceListingExecutor);
   @Getter private final Namer<KubernetesManifest> namer;
 
   private KubernetesCredentials(
@@ -150,7 +176,8 @@ public class KubernetesCredentials {
       KubernetesSpinnakerKindMap kubernetesSpinnakerKindMap,
       String kubeconfigFile,
       Namer<KubernetesManifest> manifestNamer,
-      GlobalResourcePropertyRegistry globalResourcePropertyRegistry) {
+      GlobalResourcePropertyRegistry globalResourcePropertyRegistry,
+      Semaphore namespaceListingPermits) {
     this.registry = registry;
     this.clock = registry.clock();
     this.jobExecutor = jobExecutor;
@@ -204,8 +231,14 @@ public class KubernetesCredentials {
     this.debug = managedAccount.isDebug();
     this.namer = manifestNamer;
     this.cacheAllApplicationRelationships = managedAccount.isCacheAllApplicationRelationships();
+    this.cacheUsingWatch = managedAccount.isCacheUsingWatch();
+    this.cacheWatchResyncSeconds = managedAccount.getCacheWatchResyncSeconds();
+    this.useApiClientForReads = managedAccount.isUseApiClientForReads();
+    this.listPageSize = managedAccount.getListPageSize();
+    this.cacheNamespaceListingThreads = managedAccount.getCacheNamespaceListingThreads();
     this.rawResourcesEndpointConfig = managedAccount.getRawResourcesEndpointConfig();
     this.globalResourcePropertyRegistry = globalResourcePropertyRegistry;
+    this.namespaceListingPermits = namespaceListingPermits;
   }
 
   /**
@@ -442,7 +475,10 @@ public class KubernetesCredentials {
         "get",
         coords.getKind(),
         coords.getNamespace(),
-        () -> jobExecutor.get(this, coords.getKind(), coords.getNamespace(), coords.getName()));
+        () ->
+            readsUseApiClient()
+                ? apiReader.get().get(coords.getKind(), coords.getNamespace(), coords.getName())
+                : jobExecutor.get(this, coords.getKind(), coords.getNamespace(), coords.getName()));
   }
 
   @Nonnull
@@ -451,9 +487,7 @@ public class KubernetesCredentials {
         "list",
         kind,
         namespace,
-        () ->
-            jobExecutor.list(
-                this, ImmutableList.of(kind), namespace, new KubernetesSelectorList()));
+        () -> listResources(ImmutableList.of(kind), namespace, new KubernetesSelectorList()));
   }
 
   @Nonnull
@@ -463,7 +497,7 @@ public class KubernetesCredentials {
         "list",
         kind,
         namespace,
-        () -> jobExecutor.list(this, ImmutableList.of(kind), namespace, selectors));
+        () -> listResources(ImmutableList.of(kind), namespace, selectors));
   }
 
   @Nonnull
@@ -475,7 +509,103 @@ public class KubernetesCredentials {
           "list",
           kinds,
           namespace,
-          () -> jobExecutor.list(this, kinds, namespace, new KubernetesSelectorList()));
+          () -> listResources(kinds, namespace, new KubernetesSelectorList()));
+    }
+  }
+
+  /**
+   * Lists {@code kinds} in {@code namespace} in the background, on a pool of the account's {@code
+   * cacheNamespaceListingThreads} threads. Across all accounts, at most {@code
+   * kubernetes.maxConcurrentNamespaceListings} of these listings run at once; the time spent
+   * waiting for one of those slots is recorded separately from the time spent listing.
+   */
+  public CompletableFuture<ImmutableList<KubernetesManifest>> listAsync(
+      List<KubernetesKind> kinds, String namespace) {
+    long submitTime = clock.monotonicTime();
+    return CompletableFuture.supplyAsync(
+        () -> {
+          namespaceListingPermits.acquireUninterruptibly();
+          try {
+            registry
+                .timer("kubernetes.namespaceListing.wait", "account", accountName)
+                .record(clock.monotonicTime() - submitTime, TimeUnit.NANOSECONDS);
+            return list(kinds, namespace);
+          } finally {
+            namespaceListingPermits.release();
+          }
+        },
+        namespaceListingExecutor.get());
+  }
+
+  /**
+   * The pool's threads time out when idle, so the pool of credentials that have been replaced
+   * (when the account's configuration changes) doesn't outlive them.
+   */
+  private ExecutorService createNamespaceListingExecutor() {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            cacheNamespaceListingThreads,
+            cacheNamespaceListingThreads,
+            60,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder()
+                .setNameFormat("kubernetes-namespace-listing-" + accountName + "-%d")
+                .setDaemon(true)
+                .build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private ImmutableList<KubernetesManifest> listResources(
+      List<KubernetesKind> kinds, String namespace, KubernetesSelectorList selectors) {
+    return readsUseApiClient()
+        ? apiReader.get().list(kinds, namespace, selectors)
+        : jobExecutor.list(this, kinds, namespace, selectors);
+  }
+
+  /**
+   * Reads go straight to the API server when enabled, except for accounts authenticating with an
+   * OAuth service account, whose tokens are only available through kubectl's oauth2l helper.
+   */
+  private boolean readsUseApiClient() {
+    return useApiClientForReads && Strings.isNullOrEmpty(oAuthServiceAccount);
+  }
+
+  /**
+   * Returns the current resource version of {@code kind}, from which a watch can report every
+   * change made since, or null if this account's watches run through kubectl, which can only watch
+   * from the moment it starts watching.
+   */
+  @Nullable
+  public String currentResourceVersion(KubernetesKind kind) {
+    if (!readsUseApiClient()) {
+      return null;
+    }
+    return runAndRecordMetrics(
+        "list", kind, null, () -> apiReader.get().currentResourceVersion(kind));
+  }
+
+  /**
+   * Watches resources of {@code kind} until the watch ends after {@code timeout}, or the API server
+   * ends it earlier. Watches are long-lived, so unlike other operations they aren't recorded as API
+   * latency.
+   *
+   * @param namespace the namespace to watch, or null to watch every namespace
+   * @param resourceVersion the version to report changes from, as returned by {@link
+   *     #currentResourceVersion}; kubectl watches, for which it is null, report changes from the
+   *     moment they start
+   */
+  public void watch(
+      KubernetesKind kind,
+      @Nullable String namespace,
+      @Nullable String resourceVersion,
+      Duration timeout,
+      Consumer<KubernetesWatchEvent> onEvent) {
+    if (resourceVersion != null && readsUseApiClient()) {
+      apiReader.get().watch(kind, namespace, resourceVersion, timeout, onEvent);
+    } else {
+      jobExecutor.watch(this, kind, namespace, timeout, onEvent);
     }
   }
 
@@ -495,7 +625,12 @@ public class KubernetesCredentials {
         KubernetesKind.EVENT,
         coords.getNamespace(),
         () ->
-            jobExecutor.eventsFor(this, coords.getKind(), coords.getNamespace(), coords.getName()));
+            readsUseApiClient()
+                ? apiReader
+                    .get()
+                    .eventsFor(coords.getKind(), coords.getNamespace(), coords.getName())
+                : jobExecutor.eventsFor(
+                    this, coords.getKind(), coords.getNamespace(), coords.getName()));
   }
 
   public String logs(String namespace, String podName, String containerName) {
@@ -550,7 +685,10 @@ public class KubernetesCredentials {
         "top",
         KubernetesKind.POD,
         coords.getNamespace(),
-        () -> jobExecutor.topPod(this, coords.getNamespace(), coords.getName()));
+        () ->
+            readsUseApiClient()
+                ? apiReader.get().topPod(coords.getNamespace(), coords.getName())
+                : jobExecutor.topPod(this, coords.getNamespace(), coords.getName()));
   }
 
   public KubernetesManifest deploy(KubernetesManifest manifest) {
@@ -793,6 +931,15 @@ public class KubernetesCredentials {
     private final KubernetesKindRegistry.Factory kindRegistryFactory;
     private final KubernetesSpinnakerKindMap kubernetesSpinnakerKindMap;
     private final GlobalResourcePropertyRegistry globalResourcePropertyRegistry;
+    private final KubernetesConfigurationProperties kubernetesConfigurationProperties;
+    // shared by every account's credentials, to bound concurrent listings across accounts
+    private final Supplier<Semaphore> namespaceListingPermits =
+        Suppliers.memoize(
+            () ->
+                new Semaphore(
+                    Math.max(
+                        kubernetesConfigurationProperties.getMaxConcurrentNamespaceListings(),
+                        1)));
 
     public KubernetesCredentials build(ManagedAccount managedAccount) {
       Namer<KubernetesManifest> manifestNamer =
@@ -806,7 +953,8 @@ public class KubernetesCredentials {
           kubernetesSpinnakerKindMap,
           getKubeconfigFile(configFileService, managedAccount),
           manifestNamer,
-          globalResourcePropertyRegistry);
+          globalResourcePropertyRegistry,
+          namespaceListingPermits.get());
     }
 
     private String getKubeconfigFile(
@@ -21,6 +21,7 @@ import com.google.common.collect.ImmutableList
 import com.netflix.spectator.api.NoopRegistry
 import com.netflix.spectator.api.Registry
 import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesAccountProperties.ManagedAccount
+import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesConfigurationProperties
 import com.netflix.spinnaker.clouddriver.kubernetes.description.AccountResourcePropertyRegistry
 import com.netflix.spinnaker.clouddriver.kubernetes.description.GlobalResourcePropertyRegistry
 import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesSpinnakerKindMap
@@ -56,7 +57,8 @@ class KubernetesCredentialsSpec extends Specification {
     resourcePropertyRegistryFactory,
     kindRegistryFactory,
     kubernetesSpinnakerKindMap,
-    globalResourcePropertyRegistry
+    globalResourcePropertyRegistry,
+    new KubernetesConfigurationProperties()
   )
 
 
@@ -20,6 +20,7 @@ package com.netflix.spinnaker.clouddriver.kubernetes.security
 import com.google.common.collect.ImmutableList
 import com.netflix.spectator.api.NoopRegistry
 import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesAccountProperties.ManagedAccount
+import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesConfigurationProperties
 import com.netflix.spinnaker.clouddriver.kubernetes.description.AccountResourcePropertyRegistry
 import com.netflix.spinnaker.clouddriver.kubernetes.description.GlobalResourcePropertyRegistry
 import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesSpinnakerKindMap
@@ -51,7 +52,8 @@ class KubernetesNamedAccountCredentialsSpec extends Specification {
     resourcePropertyRegistryFactory,
     kindRegistryFactory,
     kubernetesSpinnakerKindMap,
-    globalResourcePropertyRegistry
+    globalResourcePropertyRegistry,
+    new KubernetesConfigurationProperties()
   )
 
 
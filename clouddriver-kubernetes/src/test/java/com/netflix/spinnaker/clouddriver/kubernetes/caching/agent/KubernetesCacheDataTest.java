@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.caching.agent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys;
+import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys.ApplicationCacheKey;
+import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys.ClusterCacheKey;
+import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys.InfrastructureCacheKey;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+final class KubernetesCacheDataTest {
+  private static final String ACCOUNT = "my-account";
+  private static final String NAMESPACE = "my-namespace";
+  private static final ApplicationCacheKey APPLICATION = new ApplicationCacheKey("app");
+  private static final ClusterCacheKey CLUSTER = new ClusterCacheKey(ACCOUNT, "app", "cluster");
+
+  @Test
+  void relationshipsAreBidirectionalAndDistinct() {
+    KubernetesCacheData cacheData = new KubernetesCacheData();
+    InfrastructureCacheKey pod = pod("pod");
+    cacheData.addItem(pod, ImmutableMap.of("name", "pod"));
+    for (int i = 0; i < 10; i++) {
+      cacheData.addRelationship(pod, CLUSTER);
+      cacheData.addRelationships(CLUSTER, ImmutableSet.of(APPLICATION, pod));
+    }
+
+    Map<String, Collection<CacheData>> result = cacheData.toStratifiedCacheData();
+
+    CacheData podData = single(result, KubernetesKind.POD.toString());
+    assertThat(podData.getId()).isEqualTo(pod.toString());
+    assertThat(podData.getRelationships().get(Keys.LogicalKind.CLUSTERS.toString()))
+        .containsExactly(CLUSTER.toString());
+
+    CacheData clusterData = single(result, Keys.LogicalKind.CLUSTERS.toString());
+    assertThat(clusterData.getAttributes()).containsEntry("name", "cluster");
+    assertThat(clusterData.getRelationships().get(KubernetesKind.POD.toString()))
+        .containsExactly(pod.toString());
+    assertThat(clusterData.getRelationships().get(Keys.LogicalKind.APPLICATIONS.toString()))
+        .containsExactly(APPLICATION.toString());
+
+    CacheData applicationData = single(result, Keys.LogicalKind.APPLICATIONS.toString());
+    assertThat(applicationData.getRelationships().get(Keys.LogicalKind.CLUSTERS.toString()))
+        .containsExactly(CLUSTER.toString());
+  }
+
+  @Test
+  void keepsEveryRelationshipOfLargeItems() {
+    KubernetesCacheData cacheData = new KubernetesCacheData();
+    IntStream.range(0, 1000)
+        .forEach(
+            i -> {
+              InfrastructureCacheKey pod = pod("pod-" + i);
+              cacheData.addItem(pod, ImmutableMap.of("name", "pod-" + i));
+              cacheData.addRelationship(pod, CLUSTER);
+              cacheData.addRelationship(CLUSTER, pod("pod-" + (i / 2)));
+            });
+
+    CacheData clusterData =
+        single(cacheData.toStratifiedCacheData(), Keys.LogicalKind.CLUSTERS.toString());
+
+    assertThat(clusterData.getRelationships().get(KubernetesKind.POD.toString())).hasSize(1000);
+  }
+
+  @Test
+  void omitsInfrastructureItemsWithoutAttributes() {
+    KubernetesCacheData cacheData = new KubernetesCacheData();
+    InfrastructureCacheKey pod = pod("pod");
+    InfrastructureCacheKey deleted = pod("deleted");
+    cacheData.addItem(pod, ImmutableMap.of("name", "pod"));
+    cacheData.addRelationship(pod, deleted);
+
+    assertThat(cacheData.toCacheData())
+        .extracting(CacheData::getId)
+        .containsExactly(pod.toString());
+  }
+
+  private static InfrastructureCacheKey pod(String name) {
+    return new InfrastructureCacheKey(KubernetesKind.POD, ACCOUNT, NAMESPACE, name);
+  }
+
+  private static CacheData single(Map<String, Collection<CacheData>> cacheData, String group) {
+    assertThat(cacheData.get(group)).hasSize(1);
+    return cacheData.get(group).iterator().next();
+  }
+}
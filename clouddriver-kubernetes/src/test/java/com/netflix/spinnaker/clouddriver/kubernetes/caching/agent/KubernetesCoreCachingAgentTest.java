@@ -21,7 +21,13 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.netflix.spinnaker.cats.agent.AgentDataType.Authority.AUTHORITATIVE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -41,6 +47,7 @@ import com.netflix.spinnaker.cats.provider.DefaultProviderCache;
 import com.netflix.spinnaker.cats.provider.ProviderCache;
 import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys;
 import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesAccountProperties.ManagedAccount;
+import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesCachingPolicy;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.GlobalResourcePropertyRegistry;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesCoordinates;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.ResourcePropertyRegistry;
@@ -52,8 +59,10 @@ import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesNamedAcco
 import com.netflix.spinnaker.moniker.Namer;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.IntStream;
 import lombok.Value;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.junit.platform.runner.JUnitPlatform;
@@ -116,8 +125,9 @@ final class KubernetesCoreCachingAgentTest {
   }
 
   /** Returns a mock KubernetesCredentials object */
-  private static KubernetesCredentials mockKubernetesCredentials() {
+  private static KubernetesCredentials mockKubernetesCredentials(int namespaceListingThreads) {
     KubernetesCredentials credentials = mock(KubernetesCredentials.class);
+    when(credentials.getCacheNamespaceListingThreads()).thenReturn(namespaceListingThreads);
     when(credentials.getGlobalKinds()).thenReturn(kindProperties.keySet().asList());
     when(credentials.getKindProperties(any(KubernetesKind.class)))
         .thenAnswer(invocation -> kindProperties.get(invocation.getArgument(0)));
@@ -153,6 +163,14 @@ final class KubernetesCoreCachingAgentTest {
                   }
                   return result.build();
                 });
+    when(credentials.listAsync(any(List.class), any()))
+        .thenAnswer(
+            invocation ->
+                CompletableFuture.supplyAsync(
+                    () ->
+                        credentials.list(
+                            (List<KubernetesKind>) invocation.getArgument(0),
+                            (String) invocation.getArgument(1))));
     when(credentials.getNamer()).thenReturn(NAMER);
     return credentials;
   }
@@ -161,10 +179,15 @@ final class KubernetesCoreCachingAgentTest {
    * Returns a KubernetesNamedAccountCredentials that contains a mock KubernetesCredentials object
    */
   private static KubernetesNamedAccountCredentials getNamedAccountCredentials() {
+    return getNamedAccountCredentials(1);
+  }
+
+  private static KubernetesNamedAccountCredentials getNamedAccountCredentials(
+      int namespaceListingThreads) {
     ManagedAccount managedAccount = new ManagedAccount();
     managedAccount.setName(ACCOUNT);
 
-    KubernetesCredentials mockCredentials = mockKubernetesCredentials();
+    KubernetesCredentials mockCredentials = mockKubernetesCredentials(namespaceListingThreads);
     KubernetesCredentials.Factory credentialFactory = mock(KubernetesCredentials.Factory.class);
     when(credentialFactory.build(managedAccount)).thenReturn(mockCredentials);
     return new KubernetesNamedAccountCredentials(managedAccount, credentialFactory);
@@ -255,6 +278,118 @@ final class KubernetesCoreCachingAgentTest {
         .containsExactly(STORAGE_CLASS_NAME);
   }
 
+  @ParameterizedTest
+  @ValueSource(ints = {2, 10})
+  public void loadDataListingNamespacesConcurrently(int namespaceListingThreads) {
+    String deploymentKey =
+        Keys.InfrastructureCacheKey.createKey(
+            KubernetesKind.DEPLOYMENT, ACCOUNT, NAMESPACE1, DEPLOYMENT_NAME);
+
+    ImmutableCollection<KubernetesCoreCachingAgent> cachingAgents =
+        createCachingAgents(getNamedAccountCredentials(namespaceListingThreads), 1);
+    LoadDataResult loadDataResult = processLoadData(cachingAgents, ImmutableMap.of());
+
+    assertThat(loadDataResult.getResults().get(DEPLOYMENT_KIND))
+        .extracting(CacheData::getId)
+        .containsExactly(deploymentKey);
+    assertThat(loadDataResult.getResults().get(STORAGE_CLASS_KIND))
+        .extracting(storageClass -> storageClass.getAttributes().get("name"))
+        .containsExactly(STORAGE_CLASS_NAME);
+  }
+
+  @Test
+  public void loadDataListsAndConvertsEachNamespaceSeparately() {
+    KubernetesNamedAccountCredentials namedCredentials = getNamedAccountCredentials();
+    KubernetesCredentials credentials = namedCredentials.getCredentials();
+    stubDeploymentsPerNamespace(credentials, 2);
+
+    LoadDataResult loadDataResult =
+        processLoadData(createCachingAgents(namedCredentials, 1), ImmutableMap.of());
+
+    verify(credentials).list(any(List.class), eq(NAMESPACE1));
+    verify(credentials).list(any(List.class), eq(NAMESPACE2));
+    assertThat(loadDataResult.getResults().get(DEPLOYMENT_KIND))
+        .extracting(deployment -> deployment.getAttributes().get("name"))
+        .containsExactlyInAnyOrder(
+            NAMESPACE1 + "-0", NAMESPACE1 + "-1", NAMESPACE2 + "-0", NAMESPACE2 + "-1");
+    assertThat(loadDataResult.getResults().get(STORAGE_CLASS_KIND))
+        .extracting(storageClass -> storageClass.getAttributes().get("name"))
+        .containsExactly(STORAGE_CLASS_NAME);
+  }
+
+  @Test
+  public void cachingPoliciesLimitEntriesAcrossNamespaces() {
+    KubernetesNamedAccountCredentials namedCredentials = getNamedAccountCredentials();
+    KubernetesCredentials credentials = namedCredentials.getCredentials();
+    stubDeploymentsPerNamespace(credentials, 2);
+    KubernetesCachingPolicy policy = new KubernetesCachingPolicy();
+    policy.setKubernetesKind(DEPLOYMENT_KIND);
+    policy.setMaxEntriesPerAgent(3);
+    when(credentials.getCachingPolicies()).thenReturn(ImmutableList.of(policy));
+
+    LoadDataResult loadDataResult =
+        processLoadData(createCachingAgents(namedCredentials, 1), ImmutableMap.of());
+
+    // namespaces are listed in order, so the second one gets what the first one left over
+    assertThat(loadDataResult.getResults().get(DEPLOYMENT_KIND))
+        .extracting(deployment -> deployment.getAttributes().get("name"))
+        .containsExactlyInAnyOrder(NAMESPACE1 + "-0", NAMESPACE1 + "-1", NAMESPACE2 + "-0");
+  }
+
+  @Test
+  public void loadDataConvertsTheResourcesOfLoadPrimaryResourceList() {
+    KubernetesNamedAccountCredentials namedCredentials = getNamedAccountCredentials();
+    KubernetesCredentials credentials = namedCredentials.getCredentials();
+    KubernetesManifest deployment = deploymentManifest();
+    deployment.setNamespace(NAMESPACE2);
+    KubernetesCoreCachingAgent cachingAgent =
+        spy(createCachingAgents(namedCredentials, 1).iterator().next());
+    doReturn(
+            ImmutableMap.of(
+                KubernetesKind.DEPLOYMENT,
+                ImmutableList.of(deploymentManifest(), deployment),
+                KubernetesKind.STORAGE_CLASS,
+                ImmutableList.of(storageClassManifest())))
+        .when(cachingAgent)
+        .loadPrimaryResourceList();
+
+    LoadDataResult loadDataResult =
+        processLoadData(ImmutableList.of(cachingAgent), ImmutableMap.of());
+
+    verify(credentials, never()).list(any(List.class), any());
+    assertThat(loadDataResult.getResults().get(DEPLOYMENT_KIND))
+        .extracting(d -> d.getAttributes().get("namespace"))
+        .containsExactlyInAnyOrder(NAMESPACE1, NAMESPACE2);
+    assertThat(loadDataResult.getResults().get(STORAGE_CLASS_KIND))
+        .extracting(storageClass -> storageClass.getAttributes().get("name"))
+        .containsExactly(STORAGE_CLASS_NAME);
+  }
+
+  /** Has each namespace of {@code credentials} list {@code count} deployments. */
+  private static void stubDeploymentsPerNamespace(KubernetesCredentials credentials, int count) {
+    doAnswer(
+            invocation -> {
+              List<KubernetesKind> kinds = invocation.getArgument(0);
+              String namespace = invocation.getArgument(1);
+              ImmutableList.Builder<KubernetesManifest> result = ImmutableList.builder();
+              if (namespace == null) {
+                if (kinds.contains(KubernetesKind.STORAGE_CLASS)) {
+                  result.add(storageClassManifest());
+                }
+              } else if (kinds.contains(KubernetesKind.DEPLOYMENT)) {
+                for (int i = 0; i < count; i++) {
+                  KubernetesManifest deployment = deploymentManifest();
+                  deployment.setNamespace(namespace);
+                  deployment.setName(namespace + "-" + i);
+                  result.add(deployment);
+                }
+              }
+              return result.build();
+            })
+        .when(credentials)
+        .list(any(List.class), any());
+  }
+
   /**
    * Given an on-demand cache request, constructs a set of caching agents and sends the on-demand
    * request to those agents, returning a collection of all non-null results of handing those
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.caching.agent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesApiVersion;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesManifest;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesWatchEvent;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesWatchEvent.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+final class KubernetesResourceWatcherTest {
+  private static final String NAMESPACE = "test-namespace";
+  private static final ImmutableSet<KubernetesKind> KINDS = ImmutableSet.of(KubernetesKind.POD);
+
+  private final List<Runnable> pendingWatches = new ArrayList<>();
+  private final Map<KubernetesKind, Consumer<KubernetesWatchEvent>> consumers =
+      new ConcurrentHashMap<>();
+  private final Map<KubernetesKind, CompletableFuture<Void>> watchEnds = new ConcurrentHashMap<>();
+  private final List<String> watchedVersions = new CopyOnWriteArrayList<>();
+  private final List<Thread> watchThreads = new ArrayList<>();
+  private volatile String currentVersion = null;
+
+  private final KubernetesResourceWatcher watcher =
+      new KubernetesResourceWatcher(
+          "test",
+          new KubernetesResourceWatcher.Watch() {
+            @Override
+            public String currentVersion(KubernetesKind kind) {
+              return currentVersion;
+            }
+
+            @Override
+            public void run(
+                KubernetesKind kind,
+                String resourceVersion,
+                Consumer<KubernetesWatchEvent> onEvent) {
+              CompletableFuture<Void> end = new CompletableFuture<>();
+              watchEnds.put(kind, end);
+              consumers.put(kind, onEvent);
+              watchedVersions.add(String.valueOf(resourceVersion));
+              end.join();
+            }
+          },
+          pendingWatches::add);
+  private final KubernetesResourceWatcher.Subscription subscription = watcher.subscribe();
+
+  @AfterEach
+  void endWatches() throws InterruptedException {
+    for (Thread thread : watchThreads) {
+      while (thread.isAlive()) {
+        watchEnds.values().forEach(end -> end.complete(null));
+        thread.join(10);
+      }
+    }
+  }
+
+  @Test
+  void appliesWatchedChangesWithoutListingAgain() throws InterruptedException {
+    AtomicInteger lists = new AtomicInteger();
+    Supplier<Collection<KubernetesManifest>> list =
+        () -> {
+          lists.incrementAndGet();
+          return ImmutableList.of(pod("a", "1"), pod("b", "2"));
+        };
+
+    assertThat(names(subscription.getResources(KINDS, m -> true, list)))
+        .containsExactlyInAnyOrder("a", "b");
+    startWatches();
+
+    send(Type.MODIFIED, pod("a", "3"));
+    send(Type.ADDED, pod("c", "4"));
+    send(Type.DELETED, pod("b", "5"));
+
+    ImmutableList<KubernetesManifest> resources = subscription.getResources(KINDS, m -> true, list);
+    assertThat(names(resources)).containsExactlyInAnyOrder("a", "c");
+    assertThat(resources)
+        .filteredOn(m -> m.getName().equals("a"))
+        .extracting(KubernetesManifest::getResourceVersion)
+        .containsExactly("3");
+    assertThat(lists).hasValue(1);
+  }
+
+  @Test
+  void replaysChangesReportedWhileListing() throws InterruptedException {
+    Supplier<Collection<KubernetesManifest>> list =
+        () -> {
+          try {
+            startWatches();
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          send(Type.MODIFIED, pod("a", "3"));
+          send(Type.MODIFIED, pod("b", "1"));
+          return ImmutableList.of(pod("a", "2"), pod("b", "2"));
+        };
+
+    ImmutableList<KubernetesManifest> resources = subscription.getResources(KINDS, m -> true, list);
+
+    Map<String, String> versions = new HashMap<>();
+    resources.forEach(m -> versions.put(m.getName(), m.getResourceVersion()));
+    assertThat(versions).containsEntry("a", "3").containsEntry("b", "2");
+  }
+
+  @Test
+  void listsAgainAfterWatchEnds() throws InterruptedException {
+    AtomicInteger lists = new AtomicInteger();
+    Supplier<Collection<KubernetesManifest>> list =
+        () -> ImmutableList.of(pod("a", String.valueOf(lists.incrementAndGet())));
+
+    subscription.getResources(KINDS, m -> true, list);
+    startWatches();
+    endWatch(KubernetesKind.POD);
+
+    ImmutableList<KubernetesManifest> resources = subscription.getResources(KINDS, m -> true, list);
+    assertThat(resources)
+        .extracting(KubernetesManifest::getResourceVersion)
+        .containsExactly("2");
+    assertThat(pendingWatches).hasSize(1);
+  }
+
+  @Test
+  void keepsOnlyAcceptedResources() throws InterruptedException {
+    Supplier<Collection<KubernetesManifest>> list =
+        () -> ImmutableList.of(pod("a", "1"), pod("other-namespace", "b", "1"));
+
+    assertThat(
+            names(subscription.getResources(KINDS, m -> m.getNamespace().equals(NAMESPACE), list)))
+        .containsExactly("a");
+    startWatches();
+    send(Type.ADDED, pod("other-namespace", "c", "2"));
+
+    assertThat(
+            names(subscription.getResources(KINDS, m -> m.getNamespace().equals(NAMESPACE), list)))
+        .containsExactly("a");
+  }
+
+  @Test
+  void sharesWatchesBetweenSubscriptions() throws InterruptedException {
+    KubernetesResourceWatcher.Subscription other = watcher.subscribe();
+    Supplier<Collection<KubernetesManifest>> list =
+        () -> ImmutableList.of(pod("a", "1"), pod("other-namespace", "b", "1"));
+
+    subscription.getResources(KINDS, m -> m.getNamespace().equals(NAMESPACE), list);
+    other.getResources(KINDS, m -> m.getNamespace().equals("other-namespace"), list);
+    assertThat(pendingWatches).hasSize(1);
+    startWatches();
+    send(Type.ADDED, pod("c", "2"));
+    send(Type.ADDED, pod("other-namespace", "d", "2"));
+
+    assertThat(
+            names(subscription.getResources(KINDS, m -> m.getNamespace().equals(NAMESPACE), list)))
+        .containsExactlyInAnyOrder("a", "c");
+    assertThat(
+            names(other.getResources(KINDS, m -> m.getNamespace().equals("other-namespace"), list)))
+        .containsExactlyInAnyOrder("b", "d");
+  }
+
+  @Test
+  void resumesWatchFromLastVersionWithoutListingAgain() throws InterruptedException {
+    currentVersion = "1";
+    AtomicInteger lists = new AtomicInteger();
+    Supplier<Collection<KubernetesManifest>> list =
+        () -> {
+          lists.incrementAndGet();
+          return ImmutableList.of(pod("a", "1"));
+        };
+
+    subscription.getResources(KINDS, m -> true, list);
+    startWatches();
+    send(Type.MODIFIED, pod("a", "2"));
+    subscription.getResources(KINDS, m -> true, list);
+    endWatchAndAwaitResume(KubernetesKind.POD);
+    send(Type.ADDED, pod("b", "3"));
+
+    ImmutableList<KubernetesManifest> resources = subscription.getResources(KINDS, m -> true, list);
+    assertThat(names(resources)).containsExactlyInAnyOrder("a", "b");
+    assertThat(watchedVersions).containsExactly("1", "2");
+    assertThat(lists).hasValue(1);
+  }
+
+  @Test
+  void listsAgainWhenWatchCantBeResumed() throws InterruptedException {
+    currentVersion = "1";
+    AtomicInteger lists = new AtomicInteger();
+    Supplier<Collection<KubernetesManifest>> list =
+        () -> {
+          lists.incrementAndGet();
+          return ImmutableList.of(pod("a", "1"));
+        };
+
+    subscription.getResources(KINDS, m -> true, list);
+    startWatches();
+    consumers
+        .get(KubernetesKind.POD)
+        .accept(new KubernetesWatchEvent(Type.ERROR, new KubernetesManifest()));
+    subscription.getResources(KINDS, m -> true, list);
+    endWatch(KubernetesKind.POD);
+
+    subscription.getResources(KINDS, m -> true, list);
+    assertThat(lists).hasValue(2);
+    assertThat(pendingWatches).hasSize(1);
+  }
+
+  /** Runs the watches started by the watcher, waiting until each is receiving events. */
+  private void startWatches() throws InterruptedException {
+    List<Runnable> watches = new ArrayList<>(pendingWatches);
+    pendingWatches.clear();
+    consumers.clear();
+    for (Runnable watch : watches) {
+      Thread thread = new Thread(watch);
+      watchThreads.add(thread);
+      thread.start();
+    }
+    while (consumers.size() < watches.size()) {
+      Thread.sleep(10);
+    }
+  }
+
+  private void endWatch(KubernetesKind kind) throws InterruptedException {
+    watchEnds.remove(kind).complete(null);
+    for (Thread thread : watchThreads) {
+      thread.join();
+    }
+  }
+
+  private void endWatchAndAwaitResume(KubernetesKind kind) throws InterruptedException {
+    int watches = watchedVersions.size();
+    watchEnds.get(kind).complete(null);
+    while (watchedVersions.size() == watches) {
+      Thread.sleep(10);
+    }
+  }
+
+  private void send(Type type, KubernetesManifest manifest) {
+    consumers.get(manifest.getKind()).accept(new KubernetesWatchEvent(type, manifest));
+  }
+
+  private static List<String> names(Collection<KubernetesManifest> manifests) {
+    List<String> names = new ArrayList<>();
+    manifests.forEach(m -> names.add(m.getName()));
+    return names;
+  }
+
+  private static KubernetesManifest pod(String name, String resourceVersion) {
+    return pod(NAMESPACE, name, resourceVersion);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static KubernetesManifest pod(String namespace, String name, String resourceVersion) {
+    KubernetesManifest pod = new KubernetesManifest();
+    pod.put("metadata", new HashMap<>());
+    pod.setNamespace(namespace);
+    pod.setKind(KubernetesKind.POD);
+    pod.setApiVersion(KubernetesApiVersion.V1);
+    pod.setName(name);
+    ((Map<String, Object>) pod.get("metadata")).put("resourceVersion", resourceVersion);
+    return pod;
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.caching.view.provider;
+
+import static com.netflix.spinnaker.clouddriver.kubernetes.description.SpinnakerKind.INSTANCES;
+import static com.netflix.spinnaker.clouddriver.kubernetes.description.SpinnakerKind.LOAD_BALANCERS;
+import static com.netflix.spinnaker.clouddriver.kubernetes.description.SpinnakerKind.SERVER_GROUPS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.netflix.spinnaker.cats.cache.CacheData;
+import com.netflix.spinnaker.cats.cache.DefaultCacheData;
+import com.netflix.spinnaker.cats.mem.InMemoryCache;
+import com.netflix.spinnaker.clouddriver.kubernetes.caching.Keys;
+import com.netflix.spinnaker.clouddriver.kubernetes.caching.view.provider.KubernetesCacheUtils.RelationshipGraph;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesSpinnakerKindMap;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
+import com.netflix.spinnaker.clouddriver.kubernetes.op.handler.KubernetesPodHandler;
+import com.netflix.spinnaker.clouddriver.kubernetes.op.handler.KubernetesReplicaSetHandler;
+import com.netflix.spinnaker.clouddriver.kubernetes.op.handler.KubernetesServiceHandler;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+final class KubernetesCacheUtilsTest {
+  private static final String ACCOUNT = "my-account";
+  private static final String NAMESPACE = "my-namespace";
+  private static final String CLUSTERS = Keys.LogicalKind.CLUSTERS.toString();
+  private static final String REPLICA_SET = KubernetesKind.REPLICA_SET.toString();
+  private static final String POD = KubernetesKind.POD.toString();
+  private static final String SERVICE = KubernetesKind.SERVICE.toString();
+
+  private static final String CLUSTER_A = Keys.ClusterCacheKey.createKey(ACCOUNT, "app", "a");
+  private static final String CLUSTER_B = Keys.ClusterCacheKey.createKey(ACCOUNT, "app", "b");
+  private static final String REPLICA_SET_A = key(KubernetesKind.REPLICA_SET, "a-v000");
+  private static final String REPLICA_SET_B = key(KubernetesKind.REPLICA_SET, "b-v000");
+  private static final String POD_A = key(KubernetesKind.POD, "a-v000-abcde");
+  private static final String POD_B = key(KubernetesKind.POD, "b-v000-abcde");
+  private static final String SERVICE_SHARED = key(KubernetesKind.SERVICE, "shared");
+  private static final String SERVICE_DELETED = key(KubernetesKind.SERVICE, "deleted");
+
+  private final InMemoryCache cache = spy(new InMemoryCache());
+  private final KubernetesCacheUtils cacheUtils =
+      new KubernetesCacheUtils(
+          cache,
+          new KubernetesSpinnakerKindMap(
+              ImmutableList.of(
+                  new KubernetesReplicaSetHandler(),
+                  new KubernetesPodHandler(),
+                  new KubernetesServiceHandler())),
+          mock(KubernetesAccountResolver.class));
+
+  @Test
+  void loadsEachLevelOnceAndSharesRelatedItems() {
+    Collection<CacheData> clusters = populateCache();
+
+    RelationshipGraph graph =
+        cacheUtils.loadRelationshipGraph(
+            clusters,
+            ImmutableList.of(
+                ImmutableSet.of(SERVER_GROUPS), ImmutableSet.of(INSTANCES, LOAD_BALANCERS)));
+
+    verify(cache, times(1)).getAll(eq(REPLICA_SET), anyCollection());
+    verify(cache, times(1)).getAll(eq(POD), anyCollection());
+    verify(cache, times(1)).getAll(eq(SERVICE), anyCollection());
+
+    Collection<CacheData> serverGroups = graph.getRelationships(clusters, SERVER_GROUPS).values();
+    assertThat(serverGroups)
+        .extracting(CacheData::getId)
+        .containsExactly(REPLICA_SET_A, REPLICA_SET_B);
+    assertThat(graph.getRelationships(serverGroups, INSTANCES).asMap())
+        .containsOnlyKeys(REPLICA_SET_A, REPLICA_SET_B);
+    assertThat(graph.getRelationships(serverGroups, LOAD_BALANCERS).values())
+        .extracting(CacheData::getId)
+        .containsExactly(SERVICE_SHARED, SERVICE_SHARED);
+  }
+
+  @Test
+  void omitsRelationshipsOutsideThePlan() {
+    Collection<CacheData> clusters = populateCache();
+
+    RelationshipGraph graph =
+        cacheUtils.loadRelationshipGraph(
+            clusters, ImmutableList.of(ImmutableSet.of(SERVER_GROUPS)));
+
+    Collection<CacheData> serverGroups = graph.getRelationships(clusters, SERVER_GROUPS).values();
+    assertThat(serverGroups).hasSize(2);
+    assertThat(graph.getRelationships(serverGroups, INSTANCES)).isEmpty();
+    verify(cache, times(0)).getAll(eq(POD), anyCollection());
+  }
+
+  private Collection<CacheData> populateCache() {
+    CacheData clusterA =
+        cacheData(CLUSTER_A, ImmutableMap.of(REPLICA_SET, List.of(REPLICA_SET_A)));
+    CacheData clusterB =
+        cacheData(CLUSTER_B, ImmutableMap.of(REPLICA_SET, List.of(REPLICA_SET_B)));
+    cache.merge(CLUSTERS, clusterA);
+    cache.merge(CLUSTERS, clusterB);
+    cache.merge(
+        REPLICA_SET,
+        cacheData(
+            REPLICA_SET_A,
+            ImmutableMap.of(
+                CLUSTERS, List.of(CLUSTER_A),
+                POD, List.of(POD_A),
+                SERVICE, List.of(SERVICE_SHARED, SERVICE_DELETED))));
+    cache.merge(
+        REPLICA_SET,
+        cacheData(
+            REPLICA_SET_B,
+            ImmutableMap.of(
+                CLUSTERS, List.of(CLUSTER_B),
+                POD, List.of(POD_B),
+                SERVICE, List.of(SERVICE_SHARED))));
+    cache.merge(POD, cacheData(POD_A, ImmutableMap.of(REPLICA_SET, List.of(REPLICA_SET_A))));
+    cache.merge(POD, cacheData(POD_B, ImmutableMap.of(REPLICA_SET, List.of(REPLICA_SET_B))));
+    cache.merge(
+        SERVICE,
+        cacheData(
+            SERVICE_SHARED, ImmutableMap.of(REPLICA_SET, List.of(REPLICA_SET_A, REPLICA_SET_B))));
+    return ImmutableList.of(clusterA, clusterB);
+  }
+
+  private static String key(KubernetesKind kind, String name) {
+    return Keys.InfrastructureCacheKey.createKey(kind, ACCOUNT, NAMESPACE, name);
+  }
+
+  private static CacheData cacheData(String id, Map<String, List<String>> relationships) {
+    return new DefaultCacheData(id, ImmutableMap.of(), new HashMap<>(relationships));
+  }
+}
@@ -35,12 +35,15 @@ import com.netflix.spinnaker.clouddriver.jobs.JobExecutor;
 import com.netflix.spinnaker.clouddriver.jobs.JobRequest;
 import com.netflix.spinnaker.clouddriver.jobs.JobResult;
 import com.netflix.spinnaker.clouddriver.jobs.JobResult.Result;
+import com.netflix.spinnaker.clouddriver.jobs.local.ReaderConsumer;
 import com.netflix.spinnaker.clouddriver.kubernetes.config.KubernetesConfigurationProperties;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesPodMetric;
 import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesPodMetric.ContainerMetric;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
 import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesCredentials;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
@@ -48,6 +51,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.junit.platform.runner.JUnitPlatform;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 
 @RunWith(JUnitPlatform.class)
 final class KubectlJobExecutorTest {
@@ -310,6 +314,57 @@ final class KubectlJobExecutorTest {
     assertTrue(thrown.getMessage().contains("unknown exception"));
   }
 
+  @Test
+  void watchEndsAfterTimeout() {
+    JobExecutor jobExecutor = mock(JobExecutor.class);
+    ArgumentCaptor<JobRequest> request = ArgumentCaptor.forClass(JobRequest.class);
+    when(jobExecutor.runJob(request.capture(), any(ReaderConsumer.class)))
+        .thenReturn(
+            JobResult.<Void>builder()
+                .result(Result.FAILURE)
+                .error("error: watch closed before UntilWithoutRetry timeout")
+                .build());
+
+    KubernetesCredentials credentials = mockKubernetesCredentials();
+    when(credentials.getKubectlRequestTimeoutSeconds()).thenReturn(10);
+
+    KubectlJobExecutor kubectlJobExecutor =
+        new KubectlJobExecutor(
+            jobExecutor, "kubectl", "oauth2l", new KubernetesConfigurationProperties());
+    kubectlJobExecutor.watch(
+        credentials, KubernetesKind.POD, null, Duration.ofSeconds(300), event -> {});
+
+    // the watch ends, and is started again by its caller, once the resync interval elapses
+    assertThat(request.getValue().getTokenizedCommand())
+        .contains("--request-timeout=300s", "--watch-only")
+        .doesNotContain("--request-timeout=10");
+  }
+
+  @Test
+  void watchReportsFailures() {
+    JobExecutor jobExecutor = mock(JobExecutor.class);
+    when(jobExecutor.runJob(any(JobRequest.class), any(ReaderConsumer.class)))
+        .thenReturn(
+            JobResult.<Void>builder()
+                .result(Result.FAILURE)
+                .error("error: the server doesn't have a resource type \"pods\"")
+                .build());
+
+    KubectlJobExecutor kubectlJobExecutor =
+        new KubectlJobExecutor(
+            jobExecutor, "kubectl", "oauth2l", new KubernetesConfigurationProperties());
+
+    assertThrows(
+        KubectlJobExecutor.KubectlException.class,
+        () ->
+            kubectlJobExecutor.watch(
+                mockKubernetesCredentials(),
+                KubernetesKind.POD,
+                null,
+                Duration.ofSeconds(300),
+                event -> {}));
+  }
+
   /** Returns a mock KubernetesCredentials object */
   private static KubernetesCredentials mockKubernetesCredentials() {
     KubernetesCredentials credentials = mock(KubernetesCredentials.class);
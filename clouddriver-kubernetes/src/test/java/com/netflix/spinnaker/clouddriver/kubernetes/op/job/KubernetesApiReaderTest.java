@@ -0,0 +1,239 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.spinnaker.clouddriver.kubernetes.op.job;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.KubernetesPodMetric;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesKind;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesManifest;
+import com.netflix.spinnaker.clouddriver.kubernetes.description.manifest.KubernetesWatchEvent;
+import com.netflix.spinnaker.clouddriver.kubernetes.op.job.KubectlJobExecutor.KubectlException;
+import com.netflix.spinnaker.clouddriver.kubernetes.security.KubernetesSelectorList;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.kubernetes.client.openapi.ApiClient;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.platform.runner.JUnitPlatform;
+import org.junit.runner.RunWith;
+
+@RunWith(JUnitPlatform.class)
+final class KubernetesApiReaderTest {
+  private static final String NAMESPACE = "test-namespace";
+
+  private final Map<String, String> responses = new ConcurrentHashMap<>();
+  private volatile String requiredAuthorization = null;
+  private HttpServer server;
+  private KubernetesApiReader reader;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", this::respond);
+    server.start();
+
+    ApiClient client = new ApiClient();
+    client.setBasePath("http://localhost:" + server.getAddress().getPort());
+    reader = new KubernetesApiReader("test-account", client, "default", 2);
+
+    responses.put(
+        "/api/v1",
+        "{\"groupVersion\":\"v1\",\"resources\":["
+            + "{\"name\":\"pods\",\"kind\":\"Pod\",\"namespaced\":true,"
+            + "\"verbs\":[\"get\",\"list\"]},"
+            + "{\"name\":\"pods/log\",\"kind\":\"Pod\",\"namespaced\":true,\"verbs\":[\"get\"]},"
+            + "{\"name\":\"events\",\"kind\":\"Event\",\"namespaced\":true,"
+            + "\"verbs\":[\"list\"]}]}");
+    responses.put(
+        "/apis",
+        "{\"groups\":[{\"name\":\"apps\",\"preferredVersion\":{\"groupVersion\":\"apps/v1\"}}]}");
+    responses.put(
+        "/apis/apps/v1",
+        "{\"groupVersion\":\"apps/v1\",\"resources\":[{\"name\":\"deployments\","
+            + "\"kind\":\"Deployment\",\"namespaced\":true,\"verbs\":[\"get\",\"list\"]}]}");
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void listsEveryPage() {
+    responses.put(
+        "/api/v1/namespaces/test-namespace/pods?limit=2",
+        "{\"kind\":\"PodList\",\"metadata\":{\"continue\":\"next\"},"
+            + "\"items\":[{\"metadata\":{\"name\":\"a\"}},{\"metadata\":{\"name\":\"b\"}}]}");
+    responses.put(
+        "/api/v1/namespaces/test-namespace/pods?limit=2&continue=next",
+        "{\"kind\":\"PodList\",\"metadata\":{},\"items\":[{\"metadata\":{\"name\":\"c\"}}]}");
+
+    ImmutableList<KubernetesManifest> pods =
+        reader.list(
+            ImmutableList.of(KubernetesKind.POD), NAMESPACE, new KubernetesSelectorList());
+
+    assertThat(pods).extracting(KubernetesManifest::getName).containsExactly("a", "b", "c");
+    assertThat(pods).extracting(KubernetesManifest::getKind).containsOnly(KubernetesKind.POD);
+    assertThat(pods).extracting(m -> m.get("apiVersion")).containsOnly("v1");
+  }
+
+  @Test
+  void getsFromPreferredGroupVersion() {
+    responses.put(
+        "/apis/apps/v1/namespaces/test-namespace/deployments/my-deployment",
+        "{\"kind\":\"Deployment\",\"apiVersion\":\"apps/v1\","
+            + "\"metadata\":{\"name\":\"my-deployment\"}}");
+
+    KubernetesManifest deployment =
+        reader.get(KubernetesKind.DEPLOYMENT, NAMESPACE, "my-deployment");
+
+    assertThat(deployment).isNotNull();
+    assertThat(deployment.getName()).isEqualTo("my-deployment");
+    assertThat(reader.get(KubernetesKind.DEPLOYMENT, NAMESPACE, "missing")).isNull();
+  }
+
+  @Test
+  void readsEventsForResource() {
+    responses.put(
+        "/api/v1/namespaces/test-namespace/events"
+            + "?fieldSelector=involvedObject.name%3Dmy-pod%2CinvolvedObject.kind%3DPod&limit=2",
+        "{\"metadata\":{},\"items\":[{\"metadata\":{\"name\":\"my-pod.1\"}}]}");
+
+    assertThat(reader.eventsFor(KubernetesKind.POD, NAMESPACE, "my-pod"))
+        .extracting(KubernetesManifest::getName)
+        .containsExactly("my-pod.1");
+  }
+
+  @Test
+  void formatsPodMetricsAsKubectlTopDoes() {
+    responses.put(
+        "/apis/metrics.k8s.io/v1beta1/namespaces/test-namespace/pods/my-pod",
+        "{\"metadata\":{\"name\":\"my-pod\",\"namespace\":\"test-namespace\"},"
+            + "\"containers\":[{\"name\":\"app\","
+            + "\"usage\":{\"cpu\":\"1500001n\",\"memory\":\"3145728Ki\"}}]}");
+
+    ImmutableList<KubernetesPodMetric> metrics = reader.topPod(NAMESPACE, "my-pod");
+
+    assertThat(metrics).hasSize(1);
+    assertThat(metrics.get(0).getContainerMetrics().get(0).getMetrics())
+        .containsEntry("CPU(cores)", "2m")
+        .containsEntry("MEMORY(bytes)", "3072Mi");
+  }
+
+  @Test
+  void watchesFromCurrentVersion() {
+    responses.put(
+        "/api/v1/pods?limit=1",
+        "{\"kind\":\"PodList\",\"metadata\":{\"resourceVersion\":\"5\"},\"items\":[]}");
+    responses.put(
+        "/api/v1/pods?watch=true&resourceVersion=5&allowWatchBookmarks=true&timeoutSeconds=60",
+        "{\"type\":\"ADDED\","
+            + "\"object\":{\"metadata\":{\"name\":\"a\",\"resourceVersion\":\"6\"}}}\n"
+            + "{\"type\":\"BOOKMARK\",\"object\":{\"metadata\":{\"resourceVersion\":\"7\"}}}\n");
+
+    String version = reader.currentResourceVersion(KubernetesKind.POD);
+    List<KubernetesWatchEvent> events = new ArrayList<>();
+    reader.watch(KubernetesKind.POD, null, version, Duration.ofSeconds(60), events::add);
+
+    assertThat(version).isEqualTo("5");
+    assertThat(events)
+        .extracting(KubernetesWatchEvent::getType)
+        .containsExactly(KubernetesWatchEvent.Type.ADDED, KubernetesWatchEvent.Type.BOOKMARK);
+    assertThat(events.get(0).getObject().getKind()).isEqualTo(KubernetesKind.POD);
+    assertThat(events)
+        .extracting(e -> e.getObject().getResourceVersion())
+        .containsExactly("6", "7");
+  }
+
+  @Test
+  void createsClientAgainWhenCredentialsAreRejected() {
+    AtomicInteger clients = new AtomicInteger();
+    KubernetesApiReader refreshingReader =
+        new KubernetesApiReader(
+            "test-account",
+            () -> {
+              ApiClient client = new ApiClient();
+              client.setBasePath("http://localhost:" + server.getAddress().getPort());
+              client.setApiKeyPrefix("Bearer");
+              client.setApiKey("token-" + clients.incrementAndGet());
+              return client;
+            },
+            "default",
+            2);
+    responses.put(
+        "/api/v1/namespaces/test-namespace/pods?limit=2",
+        "{\"kind\":\"PodList\",\"metadata\":{},\"items\":[{\"metadata\":{\"name\":\"a\"}}]}");
+
+    refreshingReader.list(
+        ImmutableList.of(KubernetesKind.POD), NAMESPACE, new KubernetesSelectorList());
+    requiredAuthorization = "Bearer token-2";
+    ImmutableList<KubernetesManifest> pods =
+        refreshingReader.list(
+            ImmutableList.of(KubernetesKind.POD), NAMESPACE, new KubernetesSelectorList());
+
+    assertThat(pods).extracting(KubernetesManifest::getName).containsExactly("a");
+    assertThat(clients).hasValue(2);
+  }
+
+  @Test
+  void failsForUnknownKinds() {
+    assertThrows(
+        KubectlException.class,
+        () ->
+            reader.list(
+                ImmutableList.of(KubernetesKind.fromString("widget.example.com")),
+                NAMESPACE,
+                new KubernetesSelectorList()));
+  }
+
+  private void respond(HttpExchange exchange) throws IOException {
+    String request = exchange.getRequestURI().getRawPath();
+    if (exchange.getRequestURI().getRawQuery() != null) {
+      request += "?" + exchange.getRequestURI().getRawQuery();
+    }
+    String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+    if (requiredAuthorization != null && !requiredAuthorization.equals(authorization)) {
+      exchange.sendResponseHeaders(401, -1);
+      exchange.close();
+      return;
+    }
+    String response = responses.get(request);
+    byte[] body =
+        (response == null ? "{\"kind\":\"Status\",\"code\":404}" : response)
+            .getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(response == null ? 404 : 200, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+}
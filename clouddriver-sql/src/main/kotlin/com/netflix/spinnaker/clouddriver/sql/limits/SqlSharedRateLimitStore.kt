@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.clouddriver.sql.limits
+
+import com.netflix.spinnaker.clouddriver.core.limits.SharedRateLimitStore
+import com.netflix.spinnaker.clouddriver.sql.transactional
+import com.netflix.spinnaker.kork.sql.routing.withPool
+import org.jooq.DSLContext
+import org.jooq.impl.DSL.field
+import org.jooq.impl.DSL.table
+import java.time.Clock
+import kotlin.math.floor
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * A [SharedRateLimitStore] keeping each budget in a row of the shared_rate_limits table, which is
+ * locked while permits are taken from it.
+ */
+class SqlSharedRateLimitStore(
+  private val jooq: DSLContext,
+  private val clock: Clock,
+  private val poolName: String
+) : SharedRateLimitStore {
+
+  override fun acquire(budget: String, permits: Int, permitsPerSecond: Double): Int {
+    val capacity = max(permitsPerSecond, 1.0)
+    var granted = 0
+    withPool(poolName) {
+      jooq.transactional { ctx ->
+        val now = clock.millis()
+        ctx.insertInto(sharedRateLimitsTable)
+          .set(budgetColumn, budget)
+          .set(tokensColumn, capacity)
+          .set(lastUpdatedColumn, now)
+          .onDuplicateKeyIgnore()
+          .execute()
+
+        val (tokens, lastUpdated) = ctx.select(tokensColumn, lastUpdatedColumn)
+          .from(sharedRateLimitsTable)
+          .where(budgetColumn.eq(budget))
+          .forUpdate()
+          .fetchOne()!!
+
+        var available = tokens
+        var updated = lastUpdated
+        if (now > lastUpdated) {
+          available = min(capacity, tokens + (now - lastUpdated) * permitsPerSecond / 1000)
+          updated = now
+        }
+        granted = min(permits.toDouble(), floor(available)).toInt()
+
+        ctx.update(sharedRateLimitsTable)
+          .set(tokensColumn, available - granted)
+          .set(lastUpdatedColumn, updated)
+          .where(budgetColumn.eq(budget))
+          .execute()
+      }
+    }
+    return granted
+  }
+
+  companion object {
+    private val sharedRateLimitsTable = table("shared_rate_limits")
+    private val budgetColumn = field("budget", String::class.java)
+    private val tokensColumn = field("tokens", Double::class.java)
+    private val lastUpdatedColumn = field("last_updated", Long::class.java)
+  }
+}
@@ -23,4 +23,5 @@ enum class ConnectionPools(
   CACHE_READER("cacheReader"),
   EVENTS("events"),
   ACCOUNTS("accounts"),
+  RATE_LIMITS("rateLimits"),
 }
@@ -17,6 +17,7 @@ package com.netflix.spinnaker.config
 
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.netflix.spectator.api.Registry
+import com.netflix.spinnaker.clouddriver.core.limits.SharedRateLimitStore
 import com.netflix.spinnaker.clouddriver.data.task.TaskRepository
 import com.netflix.spinnaker.clouddriver.event.persistence.EventRepository
 import com.netflix.spinnaker.clouddriver.security.AccountDefinitionMapper
@@ -26,6 +27,7 @@ import com.netflix.spinnaker.clouddriver.sql.SqlTaskCleanupAgent
 import com.netflix.spinnaker.clouddriver.sql.SqlTaskRepository
 import com.netflix.spinnaker.clouddriver.sql.event.SqlEventCleanupAgent
 import com.netflix.spinnaker.clouddriver.sql.event.SqlEventRepository
+import com.netflix.spinnaker.clouddriver.sql.limits.SqlSharedRateLimitStore
 import com.netflix.spinnaker.clouddriver.sql.security.SqlAccountDefinitionRepository
 import com.netflix.spinnaker.kork.dynamicconfig.DynamicConfigService
 import com.netflix.spinnaker.kork.jackson.ObjectMapperSubtypeConfigurer
@@ -135,4 +137,11 @@ class SqlConfiguration {
     mapper: AccountDefinitionMapper
   ): AccountDefinitionRepository = SqlAccountDefinitionRepository(jooq, mapper, clock, ConnectionPools.ACCOUNTS.value)
 
+  @Bean
+  @ConditionalOnProperty("sql.shared-rate-limits.enabled")
+  fun sqlSharedRateLimitStore(
+    jooq: DSLContext,
+    clock: Clock
+  ): SharedRateLimitStore = SqlSharedRateLimitStore(jooq, clock, ConnectionPools.RATE_LIMITS.value)
+
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.netflix.spinnaker.clouddriver.sql.limits
+
+import com.netflix.spinnaker.kork.sql.test.SqlTestUtil
+import dev.minutest.junit.JUnit5Minutests
+import dev.minutest.rootContext
+import io.mockk.every
+import io.mockk.mockk
+import strikt.api.expectThat
+import strikt.assertions.isEqualTo
+import java.time.Clock
+
+class SqlSharedRateLimitStoreTest : JUnit5Minutests {
+
+  fun tests() = rootContext<Fixture> {
+    fixture {
+      Fixture()
+    }
+
+    after {
+      SqlTestUtil.cleanupDb(database.context)
+    }
+
+    test("grants at most one second worth of permits") {
+      expectThat(subject.acquire("budget", 6, 10.0)).isEqualTo(6)
+      expectThat(subject.acquire("budget", 6, 10.0)).isEqualTo(4)
+      expectThat(subject.acquire("budget", 6, 10.0)).isEqualTo(0)
+    }
+
+    test("refills budgets at the configured rate") {
+      subject.acquire("budget", 10, 10.0)
+      now += 500
+
+      expectThat(subject.acquire("budget", 10, 10.0)).isEqualTo(5)
+      expectThat(subject.acquire("other", 10, 10.0)).isEqualTo(10)
+    }
+  }
+
+  private inner class Fixture {
+    val database = SqlTestUtil.initTcMysqlDatabase()!!
+    var now = 1_000_000L
+    val clock: Clock = mockk {
+      every { millis() } answers { now }
+    }
+
+    val subject = SqlSharedRateLimitStore(database.context, clock, "default")
+  }
+}